@@ -0,0 +1,188 @@
+package expressions;
+
+import expressions.exceptions.*;
+
+import java.util.Arrays;
+
+import static expressions.PostfixProgram.*;
+
+/**
+ * Evaluates one expression at many points stored in columns (one array of values per variable).
+ * Points are processed in blocks: each node of the expression is applied to a whole block before
+ * moving on to the next node, so per-node dispatch is paid once per block instead of once per
+ * point, and the arithmetic runs as tight loops over primitive arrays (using SIMD instructions
+ * when the Vector API is available). An evaluator keeps scratch buffers between calls, so it is
+ * not safe to use from several threads at once.
+ */
+public final class BatchEvaluator {
+
+    /**
+     * Number of points processed per block, chosen so that the scratch buffers stay in cache.
+     */
+    private static final int BLOCK_SIZE = 512;
+
+    private static final ColumnKernels KERNELS = ColumnKernels.best();
+
+    private final PostfixProgram program;
+
+    /**
+     * The number of variables whose columns must be provided.
+     */
+    private final int columnCount;
+
+    /**
+     * One buffer per stack level, holding the block of values computed at that level.
+     */
+    private final double[][] scratch;
+
+    /**
+     * The array and offset holding the block of values at each stack level. A level either points
+     * into its scratch buffer or directly into an input column.
+     */
+    private final double[][] stackArrays;
+    private final int[] stackOffsets;
+
+    /**
+     * Create an evaluator for `expr` in which column i of each batch holds the values of the
+     * variable `vars[i]`. Throws UnboundVariableException if `expr` contains a variable that is
+     * not in `vars`. Throws IllegalArgumentException if `expr` contains a node that is not a
+     * Constant, Variable, Operation or Application.
+     */
+    public BatchEvaluator(Expression expr, String[] vars) throws UnboundVariableException {
+        program = new PostfixProgram(expr, vars);
+        columnCount = vars.length;
+        scratch = new double[program.maxDepth][BLOCK_SIZE];
+        stackArrays = new double[program.maxDepth][];
+        stackOffsets = new int[program.maxDepth];
+    }
+
+    /**
+     * Evaluates the expression at `out.length` points, storing the value at point p in `out[p]`.
+     * The value of variable `vars[i]` at point p is `columns[i][p]`. Requires `columns` has one
+     * column per variable and each column has at least `out.length` values.
+     */
+    public void eval(double[][] columns, double[] out) {
+        assert columns.length == columnCount;
+
+        int points = out.length;
+        for (int base = 0; base < points; base += BLOCK_SIZE) {
+            int n = Math.min(BLOCK_SIZE, points - base);
+            evalBlock(columns, base, n);
+            System.arraycopy(stackArrays[0], stackOffsets[0], out, base, n);
+        }
+    }
+
+    /**
+     * Runs the program on the `n` points starting at point `base`, leaving the result at the
+     * bottom of the stack.
+     */
+    private void evalBlock(double[][] columns, int base, int n) {
+        int[] code = program.code;
+        int[] operand = program.operand;
+        int top = -1;
+        for (int pc = 0; pc < code.length; pc++) {
+            int instruction = code[pc];
+            if (instruction == CONST) {
+                top++;
+                Arrays.fill(scratch[top], 0, n, program.constants[operand[pc]]);
+                stackArrays[top] = scratch[top];
+                stackOffsets[top] = 0;
+            } else if (instruction == VAR) {
+                top++;
+                stackArrays[top] = columns[operand[pc]];
+                stackOffsets[top] = base;
+            } else if (instruction <= OPERATE) {
+                top--;
+                binary(instruction, operand[pc], top, n);
+            } else {
+                unary(instruction, operand[pc], top, n);
+            }
+        }
+    }
+
+    /**
+     * Replaces stack levels `level` and `level + 1` with the result of the binary instruction
+     * `instruction` applied to them, storing it in the scratch buffer of `level`.
+     */
+    private void binary(int instruction, int index, int level, int n) {
+        double[] a = stackArrays[level];
+        int aOffset = stackOffsets[level];
+        double[] b = stackArrays[level + 1];
+        int bOffset = stackOffsets[level + 1];
+        double[] dst = scratch[level];
+        switch (instruction) {
+            case ADD -> KERNELS.add(a, aOffset, b, bOffset, dst, n);
+            case SUB -> KERNELS.sub(a, aOffset, b, bOffset, dst, n);
+            case MUL -> KERNELS.mul(a, aOffset, b, bOffset, dst, n);
+            case DIV -> KERNELS.div(a, aOffset, b, bOffset, dst, n);
+            case POW -> {
+                for (int i = 0; i < n; i++) {
+                    dst[i] = Math.pow(a[aOffset + i], b[bOffset + i]);
+                }
+            }
+            default -> {
+                Operator op = program.operators[index];
+                for (int i = 0; i < n; i++) {
+                    dst[i] = op.operate(a[aOffset + i], b[bOffset + i]);
+                }
+            }
+        }
+        stackArrays[level] = dst;
+        stackOffsets[level] = 0;
+    }
+
+    /**
+     * Replaces stack level `level` with the result of the function instruction `instruction`
+     * applied to it, storing it in the scratch buffer of `level`.
+     */
+    private void unary(int instruction, int index, int level, int n) {
+        double[] src = stackArrays[level];
+        int offset = stackOffsets[level];
+        double[] dst = scratch[level];
+        switch (instruction) {
+            case ABS -> {
+                for (int i = 0; i < n; i++) {
+                    dst[i] = Math.abs(src[offset + i]);
+                }
+            }
+            case SQRT -> {
+                for (int i = 0; i < n; i++) {
+                    dst[i] = Math.sqrt(src[offset + i]);
+                }
+            }
+            case EXP -> {
+                for (int i = 0; i < n; i++) {
+                    dst[i] = Math.exp(src[offset + i]);
+                }
+            }
+            case LOG -> {
+                for (int i = 0; i < n; i++) {
+                    dst[i] = Math.log(src[offset + i]);
+                }
+            }
+            case SIN -> {
+                for (int i = 0; i < n; i++) {
+                    dst[i] = Math.sin(src[offset + i]);
+                }
+            }
+            case COS -> {
+                for (int i = 0; i < n; i++) {
+                    dst[i] = Math.cos(src[offset + i]);
+                }
+            }
+            case TAN -> {
+                for (int i = 0; i < n; i++) {
+                    dst[i] = Math.tan(src[offset + i]);
+                }
+            }
+            default -> {
+                UnaryFunction func = program.functions[index];
+                for (int i = 0; i < n; i++) {
+                    dst[i] = func.apply(src[offset + i]);
+                }
+            }
+        }
+        stackArrays[level] = dst;
+        stackOffsets[level] = 0;
+    }
+}
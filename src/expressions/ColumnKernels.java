@@ -0,0 +1,28 @@
+package expressions;
+
+/**
+ * Elementwise arithmetic on blocks of doubles, as used by BatchEvaluator. Each method reads `n`
+ * values from `a` starting at `aOffset` and from `b` starting at `bOffset`, and writes the `n`
+ * results to the start of `dst`. `dst` may be the same array as `a` if `aOffset` is 0.
+ */
+interface ColumnKernels {
+
+    void add(double[] a, int aOffset, double[] b, int bOffset, double[] dst, int n);
+
+    void sub(double[] a, int aOffset, double[] b, int bOffset, double[] dst, int n);
+
+    void mul(double[] a, int aOffset, double[] b, int bOffset, double[] dst, int n);
+
+    void div(double[] a, int aOffset, double[] b, int bOffset, double[] dst, int n);
+
+    /**
+     * Return the SIMD kernels if the incubating Vector API module is available to this JVM, and
+     * the scalar kernels otherwise.
+     */
+    static ColumnKernels best() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return new VectorColumnKernels();
+        }
+        return new ScalarColumnKernels();
+    }
+}
@@ -0,0 +1,15 @@
+package expressions;
+
+/**
+ * An expression that has been compiled to JVM bytecode by ExpressionCompiler. Variables are read
+ * from a primitive array of slots instead of being looked up by name in a VarTable.
+ */
+public interface CompiledExpression {
+
+    /**
+     * Return the result of evaluating this expression, substituting each variable with the value
+     * in its slot of `slots`. Requires `slots` is at least as long as the variable list this
+     * expression was compiled against.
+     */
+    double eval(double[] slots);
+}
@@ -78,6 +78,15 @@ public final class Constant implements Expression {
         return c.value == value;
     }
 
+    /**
+     * Returns a hash code consistent with equals(); positive and negative zero, which compare
+     * equal, have the same hash code.
+     */
+    @Override
+    public int hashCode() {
+        return value == 0.0 ? 0 : Double.hashCode(value);
+    }
+
     /**
      * A Constant has no dependencies.
      */
@@ -0,0 +1,51 @@
+package expressions;
+
+import expressions.exceptions.*;
+
+/**
+ * Evaluates a group of expressions together, computing each structurally distinct subexpression
+ * only once per point. The expressions are hash-consed into a shared DAG when the evaluator is
+ * created, which pays off for derivative-heavy groups such as Jacobians, whose entries repeat
+ * many of the same subtrees. An evaluator keeps a buffer of node values between calls, so it is
+ * not safe to use from several threads at once.
+ */
+public final class DagEvaluator {
+
+    private final ExpressionDag dag;
+
+    /**
+     * The value of every node at the most recently evaluated point.
+     */
+    private final double[] values;
+
+    /**
+     * Create an evaluator for `exprs`, in which the value of the variable `vars[i]` is read from
+     * index i of each point. Throws UnboundVariableException if an expression contains a variable
+     * that is not in `vars`. Throws IllegalArgumentException if an expression contains a node
+     * that is not a Constant, Variable, Operation or Application.
+     */
+    public DagEvaluator(Expression[] exprs, String[] vars) throws UnboundVariableException {
+        dag = new ExpressionDag(exprs, vars);
+        values = new double[dag.size];
+    }
+
+    /**
+     * Evaluates every expression at `point`, storing the value of expression i in `out[i]`.
+     * Requires `point` has a value for every variable and `out` has one element per expression.
+     */
+    public void eval(double[] point, double[] out) {
+        assert out.length == dag.roots.length;
+
+        dag.evaluate(point, values);
+        for (int i = 0; i < out.length; i++) {
+            out[i] = values[dag.roots[i]];
+        }
+    }
+
+    /**
+     * Returns the number of distinct subexpressions computed per evaluation.
+     */
+    public int nodeCount() {
+        return dag.size;
+    }
+}
@@ -0,0 +1,185 @@
+package expressions;
+
+import expressions.exceptions.*;
+
+import java.util.Arrays;
+
+import static expressions.PostfixProgram.*;
+
+/**
+ * Evaluates an expression together with its gradient using forward-mode automatic
+ * differentiation: every intermediate value carries the vector of its partial derivatives with
+ * respect to all variables (a dual number), so one pass over the expression yields both f(x) and
+ * the full gradient, without building any symbolic derivative. The derivative of abs is taken to
+ * be the sign of its argument. An evaluator keeps its stack between calls, so it is not safe to
+ * use from several threads at once.
+ */
+public final class DualEvaluator {
+
+    private final PostfixProgram program;
+
+    /**
+     * The number of variables, which is also the length of every gradient.
+     */
+    private final int dim;
+
+    /**
+     * The value, gradient, and whether the gradient is known to be zero, for each stack level.
+     * Tracking constant levels lets the evaluator skip gradient arithmetic for subexpressions
+     * that depend on no variable.
+     */
+    private final double[] values;
+    private final double[][] gradients;
+    private final boolean[] constant;
+
+    /**
+     * Create an evaluator for `expr` whose gradient is taken with respect to `vars`, in order.
+     * Throws UnboundVariableException if `expr` contains a variable that is not in `vars`. Throws
+     * IllegalArgumentException if `expr` contains a node that is not a Constant, Variable,
+     * Operation or Application, or an operator or function without a known derivative.
+     */
+    public DualEvaluator(Expression expr, String[] vars) throws UnboundVariableException {
+        program = new PostfixProgram(expr, vars);
+        for (int instruction : program.code) {
+            if (instruction == OPERATE || instruction == APPLY) {
+                throw new IllegalArgumentException(
+                        "Expression contains an operator or function with no known derivative");
+            }
+        }
+        dim = vars.length;
+        values = new double[program.maxDepth];
+        gradients = new double[program.maxDepth][dim];
+        constant = new boolean[program.maxDepth];
+    }
+
+    /**
+     * Returns the value of the expression at `point` and stores its partial derivative with
+     * respect to `vars[j]` in `gradient[j]`. Requires `point` and `gradient` have one element per
+     * variable.
+     */
+    public double eval(double[] point, double[] gradient) {
+        assert point.length >= dim && gradient.length == dim;
+
+        int[] code = program.code;
+        int[] operand = program.operand;
+        int top = -1;
+        for (int pc = 0; pc < code.length; pc++) {
+            int instruction = code[pc];
+            if (instruction == CONST) {
+                top++;
+                values[top] = program.constants[operand[pc]];
+                constant[top] = true;
+            } else if (instruction == VAR) {
+                top++;
+                values[top] = point[operand[pc]];
+                Arrays.fill(gradients[top], 0.0);
+                gradients[top][operand[pc]] = 1.0;
+                constant[top] = false;
+            } else if (instruction <= POW) {
+                top--;
+                binary(instruction, top);
+            } else {
+                unary(instruction, top);
+            }
+        }
+        if (constant[0]) {
+            Arrays.fill(gradient, 0.0);
+        } else {
+            System.arraycopy(gradients[0], 0, gradient, 0, dim);
+        }
+        return values[0];
+    }
+
+    /**
+     * Replaces stack levels `level` and `level + 1` with the result of the binary instruction
+     * `instruction` applied to them.
+     */
+    private void binary(int instruction, int level) {
+        double u = values[level];
+        double v = values[level + 1];
+        boolean uConst = constant[level];
+        boolean vConst = constant[level + 1];
+        double[] du = gradients[level];
+        double[] dv = gradients[level + 1];
+        double result = switch (instruction) {
+            case ADD -> u + v;
+            case SUB -> u - v;
+            case MUL -> u * v;
+            case DIV -> u / v;
+            default -> Math.pow(u, v);
+        };
+        values[level] = result;
+        constant[level] = uConst && vConst;
+        if (uConst && vConst) {
+            return;
+        }
+        // The result's gradient is a*du + b*dv for coefficients depending on the instruction
+        double a;
+        double b;
+        switch (instruction) {
+            case ADD -> {
+                a = 1.0;
+                b = 1.0;
+            }
+            case SUB -> {
+                a = 1.0;
+                b = -1.0;
+            }
+            case MUL -> {
+                a = v;
+                b = u;
+            }
+            case DIV -> {
+                a = 1.0 / v;
+                b = -u / (v * v);
+            }
+            default -> {
+                // Power rule when the exponent is constant, which also handles u <= 0
+                a = vConst ? v * Math.pow(u, v - 1.0) : result * v / u;
+                b = vConst ? 0.0 : result * Math.log(u);
+            }
+        }
+        if (uConst) {
+            for (int j = 0; j < dim; j++) {
+                du[j] = b * dv[j];
+            }
+        } else if (vConst) {
+            for (int j = 0; j < dim; j++) {
+                du[j] = a * du[j];
+            }
+        } else {
+            for (int j = 0; j < dim; j++) {
+                du[j] = a * du[j] + b * dv[j];
+            }
+        }
+    }
+
+    /**
+     * Replaces stack level `level` with the result of the built-in function instruction
+     * `instruction` applied to it.
+     */
+    private void unary(int instruction, int level) {
+        double u = values[level];
+        double result = applyBuiltin(instruction, u);
+        values[level] = result;
+        if (constant[level]) {
+            return;
+        }
+        double a = switch (instruction) {
+            case ABS -> Math.signum(u);
+            case SQRT -> 0.5 / result;
+            case EXP -> result;
+            case LOG -> 1.0 / u;
+            case SIN -> Math.cos(u);
+            case COS -> -Math.sin(u);
+            default -> {
+                double cos = Math.cos(u);
+                yield 1.0 / (cos * cos);
+            }
+        };
+        double[] du = gradients[level];
+        for (int j = 0; j < dim; j++) {
+            du[j] = a * du[j];
+        }
+    }
+}
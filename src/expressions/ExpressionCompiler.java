@@ -0,0 +1,502 @@
+package expressions;
+
+import expressions.exceptions.*;
+import expressions.functions.*;
+import expressions.operations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Compiles expression trees into hidden classes implementing CompiledExpression. The generated
+ * `eval` method is straight-line bytecode: constants are loaded from the constant pool, variables
+ * are loaded from their slot of the argument array, and the standard operators and math
+ * functions become arithmetic instructions and direct calls into java.lang.Math, so the JIT can
+ * inline the entire formula. Operators and functions without a bytecode equivalent are called
+ * through the Operator or UnaryFunction object itself.
+ */
+public final class ExpressionCompiler {
+
+    /**
+     * Internal name given to every generated class (the JVM appends a unique suffix to the names
+     * of hidden classes). Must be in the same package as this class.
+     */
+    private static final String CLASS_NAME = "expressions/ExpressionCompiler$Generated";
+
+    private static final String FUNCS_DESC = "[Lexpressions/UnaryFunction;";
+    private static final String OPS_DESC = "[Lexpressions/Operator;";
+
+    /**
+     * The functions that are compiled to a call of the java.lang.Math method with the same name.
+     */
+    private static final Map<String, UnaryFunction> MATH_FUNCTIONS = UnaryFunction.mathDefs();
+
+    /* Bytecode instructions used by the generated methods. */
+    private static final int ICONST_0 = 0x03;
+    private static final int DCONST_0 = 0x0e;
+    private static final int DCONST_1 = 0x0f;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int DALOAD = 0x31;
+    private static final int AALOAD = 0x32;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DDIV = 0x6f;
+    private static final int DRETURN = 0xaf;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int PUTFIELD = 0xb5;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int INVOKEINTERFACE = 0xb9;
+
+    /**
+     * Maps each variable name to its index in the slot array.
+     */
+    private final Map<String, Integer> slots;
+
+    private final ConstantPool pool = new ConstantPool();
+
+    /**
+     * Bytecode of the `eval` method, without the final return instruction.
+     */
+    private final ByteVector code = new ByteVector();
+
+    /**
+     * Current and maximum operand stack depth (in JVM stack slots) of the `eval` method.
+     */
+    private int stack;
+    private int maxStack;
+
+    /**
+     * Functions and operators that are called through their objects, which are passed to the
+     * constructor of the generated class. Each is mapped to its index in the passed array.
+     */
+    private final Map<UnaryFunction, Integer> funcs = new IdentityHashMap<>();
+    private final Map<Operator, Integer> ops = new IdentityHashMap<>();
+
+    private ExpressionCompiler(Map<String, Integer> slots) {
+        this.slots = slots;
+    }
+
+    /**
+     * Returns a compiled version of `expr` in which every variable is read from the slot equal to
+     * the index of its name in `vars`. Throws UnboundVariableException if `expr` contains a
+     * variable that is not in `vars`. Throws IllegalArgumentException if `expr` contains a node
+     * that is not a Constant, Variable, Operation or Application, or is too large to fit in a
+     * single JVM method.
+     */
+    public static CompiledExpression compile(Expression expr, String[] vars)
+            throws UnboundVariableException {
+        assert expr != null && vars != null;
+
+        Map<String, Integer> slots = new HashMap<>();
+        for (int i = 0; i < vars.length; i++) {
+            assert vars[i] != null;
+            slots.putIfAbsent(vars[i], i);
+        }
+        ExpressionCompiler compiler = new ExpressionCompiler(slots);
+        compiler.emit(expr);
+        byte[] bytes = compiler.classBytes();
+
+        MethodHandle constructor;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            constructor = lookup.findConstructor(lookup.lookupClass(),
+                    MethodType.methodType(void.class, UnaryFunction[].class, Operator[].class));
+        } catch (IllegalAccessException | NoSuchMethodException e) {
+            // Shouldn't happen since the generated class is in this package
+            throw new RuntimeException(e);
+        }
+        try {
+            return (CompiledExpression) constructor.invoke(
+                    toArray(compiler.funcs, new UnaryFunction[compiler.funcs.size()]),
+                    toArray(compiler.ops, new Operator[compiler.ops.size()]));
+        } catch (Throwable e) {
+            // Shouldn't happen since the generated constructor only stores its arguments
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns `array` filled with the keys of `indices`, each at its mapped index.
+     */
+    private static <T> T[] toArray(Map<T, Integer> indices, T[] array) {
+        for (Map.Entry<T, Integer> entry : indices.entrySet()) {
+            array[entry.getValue()] = entry.getKey();
+        }
+        return array;
+    }
+
+    /**
+     * Appends bytecode that pushes the value of `expr` onto the operand stack.
+     */
+    private void emit(Expression expr) throws UnboundVariableException {
+        if (expr instanceof Constant constant) {
+            double value = constant.value();
+            // Negative zero must be loaded from the constant pool to keep its sign
+            if (Double.doubleToRawLongBits(value) == 0L) {
+                code.putByte(DCONST_0);
+            } else if (value == 1.0) {
+                code.putByte(DCONST_1);
+            } else {
+                code.putByte(LDC2_W).putShort(pool.doubleConstant(value));
+            }
+            push(2);
+        } else if (expr instanceof Variable variable) {
+            Integer slot = slots.get(variable.name());
+            if (slot == null) {
+                throw new UnboundVariableException(variable.name());
+            }
+            code.putByte(ALOAD_1);
+            push(1);
+            pushInt(slot);
+            code.putByte(DALOAD);
+            pop(2);
+            push(2);
+        } else if (expr instanceof Operation operation) {
+            Operator op = operation.operator();
+            int instruction = arithmeticInstruction(op);
+            if (instruction != 0 || op == Operator.POW) {
+                emit(operation.leftOperand());
+                emit(operation.rightOperand());
+                if (op == Operator.POW) {
+                    code.putByte(INVOKESTATIC).putShort(
+                            pool.methodRef("java/lang/Math", "pow", "(DD)D"));
+                } else {
+                    code.putByte(instruction);
+                }
+                pop(4);
+            } else {
+                loadElement("ops", OPS_DESC, indexOf(ops, op));
+                emit(operation.leftOperand());
+                emit(operation.rightOperand());
+                code.putByte(INVOKEINTERFACE).putShort(pool.interfaceMethodRef(
+                        "expressions/Operator", "operate", "(DD)D")).putByte(5).putByte(0);
+                pop(5);
+            }
+            push(2);
+        } else if (expr instanceof Application application) {
+            UnaryFunction func = application.function();
+            if (MATH_FUNCTIONS.get(func.name()) == func) {
+                emit(application.argument());
+                code.putByte(INVOKESTATIC).putShort(
+                        pool.methodRef("java/lang/Math", func.name(), "(D)D"));
+                pop(2);
+            } else {
+                loadElement("funcs", FUNCS_DESC, indexOf(funcs, func));
+                emit(application.argument());
+                code.putByte(INVOKEVIRTUAL).putShort(pool.methodRef(
+                        "expressions/UnaryFunction", "apply", "(D)D"));
+                pop(3);
+            }
+            push(2);
+        } else {
+            throw new IllegalArgumentException(
+                    "Cannot compile expression node of type " + expr.getClass().getName());
+        }
+    }
+
+    /**
+     * Returns the instruction that performs `op` on two doubles, or 0 if there is none.
+     */
+    private static int arithmeticInstruction(Operator op) {
+        if (op == Operator.ADD) {
+            return DADD;
+        } else if (op == Operator.SUBTRACT) {
+            return DSUB;
+        } else if (op == Operator.MULTIPLY) {
+            return DMUL;
+        } else if (op == Operator.DIVIDE) {
+            return DDIV;
+        } else {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the index of `key` in `indices`, assigning it the next free index if it has none.
+     */
+    private static <T> int indexOf(Map<T, Integer> indices, T key) {
+        return indices.computeIfAbsent(key, k -> indices.size());
+    }
+
+    /**
+     * Appends bytecode that pushes element `index` of the array stored in field `name`.
+     */
+    private void loadElement(String name, String desc, int index) {
+        code.putByte(ALOAD_0).putByte(GETFIELD).putShort(pool.fieldRef(CLASS_NAME, name, desc));
+        push(1);
+        pushInt(index);
+        code.putByte(AALOAD);
+        pop(1);
+    }
+
+    /**
+     * Appends the shortest instruction that pushes the int `value`.
+     */
+    private void pushInt(int value) {
+        if (0 <= value && value <= 5) {
+            code.putByte(ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            code.putByte(BIPUSH).putByte(value);
+        } else if (value <= Short.MAX_VALUE) {
+            code.putByte(SIPUSH).putShort(value);
+        } else {
+            code.putByte(LDC_W).putShort(pool.intConstant(value));
+        }
+        push(1);
+    }
+
+    private void push(int size) {
+        stack += size;
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    private void pop(int size) {
+        stack -= size;
+    }
+
+    /**
+     * Returns the class file of the generated class, whose `eval` method executes the bytecode
+     * emitted so far.
+     */
+    private byte[] classBytes() {
+        code.putByte(DRETURN);
+        if (code.length() > 65535 || maxStack > 65535) {
+            throw new IllegalArgumentException(
+                    "Expression is too large to compile into a single method");
+        }
+
+        // Register every constant before the pool is written
+        int thisClass = pool.classRef(CLASS_NAME);
+        int superClass = pool.classRef("java/lang/Object");
+        int interfaceClass = pool.classRef("expressions/CompiledExpression");
+        int funcsField = pool.fieldRef(CLASS_NAME, "funcs", FUNCS_DESC);
+        int opsField = pool.fieldRef(CLASS_NAME, "ops", OPS_DESC);
+        int objectInit = pool.methodRef("java/lang/Object", "<init>", "()V");
+        int codeName = pool.utf8("Code");
+
+        ByteVector init = new ByteVector();
+        init.putByte(ALOAD_0).putByte(INVOKESPECIAL).putShort(objectInit);
+        init.putByte(ALOAD_0).putByte(ALOAD_1).putByte(PUTFIELD).putShort(funcsField);
+        init.putByte(ALOAD_0).putByte(ALOAD_2).putByte(PUTFIELD).putShort(opsField);
+        init.putByte(RETURN);
+
+        ByteVector methods = new ByteVector();
+        writeMethod(methods, pool.utf8("<init>"), pool.utf8("(" + FUNCS_DESC + OPS_DESC + ")V"),
+                codeName, init, 2, 3);
+        writeMethod(methods, pool.utf8("eval"), pool.utf8("([D)D"), codeName, code, maxStack,
+                2);
+        ByteVector fields = new ByteVector();
+        writeField(fields, pool.utf8("funcs"), pool.utf8(FUNCS_DESC));
+        writeField(fields, pool.utf8("ops"), pool.utf8(OPS_DESC));
+
+        ByteVector cls = new ByteVector();
+        cls.putInt(0xCAFEBABE).putShort(0).putShort(61);
+        cls.putShort(pool.count).putBytes(pool.bytes);
+        // ACC_PUBLIC | ACC_FINAL | ACC_SUPER
+        cls.putShort(0x0031).putShort(thisClass).putShort(superClass);
+        cls.putShort(1).putShort(interfaceClass);
+        cls.putShort(2).putBytes(fields);
+        cls.putShort(2).putBytes(methods);
+        cls.putShort(0);
+        return cls.toByteArray();
+    }
+
+    /**
+     * Appends a private final field with no attributes to `out`.
+     */
+    private static void writeField(ByteVector out, int name, int desc) {
+        out.putShort(0x0012).putShort(name).putShort(desc).putShort(0);
+    }
+
+    /**
+     * Appends a public method whose only attribute is the Code attribute holding `body`.
+     */
+    private static void writeMethod(ByteVector out, int name, int desc, int codeName,
+            ByteVector body, int maxStack, int maxLocals) {
+        out.putShort(0x0001).putShort(name).putShort(desc).putShort(1);
+        out.putShort(codeName).putInt(12 + body.length());
+        out.putShort(maxStack).putShort(maxLocals).putInt(body.length()).putBytes(body);
+        // No exception table and no attributes (straight-line code needs no stack map frames)
+        out.putShort(0).putShort(0);
+    }
+
+    /**
+     * A growable big-endian byte buffer, as used by the class file format.
+     */
+    private static final class ByteVector {
+        private byte[] data = new byte[64];
+        private int length;
+
+        int length() {
+            return length;
+        }
+
+        ByteVector putByte(int value) {
+            ensureCapacity(1);
+            data[length++] = (byte) value;
+            return this;
+        }
+
+        ByteVector putShort(int value) {
+            return putByte(value >>> 8).putByte(value);
+        }
+
+        ByteVector putInt(int value) {
+            return putShort(value >>> 16).putShort(value);
+        }
+
+        ByteVector putLong(long value) {
+            return putInt((int) (value >>> 32)).putInt((int) value);
+        }
+
+        ByteVector putBytes(ByteVector other) {
+            ensureCapacity(other.length);
+            System.arraycopy(other.data, 0, data, length, other.length);
+            length += other.length;
+            return this;
+        }
+
+        /**
+         * Appends `value` as a length-prefixed modified UTF-8 string.
+         */
+        ByteVector putUtf8(String value) {
+            ByteVector encoded = new ByteVector();
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c != 0 && c < 0x80) {
+                    encoded.putByte(c);
+                } else if (c < 0x800) {
+                    encoded.putByte(0xc0 | (c >> 6)).putByte(0x80 | (c & 0x3f));
+                } else {
+                    encoded.putByte(0xe0 | (c >> 12)).putByte(0x80 | ((c >> 6) & 0x3f))
+                            .putByte(0x80 | (c & 0x3f));
+                }
+            }
+            return putShort(encoded.length).putBytes(encoded);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(data, length);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > data.length) {
+                data = Arrays.copyOf(data, Math.max(2 * data.length, length + extra));
+            }
+        }
+    }
+
+    /**
+     * The constant pool of the generated class. Equal constants share a single entry.
+     */
+    private static final class ConstantPool {
+        private final ByteVector bytes = new ByteVector();
+        private final Map<String, Integer> indices = new HashMap<>();
+
+        /**
+         * The index that the next entry will have (entry 0 is unused).
+         */
+        private int count = 1;
+
+        int utf8(String value) {
+            Integer index = indices.get("Utf8 " + value);
+            if (index != null) {
+                return index;
+            }
+            bytes.putByte(1).putUtf8(value);
+            return register("Utf8 " + value, 1);
+        }
+
+        int intConstant(int value) {
+            Integer index = indices.get("Integer " + value);
+            if (index != null) {
+                return index;
+            }
+            bytes.putByte(3).putInt(value);
+            return register("Integer " + value, 1);
+        }
+
+        int doubleConstant(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            Integer index = indices.get("Double " + bits);
+            if (index != null) {
+                return index;
+            }
+            bytes.putByte(6).putLong(bits);
+            // Double entries take up two indices
+            return register("Double " + bits, 2);
+        }
+
+        int classRef(String internalName) {
+            Integer index = indices.get("Class " + internalName);
+            if (index != null) {
+                return index;
+            }
+            int name = utf8(internalName);
+            bytes.putByte(7).putShort(name);
+            return register("Class " + internalName, 1);
+        }
+
+        int fieldRef(String owner, String name, String desc) {
+            return memberRef(9, owner, name, desc);
+        }
+
+        int methodRef(String owner, String name, String desc) {
+            return memberRef(10, owner, name, desc);
+        }
+
+        int interfaceMethodRef(String owner, String name, String desc) {
+            return memberRef(11, owner, name, desc);
+        }
+
+        private int memberRef(int tag, String owner, String name, String desc) {
+            String key = "Member" + tag + " " + owner + "." + name + desc;
+            Integer index = indices.get(key);
+            if (index != null) {
+                return index;
+            }
+            int ownerIndex = classRef(owner);
+            int nameAndType = nameAndType(name, desc);
+            bytes.putByte(tag).putShort(ownerIndex).putShort(nameAndType);
+            return register(key, 1);
+        }
+
+        private int nameAndType(String name, String desc) {
+            String key = "NameAndType " + name + desc;
+            Integer index = indices.get(key);
+            if (index != null) {
+                return index;
+            }
+            int nameIndex = utf8(name);
+            int descIndex = utf8(desc);
+            bytes.putByte(12).putShort(nameIndex).putShort(descIndex);
+            return register(key, 1);
+        }
+
+        /**
+         * Records that the entry just written for `key` has the next free index, and reserves
+         * `size` indices for it.
+         */
+        private int register(String key, int size) {
+            int index = count;
+            indices.put(key, index);
+            count += size;
+            return index;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package expressions;
+
+import expressions.exceptions.*;
+import expressions.functions.*;
+import expressions.operations.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static expressions.PostfixProgram.*;
+
+/**
+ * A group of expressions hash-consed into one DAG and linearized in topological order. Node k is
+ * computed from nodes with smaller indices, so a single forward pass over the node arrays
+ * evaluates every distinct subexpression of every expression exactly once. Instruction codes are
+ * those of PostfixProgram.
+ */
+final class ExpressionDag {
+
+    /**
+     * The number of distinct nodes.
+     */
+    final int size;
+
+    /**
+     * The instruction code of each node.
+     */
+    final int[] code;
+
+    /**
+     * The indices of each node's operands (the argument of an application is its left operand).
+     * For a VAR node, `left` holds its slot instead.
+     */
+    final int[] left;
+    final int[] right;
+
+    /**
+     * The value of each CONST node.
+     */
+    final double[] constant;
+
+    /**
+     * The operator of each OPERATE node and the function of each APPLY node (null elsewhere).
+     */
+    final Operator[] operators;
+    final UnaryFunction[] functions;
+
+    /**
+     * The node index of each expression the DAG was built from.
+     */
+    final int[] roots;
+
+    /**
+     * Build the DAG of `exprs`, resolving every variable to the index of its name in `vars`.
+     * Throws UnboundVariableException if an expression contains a variable that is not in
+     * `vars`. Throws IllegalArgumentException if an expression contains a node that is not a
+     * Constant, Variable, Operation or Application.
+     */
+    ExpressionDag(Expression[] exprs, String[] vars) throws UnboundVariableException {
+        Builder builder = new Builder(vars);
+        ExpressionInterner interner = new ExpressionInterner();
+        roots = new int[exprs.length];
+        for (int i = 0; i < exprs.length; i++) {
+            roots[i] = builder.add(interner.intern(exprs[i]));
+        }
+        size = builder.size;
+        code = Arrays.copyOf(builder.code, size);
+        left = Arrays.copyOf(builder.left, size);
+        right = Arrays.copyOf(builder.right, size);
+        constant = Arrays.copyOf(builder.constant, size);
+        operators = Arrays.copyOf(builder.operators, size);
+        functions = Arrays.copyOf(builder.functions, size);
+    }
+
+    /**
+     * Computes the value of every node at the point whose coordinates (indexed by slot) are
+     * `point`, storing the value of node k in `values[k]`. Requires `values` has at least `size`
+     * elements.
+     */
+    void evaluate(double[] point, double[] values) {
+        for (int k = 0; k < size; k++) {
+            values[k] = switch (code[k]) {
+                case CONST -> constant[k];
+                case VAR -> point[left[k]];
+                case ADD -> values[left[k]] + values[right[k]];
+                case SUB -> values[left[k]] - values[right[k]];
+                case MUL -> values[left[k]] * values[right[k]];
+                case DIV -> values[left[k]] / values[right[k]];
+                case POW -> Math.pow(values[left[k]], values[right[k]]);
+                case OPERATE -> operators[k].operate(values[left[k]], values[right[k]]);
+                case APPLY -> functions[k].apply(values[left[k]]);
+                default -> applyBuiltin(code[k], values[left[k]]);
+            };
+        }
+    }
+
+    /**
+     * Assigns indices to nodes in post-order, visiting each distinct node once.
+     */
+    private static final class Builder {
+        private final Map<String, Integer> slots = new HashMap<>();
+        private final Map<Expression, Integer> indices = new IdentityHashMap<>();
+        private int size;
+        private int[] code = new int[16];
+        private int[] left = new int[16];
+        private int[] right = new int[16];
+        private double[] constant = new double[16];
+        private Operator[] operators = new Operator[16];
+        private UnaryFunction[] functions = new UnaryFunction[16];
+
+        Builder(String[] vars) {
+            for (int i = 0; i < vars.length; i++) {
+                assert vars[i] != null;
+                slots.putIfAbsent(vars[i], i);
+            }
+        }
+
+        /**
+         * Returns the index of `expr`, adding it and any of its descendants that have not been
+         * added yet.
+         */
+        int add(Expression expr) throws UnboundVariableException {
+            Integer existing = indices.get(expr);
+            if (existing != null) {
+                return existing;
+            }
+            int k;
+            if (expr instanceof Constant c) {
+                k = newNode(CONST, 0, 0);
+                constant[k] = c.value();
+            } else if (expr instanceof Variable variable) {
+                Integer slot = slots.get(variable.name());
+                if (slot == null) {
+                    throw new UnboundVariableException(variable.name());
+                }
+                k = newNode(VAR, slot, 0);
+            } else if (expr instanceof Operation operation) {
+                int l = add(operation.leftOperand());
+                int r = add(operation.rightOperand());
+                int opCode = operatorCode(operation.operator());
+                k = newNode(opCode, l, r);
+                if (opCode == OPERATE) {
+                    operators[k] = operation.operator();
+                }
+            } else if (expr instanceof Application application) {
+                int arg = add(application.argument());
+                int funcCode = functionCode(application.function());
+                k = newNode(funcCode, arg, 0);
+                if (funcCode == APPLY) {
+                    functions[k] = application.function();
+                }
+            } else {
+                throw new IllegalArgumentException(
+                        "Unsupported expression node of type " + expr.getClass().getName());
+            }
+            indices.put(expr, k);
+            return k;
+        }
+
+        private int newNode(int instruction, int l, int r) {
+            if (size == code.length) {
+                int capacity = 2 * size;
+                code = Arrays.copyOf(code, capacity);
+                left = Arrays.copyOf(left, capacity);
+                right = Arrays.copyOf(right, capacity);
+                constant = Arrays.copyOf(constant, capacity);
+                operators = Arrays.copyOf(operators, capacity);
+                functions = Arrays.copyOf(functions, capacity);
+            }
+            code[size] = instruction;
+            left[size] = l;
+            right[size] = r;
+            return size++;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package expressions;
+
+import expressions.functions.*;
+import expressions.operations.*;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A node factory that hash-conses expressions: every structurally distinct subexpression built or
+ * interned through the same interner is represented by a single shared node, so expressions
+ * become DAGs instead of trees. Because children are already shared when a parent is interned,
+ * nodes are compared by the identity of their children, and interning an expression takes time
+ * linear in its number of distinct nodes. An interner holds on to every node it has produced;
+ * use one per group of expressions that should share structure.
+ */
+public final class ExpressionInterner {
+
+    /**
+     * Canonical constants, keyed by their bit patterns so that 0.0 and -0.0 stay distinct.
+     */
+    private final Map<Long, Expression> constants = new HashMap<>();
+
+    private final Map<String, Expression> variables = new HashMap<>();
+
+    /**
+     * Canonical operations and applications, keyed by their operator or function and the
+     * identities of their (canonical) children.
+     */
+    private final Map<NodeKey, Expression> nodes = new HashMap<>();
+
+    /**
+     * The canonical node for every node that has been passed to intern(), so that subtrees
+     * reachable along several paths are only visited once.
+     */
+    private final Map<Expression, Expression> interned = new IdentityHashMap<>();
+
+    /**
+     * Returns the canonical node structurally equal to `expr`, sharing every subexpression with
+     * the nodes previously produced by this interner. Nodes that are not Constants, Variables,
+     * Operations or Applications are returned unchanged, as are operations and applications whose
+     * operator or function has no node class to rebuild them with.
+     */
+    public Expression intern(Expression expr) {
+        assert expr != null;
+
+        Expression canonical = interned.get(expr);
+        if (canonical == null) {
+            canonical = canonicalize(expr);
+            interned.put(expr, canonical);
+        }
+        return canonical;
+    }
+
+    /**
+     * Returns the canonical Constant with value `value`.
+     */
+    public Expression constant(double value) {
+        return constants.computeIfAbsent(Double.doubleToRawLongBits(value),
+                bits -> new Constant(value));
+    }
+
+    /**
+     * Returns the canonical Variable named `name`.
+     */
+    public Expression variable(String name) {
+        assert name != null;
+
+        return variables.computeIfAbsent(name, Variable::new);
+    }
+
+    /**
+     * Returns the canonical Operation applying `op` to `left` and `right`. Throws
+     * IllegalArgumentException if `op` is not one of the operators defined by Operator.
+     */
+    public Expression operation(Operator op, Expression left, Expression right) {
+        Expression canonLeft = intern(left);
+        Expression canonRight = intern(right);
+        NodeKey key = new NodeKey(op, canonLeft, canonRight);
+        Expression node = nodes.get(key);
+        if (node == null) {
+            node = newOperation(op, canonLeft, canonRight);
+            if (node == null) {
+                throw new IllegalArgumentException("No node class for operator " + op.symbol());
+            }
+            nodes.put(key, node);
+        }
+        return node;
+    }
+
+    /**
+     * Returns the canonical Application of `func` to `argument`. Throws IllegalArgumentException
+     * if `func` is not one of the functions defined by UnaryFunction.
+     */
+    public Expression application(UnaryFunction func, Expression argument) {
+        Expression canonArg = intern(argument);
+        NodeKey key = new NodeKey(func, canonArg, null);
+        Expression node = nodes.get(key);
+        if (node == null) {
+            node = newApplication(func, canonArg);
+            if (node == null) {
+                throw new IllegalArgumentException("No node class for function " + func.name());
+            }
+            nodes.put(key, node);
+        }
+        return node;
+    }
+
+    /**
+     * Returns the canonical node for `expr`, which has not been interned before.
+     */
+    private Expression canonicalize(Expression expr) {
+        if (expr instanceof Constant constant) {
+            return constants.computeIfAbsent(Double.doubleToRawLongBits(constant.value()),
+                    bits -> constant);
+        } else if (expr instanceof Variable variable) {
+            return variables.computeIfAbsent(variable.name(), name -> variable);
+        } else if (expr instanceof Operation operation) {
+            Expression left = intern(operation.leftOperand());
+            Expression right = intern(operation.rightOperand());
+            NodeKey key = new NodeKey(operation.operator(), left, right);
+            Expression node = nodes.get(key);
+            if (node == null) {
+                node = (left == operation.leftOperand() && right == operation.rightOperand())
+                        ? operation : newOperation(operation.operator(), left, right);
+                // Operations we cannot rebuild keep their original children and are not shared
+                if (node == null) {
+                    return operation;
+                }
+                nodes.put(key, node);
+            }
+            return node;
+        } else if (expr instanceof Application application) {
+            Expression argument = intern(application.argument());
+            NodeKey key = new NodeKey(application.function(), argument, null);
+            Expression node = nodes.get(key);
+            if (node == null) {
+                node = argument == application.argument() ? application
+                        : newApplication(application.function(), argument);
+                if (node == null) {
+                    return application;
+                }
+                nodes.put(key, node);
+            }
+            return node;
+        } else {
+            return expr;
+        }
+    }
+
+    /**
+     * Returns a new node applying `op` to `left` and `right`, or null if `op` is not one of the
+     * operators defined by Operator.
+     */
+    private static Expression newOperation(Operator op, Expression left, Expression right) {
+        return switch (PostfixProgram.operatorCode(op)) {
+            case PostfixProgram.ADD -> new AddOperation(left, right);
+            case PostfixProgram.SUB -> new SubOperation(left, right);
+            case PostfixProgram.MUL -> new MultOperation(left, right);
+            case PostfixProgram.DIV -> new DivOperation(left, right);
+            case PostfixProgram.POW -> new PowOperation(left, right);
+            default -> null;
+        };
+    }
+
+    /**
+     * Returns a new node applying `func` to `argument`, or null if `func` is not one of the
+     * functions defined by UnaryFunction.
+     */
+    private static Expression newApplication(UnaryFunction func, Expression argument) {
+        return switch (PostfixProgram.functionCode(func)) {
+            case PostfixProgram.ABS -> new AbsFunc(argument);
+            case PostfixProgram.SQRT -> new SqrtFunc(argument);
+            case PostfixProgram.EXP -> new ExpFunc(argument);
+            case PostfixProgram.LOG -> new LogFunc(argument);
+            case PostfixProgram.SIN -> new SinFunc(argument);
+            case PostfixProgram.COS -> new CosFunc(argument);
+            case PostfixProgram.TAN -> new TanFunc(argument);
+            default -> null;
+        };
+    }
+
+    /**
+     * Identifies an operation or application by its operator or function and the identities of
+     * its children (`second` is null for applications).
+     */
+    private static final class NodeKey {
+        private final Object kind;
+        private final Expression first;
+        private final Expression second;
+
+        NodeKey(Object kind, Expression first, Expression second) {
+            this.kind = kind;
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof NodeKey key)) {
+                return false;
+            }
+            return kind == key.kind && first == key.first && second == key.second;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = System.identityHashCode(kind);
+            hash = 31 * hash + System.identityHashCode(first);
+            return 31 * hash + System.identityHashCode(second);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package expressions;
+
+import expressions.exceptions.*;
+
+import java.util.Arrays;
+
+import static expressions.PostfixProgram.*;
+
+/**
+ * Computes the gradient of one expression with respect to many variables using reverse-mode
+ * automatic differentiation. The expression is linearized once into a tape of distinct nodes;
+ * each call records the node values in a forward sweep and then propagates adjoints from the
+ * result back to the variables in a single backward sweep, so the whole gradient costs a small
+ * constant multiple of one evaluation regardless of the number of variables. The tape's buffers
+ * are reused between calls, so steady-state use allocates nothing, but a tape is not safe to use
+ * from several threads at once. The derivative of abs is taken to be the sign of its argument.
+ */
+public final class GradientTape {
+
+    private final ExpressionDag dag;
+
+    /**
+     * The number of variables, which is also the length of the gradient.
+     */
+    private final int dim;
+
+    /**
+     * Whether each node depends on any variable. Adjoints are only propagated into such nodes.
+     */
+    private final boolean[] varying;
+
+    /**
+     * The value and adjoint (derivative of the result with respect to the node) of each node,
+     * from the most recent call.
+     */
+    private final double[] values;
+    private final double[] adjoints;
+
+    /**
+     * Create a tape for `expr` whose gradient is taken with respect to `vars`, in order. Throws
+     * UnboundVariableException if `expr` contains a variable that is not in `vars`. Throws
+     * IllegalArgumentException if `expr` contains a node that is not a Constant, Variable,
+     * Operation or Application, or an operator or function without a known derivative.
+     */
+    public GradientTape(Expression expr, String[] vars) throws UnboundVariableException {
+        dag = new ExpressionDag(new Expression[]{expr}, vars);
+        dim = vars.length;
+        varying = new boolean[dag.size];
+        for (int k = 0; k < dag.size; k++) {
+            int instruction = dag.code[k];
+            if (instruction == OPERATE || instruction == APPLY) {
+                throw new IllegalArgumentException(
+                        "Expression contains an operator or function with no known derivative");
+            }
+            varying[k] = switch (instruction) {
+                case CONST -> false;
+                case VAR -> true;
+                case ADD, SUB, MUL, DIV, POW -> varying[dag.left[k]] || varying[dag.right[k]];
+                default -> varying[dag.left[k]];
+            };
+        }
+        values = new double[dag.size];
+        adjoints = new double[dag.size];
+    }
+
+    /**
+     * Returns the value of the expression at `point` and stores its partial derivative with
+     * respect to `vars[j]` in `gradient[j]`. Requires `point` and `gradient` have one element per
+     * variable.
+     */
+    public double gradient(double[] point, double[] gradient) {
+        assert point.length >= dim && gradient.length == dim;
+
+        // Forward sweep
+        dag.evaluate(point, values);
+
+        // Backward sweep; every node's operands precede it, so visiting nodes in reverse order
+        // finishes each adjoint before it is propagated
+        Arrays.fill(adjoints, 0.0);
+        Arrays.fill(gradient, 0.0);
+        int root = dag.roots[0];
+        adjoints[root] = 1.0;
+        for (int k = root; k >= 0; k--) {
+            double adjoint = adjoints[k];
+            if (adjoint == 0.0 || !varying[k]) {
+                continue;
+            }
+            int l = dag.left[k];
+            int r = dag.right[k];
+            switch (dag.code[k]) {
+                case VAR -> gradient[l] += adjoint;
+                case ADD -> {
+                    adjoints[l] += adjoint;
+                    adjoints[r] += adjoint;
+                }
+                case SUB -> {
+                    adjoints[l] += adjoint;
+                    adjoints[r] -= adjoint;
+                }
+                case MUL -> {
+                    adjoints[l] += adjoint * values[r];
+                    adjoints[r] += adjoint * values[l];
+                }
+                case DIV -> {
+                    adjoints[l] += adjoint / values[r];
+                    adjoints[r] -= adjoint * values[k] / values[r];
+                }
+                case POW -> {
+                    if (!varying[r]) {
+                        // Power rule, which also handles a base <= 0
+                        adjoints[l] += adjoint * values[r] * Math.pow(values[l], values[r] - 1.0);
+                    } else {
+                        adjoints[l] += adjoint * values[k] * values[r] / values[l];
+                        adjoints[r] += adjoint * values[k] * Math.log(values[l]);
+                    }
+                }
+                default -> adjoints[l] += adjoint * localDerivative(dag.code[k], values[l],
+                        values[k]);
+            }
+        }
+        return values[root];
+    }
+
+    /**
+     * Returns the derivative of the built-in function with instruction code `instruction` at
+     * `arg`, given that its value there is `result`.
+     */
+    private static double localDerivative(int instruction, double arg, double result) {
+        return switch (instruction) {
+            case ABS -> Math.signum(arg);
+            case SQRT -> 0.5 / result;
+            case EXP -> result;
+            case LOG -> 1.0 / arg;
+            case SIN -> Math.cos(arg);
+            case COS -> -Math.sin(arg);
+            default -> {
+                double cos = Math.cos(arg);
+                yield 1.0 / (cos * cos);
+            }
+        };
+    }
+}
@@ -0,0 +1,225 @@
+package expressions;
+
+import expressions.exceptions.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A VarTable that stores values in a primitive array, binding each variable name to a fixed slot
+ * when the table is created. Values can be read and written by slot without boxing or hashing,
+ * and Variable nodes cache the slot of their name, so evaluating an expression against an
+ * IndexedVarTable performs one array access per variable and no allocation.
+ *
+ * <p>The cache only hits while the same binding of names to slots, the table's layout, is reused.
+ * Each table created from an array of names has a layout of its own, even if the names are the
+ * same, and a Variable evaluated against a different layout from last time looks its name up
+ * again and allocates a new cache entry. Tables that will be used with the same expressions, such
+ * as one per point evaluated or one per thread evaluating a shared tree, should therefore be
+ * created with withSameSlots() from one table rather than from the names each time.
+ */
+public class IndexedVarTable implements VarTable {
+
+    /**
+     * The binding of variable names to slots, which never changes after creation.
+     */
+    private final Layout layout;
+
+    /**
+     * The value of each slot; only meaningful if the slot is bound.
+     */
+    private final double[] values;
+
+    /**
+     * Whether each slot is currently associated with a value.
+     */
+    private final boolean[] bound;
+
+    /**
+     * The number of bound slots.
+     */
+    private int size;
+
+    /**
+     * Create an IndexedVarTable with one slot for each name in `names`, at the same index, and
+     * no values. Requires the names in `names` are distinct.
+     */
+    public IndexedVarTable(String[] names) {
+        this(new Layout(names));
+    }
+
+    private IndexedVarTable(Layout layout) {
+        this.layout = layout;
+        values = new double[layout.names.length];
+        bound = new boolean[layout.names.length];
+    }
+
+    /**
+     * Returns a new table with the same slots as this one, sharing its layout so that slots cached
+     * by Variable nodes for either table are valid for both, and no values.
+     */
+    public IndexedVarTable withSameSlots() {
+        return new IndexedVarTable(layout);
+    }
+
+    /**
+     * Create an IndexedVarTable associating the variables in `vars` with their values in
+     * `values`, matching corresponding indices (which are also the slots of the variables).
+     * Requires `vars` and `values` have the same length and the names in `vars` are distinct.
+     * The table has a new layout; see withSameSlots() for creating tables that share one.
+     */
+    public static IndexedVarTable of(String[] vars, double[] values) {
+        assert vars.length == values.length;
+
+        IndexedVarTable ans = new IndexedVarTable(vars);
+        ans.setAll(values);
+        return ans;
+    }
+
+    /**
+     * Return the slot bound to variable `name`, or -1 if this table has no slot for `name`.
+     */
+    public int slot(String name) {
+        assert name != null;
+
+        return layout.slot(name);
+    }
+
+    /**
+     * Return the value in slot `slot`, regardless of whether it is bound. Requires
+     * 0 <= slot < the number of slots.
+     */
+    public double get(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * Associate `value` with the variable in slot `slot`. Requires 0 <= slot < the number of
+     * slots.
+     */
+    public void set(int slot, double value) {
+        if (!bound[slot]) {
+            bound[slot] = true;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    /**
+     * Associate every variable with the value in the same slot of `newValues`. Requires
+     * `newValues` has one value per slot.
+     */
+    public void setAll(double[] newValues) {
+        assert newValues.length == values.length;
+
+        System.arraycopy(newValues, 0, values, 0, values.length);
+        Arrays.fill(bound, true);
+        size = values.length;
+    }
+
+    /**
+     * Return whether slot `slot` is associated with a value. Requires 0 <= slot < the number of
+     * slots.
+     */
+    public boolean isBound(int slot) {
+        return bound[slot];
+    }
+
+    /**
+     * Return the binding of variable names to slots of this table.
+     */
+    Layout layout() {
+        return layout;
+    }
+
+    @Override
+    public double get(String name) throws UnboundVariableException {
+        int slot = slot(name);
+        if (slot < 0 || !bound[slot]) {
+            throw new UnboundVariableException(name);
+        }
+        return values[slot];
+    }
+
+    /**
+     * Associate `value` with variable `name`. Throws IllegalArgumentException if this table has
+     * no slot for `name`, since the slots of an IndexedVarTable are fixed at creation.
+     */
+    @Override
+    public void set(String name, double value) {
+        int slot = slot(name);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Variable '" + name + "' has no slot in this table");
+        }
+        set(slot, value);
+    }
+
+    @Override
+    public void unset(String name) {
+        int slot = slot(name);
+        if (slot >= 0 && bound[slot]) {
+            bound[slot] = false;
+            size--;
+        }
+    }
+
+    @Override
+    public boolean contains(String name) {
+        int slot = slot(name);
+        return slot >= 0 && bound[slot];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<String> names() {
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < bound.length; i++) {
+            if (bound[i]) {
+                names.add(layout.names[i]);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * An immutable binding of variable names to slots. Variable nodes compare layouts by identity
+     * to decide whether their cached slot is still valid.
+     */
+    static final class Layout {
+
+        /**
+         * The name bound to each slot.
+         */
+        private final String[] names;
+
+        /**
+         * Maps each name to its slot.
+         */
+        private final Map<String, Integer> slots;
+
+        private Layout(String[] names) {
+            this.names = names.clone();
+            slots = new HashMap<>();
+            for (int i = 0; i < names.length; i++) {
+                assert names[i] != null;
+                Integer previous = slots.put(names[i], i);
+                assert previous == null;
+            }
+        }
+
+        /**
+         * Return the slot bound to `name`, or -1 if there is none.
+         */
+        int slot(String name) {
+            Integer slot = slots.get(name);
+            return slot == null ? -1 : slot;
+        }
+    }
+}
@@ -4,43 +4,42 @@ import expressions.functions.*;
 import expressions.operations.*;
 import expressions.exceptions.*;
 import java.util.ArrayList;
-import java.util.Arrays;
 import solving.*;
 
-import java.util.Map;
-import java.util.HashMap;
-
 /**
  * Class for parsing input strings as expression trees.
  */
 public class InputParser {
 
     /**
-     * Associates each binary operation with its precedence (1 being the lowest, 3 the highest)
-     * and its associativity (0 for left, 1 for right).
+     * Returns the precedence of the binary operator with symbol `symbol` (1 being the lowest, 3
+     * the highest).
      */
-    private static final Map<String, int[]> opMap;
+    private static int precedence(int symbol) {
+        return switch (symbol) {
+            case '+', '-' -> 1;
+            case '*', '/' -> 2;
+            default -> 3;
+        };
+    }
 
-    // Static constructor to initialize opMap and isEven
-    static {
-        opMap = new HashMap<>();
-        opMap.put("+", new int[]{1, 0});
-        opMap.put("-", new int[]{1, 0});
-        opMap.put("*", new int[]{2, 0});
-        opMap.put("/", new int[]{2, 0});
-        opMap.put("^", new int[]{3, 1});
+    /**
+     * Returns whether the binary operator with symbol `symbol` is right-associative.
+     */
+    private static boolean rightAssociative(int symbol) {
+        return symbol == '^';
     }
 
     /**
      * Parses the given input string `exprString` into its corresponding expression tree. Throws
      * UnreadableCharacterException if exprString contains a character that cannot be parsed.
      * Throws IncompleteExpressionException if the input string's mathematical expressions are
-     * invalid, e.g. operators missing operands or unmatched parentheses.
+     * invalid, e.g. operators missing operands or unmatched parentheses, or if it is empty.
      */
-    public static Expression parse(String exprString) throws UnreadableCharacterException,
+    public static Expression parse(CharSequence exprString) throws UnreadableCharacterException,
             IncompleteExpressionException {
-        Tokenizer tokenizer = new Tokenizer(Token.tokenizer(exprString));
-        return compute_expr(tokenizer, 1);
+        Lexer lexer = new Lexer(exprString);
+        return compute_expr(lexer, 1);
     }
 
     /**
@@ -49,82 +48,81 @@ public class InputParser {
      * IncompleteExpressionException if the input string's mathematical expression is invalid, e.g.
      * operators missing operands or unmatched parentheses.
      */
-    private static Expression compute_atom(Tokenizer tokenizer) throws
-            IncompleteExpressionException {
-        Token tok = tokenizer.curTok();
-
-        if (tok == null) {
-            throw new IncompleteExpressionException("expression ended unexpectedly");
-        } else if (tok instanceof Token.Operator) {
-            // Case of subtraction operator acting as negative sign
-            if (tok.value().equals("-")) {
-                // Check that there is something to the right of the negative sign
-                if (!(tokenizer.hasNext())) {
-                    throw new IncompleteExpressionException("hanging negative sign");
+    private static Expression compute_atom(Lexer lexer) throws IncompleteExpressionException {
+        switch (lexer.kind()) {
+            case Lexer.END -> throw new IncompleteExpressionException(
+                    "expression ended unexpectedly");
+            case Lexer.OPERATOR -> {
+                // Case of subtraction operator acting as negative sign
+                if (lexer.symbol() == '-') {
+                    // Check that there is something to the right of the negative sign
+                    if (!(lexer.hasNext())) {
+                        throw new IncompleteExpressionException("hanging negative sign");
+                    }
+                    lexer.next();
+                    // Compute next atom without compute_expr and then add the negative sign in
+                    // front of it
+                    return new MultOperation(new Constant(-1.0), compute_atom(lexer));
+                } else {
+                    throw new IncompleteExpressionException("expected number, variable, "
+                            + "parentheses, or negative sign, not other operator");
                 }
-                tokenizer.next();
-                // Compute next atom without compute_expr and then add the negative sign in front
-                // of it
-                return new MultOperation(new Constant(-1.0), compute_atom(tokenizer));
-            } else {
-                throw new IncompleteExpressionException("expected number, variable, parentheses, "
-                        + "or negative sign, not other operator");
             }
-        } else if (tok instanceof Token.RightParen) {
-            throw new IncompleteExpressionException("unmatched right parenthesis");
-        } else if (tok instanceof Token.LeftParen) {
-            // Ensure something exists to the right of the left parenthesis
-            if (!(tokenizer.hasNext())) {
-                throw new IncompleteExpressionException("unmatched left parenthesis");
-            }
-            // Deal with expression inside parentheses
-            tokenizer.next();
-            Expression value = compute_expr(tokenizer, 1);
-            // Ensure a right parenthesis ends the expression
-            if (!(tokenizer.curTok() instanceof Token.RightParen)) {
-                throw new IncompleteExpressionException("unmatched left parenthesis");
-            }
-            return value;
-        } else if (tok instanceof Token.Function) {
-            // Function must be followed by parentheses and argument inside
-            if (!tokenizer.hasNext()) {
-                throw new IncompleteExpressionException("function must be followed immediately "
-                        + "by argument enclosed in parentheses");
+            case Lexer.RIGHT_PAREN -> throw new IncompleteExpressionException(
+                    "unmatched right parenthesis");
+            case Lexer.LEFT_PAREN -> {
+                // Ensure something exists to the right of the left parenthesis
+                if (!(lexer.hasNext())) {
+                    throw new IncompleteExpressionException("unmatched left parenthesis");
+                }
+                // Deal with expression inside parentheses
+                lexer.next();
+                Expression value = compute_expr(lexer, 1);
+                // Ensure a right parenthesis ends the expression
+                if (lexer.kind() != Lexer.RIGHT_PAREN) {
+                    throw new IncompleteExpressionException("unmatched left parenthesis");
+                }
+                return value;
             }
-            tokenizer.next();
-            if (!(tokenizer.curTok() instanceof Token.LeftParen)) {
-                throw new IncompleteExpressionException("function must be followed immediately "
-                        + "by argument enclosed in parentheses");
+            case Lexer.FUNCTION -> {
+                int function = lexer.symbol();
+                // Function must be followed by parentheses and argument inside
+                if (!lexer.hasNext()) {
+                    throw new IncompleteExpressionException("function must be followed "
+                            + "immediately by argument enclosed in parentheses");
+                }
+                lexer.next();
+                if (lexer.kind() != Lexer.LEFT_PAREN || !lexer.hasNext()) {
+                    throw new IncompleteExpressionException("function must be followed "
+                            + "immediately by argument enclosed in parentheses");
+                }
+                // Deal with function argument first
+                lexer.next();
+                Expression argument = compute_expr(lexer, 1);
+                // Check ends with right parenthesis
+                if (lexer.kind() != Lexer.RIGHT_PAREN) {
+                    throw new IncompleteExpressionException("unmatched left parenthesis");
+                }
+                return switch (Lexer.FUNCTION_NAMES[function]) {
+                    case "abs" -> new AbsFunc(argument);
+                    case "sqrt" -> new SqrtFunc(argument);
+                    case "exp" -> new ExpFunc(argument);
+                    case "log" -> new LogFunc(argument);
+                    case "sin" -> new SinFunc(argument);
+                    case "cos" -> new CosFunc(argument);
+                    case "tan" -> new TanFunc(argument);
+                    // This shouldn't happen, since the lexer only recognizes the above names
+                    default -> throw new IncompleteExpressionException("function name does not "
+                            + "correspond to valid function");
+                };
             }
-            if (!tokenizer.hasNext()) {
-                throw new IncompleteExpressionException("function must be followed immediately "
-                        + "by argument enclosed in parentheses");
+            case Lexer.VARIABLE -> {
+                return new Variable(lexer.variableName());
             }
-            // Deal with function argument first
-            tokenizer.next();
-            Expression argument = compute_expr(tokenizer, 1);
-            // Check ends with right parenthesis
-            if (!(tokenizer.curTok() instanceof Token.RightParen)) {
-                throw new IncompleteExpressionException("unmatched left parenthesis");
+            default -> {
+                assert lexer.kind() == Lexer.NUMBER;
+                return new Constant(lexer.number());
             }
-            return switch (tok.value()) {
-                case "abs" -> new AbsFunc(argument);
-                case "sqrt" -> new SqrtFunc(argument);
-                case "exp" -> new ExpFunc(argument);
-                case "log" -> new LogFunc(argument);
-                case "sin" -> new SinFunc(argument);
-                case "cos" -> new CosFunc(argument);
-                case "tan" -> new TanFunc(argument);
-                // This shouldn't happen, since the function tokens yielded by the tokenizer can
-                // only have the above names
-                default -> throw new IncompleteExpressionException("function name does not "
-                        + "correspond to valid function");
-            };
-        } else if (tok instanceof Token.Variable) {
-            return new Variable(tok.value());
-        } else {
-            assert tok instanceof Token.Number;
-            return new Constant(Double.parseDouble(tok.value()));
         }
     }
 
@@ -133,60 +131,58 @@ public class InputParser {
      * Throws IncompleteExpressionException if the input string's mathematical expression is
      * invalid, e.g. operators missing operands or unmatched parentheses.
      */
-    private static Expression compute_expr(Tokenizer tokenizer, int min_prec)
+    private static Expression compute_expr(Lexer lexer, int min_prec)
             throws IncompleteExpressionException {
-        Expression left = compute_atom(tokenizer);
-        // compute_atom does not advance the iterator after computation, so it is done here below
+        Expression left = compute_atom(lexer);
+        // compute_atom does not advance the lexer after computation, so it is done here below
         // instead; moving it to compute_atom would yield the same result but with more writing
         // as it would have to be written before every return statement in each branch
-        tokenizer.next();
+        lexer.next();
         while (true) {
-            Token tok = tokenizer.curTok();
-            // Break if tok is null (end of expression) or a right parenthesis (finished evaluating
+            int kind = lexer.kind();
+            // Break at the end of the expression or a right parenthesis (finished evaluating
             // parenthesized expression)
-            if (tok == null || tok instanceof Token.RightParen) {
+            if (kind == Lexer.END || kind == Lexer.RIGHT_PAREN) {
                 break;
-            } else if (tok instanceof Token.Number) {
+            } else if (kind == Lexer.NUMBER) {
                 throw new IncompleteExpressionException("Number cannot be placed directly to the "
                         + "right of an atom without a connecting operator");
             }
             // Treat lack of operator as multiplication between left and right term when right
             // term is a parenthesized expression, variable, or function
-            else if (tok instanceof Token.LeftParen || tok instanceof Token.Variable ||
-            tok instanceof Token.Function) {
+            else if (kind == Lexer.LEFT_PAREN || kind == Lexer.VARIABLE
+                    || kind == Lexer.FUNCTION) {
                 // Stop evaluation and return if precedence of multiplication is less than minimum
                 // precedence
                 if (2 < min_prec) {break;}
                 // Otherwise treat as if there is an invisible multiplication operator there
-                Expression right = compute_expr(tokenizer, 3);
+                Expression right = compute_expr(lexer, 3);
                 left = new MultOperation(left, right);
             } else {
-                assert tok instanceof Token.Operator;
+                assert kind == Lexer.OPERATOR;
+                int operator = lexer.symbol();
+                int prec = precedence(operator);
                 // Stop evaluation and return if precedence of next operator is less than minimum
                 // precedence
-                if (opMap.get(tok.value())[0] < min_prec) {
+                if (prec < min_prec) {
                     break;
                 }
-                String operator = tok.value();
-                int prec = opMap.get(tok.value())[0];
-                int assoc = opMap.get(tok.value())[1];
                 // Precedence climbing step, depends on associativity of operator
-                int nextMinPrec = (assoc == 0) ? prec + 1 : prec;
-                if (!(tokenizer.hasNext())) {
+                int nextMinPrec = rightAssociative(operator) ? prec : prec + 1;
+                if (!(lexer.hasNext())) {
                     throw new IncompleteExpressionException(
                             "operation does not have right operand");
                 }
                 // Recursive step: move on to next token
-                tokenizer.next();
-                Expression right = compute_expr(tokenizer, nextMinPrec);
+                lexer.next();
+                Expression right = compute_expr(lexer, nextMinPrec);
                 left = switch (operator) {
-                    case "+" -> new AddOperation(left, right);
-                    case "-" -> new SubOperation(left, right);
-                    case "*" -> new MultOperation(left, right);
-                    case "/" -> new DivOperation(left, right);
-                    case "^" -> new PowOperation(left, right);
-                    // This shouldn't happen, since the operator tokens yielded by the tokenizer can
-                    // only have the above names
+                    case '+' -> new AddOperation(left, right);
+                    case '-' -> new SubOperation(left, right);
+                    case '*' -> new MultOperation(left, right);
+                    case '/' -> new DivOperation(left, right);
+                    case '^' -> new PowOperation(left, right);
+                    // This shouldn't happen, since the lexer only recognizes the above symbols
                     default -> throw new IncompleteExpressionException("operator value does not "
                             + "correspond to valid operator");
                 };
@@ -0,0 +1,347 @@
+package expressions;
+
+import expressions.exceptions.*;
+
+import java.util.Arrays;
+
+/**
+ * A single-pass scanner that splits an expression string into tokens, recording each token as a
+ * primitive kind code, the offsets of the characters it spans, and a symbol or numeric value, so
+ * that no substrings, regular expressions, or token objects are created while lexing. Whitespace
+ * is ignored everywhere, including inside numbers and function names, so "4 5" is the number 45.
+ * Numbers are a run of ASCII digits, optionally followed by a decimal point and more digits, and
+ * an exponent (e or E, an optional sign, and at least one digit). A lexer can be reset with new
+ * input to reuse its arrays.
+ */
+final class Lexer {
+
+    /* Token kinds */
+    static final int NUMBER = 0;
+    static final int VARIABLE = 1;
+    static final int FUNCTION = 2;
+    static final int OPERATOR = 3;
+    static final int LEFT_PAREN = 4;
+    static final int RIGHT_PAREN = 5;
+    /** The kind reported once every token has been consumed. */
+    static final int END = 6;
+
+    /**
+     * The names of the functions recognized by the lexer. The symbol of a FUNCTION token is its
+     * index in this array.
+     */
+    static final String[] FUNCTION_NAMES = {"abs", "exp", "log", "sin", "cos", "tan", "sqrt"};
+
+    /**
+     * Powers of ten that are exactly representable as doubles.
+     */
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8,
+            1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    /**
+     * The largest integer below which every integer is exactly representable as a double.
+     */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /**
+     * Shared names for single-character ASCII variables.
+     */
+    private static final String[] ASCII_NAMES = new String[128];
+
+    static {
+        for (char c = 0; c < ASCII_NAMES.length; c++) {
+            ASCII_NAMES[c] = String.valueOf(c).intern();
+        }
+    }
+
+    private CharSequence input;
+
+    /**
+     * The number of tokens in the input, and the index of the current token.
+     */
+    private int count;
+    private int pos;
+
+    /**
+     * For each token: its kind; the offsets of its first character and one past its last; its
+     * symbol (the character of an operator or variable, or the FUNCTION_NAMES index of a function);
+     * and its value if it is a number.
+     */
+    private int[] kinds = new int[16];
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int[] symbols = new int[16];
+    private double[] numbers = new double[16];
+
+    /**
+     * Create a lexer for `input` whose current token is its first token. Throws
+     * UnreadableCharacterException if `input` contains a character that is not whitespace, a
+     * letter, a digit, or one of + - * / ^ ( ) .
+     */
+    Lexer(CharSequence input) throws UnreadableCharacterException {
+        reset(input);
+    }
+
+    /**
+     * Replace this lexer's input with `input` and make its first token current. Throws
+     * UnreadableCharacterException if `input` contains a character that is not whitespace, a
+     * letter, a digit, or one of + - * / ^ ( ) .
+     */
+    void reset(CharSequence input) throws UnreadableCharacterException {
+        assert input != null;
+
+        this.input = input;
+        count = 0;
+        pos = 0;
+        int n = input.length();
+        int i = skipWhitespace(0);
+        while (i < n) {
+            char c = input.charAt(i);
+            int start = i;
+            if (isDigit(c)) {
+                i = scanNumber(i);
+            } else if (c == '+' || c == '-' || c == '*' || c == '/' || c == '^') {
+                add(OPERATOR, start, ++i, c);
+            } else if (c == '(') {
+                add(LEFT_PAREN, start, ++i, c);
+            } else if (c == ')') {
+                add(RIGHT_PAREN, start, ++i, c);
+            } else if (Character.isLetterOrDigit(c) || c == '.') {
+                i = scanName(i);
+            } else {
+                throw new UnreadableCharacterException(c);
+            }
+            i = skipWhitespace(i);
+        }
+    }
+
+    /**
+     * Returns the kind of the current token, or END if every token has been consumed.
+     */
+    int kind() {
+        return pos < count ? kinds[pos] : END;
+    }
+
+    /**
+     * Returns the symbol of the current token: the character of an operator or variable, or the
+     * index in FUNCTION_NAMES of a function. Requires the current token is an operator, variable,
+     * or function.
+     */
+    int symbol() {
+        assert pos < count;
+        return symbols[pos];
+    }
+
+    /**
+     * Returns the value of the current token. Requires the current token is a number.
+     */
+    double number() {
+        assert pos < count && kinds[pos] == NUMBER;
+        return numbers[pos];
+    }
+
+    /**
+     * Returns the name of the current token. Requires the current token is a variable.
+     */
+    String variableName() {
+        assert pos < count && kinds[pos] == VARIABLE;
+        char c = (char) symbols[pos];
+        return c < ASCII_NAMES.length ? ASCII_NAMES[c] : String.valueOf(c);
+    }
+
+    /**
+     * Returns the characters of the current token with whitespace removed. Requires the current
+     * token is not END.
+     */
+    String text() {
+        assert pos < count;
+        StringBuilder text = new StringBuilder(ends[pos] - starts[pos]);
+        appendText(starts[pos], ends[pos], text);
+        return text.toString();
+    }
+
+    /**
+     * Returns whether there is a token after the current one.
+     */
+    boolean hasNext() {
+        return pos + 1 < count;
+    }
+
+    /**
+     * Make the next token current. After the last token, the current kind becomes END.
+     */
+    void next() {
+        if (pos < count) {
+            pos++;
+        }
+    }
+
+    /**
+     * Records a token of kind `kind` spanning offsets `start` to `end` with symbol `symbol`.
+     */
+    private void add(int kind, int start, int end, int symbol) {
+        if (count == kinds.length) {
+            int capacity = 2 * count;
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            symbols = Arrays.copyOf(symbols, capacity);
+            numbers = Arrays.copyOf(numbers, capacity);
+        }
+        kinds[count] = kind;
+        starts[count] = start;
+        ends[count] = end;
+        symbols[count] = symbol;
+        count++;
+    }
+
+    /**
+     * Scans the function or variable starting at offset `i` and returns the offset after it.
+     * Function names take priority, so "sinx" is sin followed by x.
+     */
+    private int scanName(int i) {
+        for (int f = 0; f < FUNCTION_NAMES.length; f++) {
+            int end = match(FUNCTION_NAMES[f], i);
+            if (end >= 0) {
+                add(FUNCTION, i, end, f);
+                return end;
+            }
+        }
+        add(VARIABLE, i, i + 1, input.charAt(i));
+        return i + 1;
+    }
+
+    /**
+     * Returns the offset after `word` if the input spells it out starting at offset `i` (ignoring
+     * whitespace), or -1 if it does not.
+     */
+    private int match(String word, int i) {
+        int n = input.length();
+        for (int k = 0; k < word.length(); k++) {
+            if (k > 0) {
+                i = skipWhitespace(i);
+            }
+            if (i >= n || input.charAt(i) != word.charAt(k)) {
+                return -1;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Scans the number starting at offset `i`, which must be a digit, and returns the offset after
+     * it. The value is computed exactly from the digits when the decimal significand fits in 53
+     * bits and the power of ten is at most 22 in magnitude, since both are then exact doubles and
+     * one correctly rounded multiplication or division gives the correctly rounded result; other
+     * numbers are handed to Double.parseDouble.
+     */
+    private int scanNumber(int i) {
+        int start = i;
+        int n = input.length();
+        long mantissa = 0;
+        boolean exact = true;
+        int scale = 0;
+        char c = input.charAt(i);
+        while (isDigit(c)) {
+            if (mantissa <= (MAX_EXACT_MANTISSA - 9) / 10) {
+                mantissa = 10 * mantissa + (c - '0');
+            } else {
+                exact = false;
+            }
+            i = skipWhitespace(i + 1);
+            c = i < n ? input.charAt(i) : 0;
+        }
+        if (c == '.') {
+            i = skipWhitespace(i + 1);
+            c = i < n ? input.charAt(i) : 0;
+            while (isDigit(c)) {
+                if (mantissa <= (MAX_EXACT_MANTISSA - 9) / 10) {
+                    mantissa = 10 * mantissa + (c - '0');
+                    scale--;
+                } else {
+                    exact = false;
+                }
+                i = skipWhitespace(i + 1);
+                c = i < n ? input.charAt(i) : 0;
+            }
+        }
+        if (c == 'e' || c == 'E') {
+            // Only an exponent if a digit follows the optional sign; otherwise e is a variable
+            int j = skipWhitespace(i + 1);
+            boolean negative = false;
+            if (j < n && (input.charAt(j) == '+' || input.charAt(j) == '-')) {
+                negative = input.charAt(j) == '-';
+                j = skipWhitespace(j + 1);
+            }
+            if (j < n && isDigit(input.charAt(j))) {
+                int exponent = 0;
+                while (j < n && isDigit(input.charAt(j))) {
+                    if (exponent < 10000) {
+                        exponent = 10 * exponent + (input.charAt(j) - '0');
+                    } else {
+                        exact = false;
+                    }
+                    j = skipWhitespace(j + 1);
+                }
+                scale += negative ? -exponent : exponent;
+                i = j;
+            }
+        }
+        // Leave trailing whitespace out of the token
+        int end = i;
+        while (end > start && isWhitespace(input.charAt(end - 1))) {
+            end--;
+        }
+        add(NUMBER, start, end, 0);
+        double value;
+        if (exact && scale >= -22 && scale <= 22) {
+            value = scale >= 0 ? mantissa * POWERS_OF_TEN[scale]
+                    : mantissa / POWERS_OF_TEN[-scale];
+        } else {
+            StringBuilder text = new StringBuilder(end - start);
+            appendText(start, end, text);
+            value = Double.parseDouble(text.toString());
+        }
+        numbers[count - 1] = value;
+        return i;
+    }
+
+    /**
+     * Appends the non-whitespace characters between offsets `start` and `end` to `text`.
+     */
+    private void appendText(int start, int end, StringBuilder text) {
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+            if (!isWhitespace(c)) {
+                text.append(c);
+            }
+        }
+    }
+
+    /**
+     * Returns the offset of the first non-whitespace character at or after offset `i`, or the
+     * length of the input if there is none.
+     */
+    private int skipWhitespace(int i) {
+        int n = input.length();
+        while (i < n && isWhitespace(input.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns whether `c` is an ASCII digit.
+     */
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Returns whether `c` is a whitespace character, using the same set as the regular expression
+     * class \s.
+     */
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+}
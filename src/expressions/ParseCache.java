@@ -0,0 +1,159 @@
+package expressions;
+
+import expressions.exceptions.*;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe cache of parsed expressions in front of InputParser.parse. Inputs are
+ * keyed by their text with whitespace removed, which the parser ignores, so inputs differing only
+ * in spacing share an entry. Expression nodes are immutable, so every caller asking for the same
+ * text receives the same shared tree. Each entry weighs one more than the number of operations in
+ * its tree, and when the total weight exceeds the cache's limit the least recently used entries
+ * are evicted. Inputs that fail to parse are not cached.
+ */
+public final class ParseCache {
+
+    /**
+     * The maximum total weight of the cached expressions.
+     */
+    private final long maxWeight;
+
+    /**
+     * Cached expressions by normalized text, in access order (least recently used first). Guarded
+     * by `lock`, as is `weight`.
+     */
+    private final LinkedHashMap<String, Expression> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private final Object lock = new Object();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Create an empty cache holding expressions of total weight at most `maxWeight`, where an
+     * expression weighs opCount() + 1. Requires `maxWeight` is positive.
+     */
+    public ParseCache(long maxWeight) {
+        assert maxWeight > 0;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Returns the expression parsed from `exprString`, from the cache if the same text (ignoring
+     * whitespace) has been parsed before and not evicted. Throws UnreadableCharacterException and
+     * IncompleteExpressionException as InputParser.parse does.
+     */
+    public Expression parse(CharSequence exprString) throws UnreadableCharacterException,
+            IncompleteExpressionException {
+        String key = normalize(exprString);
+        synchronized (lock) {
+            Expression cached = entries.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+        // Parse without holding the lock; if another thread cached the same text in the meantime,
+        // return its tree so that callers keep sharing one instance
+        Expression expr = InputParser.parse(key);
+        long exprWeight = expr.opCount() + 1L;
+        if (exprWeight > maxWeight) {
+            return expr;
+        }
+        synchronized (lock) {
+            Expression cached = entries.putIfAbsent(key, expr);
+            if (cached != null) {
+                return cached;
+            }
+            weight += exprWeight;
+            Iterator<Map.Entry<String, Expression>> eldest = entries.entrySet().iterator();
+            while (weight > maxWeight) {
+                Expression evicted = eldest.next().getValue();
+                eldest.remove();
+                weight -= evicted.opCount() + 1L;
+                evictions.increment();
+            }
+        }
+        return expr;
+    }
+
+    /**
+     * Remove every expression from the cache. Statistics are not reset.
+     */
+    public void clear() {
+        synchronized (lock) {
+            entries.clear();
+            weight = 0;
+        }
+    }
+
+    /**
+     * Returns the number of expressions in the cache.
+     */
+    public int size() {
+        synchronized (lock) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Returns the total weight of the expressions in the cache.
+     */
+    public long weight() {
+        synchronized (lock) {
+            return weight;
+        }
+    }
+
+    /**
+     * Returns the number of calls to parse() answered from the cache.
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of calls to parse() that had to parse their input, including those
+     * whose input failed to parse.
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of expressions evicted to keep the cache within its weight limit.
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the fraction of calls to parse() answered from the cache, or 0 if there have been
+     * none.
+     */
+    public double hitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    /**
+     * Returns `text` with the whitespace ignored by the parser removed.
+     */
+    private static String normalize(CharSequence text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Lexer.isWhitespace(c)) {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+}
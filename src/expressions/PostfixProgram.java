@@ -0,0 +1,218 @@
+package expressions;
+
+import expressions.exceptions.*;
+import expressions.functions.*;
+import expressions.operations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An expression flattened into postfix order, with variables resolved to slots. Evaluators that
+ * process many values per node (or a value and its derivatives) interpret this program with an
+ * explicit stack instead of walking the tree, so the per-node dispatch happens once per
+ * instruction rather than once per virtual call.
+ */
+final class PostfixProgram {
+
+    /* Instruction codes. Each binary instruction pops two values and pushes one; each unary
+     * instruction replaces the top value. */
+    static final int CONST = 0;
+    static final int VAR = 1;
+    static final int ADD = 2;
+    static final int SUB = 3;
+    static final int MUL = 4;
+    static final int DIV = 5;
+    static final int POW = 6;
+    static final int OPERATE = 7;
+    static final int ABS = 8;
+    static final int SQRT = 9;
+    static final int EXP = 10;
+    static final int LOG = 11;
+    static final int SIN = 12;
+    static final int COS = 13;
+    static final int TAN = 14;
+    static final int APPLY = 15;
+
+    /**
+     * The instruction code of each step.
+     */
+    final int[] code;
+
+    /**
+     * The operand of each step: an index into `constants` for CONST, a slot for VAR, an index into
+     * `operators` for OPERATE, an index into `functions` for APPLY, and unused otherwise.
+     */
+    final int[] operand;
+
+    final double[] constants;
+
+    /**
+     * Operators and functions that are not built in, called through their objects.
+     */
+    final Operator[] operators;
+    final UnaryFunction[] functions;
+
+    /**
+     * The largest number of values on the stack at any point of the program.
+     */
+    final int maxDepth;
+
+    /**
+     * Flatten `expr`, resolving every variable to the index of its name in `vars`. Throws
+     * UnboundVariableException if `expr` contains a variable that is not in `vars`. Throws
+     * IllegalArgumentException if `expr` contains a node that is not a Constant, Variable,
+     * Operation or Application.
+     */
+    PostfixProgram(Expression expr, String[] vars) throws UnboundVariableException {
+        Builder builder = new Builder(vars);
+        builder.add(expr);
+        code = Arrays.copyOf(builder.code, builder.length);
+        operand = Arrays.copyOf(builder.operand, builder.length);
+        constants = builder.constants.stream().mapToDouble(Double::doubleValue).toArray();
+        operators = toArray(builder.operators, new Operator[builder.operators.size()]);
+        functions = toArray(builder.functions, new UnaryFunction[builder.functions.size()]);
+        maxDepth = builder.maxDepth;
+    }
+
+    /**
+     * Returns `array` filled with the keys of `indices`, each at its mapped index.
+     */
+    private static <T> T[] toArray(Map<T, Integer> indices, T[] array) {
+        for (Map.Entry<T, Integer> entry : indices.entrySet()) {
+            array[entry.getValue()] = entry.getKey();
+        }
+        return array;
+    }
+
+    /**
+     * Return the instruction code of the built-in binary operator `op`, or OPERATE if `op` is not
+     * built in.
+     */
+    static int operatorCode(Operator op) {
+        if (op == Operator.ADD) {
+            return ADD;
+        } else if (op == Operator.SUBTRACT) {
+            return SUB;
+        } else if (op == Operator.MULTIPLY) {
+            return MUL;
+        } else if (op == Operator.DIVIDE) {
+            return DIV;
+        } else if (op == Operator.POW) {
+            return POW;
+        } else {
+            return OPERATE;
+        }
+    }
+
+    /**
+     * Return the instruction code of the built-in function `func`, or APPLY if `func` is not
+     * built in.
+     */
+    static int functionCode(UnaryFunction func) {
+        if (func == UnaryFunction.ABS) {
+            return ABS;
+        } else if (func == UnaryFunction.SQRT) {
+            return SQRT;
+        } else if (func == UnaryFunction.EXP) {
+            return EXP;
+        } else if (func == UnaryFunction.LOG) {
+            return LOG;
+        } else if (func == UnaryFunction.SIN) {
+            return SIN;
+        } else if (func == UnaryFunction.COS) {
+            return COS;
+        } else if (func == UnaryFunction.TAN) {
+            return TAN;
+        } else {
+            return APPLY;
+        }
+    }
+
+    /**
+     * Return the result of applying the built-in function with instruction code `code` to `x`.
+     * Requires ABS <= code <= TAN.
+     */
+    static double applyBuiltin(int code, double x) {
+        return switch (code) {
+            case ABS -> Math.abs(x);
+            case SQRT -> Math.sqrt(x);
+            case EXP -> Math.exp(x);
+            case LOG -> Math.log(x);
+            case SIN -> Math.sin(x);
+            case COS -> Math.cos(x);
+            case TAN -> Math.tan(x);
+            default -> throw new IllegalArgumentException("Not a built-in function: " + code);
+        };
+    }
+
+    /**
+     * Accumulates the instructions of a program during a post-order walk of an expression.
+     */
+    private static final class Builder {
+        private final Map<String, Integer> slots = new HashMap<>();
+        private int[] code = new int[16];
+        private int[] operand = new int[16];
+        private int length;
+        private final List<Double> constants = new ArrayList<>();
+        // Each object not built in, mapped to its index in the finished program's table
+        private final Map<Operator, Integer> operators = new IdentityHashMap<>();
+        private final Map<UnaryFunction, Integer> functions = new IdentityHashMap<>();
+        private int depth;
+        private int maxDepth;
+
+        Builder(String[] vars) {
+            for (int i = 0; i < vars.length; i++) {
+                assert vars[i] != null;
+                slots.putIfAbsent(vars[i], i);
+            }
+        }
+
+        void add(Expression expr) throws UnboundVariableException {
+            if (expr instanceof Constant constant) {
+                constants.add(constant.value());
+                emit(CONST, constants.size() - 1, 1);
+            } else if (expr instanceof Variable variable) {
+                Integer slot = slots.get(variable.name());
+                if (slot == null) {
+                    throw new UnboundVariableException(variable.name());
+                }
+                emit(VAR, slot, 1);
+            } else if (expr instanceof Operation operation) {
+                add(operation.leftOperand());
+                add(operation.rightOperand());
+                int opCode = operatorCode(operation.operator());
+                int index = opCode == OPERATE ? indexOf(operators, operation.operator()) : 0;
+                emit(opCode, index, -1);
+            } else if (expr instanceof Application application) {
+                add(application.argument());
+                int funcCode = functionCode(application.function());
+                int index = funcCode == APPLY ? indexOf(functions, application.function()) : 0;
+                emit(funcCode, index, 0);
+            } else {
+                throw new IllegalArgumentException(
+                        "Unsupported expression node of type " + expr.getClass().getName());
+            }
+        }
+
+        private void emit(int instruction, int arg, int stackChange) {
+            if (length == code.length) {
+                code = Arrays.copyOf(code, 2 * length);
+                operand = Arrays.copyOf(operand, 2 * length);
+            }
+            code[length] = instruction;
+            operand[length] = arg;
+            length++;
+            depth += stackChange;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        private static <T> int indexOf(Map<T, Integer> indices, T key) {
+            return indices.computeIfAbsent(key, k -> indices.size());
+        }
+    }
+}
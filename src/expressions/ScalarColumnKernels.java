@@ -0,0 +1,36 @@
+package expressions;
+
+/**
+ * ColumnKernels implemented with plain loops, used when the Vector API is not available. The
+ * loops are simple enough for the JIT to vectorize them itself on most platforms.
+ */
+final class ScalarColumnKernels implements ColumnKernels {
+
+    @Override
+    public void add(double[] a, int aOffset, double[] b, int bOffset, double[] dst, int n) {
+        for (int i = 0; i < n; i++) {
+            dst[i] = a[aOffset + i] + b[bOffset + i];
+        }
+    }
+
+    @Override
+    public void sub(double[] a, int aOffset, double[] b, int bOffset, double[] dst, int n) {
+        for (int i = 0; i < n; i++) {
+            dst[i] = a[aOffset + i] - b[bOffset + i];
+        }
+    }
+
+    @Override
+    public void mul(double[] a, int aOffset, double[] b, int bOffset, double[] dst, int n) {
+        for (int i = 0; i < n; i++) {
+            dst[i] = a[aOffset + i] * b[bOffset + i];
+        }
+    }
+
+    @Override
+    public void div(double[] a, int aOffset, double[] b, int bOffset, double[] dst, int n) {
+        for (int i = 0; i < n; i++) {
+            dst[i] = a[aOffset + i] / b[bOffset + i];
+        }
+    }
+}
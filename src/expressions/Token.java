@@ -36,64 +36,26 @@ public class Token {
      * str_input contains a character that is not readable.
      */
     public static Iterator<Token> tokenizer(String str_input) throws UnreadableCharacterException {
-        // Remove all whitespace from string, check that string is non-empty
-        String str = str_input.replaceAll("\\s","");
-        assert !str.isEmpty();
-        // First check to make sure string only contains alphanumeric characters and operators
-        // or parentheses - can't do this in the iterable itself
-        for (int i = 0; i < str.length(); i++) {
-            if (!(Character.isLetterOrDigit(str.charAt(i)) || str.substring(i, i + 1).matches(
-                    "[-+*/^().]"))) {throw new UnreadableCharacterException(str.charAt(i));}
-        }
+        // The lexer checks every character before any token is returned
+        Lexer lexer = new Lexer(str_input);
+        assert lexer.kind() != Lexer.END;
         return new Iterator<>() {
-            int index = 0;
-
             public boolean hasNext() {
-                return index < str.length();
+                return lexer.kind() != Lexer.END;
             }
 
             public Token next() {
-                if (hasNext()) {
-                    if (Number.validNumber(String.valueOf(str.charAt(index)))) {
-                        int endIdx = index + 1;
-                        // Need extra check until end because Java's substring excludes last index
-                        if (Number.validNumber(str.substring(index))) {
-                            int oldIdx = index;
-                            index = str.length();
-                            return new Number(str.substring(oldIdx));
-                        }
-                        while (endIdx < str.length() &&
-                                Number.validNumber(str.substring(index, endIdx + 1))) {
-                            endIdx++;
-                        }
-                        int oldIdx = index;
-                        index = endIdx;
-                        return new Number(str.substring(oldIdx, endIdx));
-                    } else if (Operator.validOperator(String.valueOf(str.charAt(index)))) {
-                        int oldIdx = index;
-                        index++;
-                        return new Operator(String.valueOf(str.charAt(oldIdx)));
-                    } else if (str.charAt(index) == '(') {
-                        index++;
-                        return new LeftParen();
-                    } else if (str.charAt(index) == ')') {
-                        index++;
-                        return new RightParen();
-                    } else if (str.substring(index).matches("(abs|exp|log|sin|cos|tan).*")) {
-                        int oldIdx = index;
-                        index += 3;
-                        return new Function(str.substring(oldIdx, oldIdx + 3));
-                    } else if (str.substring(index).matches("(sqrt).*")) {
-                        int oldIdx = index;
-                        index += 4;
-                        return new Function(str.substring(oldIdx, oldIdx + 4));
-                    } else {
-                        // Otherwise must be a letter
-                        int oldIdx = index;
-                        index += 1;
-                        return new Variable(String.valueOf(str.charAt(oldIdx)));
-                    }
-                } else {throw new NoSuchElementException();}
+                if (!hasNext()) {throw new NoSuchElementException();}
+                Token tok = switch (lexer.kind()) {
+                    case Lexer.NUMBER -> new Number(lexer.text());
+                    case Lexer.VARIABLE -> new Variable(lexer.variableName());
+                    case Lexer.FUNCTION -> new Function(Lexer.FUNCTION_NAMES[lexer.symbol()]);
+                    case Lexer.OPERATOR -> new Operator(String.valueOf((char) lexer.symbol()));
+                    case Lexer.LEFT_PAREN -> new LeftParen();
+                    default -> new RightParen();
+                };
+                lexer.next();
+                return tok;
             }
         };
     }
@@ -10,7 +10,23 @@ import java.util.Set;
  */
 public final class Variable implements Expression {
     // Name of the variable
-    private String name;
+    private final String name;
+
+    /**
+     * The slot of this variable in the IndexedVarTable layout it was last evaluated against, so
+     * that its name only needs to be looked up once per layout. Null until first evaluated against
+     * an IndexedVarTable. Threads sharing this node may race to replace it, which is harmless since
+     * every entry is immutable and correct for its own layout, but alternating between layouts
+     * repeats the lookup each time, so tables should share a layout (see
+     * IndexedVarTable.withSameSlots()).
+     */
+    private SlotCache slotCache;
+
+    /**
+     * A slot resolved for a particular layout. Immutable, so it can be safely shared between
+     * threads evaluating the same node.
+     */
+    private record SlotCache(IndexedVarTable.Layout layout, int slot) {}
 
     // Constructor for variable
     public Variable(String name) {
@@ -25,6 +41,20 @@ public final class Variable implements Expression {
         return name;
     }
 
+    /**
+     * Returns the slot of this variable in `table`, or -1 if `table` has no slot for it. The slot
+     * is resolved by name, allocating a new cache entry, only when this variable was last used
+     * with a table of a different layout.
+     */
+    public int slot(IndexedVarTable table) {
+        SlotCache cache = slotCache;
+        if (cache == null || cache.layout() != table.layout()) {
+            cache = new SlotCache(table.layout(), table.slot(name));
+            slotCache = cache;
+        }
+        return cache.slot();
+    }
+
     /**
      * Evaluates to value of variable with name `name` in vars. Throws UnboundVariableException if
      * corresponding variable does not exist in vars.
@@ -32,6 +62,11 @@ public final class Variable implements Expression {
     @Override
     public double eval(VarTable vars) throws UnboundVariableException {
         assert vars != null;
+        if (vars instanceof IndexedVarTable table) {
+            int slot = slot(table);
+            if (slot < 0 || !table.isBound(slot)) throw new UnboundVariableException(name);
+            return table.get(slot);
+        }
         // If vars doesn't contain `name` throw that we don't have this variable
         if(!vars.contains(name)) throw new UnboundVariableException(name);
         return vars.get(name);
@@ -98,6 +133,14 @@ public final class Variable implements Expression {
         return name.equals(otherVar.name);
     }
 
+    /**
+     * Returns a hash code consistent with equals(), which depends only on the variable's name.
+     */
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
     /**
      * Returns the derivative of this variable with respect to the variable with name `varName`.
      * Will be the constant 1 if the variables have the same name and 0 otherwise.
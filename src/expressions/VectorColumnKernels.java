@@ -0,0 +1,57 @@
+package expressions;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * ColumnKernels implemented with the incubating Vector API, processing as many values per
+ * instruction as the platform's preferred vector width allows. Only loaded when the
+ * jdk.incubator.vector module is available (see ColumnKernels.best()).
+ */
+final class VectorColumnKernels implements ColumnKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void add(double[] a, int aOffset, double[] b, int bOffset, double[] dst, int n) {
+        lanewise(VectorOperators.ADD, a, aOffset, b, bOffset, dst, n);
+    }
+
+    @Override
+    public void sub(double[] a, int aOffset, double[] b, int bOffset, double[] dst, int n) {
+        lanewise(VectorOperators.SUB, a, aOffset, b, bOffset, dst, n);
+    }
+
+    @Override
+    public void mul(double[] a, int aOffset, double[] b, int bOffset, double[] dst, int n) {
+        lanewise(VectorOperators.MUL, a, aOffset, b, bOffset, dst, n);
+    }
+
+    @Override
+    public void div(double[] a, int aOffset, double[] b, int bOffset, double[] dst, int n) {
+        lanewise(VectorOperators.DIV, a, aOffset, b, bOffset, dst, n);
+    }
+
+    /**
+     * Applies `op` lane by lane, using a masked operation for the tail that does not fill a
+     * whole vector.
+     */
+    private static void lanewise(VectorOperators.Binary op, double[] a, int aOffset, double[] b,
+            int bOffset, double[] dst, int n) {
+        int i = 0;
+        int bound = SPECIES.loopBound(n);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, a, aOffset + i);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, b, bOffset + i);
+            x.lanewise(op, y).intoArray(dst, i);
+        }
+        if (i < n) {
+            VectorMask<Double> mask = SPECIES.indexInRange(i, n);
+            DoubleVector x = DoubleVector.fromArray(SPECIES, a, aOffset + i, mask);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, b, bOffset + i, mask);
+            x.lanewise(op, y).intoArray(dst, i, mask);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package expressions.functions;
 import expressions.*;
 import expressions.exceptions.*;
 
+import java.util.Objects;
 import java.util.Set;
 
 /**
@@ -23,6 +24,20 @@ public abstract class Application implements Expression {
         this.argument = arg;
     }
 
+    /**
+     * Returns the function applied by this Application.
+     */
+    public UnaryFunction function() {
+        return func;
+    }
+
+    /**
+     * Returns the argument of this Application.
+     */
+    public Expression argument() {
+        return argument;
+    }
+
     /**
      * Returns the result of applying the function to the evaluation of the argument. Throws
      * UnboundVariableException if the expression argument contains a variable not in vars.
@@ -80,4 +95,13 @@ public abstract class Application implements Expression {
         // Check to make sure functions are the same (same name) and arguments are equal
         return func.name().equals(otherApp.func.name()) && argument.equals(otherApp.argument);
     }
+
+    /**
+     * Returns a hash code consistent with equals(), combining the function name and the hash code
+     * of the argument.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(func.name(), argument);
+    }
 }
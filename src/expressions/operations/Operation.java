@@ -3,6 +3,7 @@ package expressions.operations;
 import expressions.*;
 import expressions.exceptions.*;
 
+import java.util.Objects;
 import java.util.Set;
 
 
@@ -26,6 +27,27 @@ public abstract class Operation implements Expression {
         rightOperand = right;
     }
 
+    /**
+     * Returns the operator applied by this Operation.
+     */
+    public Operator operator() {
+        return op;
+    }
+
+    /**
+     * Returns the left operand of this Operation.
+     */
+    public Expression leftOperand() {
+        return leftOperand;
+    }
+
+    /**
+     * Returns the right operand of this Operation.
+     */
+    public Expression rightOperand() {
+        return rightOperand;
+    }
+
     /**
      * Returns the evaluation of the operator op applied to the evaluations of leftOperand and
      * rightOperand. Throws UnboundVariableException if a variable in leftOperand or rightOperand
@@ -90,6 +112,13 @@ public abstract class Operation implements Expression {
         return leftOperand.equals(otherOp.leftOperand) && rightOperand.equals(otherOp.rightOperand)
                 && op.symbol().equals(otherOp.op.symbol());
     }
-}
-
 
+    /**
+     * Returns a hash code consistent with equals(), combining the operator symbol and the hash
+     * codes of both operands.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(op.symbol(), leftOperand, rightOperand);
+    }
+}
@@ -0,0 +1,155 @@
+package solving;
+
+import expressions.exceptions.*;
+
+/**
+ * The LU factorization of a band matrix with partial pivoting, which takes O(n * lower * (lower +
+ * upper)) time and O(n * (2 lower + upper + 1)) memory rather than the O(n^3) time and O(n^2)
+ * memory of LUDecomposition. Pivots are chosen as in SystemSolver.partialPivot, among the `lower`
+ * rows below the diagonal that can be nonzero. Row exchanges push U's upper bandwidth to at most
+ * lower + upper, so each row is stored with room for that many diagonals.
+ *
+ * <p>As in LAPACK's banded factorization, the multipliers of L are left where they were computed
+ * rather than moved by later row exchanges, so solving replays the exchanges and eliminations in
+ * order instead of permuting the right-hand side up front.
+ */
+public final class BandLU {
+
+    private final int dim;
+    private final int lower;
+
+    /**
+     * The number of diagonals of U above the main diagonal, lower + upper, and the number of
+     * entries stored per row, 2 * lower + upper + 1.
+     */
+    private final int upperU;
+    private final int width;
+
+    /**
+     * Row i holds columns i - lower to i + upperU, with entry (i, j) at
+     * factors[i * width + j - i + lower]: multipliers of L left of the diagonal, U (with a unit
+     * diagonal) right of it.
+     */
+    private final double[] factors;
+
+    /**
+     * The reciprocal of each pivot, and the row exchanged with row k at step k.
+     */
+    private final double[] pivotInverse;
+    private final int[] pivotRow;
+
+    /**
+     * Factor the band matrix `mat`, which is not modified. Throws SolvingException if `mat` is
+     * singular, i.e. some column has no pivot at least 1e-15 in absolute value during
+     * elimination.
+     */
+    public BandLU(BandMatrix mat) throws SolvingException {
+        dim = mat.dimension();
+        lower = mat.lower();
+        upperU = Math.min(dim - 1, lower + mat.upper());
+        width = lower + upperU + 1;
+        factors = new double[Math.multiplyExact(dim, width)];
+        for (int i = 0; i < dim; i++) {
+            int first = Math.max(0, i - lower);
+            int last = Math.min(dim - 1, i + mat.upper());
+            for (int j = first; j <= last; j++) {
+                factors[index(i, j)] = mat.get(i, j);
+            }
+        }
+        pivotInverse = new double[dim];
+        pivotRow = new int[dim];
+        for (int k = 0; k < dim; k++) {
+            int lastRow = Math.min(dim - 1, k + lower);
+            int lastCol = Math.min(dim - 1, k + upperU);
+            // Partial pivoting among the rows that can be nonzero in column k
+            int maxIdx = k;
+            double max = Math.abs(factors[index(k, k)]);
+            for (int i = k + 1; i <= lastRow; i++) {
+                double value = Math.abs(factors[index(i, k)]);
+                if (value > max) {
+                    maxIdx = i;
+                    max = value;
+                }
+            }
+            if (max < 1e-15) {
+                throw new SolvingException("No pivot in column " + k + " of input matrix");
+            }
+            pivotRow[k] = maxIdx;
+            if (maxIdx != k) {
+                for (int j = k; j <= lastCol; j++) {
+                    int a = index(k, j);
+                    int b = index(maxIdx, j);
+                    double temp = factors[a];
+                    factors[a] = factors[b];
+                    factors[b] = temp;
+                }
+            }
+            // Scaling the pivot row
+            int pivotOffset = k * width - k + lower;
+            double scaleFactor = 1 / factors[pivotOffset + k];
+            pivotInverse[k] = scaleFactor;
+            for (int j = k + 1; j <= lastCol; j++) {
+                factors[pivotOffset + j] = scaleFactor * factors[pivotOffset + j];
+            }
+            // Elimination below the pivot; the multiplier stays in column k as part of L
+            for (int i = k + 1; i <= lastRow; i++) {
+                int offset = i * width - i + lower;
+                double factor = -1.0 * factors[offset + k];
+                for (int j = k + 1; j <= lastCol; j++) {
+                    factors[offset + j] = factors[offset + j] + factor * factors[pivotOffset + j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the index of entry (i, j) in `factors`.
+     */
+    private int index(int i, int j) {
+        return i * width + j - i + lower;
+    }
+
+    /**
+     * Returns the dimension of the factored matrix.
+     */
+    public int dimension() {
+        return dim;
+    }
+
+    /**
+     * Returns the unique solution x to Ax = b where A is the factored matrix and b is `vec`, which
+     * is not modified. Requires the length of `vec` equals the dimension. All returned values are
+     * rounded to 14 decimal places, as in SystemSolver.linear_solve.
+     */
+    public double[] solve(double[] vec) {
+        assert vec.length == dim;
+
+        double[] x = vec.clone();
+        // Replaying the row exchanges and eliminations of the factorization on x
+        for (int k = 0; k < dim; k++) {
+            int p = pivotRow[k];
+            double value = x[p];
+            x[p] = x[k];
+            value = pivotInverse[k] * value;
+            x[k] = value;
+            int lastRow = Math.min(dim - 1, k + lower);
+            for (int i = k + 1; i <= lastRow; i++) {
+                x[i] = x[i] + -1.0 * factors[index(i, k)] * value;
+            }
+        }
+        // Back substitution with U
+        for (int i = dim - 1; i >= 0; i--) {
+            int offset = i * width - i + lower;
+            int lastCol = Math.min(dim - 1, i + upperU);
+            double rowSum = x[i];
+            for (int k = lastCol; k > i; k--) {
+                rowSum -= factors[offset + k] * x[k];
+            }
+            x[i] = rowSum;
+        }
+        for (int i = 0; i < dim; i++) {
+            x[i] = SystemSolver.round(x[i], 14);
+        }
+        return x;
+    }
+}
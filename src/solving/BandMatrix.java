@@ -0,0 +1,152 @@
+package solving;
+
+/**
+ * A square band matrix: all of its nonzero entries lie within `lower` diagonals below the main
+ * diagonal and `upper` diagonals above it. Only those diagonals are stored, row by row, so a
+ * matrix of dimension n takes n * (lower + upper + 1) entries. Matrices from discretized 1-D and
+ * 2-D problems typically have this form.
+ */
+public final class BandMatrix {
+
+    private final int dim;
+    private final int lower;
+    private final int upper;
+
+    /**
+     * The stored diagonals; entry (i, j) is data[i * (lower + upper + 1) + j - i + lower].
+     * Positions outside the matrix, at the corners, are 0.
+     */
+    private final double[] data;
+
+    /**
+     * Create a `dim`-by-`dim` band matrix of zeros with `lower` diagonals below the main diagonal
+     * and `upper` above it. Requires `dim` is positive and `lower` and `upper` are nonnegative
+     * and less than `dim`.
+     */
+    public BandMatrix(int dim, int lower, int upper) {
+        assert dim > 0 && 0 <= lower && lower < dim && 0 <= upper && upper < dim;
+        this.dim = dim;
+        this.lower = lower;
+        this.upper = upper;
+        data = new double[Math.multiplyExact(dim, lower + upper + 1)];
+    }
+
+    /**
+     * Returns a band matrix with the same entries as the square matrix `mat`, with the smallest
+     * bandwidths that hold all of its nonzero entries.
+     */
+    public static BandMatrix of(double[][] mat) {
+        BandMatrix toReturn = new BandMatrix(mat.length, lowerBandwidth(mat),
+                upperBandwidth(mat));
+        for (int i = 0; i < mat.length; i++) {
+            int first = Math.max(0, i - toReturn.lower);
+            int last = Math.min(mat.length - 1, i + toReturn.upper);
+            for (int j = first; j <= last; j++) {
+                toReturn.set(i, j, mat[i][j]);
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * Returns the number of diagonals below the main diagonal of the square matrix `mat` that
+     * contain a nonzero entry, i.e. the greatest i - j over nonzero entries (i, j), or 0 if there
+     * are none below the diagonal.
+     */
+    public static int lowerBandwidth(double[][] mat) {
+        int toReturn = 0;
+        for (int i = 1; i < mat.length; i++) {
+            // Only entries further from the diagonal than those found so far need checking
+            for (int j = 0; j < i - toReturn; j++) {
+                if (mat[i][j] != 0) {
+                    toReturn = i - j;
+                    break;
+                }
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * Returns the number of diagonals above the main diagonal of the square matrix `mat` that
+     * contain a nonzero entry, i.e. the greatest j - i over nonzero entries (i, j), or 0 if there
+     * are none above the diagonal.
+     */
+    public static int upperBandwidth(double[][] mat) {
+        int toReturn = 0;
+        int dim = mat.length;
+        for (int i = 0; i < dim - 1; i++) {
+            for (int j = dim - 1; j > i + toReturn; j--) {
+                if (mat[i][j] != 0) {
+                    toReturn = j - i;
+                    break;
+                }
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * Returns the dimension of the matrix.
+     */
+    public int dimension() {
+        return dim;
+    }
+
+    /**
+     * Returns the number of diagonals stored below the main diagonal.
+     */
+    public int lower() {
+        return lower;
+    }
+
+    /**
+     * Returns the number of diagonals stored above the main diagonal.
+     */
+    public int upper() {
+        return upper;
+    }
+
+    /**
+     * Returns the entry in row `i` and column `j`, which is 0 outside the band.
+     */
+    public double get(int i, int j) {
+        assert 0 <= i && i < dim && 0 <= j && j < dim;
+        if (j < i - lower || j > i + upper) {
+            return 0;
+        }
+        return data[i * (lower + upper + 1) + j - i + lower];
+    }
+
+    /**
+     * Sets the entry in row `i` and column `j` to `value`. Requires the entry is within the band,
+     * i.e. -lower() <= j - i <= upper().
+     */
+    public void set(int i, int j, double value) {
+        assert 0 <= i && i < dim && 0 <= j && j < dim;
+        assert i - lower <= j && j <= i + upper;
+        data[i * (lower + upper + 1) + j - i + lower] = value;
+    }
+
+    /**
+     * Returns the product of this matrix and the vector `vec`. Requires the length of `vec`
+     * equals the dimension.
+     */
+    public double[] multiply(double[] vec) {
+        assert vec.length == dim;
+
+        int width = lower + upper + 1;
+        double[] toReturn = new double[dim];
+        for (int i = 0; i < dim; i++) {
+            int first = Math.max(0, i - lower);
+            int last = Math.min(dim - 1, i + upper);
+            int offset = i * width - i + lower;
+            double sum = 0;
+            for (int j = first; j <= last; j++) {
+                sum += data[offset + j] * vec[j];
+            }
+            toReturn[i] = sum;
+        }
+        return toReturn;
+    }
+}
@@ -0,0 +1,51 @@
+package solving;
+
+/**
+ * The operations of row reduction applied to a block of independent systems at once, as used by
+ * BatchedSolver. A block stores each matrix entry for all of its systems contiguously, one lane
+ * per system, with `width` lanes per entry; the entries of a row follow each other `width`
+ * doubles apart. Each method takes the index of the first lane of the entries it works on and
+ * applies the same operation to every lane, without branching on the value in each lane. Every
+ * implementation computes each lane with the same floating-point operations in the same order,
+ * so results do not depend on which one is used.
+ */
+interface BatchKernels {
+
+    /**
+     * Returns the number of lanes processed together, which `width` must be a multiple of.
+     */
+    int lanes();
+
+    /**
+     * In each lane where the entry at `candidate` is larger in absolute value than the entry at
+     * `pivot`, exchanges the `length` entries of the row starting at `pivot` with those of the row
+     * starting at `candidate`.
+     */
+    void pivot(double[] a, int pivot, int candidate, int length, int width);
+
+    /**
+     * Multiplies entries 1 to `length` - 1 of the row starting at `pivot` by the reciprocal of
+     * the entry at `pivot`, in each lane. Lanes where the entry at `pivot` is less than 1e-15 in
+     * absolute value, so that the system has no pivot in this column, are set to NaN instead.
+     */
+    void scale(double[] a, int pivot, int length, int width);
+
+    /**
+     * Adds -1 times the entry at `factor` times the `length` entries of the row starting at `src`
+     * to those of the row starting at `dst`, in each lane.
+     */
+    void eliminate(double[] a, int factor, int src, int dst, int length, int width);
+
+    /**
+     * Return the SIMD kernels if the incubating Vector API module is available to this JVM and its
+     * vectors are wide enough for them to be faster (see VectorRowKernels.faster()), and the
+     * scalar kernels otherwise.
+     */
+    static BatchKernels best() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+                && VectorRowKernels.faster()) {
+            return new VectorBatchKernels();
+        }
+        return new ScalarBatchKernels();
+    }
+}
@@ -0,0 +1,167 @@
+package solving;
+
+/**
+ * A solver for many independent small systems of linear equations Ax = b of the same dimension,
+ * such as one per element of a mesh, which solves them together rather than one linear_solve call
+ * at a time. Batches are passed in struct-of-arrays form: for a batch of `count` systems of
+ * dimension n, entry (i, j) of the matrix of system s is mat[(i * n + j) * count + s], entry i of
+ * its right-hand side is vec[i * count + s], and entry i of its solution is
+ * result[i * count + s].
+ *
+ * <p>Systems are solved by row reduction with partial pivoting, as in
+ * SystemSolver.linear_solve, performing each row operation on a block of systems at once with
+ * BatchKernels, so that it is vectorized across the systems and nothing is allocated per system.
+ * Pivoting selects rows with blends rather than branches, and a system without a pivot does not
+ * stop the others: its solution is filled with NaN. A solver keeps the workspace of its last
+ * batch and reuses it for the next, so it must not be shared between threads.
+ */
+public final class BatchedSolver {
+
+    /**
+     * The kernels performing each row operation on a block of systems.
+     */
+    private static final BatchKernels KERNELS = BatchKernels.best();
+
+    /**
+     * The largest number of systems in a block, chosen so that a block of 4x4 systems fits in
+     * the L1 cache of most processors.
+     */
+    private static final int BLOCK_SIZE = 256;
+
+    private final int dim;
+    private final int count;
+
+    /**
+     * The number of lanes of each block, a multiple of KERNELS.lanes(), and the number of entries
+     * of each augmented matrix [A | b].
+     */
+    private final int width;
+    private final int entries;
+
+    /**
+     * The augmented matrices of the batch, one block after another: entry e (numbered by rows) of
+     * lane l of block k is at work[(k * entries + e) * width + l], where lane l holds system
+     * k * width + l. Lanes past the last system hold the identity matrix and a zero right-hand
+     * side, which row reduction leaves unchanged.
+     */
+    private final double[] work;
+
+    /**
+     * Create a solver for batches of `count` systems of dimension `dim`. Requires `dim` and
+     * `count` are positive.
+     */
+    public BatchedSolver(int dim, int count) {
+        assert dim > 0 && count > 0;
+
+        this.dim = dim;
+        this.count = count;
+        int lanes = KERNELS.lanes();
+        width = (Math.min(count, BLOCK_SIZE) + lanes - 1) / lanes * lanes;
+        entries = dim * (dim + 1);
+        int blocks = (count + width - 1) / width;
+        work = new double[Math.multiplyExact(Math.multiplyExact(blocks, entries), width)];
+        int lastBase = (blocks - 1) * entries * width;
+        for (int l = count - (blocks - 1) * width; l < width; l++) {
+            for (int i = 0; i < dim; i++) {
+                work[lastBase + (i * (dim + 1) + i) * width + l] = 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the dimension of the systems.
+     */
+    public int dimension() {
+        return dim;
+    }
+
+    /**
+     * Returns the number of systems in a batch.
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Solves each system of the batch with matrices `mat` and right-hand sides `vec`, which are
+     * not modified, storing the solutions in `result`, and returns the number of systems that
+     * could not be solved. A system cannot be solved if its matrix is singular, i.e. some column
+     * has no pivot at least 1e-15 in absolute value during elimination, or if its solution is not
+     * finite; every entry of its solution is NaN. All other values are rounded to 14 decimal
+     * places, as in SystemSolver.linear_solve. Requires the lengths of `mat`, `vec` and `result`
+     * are dimension() * dimension() * count(), dimension() * count() and dimension() * count().
+     */
+    public int solve(double[] mat, double[] vec, double[] result) {
+        assert mat.length == dim * dim * count;
+        assert vec.length == dim * count && result.length == dim * count;
+
+        int failed = 0;
+        for (int first = 0; first < count; first += width) {
+            int base = first / width * entries * width;
+            int size = Math.min(width, count - first);
+            for (int i = 0; i < dim; i++) {
+                for (int j = 0; j < dim; j++) {
+                    System.arraycopy(mat, (i * dim + j) * count + first, work,
+                            base + entry(i, j) * width, size);
+                }
+                System.arraycopy(vec, i * count + first, work, base + entry(i, dim) * width,
+                        size);
+            }
+            reduce(base);
+            for (int l = 0; l < size; l++) {
+                boolean finite = true;
+                for (int i = 0; i < dim; i++) {
+                    finite &= Double.isFinite(work[base + entry(i, dim) * width + l]);
+                }
+                for (int i = 0; i < dim; i++) {
+                    double value = work[base + entry(i, dim) * width + l];
+                    result[i * count + first + l] =
+                            finite ? SystemSolver.round(value, 14) : Double.NaN;
+                }
+                if (!finite) {
+                    failed++;
+                }
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Returns the index, numbered by rows, of entry (i, j) of an augmented matrix.
+     */
+    private int entry(int i, int j) {
+        return i * (dim + 1) + j;
+    }
+
+    /**
+     * Row reduces the augmented matrices of the block starting at index `base` of work, leaving
+     * each solution in its last column. A system without a pivot in some column gets NaN in
+     * every entry of that column's row to the right of the pivot, which elimination spreads to
+     * its whole solution.
+     */
+    private void reduce(int base) {
+        for (int k = 0; k < dim; k++) {
+            int pivot = base + entry(k, k) * width;
+            int length = dim + 1 - k;
+            // Partial pivoting, keeping the largest entry of column k seen so far in row k
+            for (int i = k + 1; i < dim; i++) {
+                KERNELS.pivot(work, pivot, base + entry(i, k) * width, length, width);
+            }
+            // Scaling the pivot row
+            KERNELS.scale(work, pivot, length, width);
+            // Elimination below the pivot
+            for (int i = k + 1; i < dim; i++) {
+                KERNELS.eliminate(work, base + entry(i, k) * width, pivot + width,
+                        base + entry(i, k + 1) * width, length - 1, width);
+            }
+        }
+        // Back substitution on the right-hand sides
+        for (int k = dim - 1; k > 0; k--) {
+            int solved = base + entry(k, dim) * width;
+            for (int i = 0; i < k; i++) {
+                KERNELS.eliminate(work, base + entry(i, k) * width, solved,
+                        base + entry(i, dim) * width, 1, width);
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package solving;
+
+import expressions.exceptions.*;
+
+/**
+ * The Cholesky factorization A = LL^T of a symmetric positive definite matrix A, where L is lower
+ * triangular with a positive diagonal. It needs no pivot search and about half the arithmetic of
+ * LUDecomposition, and since A is symmetric only its lower triangle is read and L is stored in
+ * its place, packed row by row into n(n + 1) / 2 entries.
+ *
+ * <p>The factorization is blocked and right-looking, as LUDecomposition is: a panel of columns is
+ * factored, then the rest of the lower triangle is updated with the whole panel, with each
+ * trailing row streaming past a copy of the panel's columns that is laid out for the update. The
+ * updates of independent rows are spread across the common ForkJoinPool for large matrices.
+ */
+public final class CholeskyDecomposition {
+
+    /**
+     * The number of columns factored together in each panel.
+     */
+    private static final int PANEL_WIDTH = 64;
+
+    /**
+     * The dimension of the matrix.
+     */
+    private final int dim;
+
+    /**
+     * The lower triangle of L packed by rows: entry (i, j) for j <= i is at index
+     * i * (i + 1) / 2 + j.
+     */
+    private final double[] packed;
+
+    /**
+     * Factor the symmetric matrix `mat`, of which only the lower triangle is read and nothing is
+     * modified. Requires `mat` is square. Throws SolvingException if `mat` is not positive
+     * definite, i.e. some pivot of the factorization is less than 1e-15.
+     */
+    public CholeskyDecomposition(double[][] mat) throws SolvingException {
+        assert mat.length == mat[0].length;
+
+        dim = mat.length;
+        packed = new double[Math.toIntExact((long) dim * (dim + 1) / 2)];
+        for (int i = 0; i < dim; i++) {
+            System.arraycopy(mat[i], 0, packed, rowStart(i), i + 1);
+        }
+        factor();
+    }
+
+    /**
+     * Factor the symmetric matrix `mat`, of which only the lower triangle is read and nothing is
+     * modified. Requires `mat` is square. Throws SolvingException if `mat` is not positive
+     * definite, i.e. some pivot of the factorization is less than 1e-15.
+     */
+    public CholeskyDecomposition(DenseMatrix mat) throws SolvingException {
+        assert mat.rows() == mat.cols();
+
+        dim = mat.rows();
+        packed = new double[Math.toIntExact((long) dim * (dim + 1) / 2)];
+        double[] data = mat.data();
+        for (int i = 0; i < dim; i++) {
+            System.arraycopy(data, i * dim, packed, rowStart(i), i + 1);
+        }
+        factor();
+    }
+
+    /**
+     * Returns whether the square matrix `mat` is worth attempting to factor: it is exactly
+     * symmetric and its diagonal is positive, as the diagonal of a positive definite matrix is.
+     * The check stops at the first entry that fails it, so it usually costs little for matrices
+     * that are not symmetric.
+     */
+    public static boolean isCandidate(double[][] mat) {
+        for (int i = 0; i < mat.length; i++) {
+            if (!(mat[i][i] > 0)) {
+                return false;
+            }
+        }
+        for (int i = 1; i < mat.length; i++) {
+            for (int j = 0; j < i; j++) {
+                if (mat[i][j] != mat[j][i]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the index in `packed` of the first entry of row `i`.
+     */
+    private static int rowStart(int i) {
+        return (int) ((long) i * (i + 1) / 2);
+    }
+
+    /**
+     * Overwrites the lower triangle of A in `packed` with L, one panel at a time. Throws
+     * SolvingException if a pivot is less than 1e-15.
+     */
+    private void factor() throws SolvingException {
+        for (int k0 = 0; k0 < dim; k0 += PANEL_WIDTH) {
+            int k1 = Math.min(k0 + PANEL_WIDTH, dim);
+            factorPanel(k0, k1);
+            if (k1 < dim) {
+                updateTrailing(k0, k1);
+            }
+        }
+    }
+
+    /**
+     * Computes columns `k0` to `k1` - 1 of L from the entries of A already updated with every
+     * earlier panel: first the diagonal block, then each row below it by forward substitution
+     * with that block. The rows below are independent, so ranges of them are computed in
+     * parallel.
+     */
+    private void factorPanel(int k0, int k1) throws SolvingException {
+        for (int j = k0; j < k1; j++) {
+            int rowJ = rowStart(j);
+            solveRow(j, k0, j);
+            double pivot = packed[rowJ + j];
+            for (int k = k0; k < j; k++) {
+                pivot -= packed[rowJ + k] * packed[rowJ + k];
+            }
+            if (!(pivot >= 1e-15)) {
+                throw new SolvingException("Input matrix is not positive definite at column " + j);
+            }
+            packed[rowJ + j] = Math.sqrt(pivot);
+        }
+        int width = k1 - k0;
+        ParallelRows.forRange(k1, dim, (long) width * width, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                solveRow(i, k0, k1);
+            }
+        });
+    }
+
+    /**
+     * Computes entries `k0` to `end` - 1 of row `i` of L, given that entries `k0` to `end` - 1 of
+     * the rows of L above are final.
+     */
+    private void solveRow(int i, int k0, int end) {
+        int rowI = rowStart(i);
+        for (int j = k0; j < end; j++) {
+            int rowJ = rowStart(j);
+            double sum = packed[rowI + j];
+            for (int k = k0; k < j; k++) {
+                sum -= packed[rowI + k] * packed[rowJ + k];
+            }
+            packed[rowI + j] = sum / packed[rowJ + j];
+        }
+    }
+
+    /**
+     * Subtracts the product of the panel's columns `k0` to `k1` - 1 of L and their transpose
+     * from the lower triangle below row `k1` and right of column `k1`. The panel is first copied
+     * transposed, so that column k of the panel is one array indexed from zero that each row's
+     * update runs along, which lets the JIT compiler vectorize the update loop.
+     */
+    private void updateTrailing(int k0, int k1) {
+        int width = k1 - k0;
+        int trailing = dim - k1;
+        double[][] panel = new double[width][trailing];
+        for (int i = k1; i < dim; i++) {
+            int rowI = rowStart(i);
+            for (int k = 0; k < width; k++) {
+                panel[k][i - k1] = packed[rowI + k0 + k];
+            }
+        }
+        ParallelRows.forRange(k1, dim, (long) width * trailing, (from, to) -> {
+            double[] row = new double[trailing];
+            for (int i = from; i < to; i++) {
+                int rowI = rowStart(i);
+                int len = i - k1 + 1;
+                System.arraycopy(packed, rowI + k1, row, 0, len);
+                for (int k = 0; k < width; k++) {
+                    double factor = -packed[rowI + k0 + k];
+                    double[] column = panel[k];
+                    for (int j = 0; j < len; j++) {
+                        row[j] = row[j] + factor * column[j];
+                    }
+                }
+                System.arraycopy(row, 0, packed, rowI + k1, len);
+            }
+        });
+    }
+
+    /**
+     * Returns the dimension of the factored matrix.
+     */
+    public int dimension() {
+        return dim;
+    }
+
+    /**
+     * Returns the unique solution x to Ax = b where A is the factored matrix and b is `vec`, which
+     * is not modified. Requires the length of `vec` equals the dimension. All returned values are
+     * rounded to 14 decimal places, as in SystemSolver.linear_solve.
+     */
+    public double[] solve(double[] vec) {
+        assert vec.length == dim;
+
+        double[] x = vec.clone();
+        // Forward substitution with L, one row at a time
+        for (int i = 0; i < dim; i++) {
+            int rowI = rowStart(i);
+            double rowSum = x[i];
+            for (int j = 0; j < i; j++) {
+                rowSum -= packed[rowI + j] * x[j];
+            }
+            x[i] = rowSum / packed[rowI + i];
+        }
+        // Back substitution with L^T, subtracting each solved entry from those above it
+        for (int i = dim - 1; i >= 0; i--) {
+            int rowI = rowStart(i);
+            double value = x[i] / packed[rowI + i];
+            x[i] = value;
+            for (int j = 0; j < i; j++) {
+                x[j] -= packed[rowI + j] * value;
+            }
+        }
+        for (int i = 0; i < dim; i++) {
+            x[i] = SystemSolver.round(x[i], 14);
+        }
+        return x;
+    }
+
+    /**
+     * Returns the unique solution X to AX = B where A is the factored matrix and B is the
+     * rectangular matrix `rhs`, which is not modified. Column j of X is the solution for column j
+     * of B, equal to what solve() returns for that column. Requires the number of rows of `rhs`
+     * equals the dimension. All returned values are rounded to 14 decimal places.
+     */
+    public double[][] solve(double[][] rhs) {
+        assert rhs.length == dim;
+
+        int cols = rhs[0].length;
+        double[][] x = new double[dim][];
+        for (int i = 0; i < dim; i++) {
+            x[i] = rhs[i].clone();
+        }
+        for (int i = 0; i < dim; i++) {
+            int rowI = rowStart(i);
+            double[] xi = x[i];
+            for (int j = 0; j < i; j++) {
+                double factor = packed[rowI + j];
+                double[] xj = x[j];
+                for (int c = 0; c < cols; c++) {
+                    xi[c] -= factor * xj[c];
+                }
+            }
+            double pivot = packed[rowI + i];
+            for (int c = 0; c < cols; c++) {
+                xi[c] = xi[c] / pivot;
+            }
+        }
+        for (int i = dim - 1; i >= 0; i--) {
+            int rowI = rowStart(i);
+            double[] xi = x[i];
+            double pivot = packed[rowI + i];
+            for (int c = 0; c < cols; c++) {
+                xi[c] = xi[c] / pivot;
+            }
+            for (int j = 0; j < i; j++) {
+                double factor = packed[rowI + j];
+                double[] xj = x[j];
+                for (int c = 0; c < cols; c++) {
+                    xj[c] -= factor * xi[c];
+                }
+            }
+        }
+        for (int i = 0; i < dim; i++) {
+            for (int c = 0; c < cols; c++) {
+                x[i][c] = SystemSolver.round(x[i][c], 14);
+            }
+        }
+        return x;
+    }
+}
@@ -0,0 +1,144 @@
+package solving;
+
+import expressions.exceptions.*;
+
+/**
+ * A dense rectangular matrix stored contiguously in row-major order in a single array, so that
+ * rows are adjacent in memory and an entry is found by arithmetic rather than by following a
+ * pointer to its row. The row operations behave as SystemSolver's operations on jagged arrays.
+ */
+public final class DenseMatrix {
+
+    private final int rows;
+    private final int cols;
+
+    /**
+     * The entries; entry (i, j) is data[i * cols + j].
+     */
+    private final double[] data;
+
+    /**
+     * Create a `rows`-by-`cols` matrix of zeros. Requires `rows` and `cols` are positive.
+     */
+    public DenseMatrix(int rows, int cols) {
+        assert rows > 0 && cols > 0;
+        this.rows = rows;
+        this.cols = cols;
+        data = new double[Math.multiplyExact(rows, cols)];
+    }
+
+    /**
+     * Returns a matrix with the same entries as the rectangular matrix `mat`.
+     */
+    public static DenseMatrix of(double[][] mat) {
+        DenseMatrix toReturn = new DenseMatrix(mat.length, mat[0].length);
+        for (int i = 0; i < mat.length; i++) {
+            assert mat[i].length == toReturn.cols;
+            System.arraycopy(mat[i], 0, toReturn.data, i * toReturn.cols, toReturn.cols);
+        }
+        return toReturn;
+    }
+
+    /**
+     * Returns a new matrix with the same entries as this one.
+     */
+    public DenseMatrix copy() {
+        DenseMatrix toReturn = new DenseMatrix(rows, cols);
+        System.arraycopy(data, 0, toReturn.data, 0, data.length);
+        return toReturn;
+    }
+
+    /**
+     * Returns the number of rows.
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns.
+     */
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * Returns the entry in row `i` and column `j`.
+     */
+    public double get(int i, int j) {
+        assert 0 <= i && i < rows && 0 <= j && j < cols;
+        return data[i * cols + j];
+    }
+
+    /**
+     * Sets the entry in row `i` and column `j` to `value`.
+     */
+    public void set(int i, int j, double value) {
+        assert 0 <= i && i < rows && 0 <= j && j < cols;
+        data[i * cols + j] = value;
+    }
+
+    /**
+     * Returns the entries as a new jagged array.
+     */
+    public double[][] toArray() {
+        double[][] toReturn = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(data, i * cols, toReturn[i], 0, cols);
+        }
+        return toReturn;
+    }
+
+    /**
+     * Returns the backing array, in which entry (i, j) is at index i * cols() + j. Changes to the
+     * array change the matrix.
+     */
+    double[] data() {
+        return data;
+    }
+
+    /**
+     * Returns the row index of the element with the largest absolute value in column `col` at or
+     * below row `startRow`, choosing the topmost if there are several, as
+     * SystemSolver.partialPivot does. Requires 0 <= col < cols() and 0 <= startRow < rows().
+     * Throws SolvingException if all values at or below row `startRow` in `col` are less than
+     * 1e-15 from 0.
+     */
+    public int partialPivot(int col, int startRow) throws SolvingException {
+        assert 0 <= col && col < cols;
+        assert 0 <= startRow && startRow < rows;
+
+        int maxIdx = startRow;
+        double max = Math.abs(data[startRow * cols + col]);
+        for (int i = startRow + 1, idx = (startRow + 1) * cols + col; i < rows; i++, idx += cols) {
+            double value = Math.abs(data[idx]);
+            if (value > max) {
+                maxIdx = i;
+                max = value;
+            }
+        }
+        if (max < 1e-15) {
+            throw new SolvingException("No pivot in column " + col + " of input matrix");
+        }
+        return maxIdx;
+    }
+
+    /**
+     * Swaps rows `row1` and `row2`. Requires 0 <= row1, row2 < rows().
+     */
+    public void swapRows(int row1, int row2) {
+        assert 0 <= row1 && row1 < rows;
+        assert 0 <= row2 && row2 < rows;
+
+        if (row1 == row2) {
+            return;
+        }
+        int offset1 = row1 * cols;
+        int offset2 = row2 * cols;
+        for (int j = 0; j < cols; j++) {
+            double temp = data[offset1 + j];
+            data[offset1 + j] = data[offset2 + j];
+            data[offset2 + j] = temp;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package solving;
+
+import expressions.*;
+import expressions.exceptions.*;
+
+/**
+ * A SystemEvaluator that computes each equation's value and row of the Jacobian in one pass with
+ * forward-mode automatic differentiation.
+ */
+final class DualJacobian implements SystemEvaluator {
+
+    private final DualEvaluator[] rows;
+
+    /**
+     * Evaluates the equations alone, without carrying their gradients.
+     */
+    private final DagEvaluator valueEvaluator;
+
+    DualJacobian(Expression[] equations, String[] vars) throws UnboundVariableException {
+        rows = new DualEvaluator[equations.length];
+        for (int i = 0; i < equations.length; i++) {
+            rows[i] = new DualEvaluator(equations[i], vars);
+        }
+        valueEvaluator = new DagEvaluator(equations, vars);
+    }
+
+    @Override
+    public void evaluate(double[] point, double[] values, double[][] jacobian) {
+        for (int i = 0; i < rows.length; i++) {
+            values[i] = rows[i].eval(point, jacobian[i]);
+        }
+    }
+
+    @Override
+    public void evaluate(double[] point, double[] values) {
+        valueEvaluator.eval(point, values);
+    }
+}
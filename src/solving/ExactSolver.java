@@ -0,0 +1,416 @@
+package solving;
+
+import expressions.exceptions.*;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Exact row reduction of matrices of rational numbers, for systems whose rank or solution the
+ * rounding of SystemSolver.linear_solve and linear_solve_general could get wrong, such as nearly
+ * singular integer systems.
+ *
+ * <p>Each row is first scaled by the least common multiple of its denominators, which changes
+ * neither the solutions nor the reduced row echelon form, leaving a matrix of integers. That is
+ * reduced by fraction-free (Bareiss) Gauss-Jordan elimination: with pivot p and previous pivot q,
+ * each step replaces every entry a of another row by (p * a - f * b) / q, where f is the row's
+ * entry in the pivot column and b the pivot row's entry in a's column. The division is always
+ * exact and every intermediate entry is a minor of the input, so entries grow only linearly with
+ * the dimension instead of exponentially as with fraction arithmetic, and all pivot entries end
+ * up equal to the last pivot.
+ *
+ * <p>Square systems with a unique solution can instead be solved modulo many 31-bit primes, with
+ * machine arithmetic, and the solution recovered by the Chinese remainder theorem from its
+ * numerators det(A_i) and denominator det(A) (by Cramer's rule), once the product of the primes
+ * exceeds twice the Hadamard bound on those determinants. This costs O(n^3) word operations per
+ * prime instead of O(n^3) operations on integers of the size of the determinants, so solve uses
+ * it whenever the system is not small.
+ */
+public final class ExactSolver {
+
+    /**
+     * The least dimension at which solve uses modular arithmetic rather than Bareiss elimination.
+     */
+    private static final int MODULAR_MIN_DIMENSION = 10;
+
+    /**
+     * The primes used by modular solving are below 2^31 and above 2^30, so that products of two
+     * residues fit in a long and each prime contributes more than 30 bits.
+     */
+    private static final int PRIME_BITS = 30;
+
+    private ExactSolver() {
+    }
+
+    /**
+     * Returns the reduced row echelon form of the rectangular matrix `mat`, which is not
+     * modified. Requires `mat` is rectangular and has at least one row and column.
+     */
+    public static Rational[][] reducedRowEchelon(Rational[][] mat) {
+        int rows = mat.length;
+        int cols = mat[0].length;
+        BigInteger[][] a = integerRows(mat, null);
+        int[] pivots = bareiss(a);
+        Rational[][] toReturn = new Rational[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                toReturn[i][j] = i < pivots.length
+                        ? Rational.of(a[i][j], a[i][pivots[i]]) : Rational.ZERO;
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * Returns the rank of the rectangular matrix `mat`, the number of pivot columns of its
+     * reduced row echelon form. Requires `mat` is rectangular and has at least one row and column.
+     */
+    public static int rank(Rational[][] mat) {
+        return bareiss(integerRows(mat, null)).length;
+    }
+
+    /**
+     * Returns the unique solution vector x to the system of linear equations Ax = b where A is the
+     * square matrix `mat` and b is the vector `vec`, exactly. Systems of dimension 10 or more are
+     * solved with modular arithmetic, smaller ones with Bareiss elimination. Requires `mat` is a
+     * square matrix with each dimension being the same as the length of `vec`. Throws
+     * SolvingException if `mat` is singular.
+     */
+    public static Rational[] solve(Rational[][] mat, Rational[] vec) throws SolvingException {
+        return mat.length >= MODULAR_MIN_DIMENSION ? solveModular(mat, vec)
+                : solveBareiss(mat, vec);
+    }
+
+    /**
+     * Returns the solution of solve(mat, vec), by Bareiss elimination of [A | b].
+     */
+    static Rational[] solveBareiss(Rational[][] mat, Rational[] vec) throws SolvingException {
+        assert mat.length == vec.length && mat[0].length == vec.length;
+
+        int dim = vec.length;
+        BigInteger[][] a = integerRows(mat, vec);
+        int[] pivots = bareiss(a);
+        if (pivots.length < dim || pivots[dim - 1] != dim - 1) {
+            throw new SolvingException("Matrix is singular");
+        }
+        Rational[] toReturn = new Rational[dim];
+        for (int i = 0; i < dim; i++) {
+            toReturn[i] = Rational.of(a[i][dim], a[i][i]);
+        }
+        return toReturn;
+    }
+
+    /**
+     * Returns the solution of solve(mat, vec), computed modulo primes and reconstructed by the
+     * Chinese remainder theorem.
+     */
+    static Rational[] solveModular(Rational[][] mat, Rational[] vec) throws SolvingException {
+        assert mat.length == vec.length && mat[0].length == vec.length;
+
+        int dim = vec.length;
+        BigInteger[][] a = integerRows(mat, vec);
+
+        // Hadamard's bound: det(A) and each det(A_i) are at most the product of the norms of the
+        // rows of [A | b] in absolute value, and the norm of a row is below 2^ceil(bits / 2)
+        // where bits is the bit length of the sum of the squares of its entries
+        long boundBits = 0;
+        for (BigInteger[] row : a) {
+            BigInteger sumOfSquares = BigInteger.ZERO;
+            for (BigInteger value : row) {
+                sumOfSquares = sumOfSquares.add(value.multiply(value));
+            }
+            boundBits += (sumOfSquares.bitLength() + 1) / 2;
+        }
+
+        // values[i] is det(A_i) for i < dim, and values[dim] is det(A), modulo the product of the
+        // primes used so far
+        BigInteger[] values = new BigInteger[dim + 1];
+        Arrays.fill(values, BigInteger.ZERO);
+        BigInteger modulus = BigInteger.ONE;
+        long singularBits = 0;
+        long[][] residues = new long[dim][dim + 1];
+        long[] numerators = new long[dim + 1];
+        int prime = Integer.MAX_VALUE;
+        // A modulus above twice the bound determines each value from its residue
+        while (modulus.bitLength() <= boundBits + 1) {
+            prime = previousPrime(prime);
+            BigInteger bigPrime = BigInteger.valueOf(prime);
+            for (int i = 0; i < dim; i++) {
+                for (int j = 0; j <= dim; j++) {
+                    BigInteger value = a[i][j];
+                    residues[i][j] = value.bitLength() < 63
+                            ? Math.floorMod(value.longValue(), prime)
+                            : value.mod(bigPrime).longValue();
+                }
+            }
+            long det = solveModPrime(residues, prime);
+            if (det == 0) {
+                // Either det(A) = 0 or the prime divides it; once the primes dividing it have a
+                // product above the bound, det(A) must be 0
+                singularBits += PRIME_BITS;
+                if (singularBits > boundBits) {
+                    throw new SolvingException("Matrix is singular");
+                }
+                continue;
+            }
+            for (int i = 0; i < dim; i++) {
+                numerators[i] = det * residues[i][dim] % prime;
+            }
+            numerators[dim] = det;
+
+            // Garner's step: the new value is v + M * t where t = (r - v) / M modulo the prime
+            long inverse = inverse(modulus.mod(bigPrime).longValue(), prime);
+            for (int i = 0; i <= dim; i++) {
+                long t = Math.floorMod(numerators[i] - values[i].mod(bigPrime).longValue(), prime)
+                        * inverse % prime;
+                if (t != 0) {
+                    values[i] = values[i].add(modulus.multiply(BigInteger.valueOf(t)));
+                }
+            }
+            modulus = modulus.multiply(bigPrime);
+        }
+
+        // Values are in [0, M); the determinants are those in (-M / 2, M / 2] with those residues
+        BigInteger half = modulus.shiftRight(1);
+        for (int i = 0; i <= dim; i++) {
+            if (values[i].compareTo(half) > 0) {
+                values[i] = values[i].subtract(modulus);
+            }
+        }
+        Rational[] toReturn = new Rational[dim];
+        for (int i = 0; i < dim; i++) {
+            toReturn[i] = Rational.of(values[i], values[dim]);
+        }
+        return toReturn;
+    }
+
+    /**
+     * Returns the rows of `mat`, with `vec` appended as a last column if it is not null, each
+     * scaled by the least common multiple of its denominators so that its entries are integers.
+     */
+    private static BigInteger[][] integerRows(Rational[][] mat, Rational[] vec) {
+        assert vec == null || vec.length == mat.length;
+
+        int cols = mat[0].length + (vec == null ? 0 : 1);
+        BigInteger[][] toReturn = new BigInteger[mat.length][cols];
+        Rational[] row = new Rational[cols];
+        for (int i = 0; i < mat.length; i++) {
+            assert mat[i].length == mat[0].length;
+            System.arraycopy(mat[i], 0, row, 0, mat[i].length);
+            if (vec != null) {
+                row[cols - 1] = vec[i];
+            }
+            BigInteger lcm = BigInteger.ONE;
+            for (Rational value : row) {
+                BigInteger den = value.denominator();
+                if (!den.equals(BigInteger.ONE)) {
+                    lcm = lcm.divide(lcm.gcd(den)).multiply(den);
+                }
+            }
+            for (int j = 0; j < cols; j++) {
+                toReturn[i][j] = row[j].numerator().multiply(lcm.divide(row[j].denominator()));
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * Reduces the integer matrix `a` in place by fraction-free Gauss-Jordan elimination and
+     * returns its pivot columns, in increasing order. Afterwards row r, for each r less than the
+     * number of pivots, has its pivot in column pivots[r] and zeros in the other pivot columns;
+     * all pivot entries are equal, so dividing each row by it gives the reduced row echelon form,
+     * and the remaining rows are zero.
+     */
+    private static int[] bareiss(BigInteger[][] a) {
+        int rows = a.length;
+        int cols = a[0].length;
+        int[] pivots = new int[Math.min(rows, cols)];
+        BigInteger previous = BigInteger.ONE;
+        int curRow = 0;
+        for (int curCol = 0; curCol < cols && curRow < rows; curCol++) {
+            // The shortest nonzero pivot keeps the next step's products small
+            int pivotRow = -1;
+            for (int i = curRow; i < rows; i++) {
+                BigInteger value = a[i][curCol];
+                if (value.signum() != 0
+                        && (pivotRow < 0 || value.bitLength() < a[pivotRow][curCol].bitLength())) {
+                    pivotRow = i;
+                }
+            }
+            if (pivotRow < 0) {
+                continue;
+            }
+            BigInteger[] temp = a[curRow];
+            a[curRow] = a[pivotRow];
+            a[pivotRow] = temp;
+
+            int row = curRow;
+            int col = curCol;
+            BigInteger[] pivotEntries = a[row];
+            BigInteger pivot = pivotEntries[col];
+            BigInteger divisor = previous;
+            long workPerRow = (long) (cols - col) * (1 + pivot.bitLength() / 64);
+            ParallelRows.forRange(0, rows, workPerRow, (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    if (i != row) {
+                        eliminate(a[i], pivotEntries, col, pivot, divisor);
+                    }
+                }
+            });
+            previous = pivot;
+            pivots[curRow++] = curCol;
+        }
+        return Arrays.copyOf(pivots, curRow);
+    }
+
+    /**
+     * Performs one step of fraction-free elimination on `row` with the pivot row `pivotRow`,
+     * whose pivot `pivot` is in column `col`, where `previous` is the previous pivot. Entries left
+     * of `col` are zero in the pivot row, so they are only scaled.
+     */
+    private static void eliminate(BigInteger[] row, BigInteger[] pivotRow, int col,
+            BigInteger pivot, BigInteger previous) {
+        boolean divide = !previous.equals(BigInteger.ONE);
+        for (int j = 0; j < col; j++) {
+            if (row[j].signum() != 0) {
+                BigInteger value = row[j].multiply(pivot);
+                row[j] = divide ? value.divide(previous) : value;
+            }
+        }
+        BigInteger factor = row[col];
+        row[col] = BigInteger.ZERO;
+        for (int j = col + 1; j < row.length; j++) {
+            BigInteger value = row[j].multiply(pivot);
+            if (factor.signum() != 0 && pivotRow[j].signum() != 0) {
+                value = value.subtract(factor.multiply(pivotRow[j]));
+            }
+            row[j] = divide ? value.divide(previous) : value;
+        }
+    }
+
+    /**
+     * Solves the system whose augmented matrix is `a`, of n rows and n + 1 columns with entries
+     * in [0, prime), modulo `prime`, and returns the determinant of its first n columns modulo
+     * `prime`. If that is not 0, the solution is left in the last column of `a`; otherwise `a` is
+     * left partly reduced.
+     */
+    private static long solveModPrime(long[][] a, int prime) {
+        int dim = a.length;
+        long det = 1;
+        for (int j = 0; j < dim; j++) {
+            int pivotRow = j;
+            while (pivotRow < dim && a[pivotRow][j] == 0) {
+                pivotRow++;
+            }
+            if (pivotRow == dim) {
+                return 0;
+            }
+            if (pivotRow != j) {
+                long[] temp = a[j];
+                a[j] = a[pivotRow];
+                a[pivotRow] = temp;
+                det = prime - det;
+            }
+            long[] pivotEntries = a[j];
+            det = det * pivotEntries[j] % prime;
+            long pivotInverse = inverse(pivotEntries[j], prime);
+            for (int k = j; k <= dim; k++) {
+                pivotEntries[k] = pivotEntries[k] * pivotInverse % prime;
+            }
+            for (int i = j + 1; i < dim; i++) {
+                long[] row = a[i];
+                long factor = row[j];
+                if (factor != 0) {
+                    for (int k = j; k <= dim; k++) {
+                        long value = (row[k] - factor * pivotEntries[k]) % prime;
+                        row[k] = value < 0 ? value + prime : value;
+                    }
+                }
+            }
+        }
+        for (int i = dim - 1; i >= 0; i--) {
+            long value = a[i][dim];
+            for (int k = i + 1; k < dim; k++) {
+                value = (value - a[i][k] * a[k][dim]) % prime;
+            }
+            a[i][dim] = value < 0 ? value + prime : value;
+        }
+        return det;
+    }
+
+    /**
+     * Returns the inverse of `value` modulo `prime`, by the extended Euclidean algorithm.
+     * Requires `value` is not divisible by `prime`.
+     */
+    private static long inverse(long value, long prime) {
+        long r0 = prime;
+        long r1 = Math.floorMod(value, prime);
+        long s0 = 0;
+        long s1 = 1;
+        while (r1 != 0) {
+            long q = r0 / r1;
+            long r = r0 - q * r1;
+            r0 = r1;
+            r1 = r;
+            long s = s0 - q * s1;
+            s0 = s1;
+            s1 = s;
+        }
+        assert r0 == 1;
+        return Math.floorMod(s0, prime);
+    }
+
+    /**
+     * Returns the largest prime less than `bound`. Requires the result is above 2^30, which leaves
+     * room for tens of millions of primes.
+     */
+    private static int previousPrime(int bound) {
+        int candidate = (bound - 1) | 1;
+        if (candidate >= bound) {
+            candidate -= 2;
+        }
+        while (!isPrime(candidate)) {
+            candidate -= 2;
+        }
+        assert candidate > 1 << PRIME_BITS;
+        return candidate;
+    }
+
+    /**
+     * Returns whether the odd number `n` is prime, by the Miller-Rabin test with bases 2, 7 and
+     * 61, which has no false positives below 2^32. Requires `n` is odd and more than 61.
+     */
+    private static boolean isPrime(int n) {
+        int d = (n - 1) >> Integer.numberOfTrailingZeros(n - 1);
+        for (long base : new long[]{2, 7, 61}) {
+            long x = power(base, d, n);
+            if (x == 1 || x == n - 1) {
+                continue;
+            }
+            boolean witness = true;
+            for (long e = d; e < n - 1 && witness; e <<= 1) {
+                x = x * x % n;
+                witness = x != n - 1;
+            }
+            if (witness) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns `base` to the power `exponent` modulo `modulus`. Requires `base` is less than
+     * `modulus`, which is less than 2^31.
+     */
+    private static long power(long base, long exponent, long modulus) {
+        long toReturn = 1;
+        while (exponent > 0) {
+            if ((exponent & 1) != 0) {
+                toReturn = toReturn * base % modulus;
+            }
+            base = base * base % modulus;
+            exponent >>= 1;
+        }
+        return toReturn;
+    }
+}
@@ -0,0 +1,91 @@
+package solving;
+
+import expressions.exceptions.*;
+
+import java.util.Arrays;
+
+/**
+ * The ILU(0) preconditioner of a sparse matrix A: a unit lower triangular L and an upper
+ * triangular U with the same nonzero pattern as A, computed by Gaussian elimination that drops
+ * every entry outside that pattern. Both factors are stored in one array parallel to A's entries.
+ */
+final class IncompleteLU implements Preconditioner {
+
+    private final int[] rowPtr;
+    private final int[] colIdx;
+
+    /**
+     * The strictly lower part of L and all of U, at the positions of A's entries.
+     */
+    private final double[] factors;
+
+    /**
+     * diagonal[i] is the index of entry (i, i) in the arrays.
+     */
+    private final int[] diagonal;
+
+    /**
+     * Requires `mat` is square. Throws SolvingException if a pivot is 0, including when an entry
+     * on the diagonal is not stored.
+     */
+    IncompleteLU(SparseMatrix mat) throws SolvingException {
+        assert mat.rows() == mat.cols();
+
+        rowPtr = mat.rowPointers();
+        colIdx = mat.columnIndices();
+        factors = mat.entries().clone();
+        int dim = mat.rows();
+        diagonal = new int[dim];
+        int[] position = new int[dim];
+        Arrays.fill(position, -1);
+        for (int i = 0; i < dim; i++) {
+            diagonal[i] = -1;
+            for (int p = rowPtr[i]; p < rowPtr[i + 1]; p++) {
+                position[colIdx[p]] = p;
+                if (colIdx[p] == i) {
+                    diagonal[i] = p;
+                }
+            }
+            // Eliminate the entries left of the diagonal using the rows already factored,
+            // keeping only the updates that land on row i's pattern
+            for (int p = rowPtr[i]; p < rowPtr[i + 1] && colIdx[p] < i; p++) {
+                int k = colIdx[p];
+                double factor = factors[p] / factors[diagonal[k]];
+                factors[p] = factor;
+                for (int q = diagonal[k] + 1; q < rowPtr[k + 1]; q++) {
+                    int target = position[colIdx[q]];
+                    if (target >= 0) {
+                        factors[target] -= factor * factors[q];
+                    }
+                }
+            }
+            for (int p = rowPtr[i]; p < rowPtr[i + 1]; p++) {
+                position[colIdx[p]] = -1;
+            }
+            if (diagonal[i] < 0 || factors[diagonal[i]] == 0) {
+                throw new SolvingException("No pivot in column " + i + " of input matrix");
+            }
+        }
+    }
+
+    @Override
+    public void apply(double[] vec, double[] result) {
+        int dim = diagonal.length;
+        // Forward substitution with the unit lower triangular L
+        for (int i = 0; i < dim; i++) {
+            double sum = vec[i];
+            for (int p = rowPtr[i]; p < diagonal[i]; p++) {
+                sum -= factors[p] * result[colIdx[p]];
+            }
+            result[i] = sum;
+        }
+        // Back substitution with U
+        for (int i = dim - 1; i >= 0; i--) {
+            double sum = result[i];
+            for (int p = diagonal[i] + 1; p < rowPtr[i + 1]; p++) {
+                sum -= factors[p] * result[colIdx[p]];
+            }
+            result[i] = sum / factors[diagonal[i]];
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package solving;
+
+import expressions.*;
+import expressions.exceptions.*;
+
+/**
+ * The ways in which nonlinear_solve can compute the Jacobian of a system of equations at each
+ * iteration of Newton's method.
+ */
+public enum JacobianStrategy {
+
+    /**
+     * Differentiate every equation symbolically with respect to every variable once, then
+     * evaluate the resulting dim^2 expressions (sharing common subexpressions) at each iteration.
+     * Cheap per iteration for small systems, but building the derivatives costs time and memory
+     * quadratic in the number of equations.
+     */
+    SYMBOLIC {
+        @Override
+        SystemEvaluator evaluator(Expression[] equations, String[] vars)
+                throws UnboundVariableException {
+            return new SymbolicJacobian(equations, vars);
+        }
+    },
+
+    /**
+     * Evaluate each equation with forward-mode automatic differentiation, which yields its value
+     * and its whole row of the Jacobian in a single pass. No symbolic derivatives are built, which
+     * suits large systems.
+     */
+    DUAL {
+        @Override
+        SystemEvaluator evaluator(Expression[] equations, String[] vars)
+                throws UnboundVariableException {
+            return new DualJacobian(equations, vars);
+        }
+    };
+
+    /**
+     * Returns an evaluator computing the values and Jacobian of the system `equations` with
+     * respect to `vars` using this strategy. Throws UnboundVariableException if an equation
+     * contains a variable that is not in `vars`.
+     */
+    abstract SystemEvaluator evaluator(Expression[] equations, String[] vars)
+            throws UnboundVariableException;
+}
@@ -0,0 +1,316 @@
+package solving;
+
+import expressions.exceptions.*;
+
+import java.util.Arrays;
+
+/**
+ * Iterative solvers for large systems of linear equations Ax = b, which need A only as a
+ * LinearOperator and so store nothing but a few vectors (and, for GMRES, a basis of the current
+ * Krylov subspace). Conjugate gradient is for symmetric positive definite matrices; restarted
+ * GMRES and BiCGSTAB handle general matrices. Each method takes a Preconditioner M, which should
+ * approximate A; GMRES and BiCGSTAB apply it on the right and conjugate gradient requires it to be
+ * symmetric positive definite too.
+ *
+ * <p>Each solve starts from x = 0 and stops once the residual b - Ax is at most the tolerance
+ * times the norm of b. Solutions are therefore approximate, and are not rounded as those of
+ * SystemSolver.linear_solve are. Each is returned in a Result with the statistics of its solve,
+ * so a solver holds no state of its own between solves and may be shared between threads.
+ */
+public final class KrylovSolver {
+
+    /**
+     * The relative residual norm at which iteration stops.
+     */
+    private final double tolerance;
+
+    /**
+     * The most iterations a solve may perform before giving up.
+     */
+    private final int maxIterations;
+
+    /**
+     * The approximate solution of one system, with the number of iterations taken and the norm of
+     * its residual relative to the norm of the right-hand side.
+     */
+    public record Result(double[] solution, int iterations, double relativeResidual) {}
+
+    /**
+     * Create a solver stopping when the residual is at most `tolerance` relative to the
+     * right-hand side, or failing after `maxIterations` iterations. Requires `tolerance` and
+     * `maxIterations` are positive.
+     */
+    public KrylovSolver(double tolerance, int maxIterations) {
+        assert tolerance > 0 && maxIterations > 0;
+        this.tolerance = tolerance;
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Returns an approximate solution to Ax = b, where A is `op` and b is `vec`, by the
+     * preconditioned conjugate gradient method. Requires A and `precond` are symmetric positive
+     * definite and the length of `vec` equals the dimension of A. Throws SolvingException if the
+     * method breaks down, which it does when A is found not to be positive definite, or does not
+     * converge within the maximum number of iterations.
+     */
+    public Result conjugateGradient(LinearOperator op, double[] vec, Preconditioner precond)
+            throws SolvingException {
+        int dim = op.dimension();
+        assert vec.length == dim;
+
+        double[] x = new double[dim];
+        double[] r = vec.clone();
+        double[] z = new double[dim];
+        double[] p = new double[dim];
+        double[] q = new double[dim];
+        double target = tolerance * norm(vec);
+        precond.apply(r, z);
+        System.arraycopy(z, 0, p, 0, dim);
+        double rz = dot(r, z);
+        double rNorm = norm(r);
+        for (int k = 0; ; k++) {
+            if (rNorm <= target) {
+                return finish(x, k, rNorm, vec);
+            }
+            if (k == maxIterations) {
+                throw notConverged("Conjugate gradient");
+            }
+            op.apply(p, q);
+            double curvature = dot(p, q);
+            if (!(curvature > 0)) {
+                // A direction of zero or negative curvature: A is not positive definite
+                throw brokeDown("Conjugate gradient", k);
+            }
+            double alpha = rz / curvature;
+            for (int i = 0; i < dim; i++) {
+                x[i] += alpha * p[i];
+                r[i] -= alpha * q[i];
+            }
+            rNorm = norm(r);
+            precond.apply(r, z);
+            double rzNext = dot(r, z);
+            double beta = rzNext / rz;
+            rz = rzNext;
+            for (int i = 0; i < dim; i++) {
+                p[i] = z[i] + beta * p[i];
+            }
+        }
+    }
+
+    /**
+     * Returns an approximate solution to Ax = b, where A is `op` and b is `vec`, by GMRES with
+     * right preconditioning, restarted after every `restart` iterations so that at most
+     * `restart` + 1 basis vectors are stored. Requires `restart` is positive and the length of
+     * `vec` equals the dimension of A. Throws SolvingException if the method breaks down, which
+     * it does when the Hessenberg matrix becomes singular because A M^-1 maps a basis vector into
+     * the span of the earlier ones with no component along it, or does not converge within the
+     * maximum number of iterations.
+     */
+    public Result gmres(LinearOperator op, double[] vec, Preconditioner precond, int restart)
+            throws SolvingException {
+        int dim = op.dimension();
+        assert vec.length == dim && restart > 0;
+
+        int m = Math.min(restart, dim);
+        double[] x = new double[dim];
+        double[][] basis = new double[m + 1][dim];
+        double[][] hessenberg = new double[m + 1][m];
+        double[] cos = new double[m];
+        double[] sin = new double[m];
+        double[] g = new double[m + 1];
+        double[] r = new double[dim];
+        double[] z = new double[dim];
+        double target = tolerance * norm(vec);
+        int k = 0;
+        while (true) {
+            // r = b - Ax
+            op.apply(x, r);
+            for (int i = 0; i < dim; i++) {
+                r[i] = vec[i] - r[i];
+            }
+            double beta = norm(r);
+            if (beta <= target) {
+                return finish(x, k, beta, vec);
+            }
+            if (k == maxIterations) {
+                throw notConverged("GMRES");
+            }
+            for (int i = 0; i < dim; i++) {
+                basis[0][i] = r[i] / beta;
+            }
+            Arrays.fill(g, 0);
+            g[0] = beta;
+            // Arnoldi process on A M^-1 with modified Gram-Schmidt, reducing the Hessenberg
+            // matrix to triangular form with Givens rotations as each column is added
+            int j = 0;
+            while (j < m && k < maxIterations) {
+                precond.apply(basis[j], z);
+                double[] w = basis[j + 1];
+                op.apply(z, w);
+                for (int i = 0; i <= j; i++) {
+                    double h = dot(w, basis[i]);
+                    hessenberg[i][j] = h;
+                    axpy(-h, basis[i], w);
+                }
+                double h = norm(w);
+                hessenberg[j + 1][j] = h;
+                if (h != 0) {
+                    for (int i = 0; i < dim; i++) {
+                        w[i] /= h;
+                    }
+                }
+                for (int i = 0; i < j; i++) {
+                    double upper = hessenberg[i][j];
+                    double lower = hessenberg[i + 1][j];
+                    hessenberg[i][j] = cos[i] * upper + sin[i] * lower;
+                    hessenberg[i + 1][j] = -sin[i] * upper + cos[i] * lower;
+                }
+                double diagonal = hessenberg[j][j];
+                double radius = Math.hypot(diagonal, h);
+                if (radius == 0) {
+                    throw brokeDown("GMRES", k);
+                }
+                cos[j] = diagonal / radius;
+                sin[j] = h / radius;
+                hessenberg[j][j] = radius;
+                hessenberg[j + 1][j] = 0;
+                g[j + 1] = -sin[j] * g[j];
+                g[j] = cos[j] * g[j];
+                j++;
+                k++;
+                if (Math.abs(g[j]) <= target || h == 0) {
+                    break;
+                }
+            }
+            // x += M^-1 V y, where y solves the triangular system Hy = g
+            double[] y = new double[j];
+            for (int i = j - 1; i >= 0; i--) {
+                double sum = g[i];
+                for (int l = i + 1; l < j; l++) {
+                    sum -= hessenberg[i][l] * y[l];
+                }
+                y[i] = sum / hessenberg[i][i];
+            }
+            Arrays.fill(r, 0);
+            for (int i = 0; i < j; i++) {
+                axpy(y[i], basis[i], r);
+            }
+            precond.apply(r, z);
+            axpy(1, z, x);
+        }
+    }
+
+    /**
+     * Returns an approximate solution to Ax = b, where A is `op` and b is `vec`, by BiCGSTAB with
+     * right preconditioning. Requires the length of `vec` equals the dimension of A. Throws
+     * SolvingException if the method breaks down or does not converge within the maximum number
+     * of iterations.
+     */
+    public Result bicgstab(LinearOperator op, double[] vec, Preconditioner precond)
+            throws SolvingException {
+        int dim = op.dimension();
+        assert vec.length == dim;
+
+        double[] x = new double[dim];
+        double[] r = vec.clone();
+        double[] shadow = vec.clone();
+        double[] p = new double[dim];
+        double[] v = new double[dim];
+        double[] s = new double[dim];
+        double[] t = new double[dim];
+        double[] pHat = new double[dim];
+        double[] sHat = new double[dim];
+        double target = tolerance * norm(vec);
+        double rho = 1;
+        double alpha = 1;
+        double omega = 1;
+        double rNorm = norm(r);
+        for (int k = 0; ; k++) {
+            if (rNorm <= target) {
+                return finish(x, k, rNorm, vec);
+            }
+            if (k == maxIterations) {
+                throw notConverged("BiCGSTAB");
+            }
+            double rhoNext = dot(shadow, r);
+            if (rhoNext == 0 || omega == 0) {
+                throw brokeDown("BiCGSTAB", k);
+            }
+            double beta = (rhoNext / rho) * (alpha / omega);
+            rho = rhoNext;
+            for (int i = 0; i < dim; i++) {
+                p[i] = r[i] + beta * (p[i] - omega * v[i]);
+            }
+            precond.apply(p, pHat);
+            op.apply(pHat, v);
+            alpha = rho / dot(shadow, v);
+            for (int i = 0; i < dim; i++) {
+                s[i] = r[i] - alpha * v[i];
+            }
+            if (norm(s) <= target) {
+                axpy(alpha, pHat, x);
+                return finish(x, k + 1, norm(s), vec);
+            }
+            precond.apply(s, sHat);
+            op.apply(sHat, t);
+            double tt = dot(t, t);
+            omega = tt == 0 ? 0 : dot(t, s) / tt;
+            for (int i = 0; i < dim; i++) {
+                x[i] += alpha * pHat[i] + omega * sHat[i];
+                r[i] = s[i] - omega * t[i];
+            }
+            rNorm = norm(r);
+        }
+    }
+
+    /**
+     * Returns the result of a solve converging to `x` after `iterations` iterations, with
+     * residual norm `residualNorm` for the right-hand side `vec`.
+     */
+    private static Result finish(double[] x, int iterations, double residualNorm, double[] vec) {
+        double vecNorm = norm(vec);
+        return new Result(x, iterations, vecNorm == 0 ? 0 : residualNorm / vecNorm);
+    }
+
+    /**
+     * Returns the exception thrown when `method` breaks down after `iterations` iterations.
+     */
+    private static SolvingException brokeDown(String method, int iterations) {
+        return new SolvingException(method + " broke down after " + iterations + " iterations");
+    }
+
+    /**
+     * Returns the exception thrown when `method` does not converge.
+     */
+    private SolvingException notConverged(String method) {
+        return new SolvingException(method + " did not converge within " + maxIterations
+                + " iterations");
+    }
+
+    /**
+     * Returns the dot product of `a` and `b`, which have the same length.
+     */
+    private static double dot(double[] a, double[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the Euclidean norm of `a`.
+     */
+    private static double norm(double[] a) {
+        return Math.sqrt(dot(a, a));
+    }
+
+    /**
+     * Adds `scale` times `a` to `b`, which has the same length.
+     */
+    private static void axpy(double scale, double[] a, double[] b) {
+        for (int i = 0; i < a.length; i++) {
+            b[i] += scale * a[i];
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package solving;
+
+import expressions.exceptions.*;
+
+/**
+ * The LU factorization PA = LU of a square matrix A with partial pivoting, computed once so that
+ * any number of systems Ax = b with the same matrix can each be solved in O(n^2) time. Pivots are
+ * chosen as in SystemSolver.partialPivot, and the factors are stored in the form produced by the
+ * row reduction in SystemSolver.linear_solve (U with a unit diagonal, L holding the pivots), so
+ * solutions are identical to those returned by linear_solve for matrices it does not solve with
+ * CholeskyDecomposition.
+ *
+ * <p>The factorization is blocked and right-looking: a panel of columns is factored, the matching
+ * rows of U are computed, and the rest of the matrix is updated with the whole panel at once,
+ * one tile of columns at a time, so that the panel's rows of U stay in cache while every trailing
+ * row streams past them. Each entry still receives its updates in the same order as in unblocked
+ * elimination, so blocking does not change any result. For large matrices, the updates of
+ * independent rows and columns are spread across the common ForkJoinPool, which also leaves the
+ * result unchanged.
+ */
+public final class LUDecomposition {
+
+    /**
+     * The number of columns factored together in each panel.
+     */
+    private static final int PANEL_WIDTH = 64;
+
+    /**
+     * The number of columns of the trailing matrix updated together.
+     */
+    static final int TILE_WIDTH = 256;
+
+    /**
+     * The dimension of the matrix.
+     */
+    private final int dim;
+
+    /**
+     * The factors, packed into one matrix: L (including its diagonal of pivots) on and below the
+     * diagonal, and the strictly upper part of U (whose diagonal is all ones) above it.
+     */
+    private final DenseMatrix lu;
+
+    /**
+     * The reciprocal of each pivot.
+     */
+    private final double[] pivotInverse;
+
+    /**
+     * perm[i] is the row of the original matrix that became row i after pivoting.
+     */
+    private final int[] perm;
+
+    /**
+     * Factor the square matrix `mat`, which is not modified. Requires `mat` is square. Throws
+     * SolvingException if `mat` is singular, i.e. some column has no pivot at least 1e-15 in
+     * absolute value during elimination.
+     */
+    public LUDecomposition(double[][] mat) throws SolvingException {
+        this(DenseMatrix.of(mat));
+    }
+
+    /**
+     * Factor the square matrix `mat`, which is not modified. Requires `mat` is square. Throws
+     * SolvingException if `mat` is singular, i.e. some column has no pivot at least 1e-15 in
+     * absolute value during elimination.
+     */
+    public LUDecomposition(DenseMatrix mat) throws SolvingException {
+        assert mat.rows() == mat.cols();
+
+        lu = mat.copy();
+        dim = lu.rows();
+        pivotInverse = new double[dim];
+        perm = new int[dim];
+        factor(lu, pivotInverse, perm);
+    }
+
+    /**
+     * Replaces the square matrix `lu` with its factors, packed as in the field of the same name,
+     * and stores the reciprocal of each pivot in `pivotInverse` and the row permutation in `perm`,
+     * so that callers such as SolverWorkspace can factor into storage they reuse. Requires
+     * `pivotInverse` and `perm` have the dimension of `lu`. Throws SolvingException if `lu` is
+     * singular, i.e. some column has no pivot at least 1e-15 in absolute value during
+     * elimination, in which case the contents of all three are unspecified.
+     */
+    static void factor(DenseMatrix lu, double[] pivotInverse, int[] perm) throws SolvingException {
+        factor(lu, pivotInverse, perm, tileBuffers(lu.rows()), new double[TILE_WIDTH], false);
+    }
+
+    /**
+     * Returns buffers for factor() to copy each panel's rows of U into when factoring a matrix of
+     * dimension `dim`: one PANEL_WIDTH-by-TILE_WIDTH tile per tile of columns right of the first
+     * panel.
+     */
+    static double[][][] tileBuffers(int dim) {
+        return new double[maxTileCount(dim)][PANEL_WIDTH][TILE_WIDTH];
+    }
+
+    /**
+     * Returns the number of tiles of columns right of the first panel of a matrix of dimension
+     * `dim`, the most that any panel's update needs.
+     */
+    private static int maxTileCount(int dim) {
+        return Math.max(0, (dim - PANEL_WIDTH + TILE_WIDTH - 1) / TILE_WIDTH);
+    }
+
+    /**
+     * Factors `lu` as factor(lu, pivotInverse, perm) does, copying the panels' rows of U into
+     * `tiles`, from tileBuffers(), and `row`, of length TILE_WIDTH, rather than into new arrays.
+     * If `serial` is true, or the work is too small to be split across threads, everything runs
+     * on the calling thread and nothing is allocated, so that SolverWorkspace can factor
+     * repeatedly without allocating. The result does not depend on `serial`.
+     */
+    static void factor(DenseMatrix lu, double[] pivotInverse, int[] perm, double[][][] tiles,
+            double[] row, boolean serial) throws SolvingException {
+        int dim = lu.rows();
+        assert lu.cols() == dim && pivotInverse.length == dim && perm.length == dim;
+        assert tiles.length == maxTileCount(dim) && row.length == TILE_WIDTH;
+
+        for (int i = 0; i < dim; i++) {
+            perm[i] = i;
+        }
+        for (int k0 = 0; k0 < dim; k0 += PANEL_WIDTH) {
+            int k1 = Math.min(k0 + PANEL_WIDTH, dim);
+            factorPanel(lu, pivotInverse, perm, k0, k1, serial);
+            if (k1 < dim) {
+                computeUpperBlock(lu, pivotInverse, k0, k1, serial);
+                updateTrailing(lu, k0, k1, tiles, row, serial);
+            }
+        }
+    }
+
+    /**
+     * Factors columns `k0` to `k1` - 1 at and below row `k0`, swapping whole rows as pivots are
+     * chosen, on the calling thread if `serial` is true. Requires columns to the right of the
+     * panel have not been updated with the panel.
+     */
+    private static void factorPanel(DenseMatrix lu, double[] pivotInverse, int[] perm, int k0,
+            int k1, boolean serial) throws SolvingException {
+        double[] a = lu.data();
+        int dim = lu.rows();
+        for (int j = k0; j < k1; j++) {
+            // Partial pivoting
+            int maxIdx = lu.partialPivot(j, j);
+            lu.swapRows(j, maxIdx);
+            int tempIdx = perm[j];
+            perm[j] = perm[maxIdx];
+            perm[maxIdx] = tempIdx;
+            // Scaling the pivot row within the panel
+            int pivotOffset = j * dim;
+            double scaleFactor = 1 / a[pivotOffset + j];
+            pivotInverse[j] = scaleFactor;
+            for (int k = j + 1; k < k1; k++) {
+                a[pivotOffset + k] = scaleFactor * a[pivotOffset + k];
+            }
+            // Elimination below the pivot within the panel; column j is kept as column j of L.
+            // Serial elimination calls the loop directly rather than creating an action for it
+            int col = j;
+            long work = 2L * (k1 - j);
+            if (serial || ParallelRows.serial(dim - j - 1, work)) {
+                eliminatePanel(a, dim, col, k1, j + 1, dim);
+            } else {
+                ParallelRows.forRange(j + 1, dim, work,
+                        (from, to) -> eliminatePanel(a, dim, col, k1, from, to));
+            }
+        }
+    }
+
+    /**
+     * Subtracts multiples of pivot row `col` from rows `from` to `to` - 1 of the packed factors
+     * `a`, of dimension `dim`, in columns `col` + 1 to `k1` - 1.
+     */
+    private static void eliminatePanel(double[] a, int dim, int col, int k1, int from, int to) {
+        int pivotOffset = col * dim;
+        for (int i = from; i < to; i++) {
+            int offset = i * dim;
+            double factor = -1.0 * a[offset + col];
+            for (int k = col + 1; k < k1; k++) {
+                a[offset + k] = a[offset + k] + factor * a[pivotOffset + k];
+            }
+        }
+    }
+
+    /**
+     * Computes rows `k0` to `k1` - 1 of U to the right of the panel, by forward substitution with
+     * the panel's diagonal block of L. Columns are independent, so ranges of them are computed in
+     * parallel unless `serial` is true.
+     */
+    private static void computeUpperBlock(DenseMatrix lu, double[] pivotInverse, int k0, int k1,
+            boolean serial) {
+        double[] a = lu.data();
+        int dim = lu.rows();
+        int width = k1 - k0;
+        long work = (long) width * width;
+        if (serial || ParallelRows.serial(dim - k1, work)) {
+            computeUpperColumns(a, dim, pivotInverse, k0, k1, k1, dim);
+        } else {
+            ParallelRows.forRange(k1, dim, work,
+                    (from, to) -> computeUpperColumns(a, dim, pivotInverse, k0, k1, from, to));
+        }
+    }
+
+    /**
+     * Computes columns `from` to `to` - 1 of rows `k0` to `k1` - 1 of U in the packed factors `a`,
+     * of dimension `dim`.
+     */
+    private static void computeUpperColumns(double[] a, int dim, double[] pivotInverse, int k0,
+            int k1, int from, int to) {
+        for (int j = k0; j < k1; j++) {
+            int pivotOffset = j * dim;
+            double scaleFactor = pivotInverse[j];
+            for (int k = from; k < to; k++) {
+                a[pivotOffset + k] = scaleFactor * a[pivotOffset + k];
+            }
+            for (int i = j + 1; i < k1; i++) {
+                int offset = i * dim;
+                double factor = -1.0 * a[offset + j];
+                for (int k = from; k < to; k++) {
+                    a[offset + k] = a[offset + k] + factor * a[pivotOffset + k];
+                }
+            }
+        }
+    }
+
+    /**
+     * Subtracts the product of the panel's columns of L and rows of U from the trailing matrix
+     * below row `k1` and right of column `k1`, splitting the trailing rows into ranges updated in
+     * parallel unless `serial` is true. The panel's rows of U are copied, one tile of columns at a time, into the
+     * separate arrays of `tiles`, indexed from zero, which lets the JIT compiler vectorize the update loop (it cannot
+     * when the operands are at different offsets of one array).
+     */
+    private static void updateTrailing(DenseMatrix lu, int k0, int k1, double[][][] tiles,
+            double[] row, boolean serial) {
+        double[] a = lu.data();
+        int dim = lu.rows();
+        int width = k1 - k0;
+        int tileCount = (dim - k1 + TILE_WIDTH - 1) / TILE_WIDTH;
+        for (int t = 0; t < tileCount; t++) {
+            int c0 = k1 + t * TILE_WIDTH;
+            int len = Math.min(TILE_WIDTH, dim - c0);
+            for (int j = 0; j < width; j++) {
+                System.arraycopy(a, (k0 + j) * dim + c0, tiles[t][j], 0, len);
+            }
+        }
+        long work = 2L * width * (dim - k1);
+        if (serial || ParallelRows.serial(dim - k1, work)) {
+            updateRows(a, dim, k1, dim, k0, k1, tiles, tileCount, row);
+        } else {
+            // Each range needs its own copy of the row being updated
+            ParallelRows.forRange(k1, dim, work, (from, to) -> updateRows(a, dim, from, to, k0,
+                    k1, tiles, tileCount, new double[TILE_WIDTH]));
+        }
+    }
+
+    /**
+     * Updates rows `from` to `to` - 1 of the trailing matrix of the packed factors `a`, of
+     * dimension `dim`, with the panel from columns `k0` to `k1` - 1, whose rows of U are in the
+     * first `tileCount` of `tiles`, one tile of columns at a time so that the tile stays in cache
+     * while the rows stream past it. Each row's entries in a tile are updated in `row`. Four rows
+     * of U are applied per pass so that each entry is loaded and stored once for all four.
+     */
+    private static void updateRows(double[] a, int dim, int from, int to, int k0, int k1,
+            double[][][] tiles, int tileCount, double[] row) {
+        int width = k1 - k0;
+        for (int t = 0; t < tileCount; t++) {
+            double[][] tile = tiles[t];
+            int c0 = k1 + t * TILE_WIDTH;
+            int len = Math.min(TILE_WIDTH, dim - c0);
+            for (int i = from; i < to; i++) {
+                int offset = i * dim;
+                System.arraycopy(a, offset + c0, row, 0, len);
+                int j = 0;
+                for (; j + 4 <= width; j += 4) {
+                    updateRow(row, 0, len, -1.0 * a[offset + k0 + j], tile[j],
+                            -1.0 * a[offset + k0 + j + 1], tile[j + 1],
+                            -1.0 * a[offset + k0 + j + 2], tile[j + 2],
+                            -1.0 * a[offset + k0 + j + 3], tile[j + 3]);
+                }
+                for (; j < width; j++) {
+                    double factor = -1.0 * a[offset + k0 + j];
+                    double[] u = tile[j];
+                    for (int k = 0; k < len; k++) {
+                        row[k] = row[k] + factor * u[k];
+                    }
+                }
+                System.arraycopy(row, 0, a, offset + c0, len);
+            }
+        }
+    }
+
+    /**
+     * Adds `factor0` times `u0`, then `factor1` times `u1`, and so on, to entries `from` to `to` - 1
+     * of `row`, where the entries of each `u` are at the same indices.
+     */
+    static void updateRow(double[] row, int from, int to, double factor0, double[] u0,
+            double factor1, double[] u1, double factor2, double[] u2, double factor3, double[] u3) {
+        for (int k = from; k < to; k++) {
+            double value = row[k];
+            value = value + factor0 * u0[k];
+            value = value + factor1 * u1[k];
+            value = value + factor2 * u2[k];
+            value = value + factor3 * u3[k];
+            row[k] = value;
+        }
+    }
+
+    /**
+     * Returns the dimension of the factored matrix.
+     */
+    public int dimension() {
+        return dim;
+    }
+
+    /**
+     * Returns the unique solution x to Ax = b where A is the factored matrix and b is `vec`, which
+     * is not modified. Requires the length of `vec` equals the dimension. All returned values are
+     * rounded to 14 decimal places, as in SystemSolver.linear_solve.
+     */
+    public double[] solve(double[] vec) {
+        assert vec.length == dim;
+
+        double[] x = new double[dim];
+        substitute(lu, pivotInverse, perm, vec, x);
+        for (int i = 0; i < dim; i++) {
+            x[i] = SystemSolver.round(x[i], 14);
+        }
+        return x;
+    }
+
+    /**
+     * Returns the unique solution X to AX = B where A is the factored matrix and B is the
+     * rectangular matrix `rhs`, which is not modified. Column j of X is the solution for column j
+     * of B, equal to what solve() returns for that column. Requires the number of rows of `rhs`
+     * equals the dimension. All returned values are rounded to 14 decimal places.
+     */
+    public double[][] solve(double[][] rhs) {
+        assert rhs.length == dim;
+
+        double[][] x = substitute(rhs);
+        for (int i = 0; i < dim; i++) {
+            for (int c = 0; c < x[i].length; c++) {
+                x[i][c] = SystemSolver.round(x[i][c], 14);
+            }
+        }
+        return x;
+    }
+
+    /**
+     * Returns the inverse of the factored matrix, the solution of solve() for the columns of the
+     * identity matrix but without rounding.
+     */
+    double[][] inverse() {
+        double[][] identity = new double[dim][dim];
+        for (int i = 0; i < dim; i++) {
+            identity[i][i] = 1;
+        }
+        return substitute(identity);
+    }
+
+    /**
+     * Stores in `out` the solution x to Ax = b without rounding, where A is the matrix whose
+     * factors were stored in `lu`, `pivotInverse` and `perm` by factor() and b is `vec`, which is
+     * not modified. Requires `vec` and `out` have the dimension of `lu` and are different arrays.
+     */
+    static void substitute(DenseMatrix lu, double[] pivotInverse, int[] perm, double[] vec,
+            double[] out) {
+        int dim = lu.rows();
+        assert vec.length == dim && out.length == dim && vec != out;
+
+        double[] a = lu.data();
+        // Forward substitution with L, one row at a time
+        for (int i = 0; i < dim; i++) {
+            int offset = i * dim;
+            double rowSum = vec[perm[i]];
+            for (int j = 0; j < i; j++) {
+                rowSum = rowSum + -1.0 * a[offset + j] * out[j];
+            }
+            out[i] = pivotInverse[i] * rowSum;
+        }
+        // Back substitution with U
+        for (int i = dim - 1; i >= 0; i--) {
+            int offset = i * dim;
+            double rowSum = out[i];
+            for (int k = dim - 1; k > i; k--) {
+                rowSum -= a[offset + k] * out[k];
+            }
+            out[i] = rowSum;
+        }
+    }
+
+    /**
+     * Returns the solution X to AX = B where A is the factored matrix and B is `rhs`, which is not
+     * modified, without rounding.
+     */
+    private double[][] substitute(double[][] rhs) {
+        double[] a = lu.data();
+        int cols = rhs[0].length;
+        double[][] x = new double[dim][];
+        // Forward substitution with L, updating whole rows of X at a time
+        for (int i = 0; i < dim; i++) {
+            int offset = i * dim;
+            double[] xi = rhs[perm[i]].clone();
+            for (int j = 0; j < i; j++) {
+                double factor = -1.0 * a[offset + j];
+                double[] xj = x[j];
+                for (int c = 0; c < cols; c++) {
+                    xi[c] = xi[c] + factor * xj[c];
+                }
+            }
+            double scaleFactor = pivotInverse[i];
+            for (int c = 0; c < cols; c++) {
+                xi[c] = scaleFactor * xi[c];
+            }
+            x[i] = xi;
+        }
+        // Back substitution with U
+        for (int i = dim - 1; i >= 0; i--) {
+            int offset = i * dim;
+            double[] xi = x[i];
+            for (int k = dim - 1; k > i; k--) {
+                double factor = a[offset + k];
+                double[] xk = x[k];
+                for (int c = 0; c < cols; c++) {
+                    xi[c] -= factor * xk[c];
+                }
+            }
+        }
+        return x;
+    }
+}
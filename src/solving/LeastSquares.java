@@ -0,0 +1,248 @@
+package solving;
+
+import expressions.exceptions.*;
+
+/**
+ * The least-squares solution of an overdetermined system of linear equations Ax = b, the x
+ * minimizing the norm of b - Ax, computed by Householder QR factorization. Rows of A and b are
+ * added in any number of batches, and only the n-by-n triangular factor R and the first n entries
+ * of Q^T b are kept between batches, so a system with millions of rows never has to be held in
+ * memory at once.
+ *
+ * <p>Each batch is reduced in chunks of rows: the chunk is stacked below R and the stack is
+ * triangularized again, which is one step of a streaming (tall-skinny) QR factorization. Within a
+ * chunk, reflectors are generated for a panel of columns at a time and applied to the remaining
+ * columns together in the compact WY form I - VTV^T, so that the chunk's columns are swept once
+ * per panel rather than once per column. The part of each chunk's transformed right-hand side
+ * below R is orthogonal to the range of A, so its norm accumulates into the residual norm.
+ */
+public final class LeastSquares {
+
+    /**
+     * The number of rows of A reduced together.
+     */
+    private static final int CHUNK_ROWS = 1024;
+
+    /**
+     * The number of columns whose reflectors are applied together.
+     */
+    private static final int PANEL_WIDTH = 16;
+
+    /**
+     * The number of unknowns n.
+     */
+    private final int cols;
+
+    /**
+     * R in columns 0 to n - 1 of rows 0 to n - 1, and the first n entries of Q^T b in column n.
+     */
+    private final double[][] top;
+
+    /**
+     * The chunk being reduced, stored by column, with b in column n; after reduction, the tail of
+     * each reflector is stored in its column.
+     */
+    private final double[][] chunk;
+
+    /**
+     * The scalar factor of each reflector of the current panel, and the panel's T.
+     */
+    private final double[] tau = new double[PANEL_WIDTH];
+    private final double[][] t = new double[PANEL_WIDTH][PANEL_WIDTH];
+
+    /**
+     * The number of rows added so far, and the sum of squares of the residual they contribute.
+     */
+    private long rowCount;
+    private double residualSquares;
+
+    /**
+     * Create a problem with `cols` unknowns and no equations yet. Requires `cols` is positive.
+     */
+    public LeastSquares(int cols) {
+        assert cols > 0;
+        this.cols = cols;
+        top = new double[cols][cols + 1];
+        chunk = new double[cols + 1][CHUNK_ROWS];
+    }
+
+    /**
+     * Adds the equations whose coefficients are the rows of the rectangular matrix `mat` and whose
+     * right-hand sides are the entries of `vec`. Neither is modified or kept. Requires each row of
+     * `mat` has length equal to the number of unknowns, and `vec` has one entry per row.
+     */
+    public void addRows(double[][] mat, double[] vec) {
+        assert mat.length == vec.length;
+
+        for (int start = 0; start < mat.length; start += CHUNK_ROWS) {
+            int m = Math.min(CHUNK_ROWS, mat.length - start);
+            for (int i = 0; i < m; i++) {
+                double[] row = mat[start + i];
+                assert row.length == cols;
+                for (int k = 0; k < cols; k++) {
+                    chunk[k][i] = row[k];
+                }
+                chunk[cols][i] = vec[start + i];
+            }
+            reduce(m);
+        }
+        rowCount += mat.length;
+    }
+
+    /**
+     * Returns the number of equations added so far.
+     */
+    public long rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns the norm of b - Ax for the least-squares solution x of the equations added so far.
+     */
+    public double residualNorm() {
+        return Math.sqrt(residualSquares);
+    }
+
+    /**
+     * Returns the least-squares solution x of the equations added so far. All returned values are
+     * rounded to 14 decimal places, as in SystemSolver.linear_solve. Throws SolvingException if
+     * the solution is not unique, i.e. A does not have full column rank, which is detected by a
+     * diagonal entry of R less than 1e-15 relative to the largest.
+     */
+    public double[] solution() throws SolvingException {
+        double max = 0;
+        for (int j = 0; j < cols; j++) {
+            max = Math.max(max, Math.abs(top[j][j]));
+        }
+        double[] x = new double[cols];
+        for (int i = cols - 1; i >= 0; i--) {
+            if (!(Math.abs(top[i][i]) > 1e-15 * max)) {
+                throw new SolvingException("Input matrix does not have full column rank");
+            }
+            double rowSum = top[i][cols];
+            for (int k = cols - 1; k > i; k--) {
+                rowSum -= top[i][k] * x[k];
+            }
+            x[i] = rowSum / top[i][i];
+        }
+        for (int i = 0; i < cols; i++) {
+            x[i] = SystemSolver.round(x[i], 14);
+        }
+        return x;
+    }
+
+    /**
+     * Triangularizes R stacked on the first `m` rows of the chunk, one panel of columns at a time,
+     * and adds the rest of the chunk's transformed right-hand side to the residual.
+     */
+    private void reduce(int m) {
+        for (int j0 = 0; j0 < cols; j0 += PANEL_WIDTH) {
+            int j1 = Math.min(j0 + PANEL_WIDTH, cols);
+            factorPanel(j0, j1, m);
+            buildT(j0, j1, m);
+            for (int k = j1; k <= cols; k++) {
+                applyBlock(j0, j1, k, m);
+            }
+        }
+        residualSquares += dot(chunk[cols], chunk[cols], m);
+    }
+
+    /**
+     * Generates the reflectors for columns `j0` to `j1` - 1 and applies each to the rest of the
+     * panel. The reflector for column j is I - tau u u^T, where u is 1 in row j of R, 0 in R's
+     * other rows, and equal to the stored tail in the chunk's rows.
+     */
+    private void factorPanel(int j0, int j1, int m) {
+        for (int j = j0; j < j1; j++) {
+            double[] v = chunk[j];
+            double alpha = top[j][j];
+            double tailSquares = dot(v, v, m);
+            if (tailSquares == 0) {
+                // Column j of the chunk is already zero
+                tau[j - j0] = 0;
+                continue;
+            }
+            double norm = Math.sqrt(alpha * alpha + tailSquares);
+            double beta = alpha > 0 ? -norm : norm;
+            double scale = 1 / (alpha - beta);
+            for (int i = 0; i < m; i++) {
+                v[i] *= scale;
+            }
+            double factor = (beta - alpha) / beta;
+            tau[j - j0] = factor;
+            top[j][j] = beta;
+            for (int k = j + 1; k < j1; k++) {
+                double w = factor * (top[j][k] + dot(v, chunk[k], m));
+                top[j][k] -= w;
+                axpy(-w, v, chunk[k], m);
+            }
+        }
+    }
+
+    /**
+     * Computes the upper triangular T for which the panel's reflectors, applied in order, equal
+     * I - VTV^T. Distinct reflectors are nonzero in distinct rows of R, so the inner products of
+     * their vectors involve only the tails.
+     */
+    private void buildT(int j0, int j1, int m) {
+        int width = j1 - j0;
+        double[] z = new double[width];
+        for (int i = 0; i < width; i++) {
+            for (int r = 0; r < i; r++) {
+                z[r] = dot(chunk[j0 + r], chunk[j0 + i], m);
+            }
+            for (int r = 0; r < i; r++) {
+                double sum = 0;
+                for (int s = r; s < i; s++) {
+                    sum += t[r][s] * z[s];
+                }
+                t[r][i] = -tau[i] * sum;
+            }
+            t[i][i] = tau[i];
+        }
+    }
+
+    /**
+     * Applies the transpose of the panel's block reflector, I - VT^TV^T, to column `k` of R
+     * stacked on the chunk.
+     */
+    private void applyBlock(int j0, int j1, int k, int m) {
+        int width = j1 - j0;
+        double[] column = chunk[k];
+        double[] w = new double[width];
+        for (int r = 0; r < width; r++) {
+            w[r] = top[j0 + r][k] + dot(chunk[j0 + r], column, m);
+        }
+        for (int r = width - 1; r >= 0; r--) {
+            double sum = 0;
+            for (int s = 0; s <= r; s++) {
+                sum += t[s][r] * w[s];
+            }
+            w[r] = sum;
+        }
+        for (int r = 0; r < width; r++) {
+            top[j0 + r][k] -= w[r];
+            axpy(-w[r], chunk[j0 + r], column, m);
+        }
+    }
+
+    /**
+     * Returns the dot product of the first `m` entries of `a` and `b`.
+     */
+    private static double dot(double[] a, double[] b, int m) {
+        double sum = 0;
+        for (int i = 0; i < m; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Adds `scale` times the first `m` entries of `a` to those of `b`.
+     */
+    private static void axpy(double scale, double[] a, double[] b, int m) {
+        for (int i = 0; i < m; i++) {
+            b[i] += scale * a[i];
+        }
+    }
+}
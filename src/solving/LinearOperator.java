@@ -0,0 +1,63 @@
+package solving;
+
+/**
+ * A square linear map x -> Ax, known only through its action on vectors. The iterative solvers in
+ * KrylovSolver need nothing more of a matrix, so systems can be solved without ever storing A,
+ * for example when Ax is computed from a formula or from a product of simpler operators.
+ */
+public interface LinearOperator {
+
+    /**
+     * Returns the dimension n of the operator, which maps vectors of length n to vectors of
+     * length n.
+     */
+    int dimension();
+
+    /**
+     * Stores Ax in `result`, where x is `vec`. Requires `vec` and `result` both have length
+     * dimension() and are different arrays. Must not modify `vec`.
+     */
+    void apply(double[] vec, double[] result);
+
+    /**
+     * Returns the operator multiplying by the square sparse matrix `mat`.
+     */
+    static LinearOperator of(SparseMatrix mat) {
+        assert mat.rows() == mat.cols();
+        return new LinearOperator() {
+            @Override
+            public int dimension() {
+                return mat.rows();
+            }
+
+            @Override
+            public void apply(double[] vec, double[] result) {
+                mat.multiply(vec, result);
+            }
+        };
+    }
+
+    /**
+     * Returns the operator multiplying by the square matrix `mat`, which is not copied.
+     */
+    static LinearOperator of(double[][] mat) {
+        assert mat.length == mat[0].length;
+        return new LinearOperator() {
+            @Override
+            public int dimension() {
+                return mat.length;
+            }
+
+            @Override
+            public void apply(double[] vec, double[] result) {
+                for (int i = 0; i < mat.length; i++) {
+                    double sum = 0;
+                    for (int j = 0; j < mat.length; j++) {
+                        sum += mat[i][j] * vec[j];
+                    }
+                    result[i] = sum;
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,405 @@
+package solving;
+
+import expressions.exceptions.*;
+
+import java.util.Arrays;
+
+/**
+ * A solver for square systems Ax = b that factors A in single precision, which takes half the
+ * memory traffic of LUDecomposition and lets the JIT compiler process twice as many entries per
+ * vector instruction, then recovers double-precision accuracy by iterative refinement: the
+ * residual b - Ax is computed in double precision and the correction for it solved with the
+ * single-precision factors, until the residual is as small as double-precision row reduction
+ * would leave it. The stopping test is that of LAPACK's dsgesv: the largest entry of the residual
+ * is at most sqrt(n) times the unit roundoff times the largest entry of x times the infinity norm
+ * of A.
+ *
+ * <p>Refinement converges quickly for well-conditioned matrices. Otherwise, i.e. when the
+ * single-precision factorization has no pivot clearly different from 0 or overflows, or refinement
+ * stalls (the residual fails to halve in a step, or has not converged after 30 steps), the system
+ * is solved with a double-precision LUDecomposition instead, computed once and kept for later
+ * solves. Singular matrices thus reach LUDecomposition, which throws, rather than being
+ * "solved" from pivots that are only rounding error.
+ *
+ * <p>The single-precision factorization is blocked as in LUDecomposition, with the same pivoting
+ * rule, but its factors are of course not identical; solutions agree with those of linear_solve
+ * after rounding, except possibly in the last of the 14 decimal places kept.
+ *
+ * <p>Instances may be shared between threads: solving only reads the factors, and reports how it
+ * went in its Result rather than in the instance. The double-precision fallback is computed under
+ * a lock the first time any thread needs it.
+ */
+public final class MixedPrecisionLU {
+
+    /**
+     * The number of columns factored together in each panel.
+     */
+    private static final int PANEL_WIDTH = 64;
+
+    /**
+     * The number of columns of the trailing matrix updated together, twice that of
+     * LUDecomposition since entries take half the space.
+     */
+    private static final int TILE_WIDTH = 512;
+
+    /**
+     * The most refinement steps taken before falling back to double precision.
+     */
+    private static final int MAX_STEPS = 30;
+
+    private final int dim;
+
+    /**
+     * The matrix, in double precision, for computing residuals.
+     */
+    private final DenseMatrix mat;
+
+    /**
+     * The infinity norm of the matrix.
+     */
+    private final double norm;
+
+    /**
+     * The smallest single-precision pivot accepted. Smaller pivots, below n times the
+     * single-precision unit roundoff times the norm, cannot be told apart from 0 in single
+     * precision, so such matrices are left to double-precision elimination to decide whether
+     * they are singular.
+     */
+    private final double minPivot;
+
+    /**
+     * The single-precision factors, packed as in LUDecomposition with entry (i, j) at
+     * lu[i * dim + j], or null if the matrix could not be factored in single precision.
+     */
+    private final float[] lu;
+
+    /**
+     * The reciprocal of each single-precision pivot, and the row of the matrix that became row i
+     * after pivoting.
+     */
+    private final float[] pivotInverse;
+    private final int[] perm;
+
+    /**
+     * The double-precision factorization, computed when first needed. Guarded by `lock`.
+     */
+    private LUDecomposition fallback;
+    private final Object lock = new Object();
+
+    /**
+     * The solution of one system, rounded to 14 decimal places, with the number of refinement
+     * steps taken, not counting the initial solution, and whether the system was solved in double
+     * precision instead because the matrix could not be factored in single precision or
+     * refinement stalled.
+     */
+    public record Result(double[] solution, int refinementSteps, boolean fellBackToDouble) {}
+
+    /**
+     * Factor the square matrix `mat`, which is not modified, in single precision, or in double
+     * precision if that fails. Requires `mat` is square. Throws SolvingException if neither
+     * succeeds, i.e. some column has no pivot at least 1e-15 in absolute value during
+     * double-precision elimination.
+     */
+    public MixedPrecisionLU(double[][] mat) throws SolvingException {
+        this.mat = DenseMatrix.of(mat);
+        dim = mat.length;
+        assert this.mat.cols() == dim;
+
+        double maxRowSum = 0;
+        for (double[] row : mat) {
+            double rowSum = 0;
+            for (double value : row) {
+                rowSum += Math.abs(value);
+            }
+            maxRowSum = Math.max(maxRowSum, rowSum);
+        }
+        norm = maxRowSum;
+        minPivot = Math.max(1e-15, dim * (Math.ulp(1.0f) / 2) * norm);
+        float[] factors = new float[Math.multiplyExact(dim, dim)];
+        for (int i = 0; i < dim; i++) {
+            for (int j = 0; j < dim; j++) {
+                factors[i * dim + j] = (float) mat[i][j];
+            }
+        }
+        pivotInverse = new float[dim];
+        perm = new int[dim];
+        for (int i = 0; i < dim; i++) {
+            perm[i] = i;
+        }
+        if (factor(factors)) {
+            lu = factors;
+        } else {
+            lu = null;
+            fallback();
+        }
+    }
+
+    /**
+     * Factors `a` in place in single precision, with the blocking of LUDecomposition, and returns
+     * whether every pivot was at least minPivot in absolute value and finite.
+     */
+    private boolean factor(float[] a) {
+        for (int k0 = 0; k0 < dim; k0 += PANEL_WIDTH) {
+            int k1 = Math.min(k0 + PANEL_WIDTH, dim);
+            if (!factorPanel(a, k0, k1)) {
+                return false;
+            }
+            if (k1 < dim) {
+                computeUpperBlock(a, k0, k1);
+                updateTrailing(a, k0, k1);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Factors columns `k0` to `k1` - 1 of `a` at and below row `k0`, swapping whole rows as pivots
+     * are chosen, and returns whether every pivot was usable.
+     */
+    private boolean factorPanel(float[] a, int k0, int k1) {
+        for (int j = k0; j < k1; j++) {
+            // Partial pivoting
+            int maxIdx = j;
+            float max = Math.abs(a[j * dim + j]);
+            for (int i = j + 1; i < dim; i++) {
+                float value = Math.abs(a[i * dim + j]);
+                if (value > max) {
+                    maxIdx = i;
+                    max = value;
+                }
+            }
+            if (!(max >= minPivot) || !Float.isFinite(max)) {
+                return false;
+            }
+            if (maxIdx != j) {
+                for (int k = 0; k < dim; k++) {
+                    float temp = a[j * dim + k];
+                    a[j * dim + k] = a[maxIdx * dim + k];
+                    a[maxIdx * dim + k] = temp;
+                }
+                int tempIdx = perm[j];
+                perm[j] = perm[maxIdx];
+                perm[maxIdx] = tempIdx;
+            }
+            // Scaling the pivot row within the panel
+            int pivotOffset = j * dim;
+            float scaleFactor = 1 / a[pivotOffset + j];
+            pivotInverse[j] = scaleFactor;
+            for (int k = j + 1; k < k1; k++) {
+                a[pivotOffset + k] = scaleFactor * a[pivotOffset + k];
+            }
+            // Elimination below the pivot within the panel; column j is kept as column j of L
+            int col = j;
+            ParallelRows.forRange(j + 1, dim, 2L * (k1 - j), (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    int offset = i * dim;
+                    float factor = -a[offset + col];
+                    for (int k = col + 1; k < k1; k++) {
+                        a[offset + k] = a[offset + k] + factor * a[pivotOffset + k];
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Computes rows `k0` to `k1` - 1 of U to the right of the panel, by forward substitution with
+     * the panel's diagonal block of L, as in LUDecomposition.
+     */
+    private void computeUpperBlock(float[] a, int k0, int k1) {
+        int width = k1 - k0;
+        ParallelRows.forRange(k1, dim, (long) width * width, (from, to) -> {
+            for (int j = k0; j < k1; j++) {
+                int pivotOffset = j * dim;
+                float scaleFactor = pivotInverse[j];
+                for (int k = from; k < to; k++) {
+                    a[pivotOffset + k] = scaleFactor * a[pivotOffset + k];
+                }
+                for (int i = j + 1; i < k1; i++) {
+                    int offset = i * dim;
+                    float factor = -a[offset + j];
+                    for (int k = from; k < to; k++) {
+                        a[offset + k] = a[offset + k] + factor * a[pivotOffset + k];
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Subtracts the product of the panel's columns of L and rows of U from the trailing matrix
+     * below row `k1` and right of column `k1`, one tile of columns at a time, with the panel's
+     * rows of U copied into separate arrays so the update loop can be vectorized, as in
+     * LUDecomposition.
+     */
+    private void updateTrailing(float[] a, int k0, int k1) {
+        int width = k1 - k0;
+        int tileCount = (dim - k1 + TILE_WIDTH - 1) / TILE_WIDTH;
+        float[][][] tiles = new float[tileCount][width][];
+        for (int t = 0; t < tileCount; t++) {
+            int c0 = k1 + t * TILE_WIDTH;
+            int len = Math.min(TILE_WIDTH, dim - c0);
+            for (int j = 0; j < width; j++) {
+                int start = (k0 + j) * dim + c0;
+                tiles[t][j] = Arrays.copyOfRange(a, start, start + len);
+            }
+        }
+        ParallelRows.forRange(k1, dim, 2L * width * (dim - k1), (from, to) -> {
+            float[] row = new float[TILE_WIDTH];
+            for (int t = 0; t < tileCount; t++) {
+                float[][] tile = tiles[t];
+                int c0 = k1 + t * TILE_WIDTH;
+                int len = tile[0].length;
+                for (int i = from; i < to; i++) {
+                    int offset = i * dim;
+                    System.arraycopy(a, offset + c0, row, 0, len);
+                    int j = 0;
+                    for (; j + 4 <= width; j += 4) {
+                        float factor0 = -a[offset + k0 + j];
+                        float factor1 = -a[offset + k0 + j + 1];
+                        float factor2 = -a[offset + k0 + j + 2];
+                        float factor3 = -a[offset + k0 + j + 3];
+                        float[] u0 = tile[j];
+                        float[] u1 = tile[j + 1];
+                        float[] u2 = tile[j + 2];
+                        float[] u3 = tile[j + 3];
+                        for (int k = 0; k < len; k++) {
+                            float value = row[k];
+                            value = value + factor0 * u0[k];
+                            value = value + factor1 * u1[k];
+                            value = value + factor2 * u2[k];
+                            value = value + factor3 * u3[k];
+                            row[k] = value;
+                        }
+                    }
+                    for (; j < width; j++) {
+                        float factor = -a[offset + k0 + j];
+                        float[] u = tile[j];
+                        for (int k = 0; k < len; k++) {
+                            row[k] = row[k] + factor * u[k];
+                        }
+                    }
+                    System.arraycopy(row, 0, a, offset + c0, len);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the dimension of the factored matrix.
+     */
+    public int dimension() {
+        return dim;
+    }
+
+    /**
+     * Returns the unique solution x to Ax = b where A is the factored matrix and b is `vec`, which
+     * is not modified, refined to double-precision accuracy or solved in double precision if
+     * refinement stalls. Requires the length of `vec` equals the dimension. Throws
+     * SolvingException if refinement stalls and the matrix turns out to be singular in double
+     * precision. All returned values are rounded to 14 decimal places, as in
+     * SystemSolver.linear_solve.
+     */
+    public double[] solve(double[] vec) throws SolvingException {
+        return solveWithDiagnostics(vec).solution();
+    }
+
+    /**
+     * Returns the solution that solve() returns for `vec`, with how many refinement steps it took
+     * and whether it fell back to double precision.
+     */
+    public Result solveWithDiagnostics(double[] vec) throws SolvingException {
+        assert vec.length == dim;
+
+        int steps = 0;
+        if (lu != null) {
+            double[] x = new double[dim];
+            double[] residual = new double[dim];
+            double[] correction = new double[dim];
+            substitute(vec, x);
+            double tolerance = norm * Math.sqrt(dim) * Math.ulp(1.0) / 2;
+            double previous = Double.POSITIVE_INFINITY;
+            while (true) {
+                double residualNorm = residual(vec, x, residual);
+                double xNorm = 0;
+                for (double value : x) {
+                    xNorm = Math.max(xNorm, Math.abs(value));
+                }
+                if (residualNorm <= xNorm * tolerance) {
+                    for (int i = 0; i < dim; i++) {
+                        x[i] = SystemSolver.round(x[i], 14);
+                    }
+                    return new Result(x, steps, false);
+                }
+                if (!(residualNorm < previous / 2) || steps == MAX_STEPS) {
+                    break;
+                }
+                previous = residualNorm;
+                substitute(residual, correction);
+                for (int i = 0; i < dim; i++) {
+                    x[i] += correction[i];
+                }
+                steps++;
+            }
+        }
+        return new Result(fallback().solve(vec), steps, true);
+    }
+
+    /**
+     * Returns the double-precision factorization, computing it if no thread has yet. Throws
+     * SolvingException if the matrix is singular in double precision.
+     */
+    private LUDecomposition fallback() throws SolvingException {
+        synchronized (lock) {
+            if (fallback == null) {
+                fallback = new LUDecomposition(mat);
+            }
+            return fallback;
+        }
+    }
+
+    /**
+     * Stores b - Ax in `residual`, where A is the matrix, b is `vec` and x is `x`, computed in
+     * double precision, and returns its largest entry in absolute value (NaN if any is NaN).
+     */
+    private double residual(double[] vec, double[] x, double[] residual) {
+        double[] a = mat.data();
+        double max = 0;
+        for (int i = 0; i < dim; i++) {
+            int offset = i * dim;
+            double rowSum = vec[i];
+            for (int j = 0; j < dim; j++) {
+                rowSum -= a[offset + j] * x[j];
+            }
+            residual[i] = rowSum;
+            max = Math.max(max, Math.abs(rowSum));
+        }
+        return max;
+    }
+
+    /**
+     * Stores in `x` the solution of Ax = `vec` with the single-precision factors, substituting in
+     * double precision.
+     */
+    private void substitute(double[] vec, double[] x) {
+        // Forward substitution with L, one row at a time
+        for (int i = 0; i < dim; i++) {
+            int offset = i * dim;
+            double rowSum = vec[perm[i]];
+            for (int j = 0; j < i; j++) {
+                rowSum = rowSum - lu[offset + j] * x[j];
+            }
+            x[i] = pivotInverse[i] * rowSum;
+        }
+        // Back substitution with U
+        for (int i = dim - 1; i >= 0; i--) {
+            int offset = i * dim;
+            double rowSum = x[i];
+            for (int k = dim - 1; k > i; k--) {
+                rowSum -= lu[offset + k] * x[k];
+            }
+            x[i] = rowSum;
+        }
+    }
+}
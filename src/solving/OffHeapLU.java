@@ -0,0 +1,260 @@
+package solving;
+
+import expressions.exceptions.*;
+
+/**
+ * The LU factorization PA = LU of a square OffHeapMatrix with partial pivoting, computed in place
+ * so that a matrix far larger than the Java heap can be factored without copying it. The
+ * factors are stored as in LUDecomposition and computed with the same operations in the same
+ * order, so solutions are identical to those of LUDecomposition on the same matrix.
+ *
+ * <p>The factorization is blocked and right-looking, like LUDecomposition's, so that the matrix
+ * is read and written once per panel of PANEL_WIDTH columns rather than once per column: the
+ * panel is copied onto the heap, factored there and written back; its rows of U are computed on
+ * the heap; then the trailing matrix is updated with the whole panel, a block of rows at a time,
+ * one tile of columns at a time so that the tile of U stays in cache while the rows of the block
+ * are updated with it. Ranges of rows are factored and updated in parallel across the common
+ * ForkJoinPool. The heap holds the panel and its rows of U, about 1 KB per row of the matrix,
+ * plus a block of rows per thread.
+ */
+public final class OffHeapLU {
+
+    /**
+     * The number of columns factored together in each panel, as in LUDecomposition.
+     */
+    private static final int PANEL_WIDTH = 64;
+
+    /**
+     * The number of columns of the trailing matrix updated together, as in LUDecomposition.
+     */
+    private static final int TILE_WIDTH = 256;
+
+    /**
+     * The number of rows of the trailing matrix read onto the heap and updated together.
+     */
+    private static final int ROW_BLOCK = 16;
+
+    private final int dim;
+
+    /**
+     * The factored matrix, holding L (including its diagonal of pivots) on and below the diagonal
+     * and the strictly upper part of U (whose diagonal is all ones) above it.
+     */
+    private final OffHeapMatrix lu;
+
+    /**
+     * The reciprocal of each pivot.
+     */
+    private final double[] pivotInverse;
+
+    /**
+     * perm[i] is the row of the original matrix that became row i after pivoting.
+     */
+    private final int[] perm;
+
+    /**
+     * Factor the square matrix `mat` in place, overwriting its entries with the factors. Requires
+     * `mat` is square. Throws SolvingException if `mat` is singular, i.e. some column has no
+     * pivot at least 1e-15 in absolute value during elimination, in which case `mat` is left
+     * partly factored.
+     */
+    public OffHeapLU(OffHeapMatrix mat) throws SolvingException {
+        assert mat.rows() == mat.cols();
+
+        lu = mat;
+        dim = mat.rows();
+        perm = new int[dim];
+        for (int i = 0; i < dim; i++) {
+            perm[i] = i;
+        }
+        pivotInverse = new double[dim];
+        // Entry (i, k0 + t) of the current panel is panel[i * PANEL_WIDTH + t], and entry
+        // (k0 + t, j) of its rows of U right of the panel is upper[t][j]
+        double[] panel = new double[Math.multiplyExact(dim, PANEL_WIDTH)];
+        double[][] upper = new double[dim > PANEL_WIDTH ? PANEL_WIDTH : 0][dim];
+        for (int k0 = 0; k0 < dim; k0 += PANEL_WIDTH) {
+            int k1 = Math.min(k0 + PANEL_WIDTH, dim);
+            for (int i = k0; i < dim; i++) {
+                lu.getEntries(i, k0, k1, panel, i * PANEL_WIDTH);
+            }
+            factorPanel(panel, k0, k1);
+            for (int i = k0; i < dim; i++) {
+                lu.setEntries(i, k0, k1, panel, i * PANEL_WIDTH);
+            }
+            if (k1 < dim) {
+                computeUpperBlock(panel, upper, k0, k1);
+                updateTrailing(panel, upper, k0, k1);
+            }
+        }
+    }
+
+    /**
+     * Factors columns `k0` to `k1` - 1 at and below row `k0`, held in `panel`, swapping whole rows
+     * of the matrix (and of `panel`) as pivots are chosen. Pivots are chosen and eliminated as in
+     * LUDecomposition.factorPanel.
+     */
+    private void factorPanel(double[] panel, int k0, int k1) throws SolvingException {
+        int width = k1 - k0;
+        for (int j = k0; j < k1; j++) {
+            int t = j - k0;
+            // Partial pivoting, choosing the topmost of equally large entries
+            int maxIdx = j;
+            double max = Math.abs(panel[j * PANEL_WIDTH + t]);
+            for (int i = j + 1; i < dim; i++) {
+                double value = Math.abs(panel[i * PANEL_WIDTH + t]);
+                if (value > max) {
+                    maxIdx = i;
+                    max = value;
+                }
+            }
+            if (max < 1e-15) {
+                throw new SolvingException("No pivot in column " + j + " of input matrix");
+            }
+            if (maxIdx != j) {
+                for (int c = 0; c < width; c++) {
+                    double temp = panel[j * PANEL_WIDTH + c];
+                    panel[j * PANEL_WIDTH + c] = panel[maxIdx * PANEL_WIDTH + c];
+                    panel[maxIdx * PANEL_WIDTH + c] = temp;
+                }
+                // The panel's own columns are swapped too, but are overwritten from `panel`
+                lu.swapRows(j, maxIdx);
+                int tempIdx = perm[j];
+                perm[j] = perm[maxIdx];
+                perm[maxIdx] = tempIdx;
+            }
+            // Scaling the pivot row within the panel
+            int pivotOffset = j * PANEL_WIDTH;
+            double scaleFactor = 1 / panel[pivotOffset + t];
+            pivotInverse[j] = scaleFactor;
+            for (int c = t + 1; c < width; c++) {
+                panel[pivotOffset + c] = scaleFactor * panel[pivotOffset + c];
+            }
+            // Elimination below the pivot within the panel; column t is kept as part of L
+            ParallelRows.forRange(j + 1, dim, 2L * (width - t), (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    int offset = i * PANEL_WIDTH;
+                    double factor = -1.0 * panel[offset + t];
+                    for (int c = t + 1; c < width; c++) {
+                        panel[offset + c] = panel[offset + c] + factor * panel[pivotOffset + c];
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Computes rows `k0` to `k1` - 1 of U right of the panel into `upper`, by forward substitution
+     * with the panel's diagonal block of L in `panel`, and writes them to the matrix. Columns are
+     * independent, so ranges of them are computed in parallel.
+     */
+    private void computeUpperBlock(double[] panel, double[][] upper, int k0, int k1) {
+        int width = k1 - k0;
+        for (int t = 0; t < width; t++) {
+            lu.getEntries(k0 + t, k1, dim, upper[t], k1);
+        }
+        ParallelRows.forRange(k1, dim, (long) width * width, (from, to) -> {
+            for (int t = 0; t < width; t++) {
+                double[] pivotRow = upper[t];
+                double scaleFactor = pivotInverse[k0 + t];
+                for (int k = from; k < to; k++) {
+                    pivotRow[k] = scaleFactor * pivotRow[k];
+                }
+                for (int s = t + 1; s < width; s++) {
+                    double[] row = upper[s];
+                    double factor = -1.0 * panel[(k0 + s) * PANEL_WIDTH + t];
+                    for (int k = from; k < to; k++) {
+                        row[k] = row[k] + factor * pivotRow[k];
+                    }
+                }
+            }
+        });
+        for (int t = 0; t < width; t++) {
+            lu.setEntries(k0 + t, k1, dim, upper[t], k1);
+        }
+    }
+
+    /**
+     * Subtracts the product of the panel's columns of L, in `panel`, and rows of U, in `upper`,
+     * from the trailing matrix below row `k1` and right of column `k1`. Each range of rows is read
+     * and written a block of ROW_BLOCK rows at a time, and each block is updated one tile of
+     * columns at a time, with the updates to each entry in the order of LUDecomposition.
+     */
+    private void updateTrailing(double[] panel, double[][] upper, int k0, int k1) {
+        int width = k1 - k0;
+        ParallelRows.forRange(k1, dim, 2L * width * (dim - k1), (from, to) -> {
+            double[][] rows = new double[Math.min(ROW_BLOCK, to - from)][dim];
+            for (int b0 = from; b0 < to; b0 += ROW_BLOCK) {
+                int b1 = Math.min(b0 + ROW_BLOCK, to);
+                for (int i = b0; i < b1; i++) {
+                    lu.getEntries(i, k1, dim, rows[i - b0], k1);
+                }
+                for (int c0 = k1; c0 < dim; c0 += TILE_WIDTH) {
+                    int c1 = Math.min(c0 + TILE_WIDTH, dim);
+                    for (int i = b0; i < b1; i++) {
+                        double[] row = rows[i - b0];
+                        int offset = i * PANEL_WIDTH;
+                        int t = 0;
+                        for (; t + 4 <= width; t += 4) {
+                            LUDecomposition.updateRow(row, c0, c1,
+                                    -1.0 * panel[offset + t], upper[t],
+                                    -1.0 * panel[offset + t + 1], upper[t + 1],
+                                    -1.0 * panel[offset + t + 2], upper[t + 2],
+                                    -1.0 * panel[offset + t + 3], upper[t + 3]);
+                        }
+                        for (; t < width; t++) {
+                            double factor = -1.0 * panel[offset + t];
+                            double[] u = upper[t];
+                            for (int k = c0; k < c1; k++) {
+                                row[k] = row[k] + factor * u[k];
+                            }
+                        }
+                    }
+                }
+                for (int i = b0; i < b1; i++) {
+                    lu.setEntries(i, k1, dim, rows[i - b0], k1);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the dimension of the factored matrix.
+     */
+    public int dimension() {
+        return dim;
+    }
+
+    /**
+     * Returns the unique solution x to Ax = b where A is the factored matrix and b is `vec`, which
+     * is not modified. Requires the length of `vec` equals the dimension. All returned values are
+     * rounded to 14 decimal places, as in SystemSolver.linear_solve.
+     */
+    public double[] solve(double[] vec) {
+        assert vec.length == dim;
+
+        double[] x = new double[dim];
+        double[] row = new double[dim];
+        // Forward substitution with L, one row at a time
+        for (int i = 0; i < dim; i++) {
+            lu.getRow(i, row);
+            double rowSum = vec[perm[i]];
+            for (int j = 0; j < i; j++) {
+                rowSum = rowSum + -1.0 * row[j] * x[j];
+            }
+            x[i] = pivotInverse[i] * rowSum;
+        }
+        // Back substitution with U
+        for (int i = dim - 1; i >= 0; i--) {
+            lu.getRow(i, i, row);
+            double rowSum = x[i];
+            for (int k = dim - 1; k > i; k--) {
+                rowSum -= row[k] * x[k];
+            }
+            x[i] = rowSum;
+        }
+        for (int i = 0; i < dim; i++) {
+            x[i] = SystemSolver.round(x[i], 14);
+        }
+        return x;
+    }
+}
@@ -0,0 +1,294 @@
+package solving;
+
+import expressions.exceptions.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A dense rectangular matrix stored outside the Java heap, either in direct memory or in a file
+ * mapped into memory, so that matrices of many gigabytes neither need a large heap nor are ever
+ * copied or scanned by the garbage collector. Entries are stored in row-major order in the
+ * platform's byte order. A buffer cannot hold more than 2 GB, so the rows are split into chunks
+ * of whole rows, each in its own buffer.
+ */
+public final class OffHeapMatrix {
+
+    /**
+     * The largest number of bytes in a chunk.
+     */
+    private static final int MAX_CHUNK_BYTES = Integer.MAX_VALUE;
+
+    private final int rows;
+    private final int cols;
+
+    /**
+     * The number of rows in each chunk but possibly the last.
+     */
+    private final int rowsPerChunk;
+
+    /**
+     * The chunks; entry (i, j) is entry (i % rowsPerChunk) * cols + j of chunk i / rowsPerChunk.
+     */
+    private final DoubleBuffer[] chunks;
+
+    /**
+     * The buffers of the chunks if the matrix is mapped from a file, and null otherwise.
+     */
+    private final MappedByteBuffer[] mapped;
+
+    private OffHeapMatrix(int rows, int cols, int rowsPerChunk, ByteBuffer[] buffers) {
+        this.rows = rows;
+        this.cols = cols;
+        this.rowsPerChunk = rowsPerChunk;
+        chunks = new DoubleBuffer[buffers.length];
+        for (int c = 0; c < buffers.length; c++) {
+            chunks[c] = buffers[c].order(ByteOrder.nativeOrder()).asDoubleBuffer();
+        }
+        if (buffers.length > 0 && buffers[0] instanceof MappedByteBuffer) {
+            mapped = new MappedByteBuffer[buffers.length];
+            for (int c = 0; c < buffers.length; c++) {
+                mapped[c] = (MappedByteBuffer) buffers[c];
+            }
+        } else {
+            mapped = null;
+        }
+    }
+
+    /**
+     * Returns a `rows`-by-`cols` matrix of zeros in direct memory, which is freed once the matrix
+     * is no longer reachable. The JVM limits direct memory to -XX:MaxDirectMemorySize, by default
+     * the maximum heap size, so matrices larger than the heap should be mapped from files instead.
+     * Requires `rows` and `cols` are positive.
+     */
+    public static OffHeapMatrix allocate(int rows, int cols) {
+        return allocate(rows, cols, MAX_CHUNK_BYTES);
+    }
+
+    /**
+     * Returns a `rows`-by-`cols` matrix of zeros in direct memory with chunks of at most
+     * `maxChunkBytes` bytes, or of one row if a row is larger. Requires `rows` and `cols` are
+     * positive and a row fits in a buffer.
+     */
+    static OffHeapMatrix allocate(int rows, int cols, int maxChunkBytes) {
+        int rowsPerChunk = rowsPerChunk(rows, cols, maxChunkBytes);
+        ByteBuffer[] buffers = new ByteBuffer[(rows + rowsPerChunk - 1) / rowsPerChunk];
+        for (int c = 0; c < buffers.length; c++) {
+            int chunkRows = Math.min(rowsPerChunk, rows - c * rowsPerChunk);
+            buffers[c] = ByteBuffer.allocateDirect(chunkRows * cols * Double.BYTES);
+        }
+        return new OffHeapMatrix(rows, cols, rowsPerChunk, buffers);
+    }
+
+    /**
+     * Returns a `rows`-by-`cols` matrix stored in the file `file`, which is created if it does not
+     * exist and extended with zeros if it is shorter than the matrix. Entries already in the file
+     * are kept, so a matrix can be written by one program and solved by another, and changes to
+     * the matrix are written back to the file by the operating system (or at once by force()).
+     * Requires `rows` and `cols` are positive and a row fits in a buffer. Throws IOException if
+     * the file cannot be opened or mapped.
+     */
+    public static OffHeapMatrix map(Path file, int rows, int cols) throws IOException {
+        return map(file, rows, cols, MAX_CHUNK_BYTES);
+    }
+
+    /**
+     * Returns a `rows`-by-`cols` matrix stored in the file `file`, as map(file, rows, cols) does,
+     * with chunks of at most `maxChunkBytes` bytes, or of one row if a row is larger.
+     */
+    static OffHeapMatrix map(Path file, int rows, int cols, int maxChunkBytes)
+            throws IOException {
+        int rowsPerChunk = rowsPerChunk(rows, cols, maxChunkBytes);
+        ByteBuffer[] buffers = new ByteBuffer[(rows + rowsPerChunk - 1) / rowsPerChunk];
+        // Mappings stay valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long chunkBytes = (long) rowsPerChunk * cols * Double.BYTES;
+            for (int c = 0; c < buffers.length; c++) {
+                int chunkRows = Math.min(rowsPerChunk, rows - c * rowsPerChunk);
+                buffers[c] = channel.map(FileChannel.MapMode.READ_WRITE, c * chunkBytes,
+                        (long) chunkRows * cols * Double.BYTES);
+            }
+        }
+        return new OffHeapMatrix(rows, cols, rowsPerChunk, buffers);
+    }
+
+    /**
+     * Returns the number of rows in each chunk of a `rows`-by-`cols` matrix with chunks of at
+     * most `maxChunkBytes` bytes, or of one row if a row is larger.
+     */
+    private static int rowsPerChunk(int rows, int cols, int maxChunkBytes) {
+        assert rows > 0 && cols > 0;
+        assert cols <= Integer.MAX_VALUE / Double.BYTES;
+        return Math.max(1, Math.min(rows, maxChunkBytes / Double.BYTES / cols));
+    }
+
+    /**
+     * Returns a matrix in direct memory with the same entries as the rectangular matrix `mat`.
+     */
+    public static OffHeapMatrix of(double[][] mat) {
+        OffHeapMatrix toReturn = allocate(mat.length, mat[0].length);
+        for (int i = 0; i < mat.length; i++) {
+            toReturn.setRow(i, mat[i]);
+        }
+        return toReturn;
+    }
+
+    /**
+     * Returns the number of rows.
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns.
+     */
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * Returns the chunk holding row `i`.
+     */
+    private DoubleBuffer chunk(int i) {
+        return chunks[i / rowsPerChunk];
+    }
+
+    /**
+     * Returns the index of the first entry of row `i` in its chunk.
+     */
+    private int offset(int i) {
+        return i % rowsPerChunk * cols;
+    }
+
+    /**
+     * Returns entry (i, j). Requires 0 <= i < rows() and 0 <= j < cols().
+     */
+    public double get(int i, int j) {
+        assert 0 <= i && i < rows && 0 <= j && j < cols;
+        return chunk(i).get(offset(i) + j);
+    }
+
+    /**
+     * Sets entry (i, j) to `value`. Requires 0 <= i < rows() and 0 <= j < cols().
+     */
+    public void set(int i, int j, double value) {
+        assert 0 <= i && i < rows && 0 <= j && j < cols;
+        chunk(i).put(offset(i) + j, value);
+    }
+
+    /**
+     * Copies entries `from` to cols() - 1 of row `i` into the same indices of `dst`. Requires
+     * 0 <= i < rows(), 0 <= from <= cols(), and `dst` has length at least cols().
+     */
+    public void getRow(int i, int from, double[] dst) {
+        assert 0 <= i && i < rows && 0 <= from && from <= cols && dst.length >= cols;
+        chunk(i).get(offset(i) + from, dst, from, cols - from);
+    }
+
+    /**
+     * Copies row `i` into `dst`. Requires 0 <= i < rows() and `dst` has length at least cols().
+     */
+    public void getRow(int i, double[] dst) {
+        getRow(i, 0, dst);
+    }
+
+    /**
+     * Sets entries `from` to cols() - 1 of row `i` to the same indices of `src`. Requires
+     * 0 <= i < rows(), 0 <= from <= cols(), and `src` has length at least cols().
+     */
+    public void setRow(int i, int from, double[] src) {
+        assert 0 <= i && i < rows && 0 <= from && from <= cols && src.length >= cols;
+        chunk(i).put(offset(i) + from, src, from, cols - from);
+    }
+
+    /**
+     * Sets row `i` to `src`. Requires 0 <= i < rows() and `src` has length at least cols().
+     */
+    public void setRow(int i, double[] src) {
+        setRow(i, 0, src);
+    }
+
+    /**
+     * Copies entries `from` to `to` - 1 of row `i` into `dst`, starting at index `offset`.
+     * Requires 0 <= i < rows(), 0 <= from <= to <= cols(), and `dst` has room for them.
+     */
+    public void getEntries(int i, int from, int to, double[] dst, int offset) {
+        assert 0 <= i && i < rows && 0 <= from && from <= to && to <= cols;
+        chunk(i).get(offset(i) + from, dst, offset, to - from);
+    }
+
+    /**
+     * Sets entries `from` to `to` - 1 of row `i` to those of `src` starting at index `offset`.
+     * Requires 0 <= i < rows(), 0 <= from <= to <= cols(), and `src` holds enough entries.
+     */
+    public void setEntries(int i, int from, int to, double[] src, int offset) {
+        assert 0 <= i && i < rows && 0 <= from && from <= to && to <= cols;
+        chunk(i).put(offset(i) + from, src, offset, to - from);
+    }
+
+    /**
+     * Returns the row index of the element with the largest absolute value in column `col` at or
+     * below row `startRow`, choosing the topmost if there are several, as
+     * SystemSolver.partialPivot does. Requires 0 <= col < cols() and 0 <= startRow < rows().
+     * Throws SolvingException if all values at or below row `startRow` in `col` are less than
+     * 1e-15 from 0.
+     */
+    public int partialPivot(int col, int startRow) throws SolvingException {
+        assert 0 <= col && col < cols;
+        assert 0 <= startRow && startRow < rows;
+
+        int maxIdx = startRow;
+        double max = Math.abs(get(startRow, col));
+        for (int i = startRow + 1; i < rows; i++) {
+            double value = Math.abs(chunk(i).get(offset(i) + col));
+            if (value > max) {
+                maxIdx = i;
+                max = value;
+            }
+        }
+        if (max < 1e-15) {
+            throw new SolvingException("No pivot in column " + col + " of input matrix");
+        }
+        return maxIdx;
+    }
+
+    /**
+     * Swaps rows `row1` and `row2`. Requires 0 <= row1, row2 < rows().
+     */
+    public void swapRows(int row1, int row2) {
+        assert 0 <= row1 && row1 < rows;
+        assert 0 <= row2 && row2 < rows;
+
+        if (row1 == row2) {
+            return;
+        }
+        DoubleBuffer chunk1 = chunk(row1);
+        DoubleBuffer chunk2 = chunk(row2);
+        int offset1 = offset(row1);
+        int offset2 = offset(row2);
+        for (int j = 0; j < cols; j++) {
+            double temp = chunk1.get(offset1 + j);
+            chunk1.put(offset1 + j, chunk2.get(offset2 + j));
+            chunk2.put(offset2 + j, temp);
+        }
+    }
+
+    /**
+     * Writes any changes to a matrix mapped from a file to the file. Does nothing for a matrix in
+     * direct memory.
+     */
+    public void force() {
+        if (mapped != null) {
+            for (MappedByteBuffer buffer : mapped) {
+                buffer.force();
+            }
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package solving;
+
+import expressions.exceptions.*;
+
+import java.util.Arrays;
+
+/**
+ * The LU factorization of a square TiledMatrix with partial pivoting, computed in place for
+ * matrices larger than memory. The pages of the file are left for the operating system to load
+ * and evict; on the heap, the factorization holds a fixed number of panels (columns of tiles),
+ * as many as fit in a memory budget, plus one tile per thread.
+ *
+ * <p>The factorization is left-looking, which reads the matrix far more often than it writes it.
+ * The panels are factored in groups of as many as are held in memory: each group is loaded once
+ * and updated with the L part of every panel to its left, streamed tile by tile in file order and
+ * never written, then factored in memory and written back once. The L part of the matrix is read
+ * once per group, so for a matrix of dimension n and a group m panels wide, about
+ * n^3 / (2 m tileSize) entries are read in all, and holding more panels in memory reduces the I/O
+ * in proportion. Each entry receives the same updates in the same order as in LUDecomposition,
+ * so the factors, and the solutions, are identical to those of LUDecomposition.
+ *
+ * <p>Rows are exchanged only within the panel being factored and the panels to its right, never
+ * in the panels already written, as in LAPACK's banded factorization: the L part of each panel
+ * stays in the row order it had when the panel was factored, and solving replays the exchanges
+ * one panel at a time.
+ */
+public final class OutOfCoreLU {
+
+    private final int dim;
+    private final int tileSize;
+
+    /**
+     * The factored matrix, holding L (including its diagonal of pivots) on and below the diagonal
+     * and the strictly upper part of U (whose diagonal is all ones) above it.
+     */
+    private final TiledMatrix lu;
+
+    /**
+     * The reciprocal of each pivot, and the row exchanged with row k when column k was factored.
+     */
+    private final double[] pivotInverse;
+    private final int[] pivotRow;
+
+    /**
+     * Factor the matrix `mat` in place, as OutOfCoreLU(mat, memory) does, holding as many panels
+     * in memory as fit in half of the maximum heap size.
+     */
+    public OutOfCoreLU(TiledMatrix mat) throws SolvingException {
+        this(mat, Runtime.getRuntime().maxMemory() / 2);
+    }
+
+    /**
+     * Factor the matrix `mat` in place, overwriting its entries with the factors, holding as many
+     * panels in memory at a time as fit in `memory` bytes, but at least one. Throws
+     * SolvingException if `mat` is singular, i.e. some column has no pivot at least 1e-15 in
+     * absolute value during elimination, in which case `mat` is left partly factored.
+     */
+    public OutOfCoreLU(TiledMatrix mat, long memory) throws SolvingException {
+        lu = mat;
+        dim = mat.dimension();
+        tileSize = mat.tileSize();
+        pivotInverse = new double[dim];
+        pivotRow = new int[dim];
+        int panelCount = mat.panelCount();
+        long panelBytes = (long) dim * tileSize * Double.BYTES;
+        int groupSize = (int) Math.max(1, Math.min(panelCount, memory / panelBytes));
+        double[][] group = new double[groupSize][dim * tileSize];
+        for (int k0 = 0; k0 < panelCount; k0 += groupSize) {
+            int k1 = Math.min(panelCount, k0 + groupSize);
+            for (int k = k0; k < k1; k++) {
+                lu.readPanel(k, 0, dim, group[k - k0]);
+            }
+            for (int j = 0; j < k0; j++) {
+                applyPanel(j, null, group, k0, k0, k1);
+            }
+            for (int k = k0; k < k1; k++) {
+                for (int j = k0; j < k; j++) {
+                    applyPanel(j, group[j - k0], group, k0, k, k + 1);
+                }
+                factorPanel(k * tileSize, width(k), group[k - k0]);
+            }
+            for (int k = k0; k < k1; k++) {
+                lu.writePanel(k, 0, dim, group[k - k0]);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of columns of the matrix in panel `k`.
+     */
+    private int width(int k) {
+        return Math.min(tileSize, dim - k * tileSize);
+    }
+
+    /**
+     * Updates panels `from` to `to` - 1, held in `group` (whose first panel is panel `k0`), with
+     * the panel `j` to their left, which has been factored: exchanges rows as when panel j was
+     * factored, computes panel j's rows of U by forward substitution with its diagonal tile of L,
+     * then subtracts its L part below that tile times those rows of U from the rows below. Panel
+     * j is read from `source` if it is not null, and from the file otherwise, one tile at a time.
+     */
+    private void applyPanel(int j, double[] source, double[][] group, int k0, int from, int to) {
+        int r0 = j * tileSize;
+        double[] tile = new double[tileSize * tileSize];
+        readTile(j, source, r0, tile);
+        double[][] uppers = new double[to - from][];
+        for (int k = from; k < to; k++) {
+            double[] panel = group[k - k0];
+            int width = width(k);
+            for (int t = 0; t < tileSize; t++) {
+                int p = pivotRow[r0 + t];
+                if (p != r0 + t) {
+                    for (int c = 0; c < width; c++) {
+                        double temp = panel[(r0 + t) * tileSize + c];
+                        panel[(r0 + t) * tileSize + c] = panel[p * tileSize + c];
+                        panel[p * tileSize + c] = temp;
+                    }
+                }
+            }
+            for (int t = 0; t < tileSize; t++) {
+                int pivotOffset = (r0 + t) * tileSize;
+                double scaleFactor = pivotInverse[r0 + t];
+                for (int c = 0; c < width; c++) {
+                    panel[pivotOffset + c] = scaleFactor * panel[pivotOffset + c];
+                }
+                for (int s = t + 1; s < tileSize; s++) {
+                    int offset = (r0 + s) * tileSize;
+                    double factor = -1.0 * tile[s * tileSize + t];
+                    for (int c = 0; c < width; c++) {
+                        panel[offset + c] = panel[offset + c] + factor * panel[pivotOffset + c];
+                    }
+                }
+            }
+            // The rows of U are copied, and each row updated in separate arrays, which lets the
+            // JIT compiler vectorize the update loop (as in LUDecomposition.updateTrailing)
+            uppers[k - from] =
+                    Arrays.copyOfRange(panel, r0 * tileSize, (r0 + tileSize) * tileSize);
+        }
+        // The tiles below the diagonal are independent; each is read once, by one thread, and
+        // applied to every panel
+        long work = 2L * tileSize * tileSize * tileSize * (to - from);
+        ParallelRows.forRange(j + 1, lu.panelCount(), work, (first, last) -> {
+            double[] below = new double[tileSize * tileSize];
+            double[][] rows = new double[4][tileSize];
+            for (int b = first; b < last; b++) {
+                int i0 = b * tileSize;
+                readTile(j, source, i0, below);
+                int count = Math.min(tileSize, dim - i0);
+                for (int k = from; k < to; k++) {
+                    for (int s = 0; s < count; s += 4) {
+                        updateRows(group[k - k0], i0 + s, Math.min(4, count - s), below,
+                                s * tileSize, uppers[k - from], width(k), rows);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Copies the tile of panel `j` starting at row `from` into `dst`, as TiledMatrix.readTile
+     * does, from `source` if it is not null and from the file otherwise.
+     */
+    private void readTile(int j, double[] source, int from, double[] dst) {
+        if (source == null) {
+            lu.readTile(j, from, dst);
+        } else {
+            int rows = Math.min(tileSize, dim - from);
+            System.arraycopy(source, from * tileSize, dst, 0, rows * tileSize);
+        }
+    }
+
+    /**
+     * Adds to the `count` (at most four) rows of `panel` starting at row `i` the multiples of the
+     * rows of U in `upper` given by minus their entries of L, which start at index `lower` of
+     * `below`, one tile row after another. The rows are updated together in the arrays of `rows`,
+     * so that each entry of `upper` is loaded once for all of them.
+     */
+    private void updateRows(double[] panel, int i, int count, double[] below, int lower,
+            double[] upper, int width, double[][] rows) {
+        for (int r = 0; r < count; r++) {
+            System.arraycopy(panel, (i + r) * tileSize, rows[r], 0, width);
+        }
+        if (count == 4) {
+            double[] row0 = rows[0];
+            double[] row1 = rows[1];
+            double[] row2 = rows[2];
+            double[] row3 = rows[3];
+            for (int t = 0; t < tileSize; t++) {
+                double factor0 = -1.0 * below[lower + t];
+                double factor1 = -1.0 * below[lower + tileSize + t];
+                double factor2 = -1.0 * below[lower + 2 * tileSize + t];
+                double factor3 = -1.0 * below[lower + 3 * tileSize + t];
+                int pivotOffset = t * tileSize;
+                for (int c = 0; c < width; c++) {
+                    double u = upper[pivotOffset + c];
+                    row0[c] = row0[c] + factor0 * u;
+                    row1[c] = row1[c] + factor1 * u;
+                    row2[c] = row2[c] + factor2 * u;
+                    row3[c] = row3[c] + factor3 * u;
+                }
+            }
+        } else {
+            for (int r = 0; r < count; r++) {
+                double[] row = rows[r];
+                for (int t = 0; t < tileSize; t++) {
+                    double factor = -1.0 * below[lower + r * tileSize + t];
+                    int pivotOffset = t * tileSize;
+                    for (int c = 0; c < width; c++) {
+                        row[c] = row[c] + factor * upper[pivotOffset + c];
+                    }
+                }
+            }
+        }
+        for (int r = 0; r < count; r++) {
+            System.arraycopy(rows[r], 0, panel, (i + r) * tileSize, width);
+        }
+    }
+
+    /**
+     * Factors the `width` columns of `panel`, which are columns `c0` onward of the matrix, at and
+     * below row `c0`, exchanging whole rows of the panel as pivots are chosen. Throws
+     * SolvingException if some column has no pivot.
+     */
+    private void factorPanel(int c0, int width, double[] panel) throws SolvingException {
+        for (int t = 0; t < width; t++) {
+            int j = c0 + t;
+            // Partial pivoting
+            int maxIdx = j;
+            double max = Math.abs(panel[j * tileSize + t]);
+            for (int i = j + 1; i < dim; i++) {
+                double value = Math.abs(panel[i * tileSize + t]);
+                if (value > max) {
+                    maxIdx = i;
+                    max = value;
+                }
+            }
+            if (max < 1e-15) {
+                throw new SolvingException("No pivot in column " + j + " of input matrix");
+            }
+            pivotRow[j] = maxIdx;
+            if (maxIdx != j) {
+                for (int c = 0; c < width; c++) {
+                    double temp = panel[j * tileSize + c];
+                    panel[j * tileSize + c] = panel[maxIdx * tileSize + c];
+                    panel[maxIdx * tileSize + c] = temp;
+                }
+            }
+            // Scaling the pivot row within the panel
+            int pivotOffset = j * tileSize;
+            double scaleFactor = 1 / panel[pivotOffset + t];
+            pivotInverse[j] = scaleFactor;
+            for (int c = t + 1; c < width; c++) {
+                panel[pivotOffset + c] = scaleFactor * panel[pivotOffset + c];
+            }
+            // Elimination below the pivot within the panel; column t is kept as part of L
+            int col = t;
+            ParallelRows.forRange(j + 1, dim, 2L * (width - t), (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    int offset = i * tileSize;
+                    double factor = -1.0 * panel[offset + col];
+                    for (int c = col + 1; c < width; c++) {
+                        panel[offset + c] = panel[offset + c] + factor * panel[pivotOffset + c];
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the dimension of the factored matrix.
+     */
+    public int dimension() {
+        return dim;
+    }
+
+    /**
+     * Returns the unique solution x to Ax = b where A is the factored matrix and b is `vec`, which
+     * is not modified, reading the factors one panel at a time. Requires the length of `vec`
+     * equals the dimension. All returned values are rounded to 14 decimal places, as in
+     * SystemSolver.linear_solve.
+     */
+    public double[] solve(double[] vec) {
+        assert vec.length == dim;
+
+        double[] x = vec.clone();
+        double[] panel = new double[dim * tileSize];
+        // Replaying each panel's row exchanges, then forward substitution with its L part
+        for (int k = 0; k < lu.panelCount(); k++) {
+            int c0 = k * tileSize;
+            int width = Math.min(tileSize, dim - c0);
+            for (int t = 0; t < width; t++) {
+                int p = pivotRow[c0 + t];
+                double temp = x[c0 + t];
+                x[c0 + t] = x[p];
+                x[p] = temp;
+            }
+            lu.readPanel(k, c0, dim, panel);
+            for (int t = 0; t < width; t++) {
+                int j = c0 + t;
+                x[j] = pivotInverse[j] * x[j];
+                double value = x[j];
+                for (int i = j + 1; i < dim; i++) {
+                    x[i] = x[i] + -1.0 * panel[i * tileSize + t] * value;
+                }
+            }
+        }
+        // Back substitution with U, one column at a time from the right
+        for (int k = lu.panelCount() - 1; k >= 0; k--) {
+            int c0 = k * tileSize;
+            int width = Math.min(tileSize, dim - c0);
+            lu.readPanel(k, 0, c0 + width, panel);
+            for (int t = width - 1; t >= 0; t--) {
+                double value = x[c0 + t];
+                for (int i = 0; i < c0 + t; i++) {
+                    x[i] -= panel[i * tileSize + t] * value;
+                }
+            }
+        }
+        for (int i = 0; i < dim; i++) {
+            x[i] = SystemSolver.round(x[i], 14);
+        }
+        return x;
+    }
+}
@@ -0,0 +1,80 @@
+package solving;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs an action over a range of matrix rows, splitting the range across the common ForkJoinPool
+ * when there is enough work to outweigh the cost of forking. Small ranges, and every range when
+ * the pool has a single thread, run serially on the calling thread. The action must be safe to
+ * run concurrently on disjoint subranges.
+ */
+final class ParallelRows {
+
+    /**
+     * The least amount of work, in floating-point operations, worth running in parallel; smaller
+     * ranges are run serially, and ranges are not split below this much work.
+     */
+    static final long MIN_PARALLEL_WORK = 1 << 15;
+
+    /**
+     * An action applied to the rows from `from` (inclusive) to `to` (exclusive).
+     */
+    interface RangeAction {
+        void apply(int from, int to);
+    }
+
+    /**
+     * Applies `action` to the rows from `from` to `to`, each of which takes about `workPerRow`
+     * floating-point operations, in parallel if there is enough work.
+     */
+    static void forRange(int from, int to, long workPerRow, RangeAction action) {
+        int rows = to - from;
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        if (serial(rows, workPerRow)) {
+            action.apply(from, to);
+            return;
+        }
+        // Leave a few pieces per thread so that uneven progress evens out
+        long minRows = (MIN_PARALLEL_WORK + workPerRow - 1) / Math.max(workPerRow, 1);
+        int grain = (int) Math.max(minRows, rows / (4L * parallelism));
+        ForkJoinPool.commonPool().invoke(new Split(from, to, Math.max(grain, 1), action));
+    }
+
+    /**
+     * Returns whether forRange() would run `rows` rows, each of which takes about `workPerRow`
+     * floating-point operations, serially on the calling thread. Callers on paths that must not
+     * allocate can check this and run their loop directly rather than creating an action.
+     */
+    static boolean serial(int rows, long workPerRow) {
+        return ForkJoinPool.getCommonPoolParallelism() <= 1 || rows < 2
+                || rows * workPerRow < 2 * MIN_PARALLEL_WORK;
+    }
+
+    /**
+     * Splits its range in half until it has at most `grain` rows.
+     */
+    private static final class Split extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final RangeAction action;
+
+        Split(int from, int to, int grain, RangeAction action) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                action.apply(from, to);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Split(from, mid, grain, action), new Split(mid, to, grain, action));
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package solving;
+
+import expressions.exceptions.*;
+
+/**
+ * An approximation M of a matrix A for which Mz = r is cheap to solve. Krylov methods converge in
+ * fewer iterations on a system preconditioned with M the closer M is to A.
+ */
+public interface Preconditioner {
+
+    /**
+     * Stores the solution z of Mz = r in `result`, where r is `vec`. Requires `vec` and `result`
+     * have the same length as the matrix's dimension and are different arrays. Must not modify
+     * `vec`.
+     */
+    void apply(double[] vec, double[] result);
+
+    /**
+     * Returns the preconditioner M = I, which leaves a system unchanged.
+     */
+    static Preconditioner identity() {
+        return (vec, result) -> System.arraycopy(vec, 0, result, 0, vec.length);
+    }
+
+    /**
+     * Returns the Jacobi preconditioner of the square matrix `mat`, which is its diagonal. Throws
+     * SolvingException if an entry on the diagonal is 0.
+     */
+    static Preconditioner jacobi(SparseMatrix mat) throws SolvingException {
+        assert mat.rows() == mat.cols();
+
+        double[] inverse = new double[mat.rows()];
+        for (int i = 0; i < inverse.length; i++) {
+            double diagonal = mat.get(i, i);
+            if (diagonal == 0) {
+                throw new SolvingException("Zero diagonal entry in row " + i + " of input matrix");
+            }
+            inverse[i] = 1 / diagonal;
+        }
+        return (vec, result) -> {
+            for (int i = 0; i < inverse.length; i++) {
+                result[i] = inverse[i] * vec[i];
+            }
+        };
+    }
+
+    /**
+     * Returns the symmetric successive over-relaxation (SSOR) preconditioner of the square matrix
+     * `mat` with relaxation factor `omega`. It is symmetric when `mat` is, so it may be used with
+     * conjugate gradient. Requires 0 < omega < 2. Throws SolvingException if an entry on the
+     * diagonal is 0.
+     */
+    static Preconditioner ssor(SparseMatrix mat, double omega) throws SolvingException {
+        return new SSORPreconditioner(mat, omega);
+    }
+
+    /**
+     * Returns the incomplete LU factorization with no fill, ILU(0), of the square matrix `mat`:
+     * factors L and U with nonzeros only where `mat` has them, whose product agrees with `mat` on
+     * its nonzero pattern. Throws SolvingException if a pivot of the factorization is 0.
+     */
+    static Preconditioner ilu0(SparseMatrix mat) throws SolvingException {
+        return new IncompleteLU(mat);
+    }
+}
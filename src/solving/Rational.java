@@ -0,0 +1,233 @@
+package solving;
+
+import java.math.BigInteger;
+
+/**
+ * An exact rational number, the quotient of two arbitrary-precision integers, as used by
+ * ExactSolver. Values are kept in lowest terms with a positive denominator, so equal numbers
+ * have equal numerators and denominators.
+ */
+public final class Rational implements Comparable<Rational> {
+
+    public static final Rational ZERO = new Rational(BigInteger.ZERO, BigInteger.ONE);
+    public static final Rational ONE = new Rational(BigInteger.ONE, BigInteger.ONE);
+
+    /**
+     * The numerator and denominator, with no common factor and den > 0.
+     */
+    private final BigInteger num;
+    private final BigInteger den;
+
+    private Rational(BigInteger num, BigInteger den) {
+        this.num = num;
+        this.den = den;
+    }
+
+    /**
+     * Returns the integer `value`.
+     */
+    public static Rational of(long value) {
+        return of(BigInteger.valueOf(value));
+    }
+
+    /**
+     * Returns the integer `value`.
+     */
+    public static Rational of(BigInteger value) {
+        return new Rational(value, BigInteger.ONE);
+    }
+
+    /**
+     * Returns the quotient `num` / `den`. Requires `den` is not 0.
+     */
+    public static Rational of(long num, long den) {
+        return of(BigInteger.valueOf(num), BigInteger.valueOf(den));
+    }
+
+    /**
+     * Returns the quotient `num` / `den`, reduced to lowest terms. Requires `den` is not 0.
+     */
+    public static Rational of(BigInteger num, BigInteger den) {
+        assert den.signum() != 0;
+
+        if (den.signum() < 0) {
+            num = num.negate();
+            den = den.negate();
+        }
+        BigInteger gcd = num.gcd(den);
+        if (!gcd.equals(BigInteger.ONE)) {
+            num = num.divide(gcd);
+            den = den.divide(gcd);
+        }
+        return new Rational(num, den);
+    }
+
+    /**
+     * Returns the exact value of the double `value`, which is a fraction whose denominator is a
+     * power of 2; e.g. 0.1 is 3602879701896397/36028797018963968, not 1/10. Requires `value` is
+     * finite.
+     */
+    public static Rational valueOf(double value) {
+        assert Double.isFinite(value);
+
+        if (value == 0) {
+            return ZERO;
+        }
+        long bits = Double.doubleToLongBits(value);
+        int exponent = (int) ((bits >> 52) & 0x7ff);
+        long mantissa = bits & ((1L << 52) - 1);
+        if (exponent == 0) {
+            // Subnormal
+            exponent = 1;
+        } else {
+            mantissa |= 1L << 52;
+        }
+        exponent -= 1075;
+        int trailing = Long.numberOfTrailingZeros(mantissa);
+        mantissa >>= trailing;
+        exponent += trailing;
+        BigInteger num = BigInteger.valueOf(value < 0 ? -mantissa : mantissa);
+        if (exponent >= 0) {
+            return new Rational(num.shiftLeft(exponent), BigInteger.ONE);
+        }
+        return new Rational(num, BigInteger.ONE.shiftLeft(-exponent));
+    }
+
+    /**
+     * Returns the numerator, which has no factor in common with the denominator.
+     */
+    public BigInteger numerator() {
+        return num;
+    }
+
+    /**
+     * Returns the denominator, which is positive.
+     */
+    public BigInteger denominator() {
+        return den;
+    }
+
+    /**
+     * Returns whether this number is an integer, i.e. its denominator is 1.
+     */
+    public boolean isInteger() {
+        return den.equals(BigInteger.ONE);
+    }
+
+    /**
+     * Returns -1, 0 or 1 as this number is negative, zero or positive.
+     */
+    public int signum() {
+        return num.signum();
+    }
+
+    /**
+     * Returns this + `other`.
+     */
+    public Rational add(Rational other) {
+        if (den.equals(other.den)) {
+            return of(num.add(other.num), den);
+        }
+        return of(num.multiply(other.den).add(other.num.multiply(den)), den.multiply(other.den));
+    }
+
+    /**
+     * Returns this - `other`.
+     */
+    public Rational subtract(Rational other) {
+        return add(other.negate());
+    }
+
+    /**
+     * Returns this * `other`.
+     */
+    public Rational multiply(Rational other) {
+        return of(num.multiply(other.num), den.multiply(other.den));
+    }
+
+    /**
+     * Returns this / `other`. Requires `other` is not 0.
+     */
+    public Rational divide(Rational other) {
+        assert other.signum() != 0;
+
+        return of(num.multiply(other.den), den.multiply(other.num));
+    }
+
+    /**
+     * Returns -this.
+     */
+    public Rational negate() {
+        return new Rational(num.negate(), den);
+    }
+
+    /**
+     * Returns the double nearest this number, choosing the one whose last bit is 0 if two are
+     * equally near, as Double.parseDouble does for decimal strings. Numbers too large in magnitude
+     * for a double give an infinity, and numbers too small give a zero of the same sign.
+     */
+    public double doubleValue() {
+        if (isInteger()) {
+            return num.doubleValue();
+        }
+        BigInteger abs = num.abs();
+        // The quotient abs * 2^shift / den, truncated, has 55 or 56 bits: the 53 of a double's
+        // significand and two more for rounding. In the subnormal range, fewer bits are kept, but
+        // the shift never needs to reach below 2^-1076
+        int shift = Math.min(den.bitLength() - abs.bitLength() + 55, 1076);
+        BigInteger[] divided = shift >= 0 ? abs.shiftLeft(shift).divideAndRemainder(den)
+                : abs.divideAndRemainder(den.shiftLeft(-shift));
+        BigInteger quotient = divided[0];
+        // The number of low bits of the quotient below the last bit of the result: enough to
+        // leave 53 bits, or more if the result is subnormal, whose last bit is 2^-1074
+        int dropped = Math.max(quotient.bitLength() - 53, shift - 1074);
+        long significand = quotient.shiftRight(dropped).longValueExact();
+        boolean half = quotient.testBit(dropped - 1);
+        // The remainder is a sticky bit: any nonzero part below the half bit breaks a tie
+        boolean belowHalf = divided[1].signum() != 0
+                || quotient.getLowestSetBit() < dropped - 1;
+        if (half && (belowHalf || (significand & 1) != 0)) {
+            significand++;
+        }
+        // The significand has at most 53 bits (or is 2^53 after rounding up), and its scale is at
+        // least 2^-1074, so scaling it is exact unless it overflows
+        double magnitude = Math.scalb((double) significand, dropped - shift);
+        return num.signum() < 0 ? -magnitude : magnitude;
+    }
+
+    /**
+     * Compares this number with `other` numerically.
+     */
+    @Override
+    public int compareTo(Rational other) {
+        return num.multiply(other.den).compareTo(other.num.multiply(den));
+    }
+
+    /**
+     * Returns whether `other` is a Rational with the same value.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Rational)) {
+            return false;
+        }
+        Rational r = (Rational) other;
+        return num.equals(r.num) && den.equals(r.den);
+    }
+
+    /**
+     * Returns a hash code consistent with equals().
+     */
+    @Override
+    public int hashCode() {
+        return 31 * num.hashCode() + den.hashCode();
+    }
+
+    /**
+     * Returns this number as "num/den", or just "num" if it is an integer.
+     */
+    @Override
+    public String toString() {
+        return isInteger() ? num.toString() : num + "/" + den;
+    }
+}
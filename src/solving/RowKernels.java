@@ -0,0 +1,38 @@
+package solving;
+
+/**
+ * The row operations of row reduction on rows of doubles, as used by SystemSolver. Each method
+ * operates on the entries from index `from` to the end of its rows. Every implementation computes
+ * each entry with the same floating-point operations in the same order, so results do not depend
+ * on which one is used.
+ */
+interface RowKernels {
+
+    /**
+     * Multiplies the entries of `row` by `factor`.
+     */
+    void scale(double[] row, int from, double factor);
+
+    /**
+     * Exchanges the entries of `a` and `b`, which have the same length.
+     */
+    void swap(double[] a, double[] b, int from);
+
+    /**
+     * Adds `factor` times the entries of `src` to those of `dst`, which has the same length.
+     */
+    void axpy(double factor, double[] src, double[] dst, int from);
+
+    /**
+     * Return the SIMD kernels if the incubating Vector API module is available to this JVM and its
+     * vectors are wide enough for them to be faster (see VectorRowKernels.faster()), and the
+     * scalar kernels otherwise.
+     */
+    static RowKernels best() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+                && VectorRowKernels.faster()) {
+            return new VectorRowKernels();
+        }
+        return new ScalarRowKernels();
+    }
+}
@@ -0,0 +1,80 @@
+package solving;
+
+import expressions.exceptions.*;
+
+/**
+ * The SSOR preconditioner M = omega / (2 - omega) (D / omega + L) (D / omega)^-1 (D / omega + U)
+ * of a matrix A = L + D + U, where D is the diagonal of A and L and U are its strictly lower and
+ * upper parts. Applying it is one forward and one backward Gauss-Seidel sweep.
+ */
+final class SSORPreconditioner implements Preconditioner {
+
+    private final SparseMatrix mat;
+    private final double omega;
+
+    /**
+     * diagonal[i] is the index of entry (i, i) in the arrays of `mat`.
+     */
+    private final int[] diagonal;
+
+    /**
+     * Requires `mat` is square and 0 < omega < 2. Throws SolvingException if an entry on the
+     * diagonal of `mat` is 0.
+     */
+    SSORPreconditioner(SparseMatrix mat, double omega) throws SolvingException {
+        assert mat.rows() == mat.cols();
+        assert 0 < omega && omega < 2;
+
+        this.mat = mat;
+        this.omega = omega;
+        diagonal = diagonalPositions(mat);
+    }
+
+    /**
+     * Returns the index of each entry on the diagonal of the square matrix `mat` in its arrays.
+     * Throws SolvingException if an entry on the diagonal is 0.
+     */
+    static int[] diagonalPositions(SparseMatrix mat) throws SolvingException {
+        int[] rowPtr = mat.rowPointers();
+        int[] colIdx = mat.columnIndices();
+        double[] values = mat.entries();
+        int[] toReturn = new int[mat.rows()];
+        for (int i = 0; i < toReturn.length; i++) {
+            int p = rowPtr[i];
+            while (p < rowPtr[i + 1] && colIdx[p] < i) {
+                p++;
+            }
+            if (p == rowPtr[i + 1] || colIdx[p] != i || values[p] == 0) {
+                throw new SolvingException("Zero diagonal entry in row " + i + " of input matrix");
+            }
+            toReturn[i] = p;
+        }
+        return toReturn;
+    }
+
+    @Override
+    public void apply(double[] vec, double[] result) {
+        int[] rowPtr = mat.rowPointers();
+        int[] colIdx = mat.columnIndices();
+        double[] values = mat.entries();
+        int dim = diagonal.length;
+        // Forward sweep: (D / omega + L) y = r
+        for (int i = 0; i < dim; i++) {
+            double sum = vec[i];
+            for (int p = rowPtr[i]; p < diagonal[i]; p++) {
+                sum -= values[p] * result[colIdx[p]];
+            }
+            result[i] = omega * sum / values[diagonal[i]];
+        }
+        // Backward sweep: (D / omega + U) z = (2 - omega) / omega * (D / omega) y
+        double scale = (2 - omega) / omega;
+        for (int i = dim - 1; i >= 0; i--) {
+            double scaledDiagonal = values[diagonal[i]] / omega;
+            double sum = scale * scaledDiagonal * result[i];
+            for (int p = diagonal[i] + 1; p < rowPtr[i + 1]; p++) {
+                sum -= values[p] * result[colIdx[p]];
+            }
+            result[i] = sum / scaledDiagonal;
+        }
+    }
+}
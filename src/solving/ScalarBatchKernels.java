@@ -0,0 +1,53 @@
+package solving;
+
+/**
+ * BatchKernels implemented with plain loops, used when the Vector API is not available. Loops run
+ * over the lanes innermost, so that the JIT compiler can vectorize those that do not select
+ * between lanes.
+ */
+final class ScalarBatchKernels implements BatchKernels {
+
+    @Override
+    public int lanes() {
+        return 1;
+    }
+
+    @Override
+    public void pivot(double[] a, int pivot, int candidate, int length, int width) {
+        // The entries compared are exchanged last, so every entry sees the same comparison
+        for (int t = length - 1; t >= 0; t--) {
+            int p = pivot + t * width;
+            int c = candidate + t * width;
+            for (int l = 0; l < width; l++) {
+                boolean larger = Math.abs(a[candidate + l]) > Math.abs(a[pivot + l]);
+                double x = a[p + l];
+                double y = a[c + l];
+                a[p + l] = larger ? y : x;
+                a[c + l] = larger ? x : y;
+            }
+        }
+    }
+
+    @Override
+    public void scale(double[] a, int pivot, int length, int width) {
+        for (int l = 0; l < width; l++) {
+            double value = a[pivot + l];
+            double scaleFactor = Math.abs(value) < 1e-15 ? Double.NaN : 1 / value;
+            for (int t = 1; t < length; t++) {
+                int p = pivot + t * width + l;
+                a[p] = scaleFactor * a[p];
+            }
+        }
+    }
+
+    @Override
+    public void eliminate(double[] a, int factor, int src, int dst, int length, int width) {
+        for (int t = 0; t < length; t++) {
+            int s = src + t * width;
+            int d = dst + t * width;
+            for (int l = 0; l < width; l++) {
+                a[d + l] = a[d + l] + -1.0 * a[factor + l] * a[s + l];
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package solving;
+
+/**
+ * RowKernels implemented with plain loops, used when the Vector API is not available. These are
+ * the loops SystemSolver's row operations have always used.
+ */
+final class ScalarRowKernels implements RowKernels {
+
+    @Override
+    public void scale(double[] row, int from, double factor) {
+        for (int j = from; j < row.length; j++) {
+            row[j] = factor * row[j];
+        }
+    }
+
+    @Override
+    public void swap(double[] a, double[] b, int from) {
+        for (int j = from; j < a.length; j++) {
+            double temp = a[j];
+            a[j] = b[j];
+            b[j] = temp;
+        }
+    }
+
+    @Override
+    public void axpy(double factor, double[] src, double[] dst, int from) {
+        for (int j = from; j < dst.length; j++) {
+            dst[j] = dst[j] + factor * src[j];
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package solving;
+
+import java.util.ArrayList;
+
+/**
+ * The solution set of a consistent system of linear equations Ax = b in n unknowns, as found by
+ * SystemSolver.solution_space: every solution is a particular solution plus a combination of a
+ * basis of the null space of A, with one basis vector per free variable. Variables are numbered
+ * from 0 here, while the equations rendered by equations() call them x1 through xn.
+ */
+public final class SolutionSpace {
+
+    /**
+     * The number of unknowns n.
+     */
+    private final int cols;
+
+    /**
+     * The nonzero rows of the reduced row echelon form of [A | b], rounded to 14 decimal places;
+     * entry n of each row is its right-hand side.
+     */
+    private final double[][] reduced;
+
+    /**
+     * pivots[r] is the pivot column of reduced row r, for each of the first rank() rows, and free
+     * lists the other columns in increasing order.
+     */
+    private final int[] pivots;
+    private final int[] free;
+
+    private final double[] particular;
+
+    /**
+     * basis[k] is the solution of Ax = 0 with free variable free[k] equal to 1 and the other free
+     * variables 0.
+     */
+    private final double[][] basis;
+
+    /**
+     * Create the solution set described by `reduced`, the nonzero rows of the rounded reduced row
+     * echelon form of a consistent augmented matrix with `cols` unknowns, whose first rows have
+     * their pivots in the columns `pivots`. Any later rows are left over from elimination and are
+     * only rendered by equations(). Requires each row has length `cols` + 1 and a nonzero entry
+     * before its last, and `pivots` is increasing.
+     */
+    SolutionSpace(double[][] reduced, int[] pivots, int cols) {
+        assert pivots.length <= reduced.length;
+        this.cols = cols;
+        this.reduced = reduced;
+        this.pivots = pivots;
+        boolean[] isPivot = new boolean[cols];
+        for (int pivot : pivots) {
+            isPivot[pivot] = true;
+        }
+        int freeCount = 0;
+        for (int j = 0; j < cols; j++) {
+            if (!isPivot[j]) {
+                freeCount++;
+            }
+        }
+        free = new int[freeCount];
+        for (int j = 0, k = 0; j < cols; j++) {
+            if (!isPivot[j]) {
+                free[k++] = j;
+            }
+        }
+        particular = new double[cols];
+        basis = new double[freeCount][cols];
+        for (int k = 0; k < freeCount; k++) {
+            basis[k][free[k]] = 1;
+        }
+        for (int r = 0; r < pivots.length; r++) {
+            double[] row = reduced[r];
+            double lead = row[pivots[r]];
+            particular[pivots[r]] = row[cols] / lead;
+            for (int k = 0; k < freeCount; k++) {
+                double coefficient = row[free[k]];
+                if (coefficient != 0) {
+                    basis[k][pivots[r]] = -coefficient / lead;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of unknowns.
+     */
+    public int variableCount() {
+        return cols;
+    }
+
+    /**
+     * Returns the rank of A, the number of pivot columns.
+     */
+    public int rank() {
+        return pivots.length;
+    }
+
+    /**
+     * Returns whether the system has exactly one solution, i.e. there are no free variables.
+     */
+    public boolean isUnique() {
+        return free.length == 0;
+    }
+
+    /**
+     * Returns the pivot columns, in increasing order.
+     */
+    public int[] pivotColumns() {
+        return pivots.clone();
+    }
+
+    /**
+     * Returns the free variables, the columns that are not pivot columns, in increasing order.
+     */
+    public int[] freeVariables() {
+        return free.clone();
+    }
+
+    /**
+     * Returns the solution in which every free variable is 0.
+     */
+    public double[] particularSolution() {
+        return particular.clone();
+    }
+
+    /**
+     * Returns a basis of the null space of A, one vector of length n per free variable, in the
+     * order of freeVariables(): vector k has free variable k equal to 1 and the others 0.
+     */
+    public double[][] nullSpaceBasis() {
+        double[][] toReturn = new double[basis.length][];
+        for (int k = 0; k < basis.length; k++) {
+            toReturn[k] = basis[k].clone();
+        }
+        return toReturn;
+    }
+
+    /**
+     * Returns the solution whose free variables take the values in `freeValues`, in the order of
+     * freeVariables(). Requires the length of `freeValues` equals the number of free variables.
+     */
+    public double[] solution(double[] freeValues) {
+        assert freeValues.length == free.length;
+
+        double[] toReturn = particular.clone();
+        for (int k = 0; k < free.length; k++) {
+            double value = freeValues[k];
+            double[] vector = basis[k];
+            for (int j = 0; j < cols; j++) {
+                toReturn[j] += value * vector[j];
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * Returns the equations of the reduced system in terms of variables x1 through xn, one per
+     * nonzero row (e.g. "x1 = 0", "x2 + 2.0x3 = 5"), as returned by
+     * SystemSolver.linear_solve_general.
+     */
+    public ArrayList<String> equations() {
+        ArrayList<String> toReturn = new ArrayList<>(reduced.length);
+        for (double[] row : reduced) {
+            StringBuilder temp = new StringBuilder();
+            for (int j = 0; j < cols; j++) {
+                if (row[j] != 0) {
+                    if (temp.isEmpty()) {
+                        if (row[j] == 1) {
+                            temp.append("x").append(j + 1);
+                        } else {
+                            temp.append(row[j]).append("x").append(j + 1);
+                        }
+                    } else if (row[j] < 0) {
+                        if (row[j] == -1) {
+                            temp.append(" - ").append("x").append(j + 1);
+                        } else {
+                            temp.append(" - ").append(-1.0 * row[j]).append("x").append(j + 1);
+                        }
+                    } else {
+                        if (row[j] == 1) {
+                            temp.append(" + ").append("x").append(j + 1);
+                        } else {
+                            temp.append(" + ").append(row[j]).append("x").append(j + 1);
+                        }
+                    }
+                }
+            }
+            temp.append(" = ").append(row[cols]);
+            toReturn.add(temp.toString());
+        }
+        return toReturn;
+    }
+}
@@ -0,0 +1,87 @@
+package solving;
+
+import expressions.exceptions.*;
+
+/**
+ * Preallocated storage for solving systems of a fixed dimension with SystemSolver.solveInto, so
+ * that callers solving many systems one after another, such as in a request loop, can do so
+ * without allocating anything. A workspace holds the LU factorization of the last matrix solved
+ * with it, computed by LUDecomposition's blocked routine into the workspace's own storage,
+ * including the buffers the blocked update copies each panel into, so it must not be shared
+ * between threads. The factorization runs on the calling thread even for large systems, since
+ * splitting it across the common ForkJoinPool would allocate, and callers solving many systems
+ * can instead give each of their threads its own workspace.
+ */
+public final class SolverWorkspace {
+
+    private final int dim;
+
+    /**
+     * The factors packed as in LUDecomposition: L (including its diagonal of pivots) on and below
+     * the diagonal, and the strictly upper part of U above it.
+     */
+    private final DenseMatrix lu;
+
+    /**
+     * The reciprocal of each pivot.
+     */
+    private final double[] pivotInverse;
+
+    /**
+     * perm[i] is the row of the original matrix that became row i after pivoting.
+     */
+    private final int[] perm;
+
+    /**
+     * Buffers for the blocked update's copies of each panel's rows of U, one tile of columns at a
+     * time, and of the row being updated.
+     */
+    private final double[][][] tiles;
+    private final double[] row;
+
+    /**
+     * Create a workspace for systems of dimension `dim`. Requires `dim` is positive.
+     */
+    public SolverWorkspace(int dim) {
+        assert dim > 0;
+        this.dim = dim;
+        lu = new DenseMatrix(dim, dim);
+        pivotInverse = new double[dim];
+        perm = new int[dim];
+        tiles = LUDecomposition.tileBuffers(dim);
+        row = new double[LUDecomposition.TILE_WIDTH];
+    }
+
+    /**
+     * Returns the dimension of the systems this workspace solves.
+     */
+    public int dimension() {
+        return dim;
+    }
+
+    /**
+     * Factors the square matrix `mat`, which is not modified, replacing the previous
+     * factorization. Requires `mat` has the dimension of this workspace. Throws SolvingException
+     * if `mat` is singular, i.e. some column has no pivot at least 1e-15 in absolute value during
+     * elimination.
+     */
+    void factor(double[][] mat) throws SolvingException {
+        assert mat.length == dim;
+
+        double[] a = lu.data();
+        for (int i = 0; i < dim; i++) {
+            assert mat[i].length == dim;
+            System.arraycopy(mat[i], 0, a, i * dim, dim);
+        }
+        LUDecomposition.factor(lu, pivotInverse, perm, tiles, row, true);
+    }
+
+    /**
+     * Stores in `out` the solution x to Ax = b where A is the last matrix factored and b is
+     * `vec`, which is not modified, without rounding. Requires `vec` and `out` have the dimension
+     * of this workspace and are different arrays.
+     */
+    void substitute(double[] vec, double[] out) {
+        LUDecomposition.substitute(lu, pivotInverse, perm, vec, out);
+    }
+}
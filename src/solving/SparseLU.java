@@ -0,0 +1,550 @@
+package solving;
+
+import expressions.exceptions.*;
+
+import java.util.Arrays;
+
+/**
+ * The LU factorization of a square sparse matrix, for solving large sparse systems with memory
+ * and time that grow with the number of nonzeros rather than with the square of the dimension.
+ *
+ * <p>Factorization has three phases. analyze() depends only on where the matrix's nonzeros are: it
+ * computes a reverse Cuthill-McKee ordering of the rows and columns, which gathers the nonzeros
+ * near the diagonal and so limits fill-in. The constructor then factors the reordered matrix
+ * column by column with the left-looking Gilbert-Peierls algorithm: a depth-first search over the
+ * columns of L computed so far finds which entries of the next column can be nonzero (the
+ * symbolic step), and only those entries are computed (the numeric step). Pivots are chosen by
+ * threshold partial pivoting, which keeps the diagonal entry unless another entry in its column is
+ * much larger, so that the ordering is preserved where stability allows. Finally, refactor()
+ * factors a new matrix with the same nonzero pattern, reusing the pivots and the patterns of L and
+ * U so that only the numeric step is repeated.
+ */
+public final class SparseLU {
+
+    /**
+     * A diagonal pivot is kept unless its magnitude is less than this fraction of the largest
+     * candidate in its column.
+     */
+    private static final double PIVOT_TOLERANCE = 1e-3;
+
+    /**
+     * The fill-reducing ordering of a matrix, which depends only on the positions of its
+     * nonzeros.
+     */
+    public static final class Analysis {
+
+        /**
+         * Row and column i of the reordered matrix are row and column order[i] of the original.
+         */
+        private final int[] order;
+
+        private Analysis(int[] order) {
+            this.order = order;
+        }
+
+        /**
+         * Returns the dimension of the analyzed matrix.
+         */
+        public int dimension() {
+            return order.length;
+        }
+    }
+
+    private final int dim;
+    private final Analysis analysis;
+
+    /**
+     * The original matrix's pattern, to check that refactor() is given a matching matrix.
+     */
+    private SparseMatrix pattern;
+
+    /**
+     * Column j of L (without its unit diagonal) is at indices lColPtr[j] to lColPtr[j + 1] - 1 of
+     * lRowIdx and lValues; row indices are positions in the pivot order.
+     */
+    private final int[] lColPtr;
+    private int[] lRowIdx;
+    private double[] lValues;
+
+    /**
+     * Column j of U (without its diagonal, which is in pivots) is stored likewise, in an order in
+     * which each entry's row is computed before any entry that depends on it.
+     */
+    private final int[] uColPtr;
+    private int[] uRowIdx;
+    private double[] uValues;
+    private final double[] pivots;
+
+    /**
+     * pivotRow[k] is the row of the reordered matrix chosen as the kth pivot.
+     */
+    private final int[] pivotRow;
+
+    /**
+     * Returns the fill-reducing ordering for the square matrix `mat`, which can be shared by
+     * factorizations of every matrix with the same nonzero pattern.
+     */
+    public static Analysis analyze(SparseMatrix mat) {
+        assert mat.rows() == mat.cols();
+        return new Analysis(reverseCuthillMcKee(mat));
+    }
+
+    /**
+     * Factor the square matrix `mat`. Requires `mat` is square. Throws SolvingException if `mat`
+     * is singular, i.e. some column has no pivot at least 1e-15 in absolute value during
+     * elimination.
+     */
+    public SparseLU(SparseMatrix mat) throws SolvingException {
+        this(analyze(mat), mat);
+    }
+
+    /**
+     * Factor the square matrix `mat` using the ordering `analysis`, which must have been computed
+     * for a matrix with the same nonzero pattern. Throws SolvingException if `mat` is singular.
+     */
+    public SparseLU(Analysis analysis, SparseMatrix mat) throws SolvingException {
+        assert mat.rows() == mat.cols() && analysis.dimension() == mat.rows();
+
+        dim = mat.rows();
+        this.analysis = analysis;
+        pattern = mat;
+        lColPtr = new int[dim + 1];
+        uColPtr = new int[dim + 1];
+        int capacity = Math.max(16, mat.nonZeros());
+        lRowIdx = new int[capacity];
+        lValues = new double[capacity];
+        uRowIdx = new int[capacity];
+        uValues = new double[capacity];
+        pivots = new double[dim];
+        pivotRow = new int[dim];
+        factor(reorderedColumns(mat));
+    }
+
+    /**
+     * Returns the dimension of the factored matrix.
+     */
+    public int dimension() {
+        return dim;
+    }
+
+    /**
+     * Returns the number of entries stored for L and U together, including U's diagonal.
+     */
+    public int nonZeros() {
+        return lColPtr[dim] + uColPtr[dim] + dim;
+    }
+
+    /**
+     * Replace this factorization with that of `mat`, which must have the same nonzero pattern as
+     * the matrix factored before, keeping the same pivots. Throws IllegalArgumentException if the
+     * patterns differ. Throws SolvingException if one of the kept pivots is less than 1e-15 in
+     * absolute value for `mat`, in which case a new SparseLU should be created instead; this
+     * factorization is then no longer usable.
+     */
+    public void refactor(SparseMatrix mat) throws SolvingException {
+        if (!pattern.samePattern(mat)) {
+            throw new IllegalArgumentException("Matrix does not have the factored pattern");
+        }
+        pattern = mat;
+        SparseMatrix columns = reorderedColumns(mat);
+        int[] colPtr = columns.rowPointers();
+        int[] rowIdx = columns.columnIndices();
+        double[] values = columns.entries();
+        int[] pivotOf = new int[dim];
+        for (int k = 0; k < dim; k++) {
+            pivotOf[pivotRow[k]] = k;
+        }
+        double[] x = new double[dim];
+        for (int k = 0; k < dim; k++) {
+            for (int p = colPtr[k]; p < colPtr[k + 1]; p++) {
+                x[pivotOf[rowIdx[p]]] = values[p];
+            }
+            // Same updates as in factor(), in the order recorded then
+            for (int p = uColPtr[k]; p < uColPtr[k + 1]; p++) {
+                int j = uRowIdx[p];
+                double u = x[j];
+                uValues[p] = u;
+                x[j] = 0;
+                for (int q = lColPtr[j]; q < lColPtr[j + 1]; q++) {
+                    x[lRowIdx[q]] -= lValues[q] * u;
+                }
+            }
+            double pivot = x[k];
+            x[k] = 0;
+            if (Math.abs(pivot) < 1e-15) {
+                throw new SolvingException("No pivot in column " + analysis.order[k]
+                        + " of input matrix");
+            }
+            pivots[k] = pivot;
+            for (int q = lColPtr[k]; q < lColPtr[k + 1]; q++) {
+                int i = lRowIdx[q];
+                lValues[q] = x[i] / pivot;
+                x[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Returns the unique solution x to Ax = b where A is the factored matrix and b is `vec`, which
+     * is not modified. Requires the length of `vec` equals the dimension. All returned values are
+     * rounded to 14 decimal places, as in SystemSolver.linear_solve.
+     */
+    public double[] solve(double[] vec) {
+        assert vec.length == dim;
+
+        int[] order = analysis.order;
+        // Permute b into the reordered, pivoted row order
+        double[] z = new double[dim];
+        for (int k = 0; k < dim; k++) {
+            z[k] = vec[order[pivotRow[k]]];
+        }
+        // Forward substitution with L
+        for (int j = 0; j < dim; j++) {
+            double zj = z[j];
+            if (zj != 0) {
+                for (int p = lColPtr[j]; p < lColPtr[j + 1]; p++) {
+                    z[lRowIdx[p]] -= lValues[p] * zj;
+                }
+            }
+        }
+        // Back substitution with U
+        for (int j = dim - 1; j >= 0; j--) {
+            double zj = z[j] / pivots[j];
+            z[j] = zj;
+            if (zj != 0) {
+                for (int p = uColPtr[j]; p < uColPtr[j + 1]; p++) {
+                    z[uRowIdx[p]] -= uValues[p] * zj;
+                }
+            }
+        }
+        double[] x = new double[dim];
+        for (int k = 0; k < dim; k++) {
+            x[order[k]] = SystemSolver.round(z[k], 14);
+        }
+        return x;
+    }
+
+    /**
+     * Returns the columns of `mat` with rows and columns reordered by the analysis, as the rows of
+     * a sparse matrix.
+     */
+    private SparseMatrix reorderedColumns(SparseMatrix mat) {
+        int[] order = analysis.order;
+        int[] position = new int[dim];
+        for (int k = 0; k < dim; k++) {
+            position[order[k]] = k;
+        }
+        SparseMatrix columns = mat.transpose();
+        int[] colPtr = columns.rowPointers();
+        int[] rowIdx = columns.columnIndices();
+        double[] values = columns.entries();
+        int[] newPtr = new int[dim + 1];
+        int[] newIdx = new int[rowIdx.length];
+        double[] newValues = new double[rowIdx.length];
+        for (int k = 0; k < dim; k++) {
+            int c = order[k];
+            int start = newPtr[k];
+            int len = colPtr[c + 1] - colPtr[c];
+            for (int p = 0; p < len; p++) {
+                newIdx[start + p] = position[rowIdx[colPtr[c] + p]];
+                newValues[start + p] = values[colPtr[c] + p];
+            }
+            newPtr[k + 1] = start + len;
+        }
+        // Row indices within a column need not be sorted for the factorization
+        return new SparseMatrix(dim, dim, newPtr, newIdx, newValues);
+    }
+
+    /**
+     * Factors the reordered matrix whose columns are the rows of `columns`, with the
+     * Gilbert-Peierls algorithm.
+     */
+    private void factor(SparseMatrix columns) throws SolvingException {
+        int[] colPtr = columns.rowPointers();
+        int[] rowIdx = columns.columnIndices();
+        double[] values = columns.entries();
+
+        // pivotOf[i] is the pivot position of reordered row i, or -1 if it is not yet a pivot
+        int[] pivotOf = new int[dim];
+        Arrays.fill(pivotOf, -1);
+        double[] x = new double[dim];
+        // Rows reached from the current column, in reverse topological order from reach[top]
+        int[] reach = new int[dim];
+        // Depth-first search state
+        int[] stack = new int[dim];
+        int[] next = new int[dim];
+        boolean[] marked = new boolean[dim];
+        // The number of entries stored so far in L and in U (excluding its diagonal)
+        int lNnz = 0;
+        int uNnz = 0;
+
+        for (int k = 0; k < dim; k++) {
+            // Symbolic step: find every row that can be nonzero in column k of L and U
+            int top = dim;
+            for (int p = colPtr[k]; p < colPtr[k + 1]; p++) {
+                int i = rowIdx[p];
+                if (!marked[i]) {
+                    top = depthFirst(i, top, pivotOf, reach, stack, next, marked);
+                }
+            }
+            // Numeric step: sparse triangular solve with the finished columns of L
+            for (int p = colPtr[k]; p < colPtr[k + 1]; p++) {
+                x[rowIdx[p]] = values[p];
+            }
+            for (int t = top; t < dim; t++) {
+                int i = reach[t];
+                int j = pivotOf[i];
+                if (j >= 0) {
+                    double u = x[i];
+                    for (int q = lColPtr[j]; q < lColPtr[j + 1]; q++) {
+                        x[lRowIdx[q]] -= lValues[q] * u;
+                    }
+                }
+            }
+            // Threshold partial pivoting among the rows that are not yet pivots
+            int maxRow = -1;
+            double max = 0;
+            for (int t = top; t < dim; t++) {
+                int i = reach[t];
+                if (pivotOf[i] < 0 && Math.abs(x[i]) > max) {
+                    maxRow = i;
+                    max = Math.abs(x[i]);
+                }
+            }
+            if (max < 1e-15) {
+                throw new SolvingException("No pivot in column " + analysis.order[k]
+                        + " of input matrix");
+            }
+            int row = maxRow;
+            if (marked[k] && pivotOf[k] < 0 && Math.abs(x[k]) >= PIVOT_TOLERANCE * max) {
+                row = k;
+            }
+            double pivot = x[row];
+            pivots[k] = pivot;
+            pivotRow[k] = row;
+            pivotOf[row] = k;
+            // Store column k of U (rows already pivots, in dependency order) and of L
+            for (int t = top; t < dim; t++) {
+                int i = reach[t];
+                int j = pivotOf[i];
+                if (j >= 0 && j < k) {
+                    uNnz = appendU(uNnz, j, x[i]);
+                } else if (j < 0) {
+                    lNnz = appendL(lNnz, i, x[i] / pivot);
+                }
+                x[i] = 0;
+                marked[i] = false;
+            }
+            lColPtr[k + 1] = lNnz;
+            uColPtr[k + 1] = uNnz;
+        }
+        // Renumber L's rows from reordered rows to pivot positions
+        for (int p = 0; p < lColPtr[dim]; p++) {
+            lRowIdx[p] = pivotOf[lRowIdx[p]];
+        }
+    }
+
+    /**
+     * Appends an entry in row `row` with value `value` to the column of L being built, after the
+     * `lNnz` entries stored so far, and returns the new number of entries.
+     */
+    private int appendL(int lNnz, int row, double value) {
+        if (lNnz == lRowIdx.length) {
+            lRowIdx = Arrays.copyOf(lRowIdx, 2 * lNnz);
+            lValues = Arrays.copyOf(lValues, 2 * lNnz);
+        }
+        lRowIdx[lNnz] = row;
+        lValues[lNnz] = value;
+        return lNnz + 1;
+    }
+
+    /**
+     * Appends an entry in pivot position `row` with value `value` to the column of U being built,
+     * after the `uNnz` entries stored so far, and returns the new number of entries.
+     */
+    private int appendU(int uNnz, int row, double value) {
+        if (uNnz == uRowIdx.length) {
+            uRowIdx = Arrays.copyOf(uRowIdx, 2 * uNnz);
+            uValues = Arrays.copyOf(uValues, 2 * uNnz);
+        }
+        uRowIdx[uNnz] = row;
+        uValues[uNnz] = value;
+        return uNnz + 1;
+    }
+
+    /**
+     * Pushes onto `reach`, below index `top`, every unmarked row reachable from row `start` in the
+     * graph with an edge from each pivot row to the rows of its column of L, with each row placed
+     * before the rows reachable from it. Returns the new top.
+     */
+    private int depthFirst(int start, int top, int[] pivotOf, int[] reach, int[] stack,
+            int[] next, boolean[] marked) {
+        int head = 0;
+        stack[0] = start;
+        marked[start] = true;
+        next[start] = pivotOf[start] >= 0 ? lColPtr[pivotOf[start]] : -1;
+        while (head >= 0) {
+            int i = stack[head];
+            int j = pivotOf[i];
+            boolean descended = false;
+            if (j >= 0) {
+                int end = lColPtr[j + 1];
+                while (next[i] < end) {
+                    int child = lRowIdx[next[i]++];
+                    if (!marked[child]) {
+                        marked[child] = true;
+                        next[child] = pivotOf[child] >= 0 ? lColPtr[pivotOf[child]] : -1;
+                        stack[++head] = child;
+                        descended = true;
+                        break;
+                    }
+                }
+            }
+            if (!descended) {
+                head--;
+                reach[--top] = i;
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Returns a reverse Cuthill-McKee ordering of the graph of A + A^T for the square matrix
+     * `mat`: each connected component is traversed breadth-first from a pseudo-peripheral vertex,
+     * visiting neighbours in order of increasing degree, and the whole order is then reversed.
+     */
+    private static int[] reverseCuthillMcKee(SparseMatrix mat) {
+        int n = mat.rows();
+        // Symmetric adjacency structure without the diagonal
+        SparseMatrix transpose = mat.transpose();
+        int[] degree = new int[n];
+        int[] adjPtr = new int[n + 1];
+        int[] adj = symmetricPattern(mat, transpose, adjPtr);
+        for (int v = 0; v < n; v++) {
+            degree[v] = adjPtr[v + 1] - adjPtr[v];
+        }
+        int[] order = new int[n];
+        boolean[] visited = new boolean[n];
+        int[] level = new int[n];
+        Arrays.fill(level, -1);
+        int[] queue = new int[n];
+        int count = 0;
+        for (int seed = 0; seed < n; seed++) {
+            if (visited[seed]) {
+                continue;
+            }
+            int root = pseudoPeripheral(seed, adjPtr, adj, degree, level, queue);
+            // Breadth-first search from root, neighbours by increasing degree
+            int head = count;
+            order[count++] = root;
+            visited[root] = true;
+            while (head < count) {
+                int v = order[head++];
+                int first = count;
+                for (int p = adjPtr[v]; p < adjPtr[v + 1]; p++) {
+                    int w = adj[p];
+                    if (!visited[w]) {
+                        visited[w] = true;
+                        order[count++] = w;
+                    }
+                }
+                sortByDegree(order, first, count, degree);
+            }
+        }
+        for (int a = 0, b = n - 1; a < b; a++, b--) {
+            int temp = order[a];
+            order[a] = order[b];
+            order[b] = temp;
+        }
+        return order;
+    }
+
+    /**
+     * Returns the adjacency lists of the graph of A + A^T without self loops, where A is `mat` and
+     * `transpose` its transpose, filling in `adjPtr` as for a CSR matrix.
+     */
+    private static int[] symmetricPattern(SparseMatrix mat, SparseMatrix transpose, int[] adjPtr) {
+        int n = mat.rows();
+        int[] mark = new int[n];
+        Arrays.fill(mark, -1);
+        int[] adj = new int[2 * mat.nonZeros()];
+        int count = 0;
+        for (int v = 0; v < n; v++) {
+            adjPtr[v] = count;
+            mark[v] = v;
+            for (SparseMatrix m : new SparseMatrix[]{mat, transpose}) {
+                int[] ptr = m.rowPointers();
+                int[] idx = m.columnIndices();
+                for (int p = ptr[v]; p < ptr[v + 1]; p++) {
+                    int w = idx[p];
+                    if (mark[w] != v) {
+                        mark[w] = v;
+                        adj[count++] = w;
+                    }
+                }
+            }
+        }
+        adjPtr[n] = count;
+        return adj;
+    }
+
+    /**
+     * Returns a vertex in the component of `seed` whose breadth-first level structure is as deep as
+     * can be found by repeatedly restarting from a vertex of least degree in the last level, as
+     * proposed by George and Liu. `level` must be all -1 and is restored; `queue` is scratch space.
+     */
+    private static int pseudoPeripheral(int seed, int[] adjPtr, int[] adj, int[] degree,
+            int[] level, int[] queue) {
+        int root = seed;
+        int bestDepth = -1;
+        while (true) {
+            // Breadth-first search from root, recording each vertex's level
+            int count = 1;
+            queue[0] = root;
+            level[root] = 0;
+            for (int head = 0; head < count; head++) {
+                int v = queue[head];
+                for (int p = adjPtr[v]; p < adjPtr[v + 1]; p++) {
+                    int w = adj[p];
+                    if (level[w] < 0) {
+                        level[w] = level[v] + 1;
+                        queue[count++] = w;
+                    }
+                }
+            }
+            int depth = level[queue[count - 1]];
+            int candidate = root;
+            for (int t = count - 1; t >= 0 && level[queue[t]] == depth; t--) {
+                int v = queue[t];
+                if (candidate == root || degree[v] < degree[candidate]) {
+                    candidate = v;
+                }
+            }
+            for (int t = 0; t < count; t++) {
+                level[queue[t]] = -1;
+            }
+            if (depth <= bestDepth || candidate == root) {
+                return root;
+            }
+            bestDepth = depth;
+            root = candidate;
+        }
+    }
+
+    /**
+     * Sorts order[from..to) by increasing degree, breaking ties by vertex number.
+     */
+    private static void sortByDegree(int[] order, int from, int to, int[] degree) {
+        // Neighbour lists are short, so insertion sort is fastest
+        for (int a = from + 1; a < to; a++) {
+            int v = order[a];
+            int b = a - 1;
+            while (b >= from && (degree[order[b]] > degree[v]
+                    || (degree[order[b]] == degree[v] && order[b] > v))) {
+                order[b + 1] = order[b];
+                b--;
+            }
+            order[b + 1] = v;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package solving;
+
+import java.util.Arrays;
+
+/**
+ * An immutable sparse matrix in compressed sparse row (CSR) form: only the nonzero entries are
+ * stored, row by row, with the column indices within each row increasing. Memory use and the cost
+ * of operations grow with the number of nonzeros rather than with rows times columns. Build one
+ * from individual entries with a Builder, or from a dense array with of().
+ */
+public final class SparseMatrix {
+
+    private final int rows;
+    private final int cols;
+
+    /**
+     * The entries of row i are at indices rowPtr[i] to rowPtr[i + 1] - 1 of colIdx and values.
+     */
+    private final int[] rowPtr;
+    private final int[] colIdx;
+    private final double[] values;
+
+    /**
+     * Create a matrix from its CSR arrays, which are not copied. Requires the arrays describe a
+     * valid `rows`-by-`cols` CSR matrix with increasing column indices within each row.
+     */
+    SparseMatrix(int rows, int cols, int[] rowPtr, int[] colIdx, double[] values) {
+        assert rowPtr.length == rows + 1 && colIdx.length == values.length;
+        assert rowPtr[rows] == colIdx.length;
+        this.rows = rows;
+        this.cols = cols;
+        this.rowPtr = rowPtr;
+        this.colIdx = colIdx;
+        this.values = values;
+    }
+
+    /**
+     * Returns a sparse matrix with the same entries as the rectangular matrix `mat`, storing only
+     * its nonzero entries.
+     */
+    public static SparseMatrix of(double[][] mat) {
+        int rows = mat.length;
+        int cols = mat[0].length;
+        int[] rowPtr = new int[rows + 1];
+        for (int i = 0; i < rows; i++) {
+            assert mat[i].length == cols;
+            int count = 0;
+            for (double value : mat[i]) {
+                if (value != 0) {
+                    count++;
+                }
+            }
+            rowPtr[i + 1] = rowPtr[i] + count;
+        }
+        int[] colIdx = new int[rowPtr[rows]];
+        double[] values = new double[rowPtr[rows]];
+        for (int i = 0, p = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (mat[i][j] != 0) {
+                    colIdx[p] = j;
+                    values[p] = mat[i][j];
+                    p++;
+                }
+            }
+        }
+        return new SparseMatrix(rows, cols, rowPtr, colIdx, values);
+    }
+
+    /**
+     * Returns the number of rows.
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns.
+     */
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * Returns the number of stored entries.
+     */
+    public int nonZeros() {
+        return colIdx.length;
+    }
+
+    /**
+     * Returns the entry in row `i` and column `j`, which is 0 if it is not stored.
+     */
+    public double get(int i, int j) {
+        assert 0 <= i && i < rows && 0 <= j && j < cols;
+        int p = Arrays.binarySearch(colIdx, rowPtr[i], rowPtr[i + 1], j);
+        return p >= 0 ? values[p] : 0;
+    }
+
+    /**
+     * Returns the product of this matrix and the vector `vec`. Requires the length of `vec`
+     * equals the number of columns.
+     */
+    public double[] multiply(double[] vec) {
+        double[] toReturn = new double[rows];
+        multiply(vec, toReturn);
+        return toReturn;
+    }
+
+    /**
+     * Stores the product of this matrix and the vector `vec` in `result`. Requires the length of
+     * `vec` equals the number of columns, the length of `result` equals the number of rows, and
+     * `vec` and `result` are different arrays.
+     */
+    public void multiply(double[] vec, double[] result) {
+        assert vec.length == cols && result.length == rows && vec != result;
+
+        for (int i = 0; i < rows; i++) {
+            double sum = 0;
+            for (int p = rowPtr[i]; p < rowPtr[i + 1]; p++) {
+                sum += values[p] * vec[colIdx[p]];
+            }
+            result[i] = sum;
+        }
+    }
+
+    /**
+     * Returns the transpose of this matrix. The CSR form of the transpose is the compressed sparse
+     * column (CSC) form of this matrix.
+     */
+    public SparseMatrix transpose() {
+        int[] tRowPtr = new int[cols + 1];
+        for (int p = 0; p < colIdx.length; p++) {
+            tRowPtr[colIdx[p] + 1]++;
+        }
+        for (int j = 0; j < cols; j++) {
+            tRowPtr[j + 1] += tRowPtr[j];
+        }
+        int[] next = Arrays.copyOf(tRowPtr, cols);
+        int[] tColIdx = new int[colIdx.length];
+        double[] tValues = new double[colIdx.length];
+        // Visiting rows in order keeps the column indices of the transpose increasing
+        for (int i = 0; i < rows; i++) {
+            for (int p = rowPtr[i]; p < rowPtr[i + 1]; p++) {
+                int q = next[colIdx[p]]++;
+                tColIdx[q] = i;
+                tValues[q] = values[p];
+            }
+        }
+        return new SparseMatrix(cols, rows, tRowPtr, tColIdx, tValues);
+    }
+
+    /**
+     * Returns the entries as a new dense array.
+     */
+    public double[][] toArray() {
+        double[][] toReturn = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int p = rowPtr[i]; p < rowPtr[i + 1]; p++) {
+                toReturn[i][colIdx[p]] = values[p];
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * Returns whether this matrix has the same dimensions and stores entries in the same positions
+     * as `other`.
+     */
+    public boolean samePattern(SparseMatrix other) {
+        return rows == other.rows && cols == other.cols && Arrays.equals(rowPtr, other.rowPtr)
+                && Arrays.equals(colIdx, other.colIdx);
+    }
+
+    /**
+     * Returns the row pointer array; see rowPtr. The array must not be modified.
+     */
+    int[] rowPointers() {
+        return rowPtr;
+    }
+
+    /**
+     * Returns the column index of each stored entry. The array must not be modified.
+     */
+    int[] columnIndices() {
+        return colIdx;
+    }
+
+    /**
+     * Returns the value of each stored entry. The array must not be modified.
+     */
+    double[] entries() {
+        return values;
+    }
+
+    /**
+     * Collects the entries of a sparse matrix in any order. Entries added more than once at the
+     * same position are summed.
+     */
+    public static final class Builder {
+
+        private final int rows;
+        private final int cols;
+        private int count;
+        private int[] entryRows = new int[16];
+        private int[] entryCols = new int[16];
+        private double[] entryValues = new double[16];
+
+        /**
+         * Create a builder for a `rows`-by-`cols` matrix with no entries. Requires `rows` and
+         * `cols` are positive.
+         */
+        public Builder(int rows, int cols) {
+            assert rows > 0 && cols > 0;
+            this.rows = rows;
+            this.cols = cols;
+        }
+
+        /**
+         * Adds `value` to the entry in row `i` and column `j`, and returns this builder.
+         * Requires 0 <= i < rows and 0 <= j < cols.
+         */
+        public Builder add(int i, int j, double value) {
+            assert 0 <= i && i < rows && 0 <= j && j < cols;
+            if (count == entryRows.length) {
+                int capacity = 2 * count;
+                entryRows = Arrays.copyOf(entryRows, capacity);
+                entryCols = Arrays.copyOf(entryCols, capacity);
+                entryValues = Arrays.copyOf(entryValues, capacity);
+            }
+            entryRows[count] = i;
+            entryCols[count] = j;
+            entryValues[count] = value;
+            count++;
+            return this;
+        }
+
+        /**
+         * Returns the matrix holding the entries added so far.
+         */
+        public SparseMatrix build() {
+            // Bucket the entries by column, then stably by row, so that each row's entries are
+            // sorted by column; both passes take time linear in the number of entries
+            int[] byCol = bucket(entryCols, cols, identity(count));
+            int[] order = bucket(entryRows, rows, byCol);
+            int[] rowPtr = new int[rows + 1];
+            int[] colIdx = new int[count];
+            double[] values = new double[count];
+            int nnz = 0;
+            int last = -1;
+            for (int k = 0; k < count; k++) {
+                int e = order[k];
+                int i = entryRows[e];
+                int j = entryCols[e];
+                // Entries at the same position are adjacent after sorting
+                if (last >= 0 && entryRows[last] == i && entryCols[last] == j) {
+                    values[nnz - 1] += entryValues[e];
+                } else {
+                    colIdx[nnz] = j;
+                    values[nnz] = entryValues[e];
+                    rowPtr[i + 1]++;
+                    nnz++;
+                }
+                last = e;
+            }
+            for (int i = 0; i < rows; i++) {
+                rowPtr[i + 1] += rowPtr[i];
+            }
+            return new SparseMatrix(rows, cols, rowPtr, Arrays.copyOf(colIdx, nnz),
+                    Arrays.copyOf(values, nnz));
+        }
+
+        /**
+         * Returns the entries listed in `order`, stably sorted by their key in `keys`, where keys
+         * are between 0 and `range` - 1.
+         */
+        private int[] bucket(int[] keys, int range, int[] order) {
+            int[] start = new int[range + 1];
+            for (int k = 0; k < count; k++) {
+                start[keys[k] + 1]++;
+            }
+            for (int b = 0; b < range; b++) {
+                start[b + 1] += start[b];
+            }
+            int[] sorted = new int[count];
+            for (int e : order) {
+                sorted[start[keys[e]]++] = e;
+            }
+            return sorted;
+        }
+
+        /**
+         * Returns the array 0, 1, ..., n - 1.
+         */
+        private static int[] identity(int n) {
+            int[] toReturn = new int[n];
+            for (int k = 0; k < n; k++) {
+                toReturn[k] = k;
+            }
+            return toReturn;
+        }
+    }
+}
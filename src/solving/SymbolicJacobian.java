@@ -0,0 +1,54 @@
+package solving;
+
+import expressions.*;
+import expressions.exceptions.*;
+
+/**
+ * A SystemEvaluator that differentiates every equation symbolically, and evaluates the equations
+ * and all derivatives as one shared DAG, since the derivatives repeat many subexpressions of the
+ * equations and of each other.
+ */
+final class SymbolicJacobian implements SystemEvaluator {
+
+    private final int dim;
+
+    private final DagEvaluator evaluator;
+
+    /**
+     * Evaluates the equations alone, without their derivatives.
+     */
+    private final DagEvaluator valueEvaluator;
+
+    /**
+     * The equations' values followed by the Jacobian's entries in row-major order.
+     */
+    private final double[] results;
+
+    SymbolicJacobian(Expression[] equations, String[] vars) throws UnboundVariableException {
+        dim = equations.length;
+        Expression[] system = new Expression[dim + dim * dim];
+        for (int i = 0; i < dim; i++) {
+            system[i] = equations[i];
+            for (int j = 0; j < dim; j++) {
+                system[dim + i * dim + j] = equations[i].differentiate(vars[j]);
+            }
+        }
+        evaluator = new DagEvaluator(system, vars);
+        valueEvaluator = new DagEvaluator(equations, vars);
+        results = new double[system.length];
+    }
+
+    @Override
+    public void evaluate(double[] point, double[] values, double[][] jacobian) {
+        evaluator.eval(point, results);
+        System.arraycopy(results, 0, values, 0, dim);
+        for (int i = 0; i < dim; i++) {
+            System.arraycopy(results, dim + i * dim, jacobian[i], 0, dim);
+        }
+    }
+
+    @Override
+    public void evaluate(double[] point, double[] values) {
+        valueEvaluator.eval(point, values);
+    }
+}
@@ -0,0 +1,20 @@
+package solving;
+
+/**
+ * Computes the values and the Jacobian of a fixed system of equations at a given point, as
+ * needed by each iteration of Newton's method, or the values alone, as needed by most iterations
+ * of Broyden's method.
+ */
+interface SystemEvaluator {
+
+    /**
+     * Stores the value of equation i at `point` in `values[i]` and its partial derivative with
+     * respect to variable j in `jacobian[i][j]`.
+     */
+    void evaluate(double[] point, double[] values, double[][] jacobian);
+
+    /**
+     * Stores the value of equation i at `point` in `values[i]`, without computing the Jacobian.
+     */
+    void evaluate(double[] point, double[] values);
+}
@@ -3,12 +3,24 @@ package solving;
 import expressions.*;
 import expressions.exceptions.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Class for solving systems of equations.
  */
 public class SystemSolver {
 
+    /**
+     * The row operations used by row reduction, vectorized when the Vector API is available.
+     */
+    private static final RowKernels KERNELS = RowKernels.best();
+
+    /**
+     * POWERS_OF_TEN[k] is 10^k, which Math.pow(10, k) computes exactly, for use by round.
+     */
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8,
+            1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15};
+
     /**
      * Returns a solution as computed by Newton's method beginning at the point `start` to the
      * system of equations specified by setting each of the Expressions in `equations` to 0.
@@ -22,41 +34,36 @@ public class SystemSolver {
      */
     public static double[] nonlinear_solve(Expression[] equations, String[] vars, double[] start)
             throws SolvingException {
+        return nonlinear_solve(equations, vars, start, JacobianStrategy.SYMBOLIC);
+    }
+
+    /**
+     * Returns a solution as computed by Newton's method beginning at the point `start` to the
+     * system of equations specified by setting each of the Expressions in `equations` to 0, as in
+     * nonlinear_solve(equations, vars, start), computing the Jacobian at each iteration with
+     * `strategy`.
+     */
+    public static double[] nonlinear_solve(Expression[] equations, String[] vars, double[] start,
+            JacobianStrategy strategy) throws SolvingException {
         assert equations.length == vars.length && vars.length == start.length;
 
         int dim = equations.length;
-        // Creating Jacobian matrix
-        Expression[][] jacobian = new Expression[dim][dim];
-        for (int i = 0; i < dim; i++) {
-            for (int j = 0; j < dim; j++) {
-                jacobian[i][j] = equations[i].differentiate(vars[j]);
-            }
+        SystemEvaluator evaluator;
+        try {
+            evaluator = strategy.evaluator(equations, vars);
+        } catch (UnboundVariableException e) {
+            // Equations must only depend on the variables in `vars`
+            throw new RuntimeException(e);
         }
         double[] curPoint = start;
         double[][] df = new double[dim][dim];
-        MapVarTable varmap = MapVarTable.of(vars, curPoint);
         double[] bvector = new double[dim];
         int iterCount = 0;
         while (true) {
-            // Creating derivative matrix at curPoint
-            for (int i = 0; i < dim; i++) {
-                for (int j = 0; j < dim; j++) {
-                    try {
-                        df[i][j] = jacobian[i][j].eval(varmap);
-                    } catch (UnboundVariableException e) {
-                        // Shouldn't happen since we are using the same variable list `vars`
-                        throw new RuntimeException(e);
-                    }
-                }
-            }
-            // Calculating negation of system of equations evaluated at curPoint
+            // Creating derivative matrix and negation of system of equations at curPoint
+            evaluator.evaluate(curPoint, bvector, df);
             for (int i = 0; i < dim; i++) {
-                try {
-                    bvector[i] = -1.0 * equations[i].eval(varmap);
-                } catch (UnboundVariableException e) {
-                    // Shouldn't happen since we are using the same variable list `vars`
-                    throw new RuntimeException(e);
-                }
+                bvector[i] = -1.0 * bvector[i];
             }
             // Calculate nextPoint - curPoint in [Df(curPoint)](nextPoint - curPoint) = bvector
             double[] tempPoint = linear_solve(df, bvector);
@@ -73,16 +80,177 @@ public class SystemSolver {
             } else if (iterCount >= 12) {
                 throw new SolvingException("Did not converge within 12 iterations.");
             } else {
-                // Set curPoint to nextPoint and update varmap
+                // Set curPoint to nextPoint
                 for (int i = 0; i < dim; i++) {
                     curPoint[i] = tempPoint[i] + curPoint[i];
                 }
-                varmap = MapVarTable.of(vars, curPoint);
                 iterCount++;
             }
         }
     }
 
+    /**
+     * Returns a solution as computed by Broyden's method beginning at the point `start` to the
+     * system of equations specified by setting each of the Expressions in `equations` to 0, as
+     * nonlinear_solve(equations, vars, start) does, with the Jacobian computed symbolically.
+     */
+    public static double[] nonlinear_solve_broyden(Expression[] equations, String[] vars,
+            double[] start) throws SolvingException {
+        return nonlinear_solve_broyden(equations, vars, start, JacobianStrategy.SYMBOLIC);
+    }
+
+    /**
+     * Returns a solution as computed by Broyden's ("good") method beginning at the point `start`
+     * to the system of equations specified by setting each of the Expressions in `equations` to
+     * 0. The Jacobian is computed with `strategy` and inverted only at `start` and whenever an
+     * iteration fails to halve the norm of the equations' values (undoing the iteration first if
+     * it increased the norm and did not use the true Jacobian); every other iteration
+     * evaluates the equations alone and updates the inverse by the Sherman-Morrison formula, in
+     * O(n^2) time instead of the O(n^2) derivative evaluations and O(n^3) row reduction of a
+     * Newton iteration. Convergence is superlinear rather than quadratic, so more, cheaper
+     * iterations are taken. `start` is not modified. Requires `equations`, `vars`, and `start`
+     * all have the same length. Throws SolvingException if iteration has not converged after 50
+     * iterations or if a Jacobian that is computed is not invertible. Convergence is defined as
+     * in nonlinear_solve, the step being rounded to 14 decimal places before its norm is compared
+     * with 1e-15, and is only accepted for a step taken with the true Jacobian. All returned
+     * values are rounded to 14 decimal places.
+     */
+    public static double[] nonlinear_solve_broyden(Expression[] equations, String[] vars,
+            double[] start, JacobianStrategy strategy) throws SolvingException {
+        assert equations.length == vars.length && vars.length == start.length;
+
+        int dim = equations.length;
+        SystemEvaluator evaluator;
+        try {
+            evaluator = strategy.evaluator(equations, vars);
+        } catch (UnboundVariableException e) {
+            // Equations must only depend on the variables in `vars`
+            throw new RuntimeException(e);
+        }
+        double[] curPoint = start.clone();
+        double[] values = new double[dim];
+        double[] nextValues = new double[dim];
+        double[][] df = new double[dim][dim];
+        double[] step = new double[dim];
+        double[] change = new double[dim];
+        double[] inverseChange = new double[dim];
+        double[] stepInverse = new double[dim];
+
+        evaluator.evaluate(curPoint, values, df);
+        // inverse approximates the inverse of the Jacobian at curPoint
+        double[][] inverse = new LUDecomposition(df).inverse();
+        double valueNorm = norm(values);
+        // Whether inverse is the inverse of the true Jacobian at curPoint, not an update of one
+        boolean exact = true;
+        int iterCount = 0;
+        while (true) {
+            // Quasi-Newton step: inverse * -values, rounded to 14 decimal places as linear_solve
+            // rounds Newton's steps, so that noise in the values cannot keep the step above 1e-15
+            for (int i = 0; i < dim; i++) {
+                double[] row = inverse[i];
+                double sum = 0;
+                for (int j = 0; j < dim; j++) {
+                    sum -= row[j] * values[j];
+                }
+                step[i] = round(sum, 14);
+            }
+            if (norm(step) < 1e-15 && !exact) {
+                // Only a step with the true Jacobian can confirm convergence, since an updated
+                // inverse may underestimate the remaining step
+                evaluator.evaluate(curPoint, values, df);
+                inverse = new LUDecomposition(df).inverse();
+                valueNorm = norm(values);
+                exact = true;
+                continue;
+            } else if (norm(step) < 1e-15) {
+                for (int i = 0; i < dim; i++) {
+                    curPoint[i] = round(curPoint[i], 14);
+                }
+                return curPoint;
+            } else if (iterCount >= 50) {
+                throw new SolvingException("Did not converge within 50 iterations.");
+            }
+            for (int i = 0; i < dim; i++) {
+                curPoint[i] += step[i];
+            }
+            iterCount++;
+
+            evaluator.evaluate(curPoint, nextValues);
+            double nextNorm = norm(nextValues);
+            for (int i = 0; i < dim; i++) {
+                change[i] = nextValues[i] - values[i];
+            }
+            // The Sherman-Morrison update of the inverse for the rank-one update of the Jacobian
+            // taking step to change is inverse + (step - inverse * change) (step^T inverse) / d,
+            // where d = step^T inverse * change
+            double denominator = 0;
+            for (int i = 0; i < dim; i++) {
+                double[] row = inverse[i];
+                double sum = 0;
+                for (int j = 0; j < dim; j++) {
+                    sum += row[j] * change[j];
+                }
+                inverseChange[i] = sum;
+                denominator += step[i] * sum;
+            }
+            boolean wellConditioned =
+                    Math.abs(denominator) > 1e-12 * norm(step) * norm(inverseChange);
+            if (!(nextNorm <= valueNorm / 2) || !wellConditioned) {
+                // Convergence has slowed, or the update would be ill-conditioned, so start again
+                // from the true Jacobian. A quasi-Newton step that made the values larger is
+                // undone first, so that Broyden's method never strays further than Newton's would
+                if (!exact && !(nextNorm <= valueNorm)) {
+                    for (int i = 0; i < dim; i++) {
+                        curPoint[i] -= step[i];
+                    }
+                }
+                evaluator.evaluate(curPoint, values, df);
+                inverse = new LUDecomposition(df).inverse();
+                valueNorm = norm(values);
+                exact = true;
+                continue;
+            }
+            Arrays.fill(stepInverse, 0);
+            for (int i = 0; i < dim; i++) {
+                double coefficient = step[i];
+                double[] row = inverse[i];
+                for (int j = 0; j < dim; j++) {
+                    stepInverse[j] += coefficient * row[j];
+                }
+            }
+            for (int i = 0; i < dim; i++) {
+                double coefficient = (step[i] - inverseChange[i]) / denominator;
+                double[] row = inverse[i];
+                for (int j = 0; j < dim; j++) {
+                    row[j] += coefficient * stepInverse[j];
+                }
+            }
+            double[] temp = values;
+            values = nextValues;
+            nextValues = temp;
+            valueNorm = nextNorm;
+            exact = false;
+        }
+    }
+
+    /**
+     * Returns the Euclidean norm of `vec`.
+     */
+    private static double norm(double[] vec) {
+        return Math.sqrt(dot(vec, vec));
+    }
+
+    /**
+     * Returns the dot product of `vec1` and `vec2`. Requires they have the same length.
+     */
+    private static double dot(double[] vec1, double[] vec2) {
+        double sum = 0;
+        for (int i = 0; i < vec1.length; i++) {
+            sum += vec1[i] * vec2[i];
+        }
+        return sum;
+    }
+
     /**
      * Returns the unique solution vector x to the system of linear equations Ax = b where A is the
      * square matrix 'mat' and b is the vector 'vec'. Requires `mat` is a square matrix with each
@@ -90,38 +258,262 @@ public class SystemSolver {
      * solution to the system or if there are infinitely many solutions. For non-square matrices
      * or sparse matrices for which there are likely infinitely many solutions, use
      * linear_solve_general instead. All returned values are rounded to 14 decimal places to
-     * account for accumulating floating point errors.
+     * account for accumulating floating point errors. To solve several systems with the same
+     * matrix, factor it once with LUDecomposition instead. Band matrices whose bandwidth is small
+     * next to their dimension are solved in band storage, with tridiagonal_solve if they are
+     * tridiagonal and diagonally dominant and with BandLU otherwise. Other symmetric matrices
+     * with a positive diagonal are first tried with the cheaper CholeskyDecomposition, falling
+     * back to row reduction if they turn out not to be positive definite.
      */
     public static double[] linear_solve(double[][] mat, double[] vec) throws SolvingException {
         assert mat.length == mat[0].length && mat.length == vec.length;
 
         int dim = mat.length;
-        // Creating the augmented matrix
-        double[][] augment = augment(mat, vec);
-        // Row reduction
-        for (int j = 0; j < dim; j++) {
-            // Partial pivoting
-            int maxIdx = partialPivot(augment, j, j);
-            // Swapping pivot row into jth row
-            swapRows(augment, j, maxIdx);
-            // Scaling jth row (pivot won't be zero by check above)
-            scaleRow(augment, j, 1 / augment[j][j]);
-            // Elimination step (partial row reduction, so only care about lower rows)
-            eliminateBelow(augment, j, j);
+        int lower = BandMatrix.lowerBandwidth(mat);
+        int upper = BandMatrix.upperBandwidth(mat);
+        if (3 * (lower + upper) < dim) {
+            if (lower <= 1 && upper <= 1 && diagonallyDominant(mat)) {
+                double[] sub = new double[dim - 1];
+                double[] diag = new double[dim];
+                double[] sup = new double[dim - 1];
+                for (int i = 0; i < dim; i++) {
+                    diag[i] = mat[i][i];
+                    if (i + 1 < dim) {
+                        sub[i] = mat[i + 1][i];
+                        sup[i] = mat[i][i + 1];
+                    }
+                }
+                return tridiagonal_solve(sub, diag, sup, vec);
+            }
+            return band_solve(BandMatrix.of(mat), vec);
+        }
+        if (CholeskyDecomposition.isCandidate(mat)) {
+            try {
+                return new CholeskyDecomposition(mat).solve(vec);
+            } catch (SolvingException e) {
+                // Not positive definite; row reduction decides whether it is singular
+            }
+        }
+        // Row reduction of the matrix, kept as an LU factorization, then substitution with vec
+        return new LUDecomposition(mat).solve(vec);
+    }
+
+    /**
+     * Returns the unique solution vector x to the system of linear equations Ax = b where A is the
+     * square matrix `mat` and b is the vector `vec`, as linear_solve does, factoring `mat` in
+     * single precision with MixedPrecisionLU and refining the solution to double-precision
+     * accuracy, which is faster for large well-conditioned matrices. Falls back to
+     * double-precision row reduction if refinement stalls. Requires `mat` is square with
+     * dimension equal to the length of `vec`. Throws SolvingException if the matrix is singular.
+     * All returned values are rounded to 14 decimal places.
+     */
+    public static double[] linear_solve_mixed(double[][] mat, double[] vec)
+            throws SolvingException {
+        assert mat.length == mat[0].length && mat.length == vec.length;
+
+        return new MixedPrecisionLU(mat).solve(vec);
+    }
+
+    /**
+     * Returns the exact unique solution vector x to the system of linear equations Ax = b where A
+     * is the square matrix `mat` and b is the vector `vec` of rational numbers, computed by
+     * ExactSolver without any rounding. Requires `mat` is a square matrix with each dimension
+     * being the same as the length of `vec`. Throws SolvingException if `mat` is singular, which
+     * is decided exactly rather than by comparing pivots with 1e-15.
+     */
+    public static Rational[] linear_solve_exact(Rational[][] mat, Rational[] vec)
+            throws SolvingException {
+        assert mat.length == mat[0].length && mat.length == vec.length;
+
+        return ExactSolver.solve(mat, vec);
+    }
+
+    /**
+     * Returns the exact unique solution vector x to the system of linear equations Ax = b where A
+     * is the square matrix `mat` and b is the vector `vec`, taking each entry as the exact value
+     * of its double, as linear_solve_exact(Rational[][], Rational[]) does. Intended for integer
+     * systems and others whose entries are exactly representable; 0.1, for instance, is taken to
+     * be 3602879701896397/36028797018963968. Requires `mat` is a square matrix with each
+     * dimension being the same as the length of `vec`. Throws SolvingException if `mat` is
+     * singular.
+     */
+    public static Rational[] linear_solve_exact(double[][] mat, double[] vec)
+            throws SolvingException {
+        assert mat.length == mat[0].length && mat.length == vec.length;
+
+        Rational[][] exactMat = new Rational[mat.length][];
+        Rational[] exactVec = new Rational[vec.length];
+        for (int i = 0; i < mat.length; i++) {
+            exactMat[i] = new Rational[mat[i].length];
+            for (int j = 0; j < mat[i].length; j++) {
+                exactMat[i][j] = Rational.valueOf(mat[i][j]);
+            }
+            exactVec[i] = Rational.valueOf(vec[i]);
+        }
+        return ExactSolver.solve(exactMat, exactVec);
+    }
+
+    /**
+     * Returns the unique solution vector x to the system of linear equations Ax = b where A is the
+     * matrix `mat` stored in a file and b is the vector `vec`, for matrices too large to fit in
+     * memory. The matrix is factored in place with OutOfCoreLU, so its entries are overwritten by
+     * the factors, and the solution is identical to that of LUDecomposition. Requires the
+     * dimension of `mat` equals the length of `vec`. Throws SolvingException if the matrix is
+     * singular. All returned values are rounded to 14 decimal places.
+     */
+    public static double[] linear_solve(TiledMatrix mat, double[] vec) throws SolvingException {
+        assert mat.dimension() == vec.length;
+
+        return new OutOfCoreLU(mat).solve(vec);
+    }
+
+    /**
+     * Stores in `out` the unique solution x to Ax = b where A is the square matrix `mat` and b is
+     * `vec`, neither of which is modified, as computed by LUDecomposition, keeping the
+     * factorization and its buffers in `workspace` so that nothing is allocated. All stored
+     * values are rounded to 14 decimal places, as in linear_solve. Requires `mat`, `vec` and
+     * `out` have the dimension of `workspace`, and `out` is not `vec`. Throws SolvingException if
+     * `mat` is singular, i.e. some column has no pivot at least 1e-15 in absolute value during
+     * elimination.
+     */
+    public static void solveInto(SolverWorkspace workspace, double[][] mat, double[] vec,
+            double[] out) throws SolvingException {
+        solveInto(workspace, mat, vec, out, true);
+    }
+
+    /**
+     * Stores in `out` the unique solution x to Ax = b where A is the square matrix `mat` and b is
+     * `vec`, as solveInto(workspace, mat, vec, out) does, rounding the stored values to 14
+     * decimal places only if `round` is true.
+     */
+    public static void solveInto(SolverWorkspace workspace, double[][] mat, double[] vec,
+            double[] out, boolean round) throws SolvingException {
+        workspace.factor(mat);
+        workspace.substitute(vec, out);
+        if (round) {
+            for (int i = 0; i < out.length; i++) {
+                out[i] = round(out[i], 14);
+            }
+        }
+    }
+
+    /**
+     * Returns whether each diagonal entry of the square matrix `mat` is at least as large in
+     * absolute value as the sum of the absolute values of the other entries in its row.
+     */
+    private static boolean diagonallyDominant(double[][] mat) {
+        for (int i = 0; i < mat.length; i++) {
+            double offDiagonal = 0;
+            for (int j = Math.max(0, i - 1); j <= Math.min(mat.length - 1, i + 1); j++) {
+                if (j != i) {
+                    offDiagonal += Math.abs(mat[i][j]);
+                }
+            }
+            if (Math.abs(mat[i][i]) < offDiagonal) {
+                return false;
+            }
         }
-        // Back substitution (only suitable for unique solution systems)
-        double[] ansVector = new double[dim];
-        for (int i = dim - 1; i >= 0; i--) {
-            double rowSum = augment[i][dim];
-            for (int k = dim - 1; k > i; k--) {
-                rowSum -= augment[i][k] * ansVector[k];
+        return true;
+    }
+
+    /**
+     * Returns the unique solution vector x to the tridiagonal system of linear equations Ax = b,
+     * where A has `diag` on its main diagonal, `sub` below it and `sup` above it (so sub[i] is
+     * entry (i + 1, i) and sup[i] is entry (i, i + 1)), and b is the vector `vec`. Uses the Thomas
+     * algorithm, elimination without pivoting in O(n) time, which is stable when A is diagonally
+     * dominant; otherwise use band_solve. Requires `diag` and `vec` have the same length n, and
+     * `sub` and `sup` have length n - 1. Throws SolvingException if a pivot is less than 1e-15 in
+     * absolute value. All returned values are rounded to 14 decimal places.
+     */
+    public static double[] tridiagonal_solve(double[] sub, double[] diag, double[] sup,
+            double[] vec) throws SolvingException {
+        int dim = diag.length;
+        assert vec.length == dim && sub.length == dim - 1 && sup.length == dim - 1;
+
+        // Forward elimination, scaling each row so that U has a unit diagonal
+        double[] upper = new double[dim];
+        double[] x = new double[dim];
+        double previousUpper = 0;
+        double previousX = 0;
+        for (int i = 0; i < dim; i++) {
+            double below = i > 0 ? sub[i - 1] : 0;
+            double pivot = diag[i] - below * previousUpper;
+            if (Math.abs(pivot) < 1e-15) {
+                throw new SolvingException("No pivot in column " + i + " of input matrix");
             }
-            ansVector[i] = rowSum;
+            double scaleFactor = 1 / pivot;
+            previousUpper = i + 1 < dim ? scaleFactor * sup[i] : 0;
+            previousX = scaleFactor * (vec[i] - below * previousX);
+            upper[i] = previousUpper;
+            x[i] = previousX;
+        }
+        // Back substitution
+        for (int i = dim - 2; i >= 0; i--) {
+            x[i] -= upper[i] * x[i + 1];
         }
         for (int i = 0; i < dim; i++) {
-            ansVector[i] = round(ansVector[i], 14);
+            x[i] = round(x[i], 14);
         }
-        return ansVector;
+        return x;
+    }
+
+    /**
+     * Returns the unique solution vector x to the system of linear equations Ax = b where A is the
+     * band matrix `mat` and b is the vector `vec`, by LU factorization with partial pivoting in
+     * band storage. Requires the dimension of `mat` equals the length of `vec`. Throws
+     * SolvingException if the matrix is singular. All returned values are rounded to 14 decimal
+     * places.
+     */
+    public static double[] band_solve(BandMatrix mat, double[] vec) throws SolvingException {
+        assert mat.dimension() == vec.length;
+
+        return new BandLU(mat).solve(vec);
+    }
+
+    /**
+     * Returns the unique solution vector x to the system of linear equations Ax = b where A is the
+     * square sparse matrix `mat` and b is the vector `vec`, as linear_solve does for dense
+     * matrices. The matrix is factored with SparseLU, so memory and time grow with the number of
+     * nonzeros in `mat` and its factors rather than with the square of its dimension. Requires
+     * `mat` is square with dimension equal to the length of `vec`. Throws SolvingException if the
+     * matrix is singular. All returned values are rounded to 14 decimal places.
+     */
+    public static double[] sparse_solve(SparseMatrix mat, double[] vec) throws SolvingException {
+        assert mat.rows() == mat.cols() && mat.rows() == vec.length;
+
+        return new SparseLU(mat).solve(vec);
+    }
+
+    /**
+     * Returns the unique solution vector x to the system of linear equations Ax = b where A is the
+     * square matrix `mat` stored off the heap and b is the vector `vec`, as linear_solve does for
+     * matrices on the heap. The matrix is factored in place with OffHeapLU, so its entries are
+     * overwritten by the factors and only O(n) memory is used on the heap. Requires `mat` is
+     * square with dimension equal to the length of `vec`. Throws SolvingException if the matrix
+     * is singular. All returned values are rounded to 14 decimal places.
+     */
+    public static double[] offheap_solve(OffHeapMatrix mat, double[] vec)
+            throws SolvingException {
+        assert mat.rows() == mat.cols() && mat.rows() == vec.length;
+
+        return new OffHeapLU(mat).solve(vec);
+    }
+
+    /**
+     * Returns the least-squares solution x to the system of linear equations Ax = b where A is the
+     * rectangular matrix `mat` and b is the vector `vec`: the x minimizing the norm of b - Ax,
+     * which is the unique solution when one exists. Neither input is copied; use LeastSquares
+     * directly to add the rows in batches or to find the residual norm. Requires `mat` has at
+     * least as many rows as columns and the length of `vec` equals the number of rows. Throws
+     * SolvingException if `mat` does not have full column rank. All returned values are rounded
+     * to 14 decimal places.
+     */
+    public static double[] least_squares(double[][] mat, double[] vec) throws SolvingException {
+        assert mat.length >= mat[0].length && mat.length == vec.length;
+
+        LeastSquares problem = new LeastSquares(mat[0].length);
+        problem.addRows(mat, vec);
+        return problem.solution();
     }
 
     /**
@@ -130,15 +522,32 @@ public class SystemSolver {
      * A is the rectangular m-by-n matrix `mat` and b is the m-vector `vec`. Requires `mat` is a
      * rectangular matrix whose number of rows is equal to the length of `vec`. Throws
      * SolvingException if there is no solution to the system. All returned values are rounded to
-     * 14 decimal places to account for accumulating floating point errors.
+     * 14 decimal places to account for accumulating floating point errors. For overdetermined
+     * systems that may be inconsistent, use least_squares instead. To use the solutions
+     * numerically, call solution_space instead of parsing these strings.
      */
     public static ArrayList<String> linear_solve_general(double[][] mat, double[] vec)
             throws SolvingException {
+        return solution_space(mat, vec).equations();
+    }
+
+    /**
+     * Returns the solution set of the system of linear equations Ax = b where A is the rectangular
+     * m-by-n matrix `mat` and b is the m-vector `vec`, as a particular solution, pivot columns,
+     * free variables and a basis of the null space of A. Its equations() are the strings returned
+     * by linear_solve_general. Requires `mat` is a rectangular matrix whose number of rows is
+     * equal to the length of `vec`. Throws SolvingException if there is no solution to the
+     * system. All values are computed from the reduced row echelon form of [A | b] rounded to 14
+     * decimal places to account for accumulating floating point errors.
+     */
+    public static SolutionSpace solution_space(double[][] mat, double[] vec)
+            throws SolvingException {
         assert mat.length == vec.length;
 
         int rows = mat.length;
         int cols = mat[0].length;
         double[][] augment = augment(mat, vec);
+        int[] pivots = new int[Math.min(rows, cols)];
         int curCol = 0;
         int curRow = 0;
         while (curCol < cols && curRow < rows) {
@@ -147,60 +556,35 @@ public class SystemSolver {
                 int maxIdx = partialPivot(augment, curCol, curRow);
                 swapRows(augment, curRow, maxIdx);
                 scaleRow(augment, curRow, 1 / augment[curRow][curCol]);
-                eliminate(augment, curRow, curCol);
+                eliminateParallel(augment, curRow, curCol);
+                pivots[curRow] = curCol;
                 curRow++;
                 curCol++;
             } catch (SolvingException e) {
                 curCol++;
             }
         }
-        // Rounding matrix entries before converting into Strings
+        // Rounding matrix entries, then keeping the rows that are not entirely zero, which
+        // include every pivot row
+        int nonzeroRows = 0;
         for (int i = 0; i < rows; i++) {
+            boolean isZero = true;
             for (int j = 0; j < cols + 1; j++) {
                 augment[i][j] = round(augment[i][j], 14);
+                isZero = isZero && (j == cols || augment[i][j] == 0);
             }
-        }
-        // Reading result into ArrayList of Strings giving the final equations in terms of
-        // variables x1, x2, etc.
-        ArrayList<String> toReturn = new ArrayList<>();
-        for (int i = 0; i < rows; i++) {
-            StringBuilder temp = new StringBuilder();
-            for (int j = 0; j < cols; j++) {
-                if (augment[i][j] != 0) {
-                    if (temp.isEmpty()) {
-                        if (augment[i][j] == 1) {
-                            temp.append("x").append(j + 1);
-                        } else {
-                            temp.append(augment[i][j]).append("x").append(j + 1);
-                        }
-                    } else if (augment[i][j] < 0) {
-                        if (augment[i][j] == -1) {
-                            temp.append(" - ").append("x").append(j + 1);
-                        } else {
-                            temp.append(" - ").append(-1.0 * augment[i][j]).append("x")
-                                    .append(j + 1);
-                        }
-                    } else {
-                        if (augment[i][j] == 1) {
-                            temp.append(" + ").append("x").append(j + 1);
-                        } else {
-                            temp.append(" + ").append(augment[i][j]).append("x").append(j + 1);
-                        }
-                    }
-                }
-            }
-            if (temp.isEmpty()) {
+            if (isZero) {
                 // If entire row zero but last entry is nonzero, no solutions; if last entry zero,
                 // then equation does not contribute to results
                 if (augment[i][cols] != 0) {
                     throw new SolvingException("System has no solutions");
                 }
             } else {
-                temp.append(" = ").append(augment[i][cols]);
-                toReturn.add(temp.toString());
+                augment[nonzeroRows++] = augment[i];
             }
         }
-        return toReturn;
+        return new SolutionSpace(Arrays.copyOf(augment, nonzeroRows), Arrays.copyOf(pivots, curRow),
+                cols);
     }
 
     /**
@@ -254,11 +638,7 @@ public class SystemSolver {
         assert 0 <= row2 && row2 < mat.length;
         assert mat[row1].length == mat[row2].length;
 
-        for (int j = 0; j < mat[row1].length; j++) {
-            double temp = mat[row1][j];
-            mat[row1][j] = mat[row2][j];
-            mat[row2][j] = temp;
-        }
+        KERNELS.swap(mat[row1], mat[row2], 0);
     }
 
     /**
@@ -266,9 +646,7 @@ public class SystemSolver {
      * 0 <= row < mat.length.
      */
     public static void scaleRow(double[][] mat, int row, double scaleFactor) {
-        for (int j  = 0; j < mat[row].length; j++) {
-            mat[row][j] = scaleFactor * mat[row][j];
-        }
+        KERNELS.scale(mat[row], 0, scaleFactor);
     }
 
     /**
@@ -283,9 +661,7 @@ public class SystemSolver {
 
         for (int i = row + 1; i < mat.length; i++) {
             double scaleFactor = -1.0 * mat[i][pivotCol];
-            for (int j = pivotCol; j < mat[0].length; j++) {
-                mat[i][j] = mat[i][j] + scaleFactor * mat[row][j];
-            }
+            KERNELS.axpy(scaleFactor, mat[row], mat[i], pivotCol);
         }
     }
 
@@ -298,12 +674,31 @@ public class SystemSolver {
     public static void eliminate(double[][] mat, int row, int pivotCol) {
         assert 0 <= row && row < mat.length;
         assert 0 <= pivotCol && pivotCol < mat[0].length;
-        for (int i = 0; i < mat.length; i++) {
+        eliminateRows(mat, row, pivotCol, 0, mat.length);
+    }
+
+    /**
+     * Performs the same row operations as eliminate(mat, row, pivotCol), updating the rows in
+     * parallel across the common ForkJoinPool when the matrix is large enough for this to pay off.
+     * Results are identical to those of eliminate. Requires `mat` is rectangular,
+     * 0 <= row < mat.length, and 0 <= pivotCol < mat[0].length.
+     */
+    public static void eliminateParallel(double[][] mat, int row, int pivotCol) {
+        assert 0 <= row && row < mat.length;
+        assert 0 <= pivotCol && pivotCol < mat[0].length;
+        ParallelRows.forRange(0, mat.length, 2L * (mat[0].length - pivotCol),
+                (from, to) -> eliminateRows(mat, row, pivotCol, from, to));
+    }
+
+    /**
+     * Adds multiples of `row` to the rows from `from` to `to` - 1, except `row`, to zero out their
+     * entries in column `pivotCol`, as eliminate does.
+     */
+    private static void eliminateRows(double[][] mat, int row, int pivotCol, int from, int to) {
+        for (int i = from; i < to; i++) {
             if (i != row) {
                 double scaleFactor = -1.0 * mat[i][pivotCol];
-                for (int j = pivotCol; j < mat[0].length; j++) {
-                    mat[i][j] = mat[i][j] + scaleFactor * mat[row][j];
-                }
+                KERNELS.axpy(scaleFactor, mat[row], mat[i], pivotCol);
             }
         }
     }
@@ -314,8 +709,8 @@ public class SystemSolver {
     public static double round(double num, int decimalPlaces) {
         assert 0 <= decimalPlaces && decimalPlaces <= 15;
 
-        double rounded = Math.round(num * Math.pow(10, decimalPlaces));
-        rounded = rounded / Math.pow(10, decimalPlaces);
+        double rounded = Math.round(num * POWERS_OF_TEN[decimalPlaces]);
+        rounded = rounded / POWERS_OF_TEN[decimalPlaces];
         return rounded;
     }
 }
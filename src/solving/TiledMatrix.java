@@ -0,0 +1,165 @@
+package solving;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A square matrix stored in a memory-mapped file as fixed-size square tiles, for matrices too
+ * large to fit in memory, as factored by OutOfCoreLU. The tiles of each column of tiles (a panel)
+ * are stored one after another, each in row-major order, so a panel is one contiguous region of
+ * the file and a tile is a contiguous part of it; rows of a panel are tileSize() entries apart.
+ * The last panel is padded with unused columns to the full tile size. Entries are stored in the
+ * platform's byte order.
+ */
+public final class TiledMatrix {
+
+    /**
+     * The tile size used when none is given, for which a panel takes 1 KB per row.
+     */
+    private static final int DEFAULT_TILE_SIZE = 128;
+
+    private final int dim;
+    private final int tileSize;
+
+    /**
+     * The panels, each mapped from its own region of the file; entry (i, j) is entry
+     * i * tileSize + j % tileSize of panel j / tileSize.
+     */
+    private final MappedByteBuffer[] mapped;
+    private final DoubleBuffer[] panels;
+
+    private TiledMatrix(int dim, int tileSize, MappedByteBuffer[] mapped) {
+        this.dim = dim;
+        this.tileSize = tileSize;
+        this.mapped = mapped;
+        panels = new DoubleBuffer[mapped.length];
+        for (int p = 0; p < mapped.length; p++) {
+            panels[p] = mapped[p].order(ByteOrder.nativeOrder()).asDoubleBuffer();
+        }
+    }
+
+    /**
+     * Returns a matrix of dimension `dim` stored in the file `file` in tiles of 128 by 128
+     * entries, or in a single tile if `dim` is smaller, as map(file, dim, tileSize) does.
+     */
+    public static TiledMatrix map(Path file, int dim) throws IOException {
+        return map(file, dim, Math.min(dim, DEFAULT_TILE_SIZE));
+    }
+
+    /**
+     * Returns a matrix of dimension `dim` stored in the file `file` in tiles of `tileSize` by
+     * `tileSize` entries. The file is created if it does not exist and extended with zeros if it
+     * is shorter than the matrix; entries already in the file are kept, and changes to the matrix
+     * are written back to it by the operating system (or at once by force()). Requires `dim` and
+     * `tileSize` are positive and a panel, dim * tileSize entries, takes less than 2 GB. Throws
+     * IOException if the file cannot be opened or mapped.
+     */
+    public static TiledMatrix map(Path file, int dim, int tileSize) throws IOException {
+        assert dim > 0 && tileSize > 0;
+        assert (long) dim * tileSize * Double.BYTES <= Integer.MAX_VALUE;
+
+        int panelCount = (dim + tileSize - 1) / tileSize;
+        long panelBytes = (long) dim * tileSize * Double.BYTES;
+        MappedByteBuffer[] mapped = new MappedByteBuffer[panelCount];
+        // Mappings stay valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for (int p = 0; p < panelCount; p++) {
+                mapped[p] = channel.map(FileChannel.MapMode.READ_WRITE, p * panelBytes,
+                        panelBytes);
+            }
+        }
+        return new TiledMatrix(dim, tileSize, mapped);
+    }
+
+    /**
+     * Returns the dimension of the matrix.
+     */
+    public int dimension() {
+        return dim;
+    }
+
+    /**
+     * Returns the number of rows and columns of each tile.
+     */
+    public int tileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Returns the number of panels, the columns of tiles.
+     */
+    int panelCount() {
+        return panels.length;
+    }
+
+    /**
+     * Returns entry (i, j). Requires 0 <= i, j < dimension().
+     */
+    public double get(int i, int j) {
+        assert 0 <= i && i < dim && 0 <= j && j < dim;
+        return panels[j / tileSize].get(i * tileSize + j % tileSize);
+    }
+
+    /**
+     * Sets entry (i, j) to `value`. Requires 0 <= i, j < dimension().
+     */
+    public void set(int i, int j, double value) {
+        assert 0 <= i && i < dim && 0 <= j && j < dim;
+        panels[j / tileSize].put(i * tileSize + j % tileSize, value);
+    }
+
+    /**
+     * Sets row `i` to `row`. Requires 0 <= i < dimension() and the length of `row` is
+     * dimension().
+     */
+    public void setRow(int i, double[] row) {
+        assert 0 <= i && i < dim && row.length == dim;
+        for (int p = 0; p < panels.length; p++) {
+            int c0 = p * tileSize;
+            panels[p].put(i * tileSize, row, c0, Math.min(tileSize, dim - c0));
+        }
+    }
+
+    /**
+     * Copies rows `from` to `to` - 1 of panel `p`, including any padding columns, into the same
+     * indices of `dst`, in which row i starts at i * tileSize(). Requires 0 <= p < panelCount(),
+     * 0 <= from <= to <= dimension(), and `dst` has length at least to * tileSize().
+     */
+    void readPanel(int p, int from, int to, double[] dst) {
+        panels[p].get(from * tileSize, dst, from * tileSize, (to - from) * tileSize);
+    }
+
+    /**
+     * Stores rows `from` to `to` - 1 of panel `p` from the same indices of `src`, laid out as in
+     * readPanel.
+     */
+    void writePanel(int p, int from, int to, double[] src) {
+        panels[p].put(from * tileSize, src, from * tileSize, (to - from) * tileSize);
+    }
+
+    /**
+     * Copies the tile of panel `p` starting at row `from` (of tileSize() rows, or fewer at the
+     * bottom of the matrix) into the start of `dst`, in row-major order. Requires
+     * 0 <= p < panelCount(), 0 <= from < dimension(), and `dst` has length at least
+     * tileSize() * tileSize().
+     */
+    void readTile(int p, int from, double[] dst) {
+        int rows = Math.min(tileSize, dim - from);
+        panels[p].get(from * tileSize, dst, 0, rows * tileSize);
+    }
+
+    /**
+     * Writes any changes to the matrix to its file.
+     */
+    public void force() {
+        for (MappedByteBuffer buffer : mapped) {
+            buffer.force();
+        }
+    }
+}
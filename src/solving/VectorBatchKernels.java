@@ -0,0 +1,68 @@
+package solving;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+
+import static solving.VectorRowKernels.SPECIES;
+
+/**
+ * BatchKernels implemented with the incubating Vector API, one vector of lanes at a time, with
+ * the same vector width as VectorRowKernels. Choosing between lanes is done with masks and blends
+ * rather than branches. Only loaded when the jdk.incubator.vector module is available (see
+ * BatchKernels.best()).
+ */
+final class VectorBatchKernels implements BatchKernels {
+
+    @Override
+    public int lanes() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public void pivot(double[] a, int pivot, int candidate, int length, int width) {
+        for (int l = 0; l < width; l += SPECIES.length()) {
+            DoubleVector current = DoubleVector.fromArray(SPECIES, a, pivot + l).abs();
+            VectorMask<Double> larger = DoubleVector.fromArray(SPECIES, a, candidate + l).abs()
+                    .compare(VectorOperators.GT, current);
+            if (!larger.anyTrue()) {
+                continue;
+            }
+            for (int t = 0; t < length; t++) {
+                int p = pivot + t * width + l;
+                int c = candidate + t * width + l;
+                DoubleVector x = DoubleVector.fromArray(SPECIES, a, p);
+                DoubleVector y = DoubleVector.fromArray(SPECIES, a, c);
+                x.blend(y, larger).intoArray(a, p);
+                y.blend(x, larger).intoArray(a, c);
+            }
+        }
+    }
+
+    @Override
+    public void scale(double[] a, int pivot, int length, int width) {
+        for (int l = 0; l < width; l += SPECIES.length()) {
+            DoubleVector value = DoubleVector.fromArray(SPECIES, a, pivot + l);
+            VectorMask<Double> singular = value.abs().compare(VectorOperators.LT, 1e-15);
+            DoubleVector scaleFactor = DoubleVector.broadcast(SPECIES, 1).div(value)
+                    .blend(Double.NaN, singular);
+            for (int t = 1; t < length; t++) {
+                int p = pivot + t * width + l;
+                scaleFactor.mul(DoubleVector.fromArray(SPECIES, a, p)).intoArray(a, p);
+            }
+        }
+    }
+
+    @Override
+    public void eliminate(double[] a, int factor, int src, int dst, int length, int width) {
+        for (int l = 0; l < width; l += SPECIES.length()) {
+            DoubleVector negated = DoubleVector.fromArray(SPECIES, a, factor + l).neg();
+            for (int t = 0; t < length; t++) {
+                int s = src + t * width + l;
+                int d = dst + t * width + l;
+                DoubleVector update = negated.mul(DoubleVector.fromArray(SPECIES, a, s));
+                DoubleVector.fromArray(SPECIES, a, d).add(update).intoArray(a, d);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package solving;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * RowKernels implemented with the incubating Vector API, processing a whole vector of entries per
+ * instruction and finishing each row with a masked operation. The update in axpy multiplies and
+ * then adds rather than using a fused multiply-add, whose single rounding would make results
+ * differ from the scalar kernels. Only loaded when the jdk.incubator.vector module is available
+ * (see RowKernels.best()).
+ *
+ * <p>Vectors have the platform's preferred width unless the system property solving.vectorBits
+ * is set to 64, 128, 256 or 512. The JIT compiler only turns Vector API calls into vector
+ * instructions when the species is a constant, so it is fixed once, in a static final field.
+ *
+ * <p>Only 512-bit vectors are reliably faster than the scalar loops, which the JIT compiler
+ * vectorizes itself: measured on an AVX-512 machine, 128-bit vectors ran at 0.6x to 0.8x the
+ * speed of the scalar kernels on rows of 64 entries or more, and 256-bit vectors, including on
+ * emulated AVX2, at 0.7x to 0.95x on rows of 512 entries, against 1.0x to 1.6x for 512-bit
+ * vectors. RowKernels.best() therefore keeps the scalar kernels at narrower widths.
+ */
+final class VectorRowKernels implements RowKernels {
+
+    static final VectorSpecies<Double> SPECIES =
+            species(Integer.getInteger("solving.vectorBits", 0));
+
+    /**
+     * The narrowest vectors, in bits, with which these kernels are faster than the scalar ones.
+     */
+    static final int MIN_FASTER_BITS = 512;
+
+    /**
+     * Returns whether SPECIES is wide enough for these kernels to be faster than the scalar ones.
+     */
+    static boolean faster() {
+        return SPECIES.vectorBitSize() >= MIN_FASTER_BITS;
+    }
+
+    /**
+     * Returns the species of vectors of `bits` bits, or the preferred species if `bits` is not
+     * 64, 128, 256 or 512.
+     */
+    private static VectorSpecies<Double> species(int bits) {
+        return switch (bits) {
+            case 64 -> DoubleVector.SPECIES_64;
+            case 128 -> DoubleVector.SPECIES_128;
+            case 256 -> DoubleVector.SPECIES_256;
+            case 512 -> DoubleVector.SPECIES_512;
+            default -> DoubleVector.SPECIES_PREFERRED;
+        };
+    }
+
+    @Override
+    public void scale(double[] row, int from, double factor) {
+        int n = row.length;
+        int j = from;
+        int bound = from + SPECIES.loopBound(n - from);
+        for (; j < bound; j += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, row, j).mul(factor).intoArray(row, j);
+        }
+        if (j < n) {
+            VectorMask<Double> mask = SPECIES.indexInRange(j, n);
+            DoubleVector.fromArray(SPECIES, row, j, mask).mul(factor).intoArray(row, j, mask);
+        }
+    }
+
+    @Override
+    public void swap(double[] a, double[] b, int from) {
+        int n = a.length;
+        int j = from;
+        int bound = from + SPECIES.loopBound(n - from);
+        for (; j < bound; j += SPECIES.length()) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, a, j);
+            DoubleVector.fromArray(SPECIES, b, j).intoArray(a, j);
+            x.intoArray(b, j);
+        }
+        if (j < n) {
+            VectorMask<Double> mask = SPECIES.indexInRange(j, n);
+            DoubleVector x = DoubleVector.fromArray(SPECIES, a, j, mask);
+            DoubleVector.fromArray(SPECIES, b, j, mask).intoArray(a, j, mask);
+            x.intoArray(b, j, mask);
+        }
+    }
+
+    @Override
+    public void axpy(double factor, double[] src, double[] dst, int from) {
+        int n = dst.length;
+        int j = from;
+        int bound = from + SPECIES.loopBound(n - from);
+        for (; j < bound; j += SPECIES.length()) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, src, j).mul(factor);
+            DoubleVector.fromArray(SPECIES, dst, j).add(x).intoArray(dst, j);
+        }
+        if (j < n) {
+            VectorMask<Double> mask = SPECIES.indexInRange(j, n);
+            DoubleVector x = DoubleVector.fromArray(SPECIES, src, j, mask).mul(factor);
+            DoubleVector.fromArray(SPECIES, dst, j, mask).add(x).intoArray(dst, j, mask);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package expressions;
+
+import expressions.exceptions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchEvaluatorTest {
+
+    @Test
+    @DisplayName("Evaluating a batch of points should give the same value at every point as "
+            + "evaluating the expression tree at that point, including points in partial blocks")
+    void testMatchesEval() throws UnboundVariableException, UnreadableCharacterException,
+            IncompleteExpressionException {
+        String[] vars = {"x", "y"};
+        int points = 1300;
+        double[][] columns = new double[2][points];
+        for (int p = 0; p < points; p++) {
+            columns[0][p] = 0.01 * p - 3;
+            columns[1][p] = Math.sin(p) + 2;
+        }
+        String[] inputs = {"x", "2.5", "x + y * 3 - y / x", "(x^2 + 1) / sqrt(y) - exp(-x) * cos(y)",
+                "abs(tan(x)) + log(y) * sin(x y)"};
+        for (String input : inputs) {
+            Expression expr = InputParser.parse(input);
+            double[] out = new double[points];
+            new BatchEvaluator(expr, vars).eval(columns, out);
+            for (int p = 0; p < points; p++) {
+                double[] point = {columns[0][p], columns[1][p]};
+                assertEquals(expr.eval(MapVarTable.of(vars, point)), out[p]);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Creating a batch evaluator for an expression with a variable that has no column "
+            + "should throw an UnboundVariableException")
+    void testUnbound() {
+        String[] vars = {"x"};
+        assertThrows(UnboundVariableException.class,
+                () -> new BatchEvaluator(InputParser.parse("x + z"), vars));
+    }
+}
@@ -0,0 +1,46 @@
+package expressions;
+
+import expressions.exceptions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DualEvaluatorTest {
+
+    @Test
+    @DisplayName("A dual evaluator should return the expression's value and a gradient matching "
+            + "the evaluated symbolic derivatives")
+    void testGradient() throws UnboundVariableException, UnreadableCharacterException,
+            IncompleteExpressionException {
+        String[] vars = {"x", "y", "z"};
+        double[] point = {0.7, 1.3, -2.1};
+        String[] inputs = {"(3x^2-3)/(1+y^2)-2xz+2z", "2yz+((2y)(x^3-3x))/(1+y^2)^2",
+                "sin(x) cos(y) + tan(z) - sqrt(y) + exp(x z) - log(y^x)", "y^(x z)", "5"};
+        for (String input : inputs) {
+            Expression expr = InputParser.parse(input);
+            double[] gradient = new double[3];
+            double value = new DualEvaluator(expr, vars).eval(point, gradient);
+            MapVarTable table = MapVarTable.of(vars, point);
+            assertEquals(expr.eval(table), value);
+            for (int j = 0; j < 3; j++) {
+                assertEquals(expr.differentiate(vars[j]).eval(table), gradient[j], 1e-12);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("The derivative of abs should be the sign of its argument times the argument's "
+            + "derivative")
+    void testAbs() throws UnboundVariableException, UnreadableCharacterException,
+            IncompleteExpressionException {
+        String[] vars = {"x"};
+        DualEvaluator evaluator = new DualEvaluator(InputParser.parse("abs(3x)"), vars);
+        double[] gradient = new double[1];
+        assertEquals(6.0, evaluator.eval(new double[]{-2}, gradient));
+        assertEquals(-3.0, gradient[0]);
+        assertEquals(6.0, evaluator.eval(new double[]{2}, gradient));
+        assertEquals(3.0, gradient[0]);
+    }
+}
@@ -0,0 +1,86 @@
+package expressions;
+
+import expressions.functions.*;
+import expressions.operations.*;
+import expressions.exceptions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpressionCompilerTest {
+
+    @Test
+    @DisplayName("A compiled Constant should evaluate to its value, keeping the sign of zero")
+    void testConstant() throws UnboundVariableException {
+        String[] vars = {};
+        assertEquals(1.5, ExpressionCompiler.compile(new Constant(1.5), vars).eval(new double[0]));
+        assertEquals(1.0, ExpressionCompiler.compile(new Constant(1.0), vars).eval(new double[0]));
+        assertEquals(-0.0, ExpressionCompiler.compile(new Constant(-0.0), vars)
+                .eval(new double[0]));
+    }
+
+    @Test
+    @DisplayName("A compiled Variable should evaluate to the value in the slot matching the index "
+            + "of its name")
+    void testVariable() throws UnboundVariableException {
+        String[] vars = {"x", "y", "z"};
+        double[] slots = {1.5, -2.0, 7.25};
+        assertEquals(1.5, ExpressionCompiler.compile(new Variable("x"), vars).eval(slots));
+        assertEquals(7.25, ExpressionCompiler.compile(new Variable("z"), vars).eval(slots));
+    }
+
+    @Test
+    @DisplayName("Compiling an expression containing a variable that is not in the variable list "
+            + "should throw an UnboundVariableException")
+    void testUnbound() {
+        String[] vars = {"x"};
+        Expression expr = new AddOperation(new Variable("x"), new Variable("y"));
+        assertThrows(UnboundVariableException.class,
+                () -> ExpressionCompiler.compile(expr, vars));
+    }
+
+    @Test
+    @DisplayName("A compiled expression should evaluate to the same value as the expression tree "
+            + "for every operator and function")
+    void testMatchesEval() throws UnboundVariableException, UnreadableCharacterException,
+            IncompleteExpressionException {
+        String[] vars = {"x", "y", "z"};
+        double[] point = {0.7, 1.3, -2.1};
+        String[] inputs = {"(3x^2-3)/(1+y^2)-2xz+2z", "2yz+((2y)(x^3-3x))/(1+y^2)^2",
+                "sin(x) + cos(y) * tan(z) - sqrt(abs(z)) / exp(log(y))"};
+        for (String input : inputs) {
+            Expression expr = InputParser.parse(input);
+            assertEquals(expr.eval(MapVarTable.of(vars, point)),
+                    ExpressionCompiler.compile(expr, vars).eval(point));
+        }
+    }
+
+    @Test
+    @DisplayName("A compiled Application of a function that is not in java.lang.Math should call "
+            + "that function")
+    void testCustomFunction() throws UnboundVariableException, UnreadableCharacterException,
+            IncompleteExpressionException {
+        UnaryFunction square = UnaryFunction.fromExpression("square", InputParser.parse("t*t"),
+                "t");
+        Expression expr = new Application(square, new Variable("x")) {
+            @Override
+            public Expression optimize(VarTable vars) {
+                return this;
+            }
+
+            @Override
+            public Expression differentiate(String varName) {
+                return this;
+            }
+
+            @Override
+            public Expression simplify() {
+                return this;
+            }
+        };
+        String[] vars = {"x"};
+        assertEquals(6.25, ExpressionCompiler.compile(expr, vars).eval(new double[]{2.5}));
+    }
+}
@@ -0,0 +1,61 @@
+package expressions;
+
+import expressions.functions.*;
+import expressions.operations.*;
+import expressions.exceptions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpressionInternerTest {
+
+    @Test
+    @DisplayName("Interning structurally equal expressions should return the same node, with "
+            + "equal subexpressions shared")
+    void testSharing() throws UnreadableCharacterException, IncompleteExpressionException {
+        ExpressionInterner interner = new ExpressionInterner();
+        Expression expr1 = interner.intern(InputParser.parse("sin(x + 1) * (x + 1)"));
+        Expression expr2 = interner.intern(InputParser.parse("(x+1)^2"));
+        assertSame(expr1, interner.intern(InputParser.parse("sin(x+1)*(x+1)")));
+        assertEquals(InputParser.parse("sin(x + 1) * (x + 1)"), expr1);
+
+        Operation product = (Operation) expr1;
+        Application sine = (Application) product.leftOperand();
+        assertSame(sine.argument(), product.rightOperand());
+        assertSame(product.rightOperand(), ((Operation) expr2).leftOperand());
+        assertSame(interner.variable("x"), ((Operation) sine.argument()).leftOperand());
+        assertSame(expr2, interner.operation(Operator.POW,
+                new AddOperation(new Variable("x"), new Constant(1)), new Constant(2)));
+    }
+
+    @Test
+    @DisplayName("Constants should only be shared when their bit patterns match, so that positive "
+            + "and negative zero stay distinct")
+    void testConstants() {
+        ExpressionInterner interner = new ExpressionInterner();
+        assertSame(interner.constant(2.5), interner.intern(new Constant(2.5)));
+        assertNotSame(interner.constant(0.0), interner.constant(-0.0));
+    }
+
+    @Test
+    @DisplayName("A DAG evaluator should give the same values as evaluating each expression tree, "
+            + "while computing fewer nodes than the trees contain")
+    void testDagEvaluator() throws UnboundVariableException, UnreadableCharacterException,
+            IncompleteExpressionException {
+        String[] vars = {"x", "y"};
+        Expression f = InputParser.parse("(x^2 + y)^(x y) / sin(x + y)");
+        Expression[] exprs = {f, f.differentiate("x"), f.differentiate("y")};
+        DagEvaluator evaluator = new DagEvaluator(exprs, vars);
+        double[] point = {1.3, 0.4};
+        double[] out = new double[3];
+        evaluator.eval(point, out);
+        int treeNodes = 0;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(exprs[i].eval(MapVarTable.of(vars, point)), out[i]);
+            treeNodes += exprs[i].opCount();
+        }
+        assertTrue(evaluator.nodeCount() < treeNodes);
+    }
+}
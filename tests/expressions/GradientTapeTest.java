@@ -0,0 +1,45 @@
+package expressions;
+
+import expressions.exceptions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradientTapeTest {
+
+    @Test
+    @DisplayName("The gradient from the tape should match the symbolic derivatives with respect to "
+            + "every variable, and repeated calls should give the same result")
+    void testMatchesDifferentiate() throws UnboundVariableException, UnreadableCharacterException,
+            IncompleteExpressionException {
+        String[] vars = {"a", "b", "c", "d", "e", "f", "g", "h"};
+        Expression expr = InputParser.parse("a b c + sin(d e) * exp(f / g) - (a + h)^3 + sqrt(b c) "
+                + "+ (d - h)^2 + log(e^2 + 1) / cos(g) + (f + 2)^(a / 4) + tan(c) * a");
+        double[] point = {0.7, 1.2, 0.3, -0.8, 1.5, 2.1, 0.9, -0.4};
+        GradientTape tape = new GradientTape(expr, vars);
+        double[] gradient = new double[vars.length];
+        for (int call = 0; call < 2; call++) {
+            assertEquals(expr.eval(MapVarTable.of(vars, point)), tape.gradient(point, gradient),
+                    1e-12);
+            for (int j = 0; j < vars.length; j++) {
+                assertEquals(expr.differentiate(vars[j]).eval(MapVarTable.of(vars, point)),
+                        gradient[j], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Variables that do not occur in the expression should get zero partial "
+            + "derivatives, a power with a negative base and constant exponent should use the power "
+            + "rule, and abs should have the sign of its argument as its derivative")
+    void testUnusedAndNegativeBase() throws UnboundVariableException, UnreadableCharacterException,
+            IncompleteExpressionException {
+        String[] vars = {"x", "y", "z"};
+        GradientTape tape = new GradientTape(InputParser.parse("x^(1 + 2) + abs(x)"), vars);
+        double[] gradient = new double[3];
+        assertEquals(-6.0, tape.gradient(new double[]{-2, 5, 6}, gradient));
+        assertArrayEquals(new double[]{11, 0, 0}, gradient);
+    }
+}
@@ -0,0 +1,92 @@
+package expressions;
+
+import expressions.operations.*;
+import expressions.exceptions.*;
+
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexedVarTableTest {
+
+    @Test
+    @DisplayName("Values set by name or by slot should be readable both ways, and only set "
+            + "variables should be contained in the table")
+    void testGetSet() throws UnboundVariableException {
+        String[] names = {"x", "y", "z"};
+        IndexedVarTable table = new IndexedVarTable(names);
+        assertEquals(0, table.size());
+        assertEquals(1, table.slot("y"));
+        assertEquals(-1, table.slot("w"));
+
+        table.set("x", 2.5);
+        table.set(2, -1.0);
+        assertEquals(2.5, table.get(0));
+        assertEquals(-1.0, table.get("z"));
+        assertTrue(table.contains("x"));
+        assertFalse(table.contains("y"));
+        assertEquals(Set.of("x", "z"), table.names());
+        assertThrows(UnboundVariableException.class, () -> table.get("y"));
+
+        table.unset("x");
+        assertEquals(1, table.size());
+        assertThrows(IllegalArgumentException.class, () -> table.set("w", 1.0));
+    }
+
+    @Test
+    @DisplayName("An expression evaluated against an IndexedVarTable should see updates made with "
+            + "setAll, and throw UnboundVariableException for variables without a value")
+    void testEval() throws UnboundVariableException {
+        String[] names = {"x", "y"};
+        IndexedVarTable table = IndexedVarTable.of(names, new double[]{3, 4});
+        Expression expr = new MultOperation(new Variable("x"), new Variable("y"));
+        assertEquals(12.0, expr.eval(table));
+        table.setAll(new double[]{-1, 0.5});
+        assertEquals(-0.5, expr.eval(table));
+
+        // The same node should resolve its slot again against a table with a different layout
+        String[] swapped = {"y", "x"};
+        assertEquals(6.0, expr.eval(IndexedVarTable.of(swapped, new double[]{2, 3})));
+
+        table.unset("y");
+        assertThrows(UnboundVariableException.class, () -> expr.eval(table));
+        assertThrows(UnboundVariableException.class,
+                () -> new Variable("z").eval(IndexedVarTable.of(names, new double[]{1, 2})));
+    }
+
+    @Test
+    @DisplayName("Tables created with withSameSlots should have the same slots but their own "
+            + "values, and evaluating against them in turn should not allocate")
+    void testWithSameSlots() throws UnboundVariableException {
+        IndexedVarTable first = IndexedVarTable.of(new String[]{"x", "y"}, new double[]{3, 4});
+        IndexedVarTable second = first.withSameSlots();
+        assertEquals(0, second.size());
+        assertEquals(1, second.slot("y"));
+        second.setAll(new double[]{5, 6});
+        assertEquals(3.0, first.get("x"));
+
+        Expression expr = new AddOperation(new MultOperation(new Variable("x"), new Variable("y")),
+                new Variable("x"));
+        assertEquals(15.0, expr.eval(first));
+        assertEquals(35.0, expr.eval(second));
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory
+                        .getThreadMXBean();
+        double sum = 0;
+        for (int i = 0; i < 20000; i++) {
+            sum += expr.eval(first) + expr.eval(second);
+        }
+        long thread = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 1000; i++) {
+            sum += expr.eval(first) + expr.eval(second);
+        }
+        long after = threads.getThreadAllocatedBytes(thread);
+        assertEquals(21000 * 50.0, sum);
+        // The second call to getThreadAllocatedBytes may itself allocate a little
+        assertTrue(after - before < 1000, "allocated " + (after - before) + " bytes");
+    }
+}
@@ -0,0 +1,58 @@
+package expressions;
+
+import expressions.exceptions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParseCacheTest {
+
+    @Test
+    @DisplayName("Parsing the same text twice, even with different whitespace, should return the "
+            + "same tree and count a hit")
+    void testHits() throws UnreadableCharacterException, IncompleteExpressionException {
+        ParseCache cache = new ParseCache(100);
+        Expression expr = cache.parse("x^2 + sin(y)");
+        assertEquals(InputParser.parse("x^2 + sin(y)"), expr);
+        assertSame(expr, cache.parse("x ^ 2+sin( y )"));
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(0.5, cache.hitRate());
+        assertEquals(1, cache.size());
+        assertEquals(expr.opCount() + 1, cache.weight());
+    }
+
+    @Test
+    @DisplayName("When the total weight exceeds the limit, the least recently used expressions "
+            + "should be evicted first")
+    void testEviction() throws UnreadableCharacterException, IncompleteExpressionException {
+        // Each of these expressions has weight 2
+        ParseCache cache = new ParseCache(5);
+        Expression a = cache.parse("x + 1");
+        Expression b = cache.parse("y + 1");
+        assertSame(a, cache.parse("x + 1"));
+        cache.parse("z + 1");
+        assertEquals(1, cache.evictionCount());
+        assertEquals(4, cache.weight());
+        assertSame(a, cache.parse("x + 1"));
+        assertNotSame(b, cache.parse("y + 1"));
+
+        // Expressions heavier than the whole cache are parsed but not cached
+        Expression big = cache.parse("x + y + z + w + v + u");
+        assertNotSame(big, cache.parse("x + y + z + w + v + u"));
+        assertEquals(4, cache.weight());
+    }
+
+    @Test
+    @DisplayName("Inputs that fail to parse should throw as InputParser.parse does and not be "
+            + "cached")
+    void testErrors() {
+        ParseCache cache = new ParseCache(10);
+        assertThrows(IncompleteExpressionException.class, () -> cache.parse("x +"));
+        assertThrows(UnreadableCharacterException.class, () -> cache.parse("x % 2"));
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.missCount());
+    }
+}
@@ -189,4 +189,30 @@ class ParsingTest {
                 new Constant(3.0), new TanFunc(new Variable("y"))), new MultOperation(
                         new Constant(5.0), new DivOperation(new Constant(2.0), new Variable("x"))))));
     }
+
+    @Test
+    @DisplayName("Numbers with exponents and long numbers should parse to the same values as "
+            + "Double.parseDouble, and an e without exponent digits should be a variable")
+    void testNumbers() throws UnreadableCharacterException, IncompleteExpressionException {
+        String[] numbers = {"1e5", "2.5E-3", "6.02e+23", "0.1", "123456789012345678901234567890",
+                "3.14159265358979323846", "1e-400", "9007199254740993", "4.9e-324"};
+        for (String number : numbers) {
+            assertEquals(new Constant(Double.parseDouble(number)), InputParser.parse(number));
+        }
+        assertEquals(new Constant(1.5e3), InputParser.parse("1.5 e 3"));
+
+        Expression expr = InputParser.parse("2e + x");
+        assertEquals(expr, new AddOperation(new MultOperation(new Constant(2.0),
+                new Variable("e")), new Variable("x")));
+    }
+
+    @Test
+    @DisplayName("Empty input should throw an IncompleteExpressionException, and characters that "
+            + "are not allowed should throw an UnreadableCharacterException")
+    void testInvalidInput() {
+        assertThrows(IncompleteExpressionException.class, () -> InputParser.parse(" \t"));
+        UnreadableCharacterException e = assertThrows(UnreadableCharacterException.class,
+                () -> InputParser.parse("x + (y % 2"));
+        assertEquals(Character.valueOf('%'), e.character());
+    }
 }
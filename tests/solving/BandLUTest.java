@@ -0,0 +1,103 @@
+package solving;
+
+import expressions.exceptions.*;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BandLUTest {
+
+    @Test
+    @DisplayName("Bandwidths should be measured from the nonzero entries furthest from the "
+            + "diagonal, and band storage should hold exactly the entries of the band")
+    void testBandMatrix() {
+        double[][] mat = {{1, 2, 0, 0, 0}, {0, 3, 0, 4, 0}, {5, 0, 6, 0, 0}, {0, 0, 0, 7, 0},
+                {0, 0, 0, 8, 9}};
+        assertEquals(2, BandMatrix.lowerBandwidth(mat));
+        assertEquals(2, BandMatrix.upperBandwidth(mat));
+        assertEquals(0, BandMatrix.lowerBandwidth(new double[][]{{1, 2}, {0, 3}}));
+        BandMatrix band = BandMatrix.of(mat);
+        assertEquals(5, band.dimension());
+        assertEquals(2, band.lower());
+        assertEquals(2, band.upper());
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 5; j++) {
+                assertEquals(mat[i][j], band.get(i, j));
+            }
+        }
+        assertArrayEquals(new double[]{5, 22, 23, 28, 77}, band.multiply(new double[]{1, 2, 3, 4, 5}));
+    }
+
+    @Test
+    @DisplayName("Banded LU should give the solutions of a dense LU factorization, including "
+            + "when pivoting moves rows past the upper bandwidth")
+    void testSolve() throws SolvingException {
+        Random random = new Random(13);
+        int dim = 40;
+        for (int trial = 0; trial < 20; trial++) {
+            int lower = random.nextInt(4);
+            int upper = random.nextInt(4);
+            double[][] mat = new double[dim][dim];
+            double[] vec = new double[dim];
+            for (int i = 0; i < dim; i++) {
+                vec[i] = random.nextGaussian();
+                for (int j = Math.max(0, i - lower); j <= Math.min(dim - 1, i + upper); j++) {
+                    mat[i][j] = random.nextGaussian();
+                }
+            }
+            double[] expected = new LUDecomposition(mat).solve(vec);
+            assertArrayEquals(expected, new BandLU(BandMatrix.of(mat)).solve(vec));
+            assertArrayEquals(expected, SystemSolver.linear_solve(mat, vec));
+        }
+    }
+
+    @Test
+    @DisplayName("The Thomas algorithm should solve a large diagonally dominant tridiagonal system")
+    void testTridiagonal() throws SolvingException {
+        int dim = 100000;
+        double[] sub = new double[dim - 1];
+        double[] diag = new double[dim];
+        double[] sup = new double[dim - 1];
+        double[] vec = new double[dim];
+        for (int i = 0; i < dim; i++) {
+            diag[i] = 2.5;
+            vec[i] = i % 3 - 1;
+            if (i < dim - 1) {
+                sub[i] = -1;
+                sup[i] = -0.5;
+            }
+        }
+        double[] x = SystemSolver.tridiagonal_solve(sub, diag, sup, vec);
+        for (int i = 0; i < dim; i++) {
+            double product = diag[i] * x[i];
+            if (i > 0) {
+                product += sub[i - 1] * x[i - 1];
+            }
+            if (i < dim - 1) {
+                product += sup[i] * x[i + 1];
+            }
+            assertEquals(vec[i], product, 1e-12);
+        }
+        double[][] small = {{4, 1, 0, 0, 0}, {1, 4, 1, 0, 0}, {0, 1, 4, 1, 0}, {0, 0, 1, 4, 1},
+                {0, 0, 0, 1, 4}};
+        double[] smallVec = {6, 12, 18, 24, 24};
+        assertArrayEquals(new LUDecomposition(small).solve(smallVec),
+                SystemSolver.linear_solve(small, smallVec));
+    }
+
+    @Test
+    @DisplayName("Singular band matrices should throw a SolvingException")
+    void testSingular() {
+        double[][] mat = {{1, 1, 0, 0, 0, 0, 0}, {1, 1, 0, 0, 0, 0, 0}, {0, 0, 1, 0, 0, 0, 0},
+                {0, 0, 0, 1, 0, 0, 0}, {0, 0, 0, 0, 1, 0, 0}, {0, 0, 0, 0, 0, 1, 0},
+                {0, 0, 0, 0, 0, 0, 1}};
+        double[] vec = {1, 2, 3, 4, 5, 6, 7};
+        assertThrows(SolvingException.class, () -> new BandLU(BandMatrix.of(mat)));
+        assertThrows(SolvingException.class, () -> SystemSolver.linear_solve(mat, vec));
+        assertThrows(SolvingException.class, () -> SystemSolver.tridiagonal_solve(
+                new double[]{1}, new double[]{1, 1}, new double[]{1}, new double[]{1, 2}));
+    }
+}
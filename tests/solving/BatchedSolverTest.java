@@ -0,0 +1,130 @@
+package solving;
+
+import expressions.exceptions.*;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchedSolverTest {
+
+    /**
+     * Returns `count` random systems of dimension `dim` in the layout BatchedSolver takes: the
+     * matrices followed by the right-hand sides.
+     */
+    private static double[][] randomBatch(Random random, int dim, int count) {
+        double[] mat = new double[dim * dim * count];
+        double[] vec = new double[dim * count];
+        for (int e = 0; e < mat.length; e++) {
+            mat[e] = random.nextInt(21) - 10 + random.nextDouble();
+        }
+        for (int e = 0; e < vec.length; e++) {
+            vec[e] = random.nextInt(21) - 10;
+        }
+        return new double[][]{mat, vec};
+    }
+
+    /**
+     * Returns the matrix of system `s` of a batch of `count` systems of dimension `dim`.
+     */
+    private static double[][] system(double[] mat, int dim, int count, int s) {
+        double[][] toReturn = new double[dim][dim];
+        for (int i = 0; i < dim; i++) {
+            for (int j = 0; j < dim; j++) {
+                toReturn[i][j] = mat[(i * dim + j) * count + s];
+            }
+        }
+        return toReturn;
+    }
+
+    @Test
+    @DisplayName("Each system of a batch should have the solution returned by linear_solve, "
+            + "whether or not the batch fills its last block")
+    void testMatchesLinearSolve() throws SolvingException {
+        Random random = new Random(19);
+        for (int dim = 1; dim <= 5; dim++) {
+            for (int count : new int[]{1, 7, 256, 1000}) {
+                double[][] batch = randomBatch(random, dim, count);
+                double[] result = new double[dim * count];
+                BatchedSolver solver = new BatchedSolver(dim, count);
+                assertEquals(0, solver.solve(batch[0], batch[1], result));
+                for (int s = 0; s < count; s++) {
+                    double[] vec = new double[dim];
+                    for (int i = 0; i < dim; i++) {
+                        vec[i] = batch[1][i * count + s];
+                    }
+                    double[] expected =
+                            SystemSolver.linear_solve(system(batch[0], dim, count, s), vec);
+                    for (int i = 0; i < dim; i++) {
+                        assertEquals(expected[i], result[i * count + s],
+                                1e-9 * (1 + Math.abs(expected[i])));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("A singular system should get a solution of NaN without affecting the rest of "
+            + "the batch, and a solver should be reusable for another batch")
+    void testSingular() {
+        int dim = 3;
+        int count = 3;
+        // Entry (i, j) of system s is at mat[(i * 3 + j) * 3 + s]
+        double[] mat = {
+                2, 1, 0,    1, 2, 0,    0, 3, 0,
+                0, 2, 0,    1, 4, 0,    0, 6, 0,
+                0, 3, 0,    0, 5, 0,    1, 7, 0};
+        double[] vec = {4, 1, 0, 2, 2, 0, 3, 3, 0};
+        double[] result = new double[dim * count];
+        BatchedSolver solver = new BatchedSolver(dim, count);
+        assertEquals(dim, solver.dimension());
+        assertEquals(count, solver.count());
+
+        assertEquals(2, solver.solve(mat, vec, result));
+        assertEquals(1, result[0]);
+        assertEquals(2, result[3]);
+        assertEquals(3, result[6]);
+        for (int i = 0; i < dim; i++) {
+            assertTrue(Double.isNaN(result[i * count + 1]));
+            assertTrue(Double.isNaN(result[i * count + 2]));
+        }
+
+        // Making the third system the identity
+        mat[2] = 1;
+        mat[14] = 1;
+        mat[26] = 1;
+        assertEquals(1, solver.solve(mat, vec, result));
+        assertEquals(0, result[2]);
+        assertEquals(0, result[5]);
+        assertEquals(0, result[8]);
+        assertEquals(1, result[0]);
+    }
+
+    @Test
+    @DisplayName("The vector kernels should give results identical to the scalar kernels")
+    void testVectorMatchesScalar() {
+        Random random = new Random(23);
+        BatchKernels scalar = new ScalarBatchKernels();
+        BatchKernels vector = new VectorBatchKernels();
+        int width = 8 * vector.lanes();
+        double[] a = new double[4 * width];
+        for (int e = 0; e < a.length; e++) {
+            a[e] = random.nextInt(5) == 0 ? 0 : random.nextGaussian();
+        }
+        double[] expected = a.clone();
+        double[] actual = a.clone();
+
+        scalar.pivot(expected, 0, 2 * width, 2, width);
+        vector.pivot(actual, 0, 2 * width, 2, width);
+        assertArrayEquals(expected, actual);
+        scalar.scale(expected, 0, 2, width);
+        vector.scale(actual, 0, 2, width);
+        assertArrayEquals(expected, actual);
+        scalar.eliminate(expected, 2 * width, width, 3 * width, 1, width);
+        vector.eliminate(actual, 2 * width, width, 3 * width, 1, width);
+        assertArrayEquals(expected, actual);
+    }
+}
@@ -0,0 +1,90 @@
+package solving;
+
+import expressions.exceptions.*;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CholeskyDecompositionTest {
+
+    /**
+     * Returns the symmetric positive definite matrix BB^T + dim * I for a random matrix B.
+     */
+    private static double[][] randomPositiveDefinite(int dim, long seed) {
+        Random random = new Random(seed);
+        double[][] factor = new double[dim][dim];
+        for (double[] row : factor) {
+            for (int j = 0; j < dim; j++) {
+                row[j] = random.nextGaussian();
+            }
+        }
+        double[][] mat = new double[dim][dim];
+        for (int i = 0; i < dim; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = i == j ? dim : 0;
+                for (int k = 0; k < dim; k++) {
+                    sum += factor[i][k] * factor[j][k];
+                }
+                mat[i][j] = sum;
+                mat[j][i] = sum;
+            }
+        }
+        return mat;
+    }
+
+    @Test
+    @DisplayName("Solving with a Cholesky factorization should agree with an LU factorization, "
+            + "for one right-hand side or several")
+    void testSolve() throws SolvingException {
+        double[][] mat = {{4, -2, 1}, {-2, 4, -2}, {1, -2, 3}};
+        CholeskyDecomposition cholesky = new CholeskyDecomposition(mat);
+        assertEquals(3, cholesky.dimension());
+        assertArrayEquals(new double[]{1, -2, 3}, cholesky.solve(new double[]{11, -16, 14}));
+        double[][] rhs = {{1, 0, 11}, {0, 1, -16}, {0, 0, 14}};
+        double[][] x = cholesky.solve(rhs);
+        for (int c = 0; c < 3; c++) {
+            double[] column = cholesky.solve(new double[]{rhs[0][c], rhs[1][c], rhs[2][c]});
+            for (int i = 0; i < 3; i++) {
+                assertEquals(column[i], x[i][c]);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Factoring a matrix spanning several panels should give the solutions of an LU "
+            + "factorization")
+    void testBlocked() throws SolvingException {
+        int dim = 150;
+        double[][] mat = randomPositiveDefinite(dim, 5);
+        double[] vec = new double[dim];
+        for (int i = 0; i < dim; i++) {
+            vec[i] = i % 5 - 2;
+        }
+        double[] expected = new LUDecomposition(mat).solve(vec);
+        double[] x = new CholeskyDecomposition(DenseMatrix.of(mat)).solve(vec);
+        for (int i = 0; i < dim; i++) {
+            assertEquals(expected[i], x[i], 1e-12);
+        }
+    }
+
+    @Test
+    @DisplayName("Only symmetric matrices with a positive diagonal should be candidates, and a "
+            + "matrix that is not positive definite should throw a SolvingException")
+    void testCandidates() throws SolvingException {
+        assertTrue(CholeskyDecomposition.isCandidate(new double[][]{{2, 1}, {1, 2}}));
+        assertFalse(CholeskyDecomposition.isCandidate(new double[][]{{2, 1}, {1.5, 2}}));
+        assertFalse(CholeskyDecomposition.isCandidate(new double[][]{{2, 1}, {1, 0}}));
+        double[][] indefinite = {{1, 2}, {2, 1}};
+        assertTrue(CholeskyDecomposition.isCandidate(indefinite));
+        assertThrows(SolvingException.class, () -> new CholeskyDecomposition(indefinite));
+        // linear_solve falls back to row reduction for candidates that are not positive definite
+        assertArrayEquals(new double[]{1, 1},
+                SystemSolver.linear_solve(indefinite, new double[]{3, 3}));
+        double[][] singular = {{1, 1}, {1, 1}};
+        assertThrows(SolvingException.class,
+                () -> SystemSolver.linear_solve(singular, new double[]{1, 1}));
+    }
+}
@@ -0,0 +1,45 @@
+package solving;
+
+import expressions.exceptions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DenseMatrixTest {
+
+    @Test
+    @DisplayName("A dense matrix built from a jagged array should have the same entries, and "
+            + "converting it back should give an equal array")
+    void testConversion() {
+        double[][] mat = {{1, 2, 3}, {4, 5, 6}};
+        DenseMatrix dense = DenseMatrix.of(mat);
+        assertEquals(2, dense.rows());
+        assertEquals(3, dense.cols());
+        assertEquals(6, dense.get(1, 2));
+        dense.set(0, 1, -2);
+        assertArrayEquals(new double[][]{{1, -2, 3}, {4, 5, 6}}, dense.toArray());
+        assertEquals(2, mat[0][1]);
+        assertNotSame(dense, dense.copy());
+        assertArrayEquals(dense.toArray(), dense.copy().toArray());
+    }
+
+    @Test
+    @DisplayName("Pivoting and swapping rows should behave as SystemSolver's operations on the "
+            + "equivalent jagged array")
+    void testRowOperations() throws SolvingException {
+        double[][] mat = {{2, 1.3, 5, 6}, {1, 7, 3.2, 9}, {2.01, 6, 4, 2}, {-2.01, 0, 0, 0}};
+        DenseMatrix dense = DenseMatrix.of(mat);
+        for (int col = 0; col < 4; col++) {
+            for (int row = 0; row < 3; row++) {
+                assertEquals(SystemSolver.partialPivot(mat, col, row),
+                        dense.partialPivot(col, row));
+            }
+        }
+        dense.swapRows(0, 2);
+        SystemSolver.swapRows(mat, 0, 2);
+        assertArrayEquals(mat, dense.toArray());
+        assertThrows(SolvingException.class, () -> dense.partialPivot(1, 3));
+    }
+}
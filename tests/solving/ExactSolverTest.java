@@ -0,0 +1,251 @@
+package solving;
+
+import expressions.exceptions.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExactSolverTest {
+
+    @Test
+    @DisplayName("Rationals should be kept in lowest terms with a positive denominator, and "
+            + "doubles should convert to their exact values")
+    void testRational() {
+        Rational half = Rational.of(-3, -6);
+        assertEquals(BigInteger.ONE, half.numerator());
+        assertEquals(BigInteger.TWO, half.denominator());
+        assertEquals(Rational.of(1, 2), half);
+        assertEquals(Rational.of(1, 2).hashCode(), half.hashCode());
+        assertEquals("-2/3", Rational.of(4, -6).toString());
+        assertEquals("5", Rational.of(10, 2).toString());
+        assertEquals(Rational.of(5, 6), half.add(Rational.of(1, 3)));
+        assertEquals(Rational.of(1, 6), half.subtract(Rational.of(1, 3)));
+        assertEquals(Rational.of(-1, 3), half.multiply(Rational.of(-2, 3)));
+        assertEquals(Rational.of(3, 2), half.divide(Rational.of(1, 3)));
+        assertTrue(Rational.of(1, 3).compareTo(half) < 0);
+        assertEquals(0, Rational.ZERO.signum());
+
+        assertEquals(Rational.of(-3, 4), Rational.valueOf(-0.75));
+        assertEquals(Rational.of(BigInteger.ONE.shiftLeft(80)), Rational.valueOf(0x1p80));
+        assertEquals(Rational.of(BigInteger.ONE, BigInteger.ONE.shiftLeft(1074)),
+                Rational.valueOf(Double.MIN_VALUE));
+        Rational tenth = Rational.valueOf(0.1);
+        assertEquals(BigInteger.valueOf(3602879701896397L), tenth.numerator());
+        assertEquals(0.1, tenth.doubleValue());
+        assertEquals(1.0 / 3, Rational.of(1, 3).doubleValue());
+        assertEquals(1e300, Rational.of(BigInteger.TEN.pow(301), BigInteger.TEN).doubleValue());
+    }
+
+    @Test
+    @DisplayName("Converting to a double should round correctly, including just past a tie and "
+            + "in the subnormal range")
+    void testRationalDoubleValue() {
+        BigInteger two = BigInteger.TWO;
+        // Halfway between 1 and the next double, rounded to even, and just past halfway
+        Rational tie = Rational.ONE.add(Rational.of(BigInteger.ONE, two.pow(53)));
+        assertEquals(1.0, tie.doubleValue());
+        Rational pastTie = tie.add(Rational.of(BigInteger.ONE,
+                BigInteger.valueOf(3).shiftLeft(100)));
+        assertEquals(Math.nextUp(1.0), pastTie.doubleValue());
+        assertEquals(-Math.nextUp(1.0), pastTie.negate().doubleValue());
+
+        // Halfway between 0 and the smallest subnormal, and three quarters of the way
+        assertEquals(0.0, Rational.of(BigInteger.ONE, two.pow(1075)).doubleValue());
+        assertEquals(Double.MIN_VALUE,
+                Rational.of(BigInteger.ONE, two.pow(1075).subtract(BigInteger.ONE)).doubleValue());
+        assertEquals(-Double.MIN_VALUE,
+                Rational.of(BigInteger.valueOf(-3), two.pow(1076)).doubleValue());
+        assertEquals(-0.0, Rational.of(BigInteger.ONE.negate(), two.pow(1200)).doubleValue());
+        assertEquals(Double.POSITIVE_INFINITY,
+                Rational.of(two.pow(1100), BigInteger.valueOf(3)).doubleValue());
+
+        Random random = new Random(24);
+        for (int trial = 0; trial < 1000; trial++) {
+            double value = Double.longBitsToDouble(random.nextLong());
+            if (Double.isFinite(value)) {
+                assertEquals(value, Rational.valueOf(value).doubleValue());
+            }
+            // Against a decimal quotient far more precise than a double, which BigDecimal then
+            // rounds correctly
+            Rational quotient = Rational.of(new BigInteger(1 + random.nextInt(200), random),
+                    new BigInteger(1 + random.nextInt(200), random).add(BigInteger.ONE)
+                            .shiftLeft(random.nextInt(1100)));
+            double expected = new BigDecimal(quotient.numerator())
+                    .divide(new BigDecimal(quotient.denominator()), new MathContext(1500))
+                    .doubleValue();
+            assertEquals(expected, quotient.doubleValue());
+        }
+    }
+
+    @Test
+    @DisplayName("The reduced row echelon form should be that given by Gauss-Jordan elimination "
+            + "with fraction arithmetic, including for matrices that are not of full rank")
+    void testReducedRowEchelon() {
+        Rational[][] mat = rationals(new long[][]{
+                {1, 2, 1, -4, 1, 3}, {1, 2, -1, 2, -1, 1}, {2, 4, 1, -5, 1, 5},
+                {1, 2, 3, -10, 2, 7}});
+        Rational[][] expected = rationals(new long[][]{
+                {1, 2, 0, -1, 0, 2}, {0, 0, 1, -3, 0, 3}, {0, 0, 0, 0, 1, -2}, {0, 0, 0, 0, 0, 0}});
+        assertArrayEquals(expected, ExactSolver.reducedRowEchelon(mat));
+        assertEquals(3, ExactSolver.rank(mat));
+
+        Random random = new Random(24);
+        for (int trial = 0; trial < 40; trial++) {
+            int rows = 1 + random.nextInt(7);
+            int cols = 1 + random.nextInt(7);
+            int rank = 1 + random.nextInt(Math.min(rows, cols));
+            // A product of random rows x rank and rank x cols matrices, of rank at most `rank`
+            Rational[][] left = randomRationals(random, rows, rank);
+            Rational[][] right = randomRationals(random, rank, cols);
+            Rational[][] product = new Rational[rows][cols];
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    Rational sum = Rational.ZERO;
+                    for (int k = 0; k < rank; k++) {
+                        sum = sum.add(left[i][k].multiply(right[k][j]));
+                    }
+                    product[i][j] = sum;
+                }
+            }
+            Rational[][] reduced = fractionGaussJordan(product);
+            assertArrayEquals(reduced, ExactSolver.reducedRowEchelon(product));
+            int expectedRank = 0;
+            for (Rational[] row : reduced) {
+                for (Rational value : row) {
+                    if (value.signum() != 0) {
+                        expectedRank++;
+                        break;
+                    }
+                }
+            }
+            assertEquals(expectedRank, ExactSolver.rank(product));
+        }
+    }
+
+    @Test
+    @DisplayName("Modular solving and Bareiss elimination should both give the exact solution, "
+            + "including for large entries")
+    void testSolve() throws SolvingException {
+        Random random = new Random(24);
+        for (int dim : new int[]{1, 2, 5, 8, 13, 20}) {
+            for (int bits : new int[]{4, 40, 200}) {
+                Rational[][] mat = new Rational[dim][dim];
+                Rational[] vec = new Rational[dim];
+                for (int i = 0; i < dim; i++) {
+                    for (int j = 0; j < dim; j++) {
+                        mat[i][j] = Rational.of(new BigInteger(bits, random)
+                                .subtract(BigInteger.ONE.shiftLeft(bits - 1)),
+                                BigInteger.valueOf(1 + random.nextInt(9)));
+                    }
+                    vec[i] = Rational.of(new BigInteger(bits, random));
+                }
+                Rational[] solution = ExactSolver.solveBareiss(mat, vec);
+                assertArrayEquals(solution, ExactSolver.solveModular(mat, vec));
+                assertArrayEquals(solution, SystemSolver.linear_solve_exact(mat, vec));
+                for (int i = 0; i < dim; i++) {
+                    Rational sum = Rational.ZERO;
+                    for (int j = 0; j < dim; j++) {
+                        sum = sum.add(mat[i][j].multiply(solution[j]));
+                    }
+                    assertEquals(vec[i], sum);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("A nonsingular system whose pivot is too small for linear_solve should be solved "
+            + "exactly, and singular systems should throw a SolvingException")
+    void testSingular() throws SolvingException {
+        double[][] nearlySingular = {{1, 1}, {1, 1 + 0x1p-52}};
+        double[] vec = {1, 1 + 0x1p-52};
+        assertThrows(SolvingException.class, () -> SystemSolver.linear_solve(nearlySingular, vec));
+        assertArrayEquals(new Rational[]{Rational.ZERO, Rational.ONE},
+                SystemSolver.linear_solve_exact(nearlySingular, vec));
+
+        Rational[][] small = rationals(new long[][]{{1, 2}, {2, 4}});
+        Rational[] smallVec = rationals(new long[][]{{1, 2}})[0];
+        assertThrows(SolvingException.class, () -> ExactSolver.solveBareiss(small, smallVec));
+        assertThrows(SolvingException.class, () -> ExactSolver.solveModular(small, smallVec));
+
+        // Row 9 is the sum of rows 0 and 1, with entries large enough to need several primes
+        Random random = new Random(24);
+        Rational[][] large = randomRationals(random, 10, 10);
+        for (int j = 0; j < 10; j++) {
+            large[0][j] = large[0][j].multiply(Rational.of(BigInteger.TEN.pow(40)));
+            large[9][j] = large[0][j].add(large[1][j]);
+        }
+        Rational[] largeVec = randomRationals(random, 1, 10)[0];
+        assertThrows(SolvingException.class, () -> ExactSolver.solveBareiss(large, largeVec));
+        assertThrows(SolvingException.class,
+                () -> SystemSolver.linear_solve_exact(large, largeVec));
+        assertEquals(9, ExactSolver.rank(large));
+    }
+
+    private static Rational[][] rationals(long[][] values) {
+        Rational[][] toReturn = new Rational[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            toReturn[i] = new Rational[values[i].length];
+            for (int j = 0; j < values[i].length; j++) {
+                toReturn[i][j] = Rational.of(values[i][j]);
+            }
+        }
+        return toReturn;
+    }
+
+    private static Rational[][] randomRationals(Random random, int rows, int cols) {
+        Rational[][] toReturn = new Rational[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                toReturn[i][j] = Rational.of(random.nextInt(11) - 5, 1 + random.nextInt(4));
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * Returns the reduced row echelon form of `mat` by Gauss-Jordan elimination with fraction
+     * arithmetic.
+     */
+    private static Rational[][] fractionGaussJordan(Rational[][] mat) {
+        int rows = mat.length;
+        int cols = mat[0].length;
+        Rational[][] a = new Rational[rows][];
+        for (int i = 0; i < rows; i++) {
+            a[i] = mat[i].clone();
+        }
+        int curRow = 0;
+        for (int curCol = 0; curCol < cols && curRow < rows; curCol++) {
+            int pivotRow = curRow;
+            while (pivotRow < rows && a[pivotRow][curCol].signum() == 0) {
+                pivotRow++;
+            }
+            if (pivotRow == rows) {
+                continue;
+            }
+            Rational[] temp = a[curRow];
+            a[curRow] = a[pivotRow];
+            a[pivotRow] = temp;
+            Rational pivot = a[curRow][curCol];
+            for (int j = 0; j < cols; j++) {
+                a[curRow][j] = a[curRow][j].divide(pivot);
+            }
+            for (int i = 0; i < rows; i++) {
+                Rational factor = a[i][curCol];
+                if (i != curRow && factor.signum() != 0) {
+                    for (int j = 0; j < cols; j++) {
+                        a[i][j] = a[i][j].subtract(factor.multiply(a[curRow][j]));
+                    }
+                }
+            }
+            curRow++;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,188 @@
+package solving;
+
+import expressions.exceptions.*;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KrylovSolverTest {
+
+    /**
+     * Returns the matrix of the five-point Laplacian on a `side`-by-`side` grid, with the
+     * neighbour coefficients scaled by `skew` in one direction and 2 - `skew` in the other, so
+     * that the matrix is symmetric exactly when `skew` is 1.
+     */
+    private static SparseMatrix grid(int side, double skew) {
+        int dim = side * side;
+        SparseMatrix.Builder builder = new SparseMatrix.Builder(dim, dim);
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                int v = r * side + c;
+                builder.add(v, v, 4);
+                if (r > 0) {
+                    builder.add(v, v - side, -skew);
+                }
+                if (r < side - 1) {
+                    builder.add(v, v + side, skew - 2);
+                }
+                if (c > 0) {
+                    builder.add(v, v - 1, -1);
+                }
+                if (c < side - 1) {
+                    builder.add(v, v + 1, -1);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the norm of b - Ax relative to the norm of b, where A is `mat`, x is `x` and b is
+     * `vec`.
+     */
+    private static double relativeResidual(SparseMatrix mat, double[] x, double[] vec) {
+        double[] product = mat.multiply(x);
+        double residual = 0;
+        double norm = 0;
+        for (int i = 0; i < vec.length; i++) {
+            residual += (vec[i] - product[i]) * (vec[i] - product[i]);
+            norm += vec[i] * vec[i];
+        }
+        return Math.sqrt(residual / norm);
+    }
+
+    private static double[] randomVector(int dim) {
+        Random random = new Random(3);
+        double[] vec = new double[dim];
+        for (int i = 0; i < dim; i++) {
+            vec[i] = random.nextGaussian();
+        }
+        return vec;
+    }
+
+    @Test
+    @DisplayName("Conjugate gradient should solve a symmetric positive definite system with each "
+            + "preconditioner, and a good preconditioner should need fewer iterations")
+    void testConjugateGradient() throws SolvingException {
+        SparseMatrix mat = grid(30, 1);
+        double[] vec = randomVector(mat.rows());
+        KrylovSolver solver = new KrylovSolver(1e-10, 1000);
+        Preconditioner[] preconditioners = {Preconditioner.identity(), Preconditioner.jacobi(mat),
+                Preconditioner.ssor(mat, 1.5), Preconditioner.ilu0(mat)};
+        int[] iterations = new int[preconditioners.length];
+        for (int k = 0; k < preconditioners.length; k++) {
+            KrylovSolver.Result result =
+                    solver.conjugateGradient(LinearOperator.of(mat), vec, preconditioners[k]);
+            assertTrue(relativeResidual(mat, result.solution(), vec) <= 1e-10);
+            assertTrue(result.relativeResidual() <= 1e-10);
+            iterations[k] = result.iterations();
+        }
+        assertTrue(iterations[3] < iterations[0]);
+        assertTrue(iterations[2] < iterations[0]);
+    }
+
+    @Test
+    @DisplayName("GMRES and BiCGSTAB should solve a nonsymmetric system with each preconditioner")
+    void testGeneral() throws SolvingException {
+        SparseMatrix mat = grid(30, 1.4);
+        double[] vec = randomVector(mat.rows());
+        KrylovSolver solver = new KrylovSolver(1e-10, 2000);
+        Preconditioner[] preconditioners = {Preconditioner.identity(), Preconditioner.jacobi(mat),
+                Preconditioner.ssor(mat, 1.2), Preconditioner.ilu0(mat)};
+        for (Preconditioner precond : preconditioners) {
+            KrylovSolver.Result result = solver.gmres(LinearOperator.of(mat), vec, precond, 20);
+            assertTrue(relativeResidual(mat, result.solution(), vec) <= 1e-10);
+            assertTrue(result.relativeResidual() <= 1e-10);
+            result = solver.bicgstab(LinearOperator.of(mat), vec, precond);
+            assertTrue(relativeResidual(mat, result.solution(), vec) <= 1e-10);
+            assertTrue(result.relativeResidual() <= 1e-10);
+        }
+    }
+
+    @Test
+    @DisplayName("ILU(0) of a tridiagonal matrix is its exact LU factorization, so preconditioned "
+            + "GMRES should converge in one iteration")
+    void testExactPreconditioner() throws SolvingException {
+        double[][] mat = {{2, -1, 0, 0}, {-1, 3, -1, 0}, {0, -1, 3, -1}, {0, 0, -1, 2}};
+        double[] vec = {1, 2, 3, 4};
+        KrylovSolver solver = new KrylovSolver(1e-12, 10);
+        KrylovSolver.Result result = solver.gmres(LinearOperator.of(mat), vec,
+                Preconditioner.ilu0(SparseMatrix.of(mat)), 4);
+        assertEquals(1, result.iterations());
+        double[] x = result.solution();
+        double[] expected = SystemSolver.linear_solve(mat, vec);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(expected[i], x[i], 1e-12);
+        }
+    }
+
+    @Test
+    @DisplayName("Solvers should accept an operator that is never stored as a matrix")
+    void testMatrixFree() throws SolvingException {
+        int dim = 500;
+        // The second-difference operator with a shift, applied directly from its stencil
+        LinearOperator op = new LinearOperator() {
+            @Override
+            public int dimension() {
+                return dim;
+            }
+
+            @Override
+            public void apply(double[] vec, double[] result) {
+                for (int i = 0; i < dim; i++) {
+                    double left = i > 0 ? vec[i - 1] : 0;
+                    double right = i < dim - 1 ? vec[i + 1] : 0;
+                    result[i] = 2.5 * vec[i] - left - right;
+                }
+            }
+        };
+        double[] vec = randomVector(dim);
+        KrylovSolver solver = new KrylovSolver(1e-11, 1000);
+        double[] x = solver.conjugateGradient(op, vec, Preconditioner.identity()).solution();
+        double[] product = new double[dim];
+        op.apply(x, product);
+        for (int i = 0; i < dim; i++) {
+            assertEquals(vec[i], product[i], 1e-9);
+        }
+    }
+
+    @Test
+    @DisplayName("Running out of iterations, or a zero on the diagonal of a preconditioned "
+            + "matrix, should throw a SolvingException")
+    void testFailure() {
+        SparseMatrix mat = grid(20, 1.4);
+        double[] vec = randomVector(mat.rows());
+        KrylovSolver solver = new KrylovSolver(1e-12, 3);
+        assertThrows(SolvingException.class,
+                () -> solver.gmres(LinearOperator.of(mat), vec, Preconditioner.identity(), 10));
+        assertThrows(SolvingException.class,
+                () -> solver.bicgstab(LinearOperator.of(mat), vec, Preconditioner.identity()));
+        SparseMatrix zeroDiagonal = SparseMatrix.of(new double[][]{{0, 1}, {1, 2}});
+        assertThrows(SolvingException.class, () -> Preconditioner.jacobi(zeroDiagonal));
+        assertThrows(SolvingException.class, () -> Preconditioner.ssor(zeroDiagonal, 1));
+        assertThrows(SolvingException.class, () -> Preconditioner.ilu0(zeroDiagonal));
+    }
+
+    @Test
+    @DisplayName("Conjugate gradient on a matrix that is not positive definite, and GMRES on a "
+            + "singular matrix that maps the right-hand side to 0, should break down at once "
+            + "rather than run out of iterations")
+    void testBreakdown() {
+        KrylovSolver solver = new KrylovSolver(1e-12, 100);
+        double[] vec = {1, 1};
+        for (double[][] indefinite : new double[][][]{{{1, 0}, {0, -1}}, {{1, 0}, {0, -3}}}) {
+            SolvingException e = assertThrows(SolvingException.class,
+                    () -> solver.conjugateGradient(LinearOperator.of(indefinite), vec,
+                            Preconditioner.identity()));
+            assertEquals("Conjugate gradient broke down after 0 iterations", e.getMessage());
+        }
+        double[][] singular = {{0, 0}, {0, 1}};
+        SolvingException e = assertThrows(SolvingException.class,
+                () -> solver.gmres(LinearOperator.of(singular), new double[]{1, 0},
+                        Preconditioner.identity(), 2));
+        assertEquals("GMRES broke down after 0 iterations", e.getMessage());
+    }
+}
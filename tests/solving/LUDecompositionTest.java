@@ -0,0 +1,93 @@
+package solving;
+
+import expressions.exceptions.*;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LUDecompositionTest {
+
+    @Test
+    @DisplayName("Solving with a factorization should give the same solutions as linear_solve for "
+            + "every right-hand side, without modifying the inputs")
+    void testSolveVectors() throws SolvingException {
+        double[][] mat = {{0, 2, 1, -1}, {3, 1, 0, 2}, {1, -1, 4, 0}, {2, 0, 1, 5}};
+        double[][] copy = {{0, 2, 1, -1}, {3, 1, 0, 2}, {1, -1, 4, 0}, {2, 0, 1, 5}};
+        LUDecomposition lu = new LUDecomposition(mat);
+        assertEquals(4, lu.dimension());
+        double[][] vecs = {{1, 2, 3, 4}, {0, 0, 0, 0}, {-2.5, 7, 0.1, 3}};
+        for (double[] vec : vecs) {
+            double[] expected = SystemSolver.linear_solve(mat, vec);
+            assertArrayEquals(expected, lu.solve(vec));
+        }
+        assertArrayEquals(copy, mat);
+    }
+
+    @Test
+    @DisplayName("Solving for a matrix of right-hand sides should solve each column as solving for "
+            + "that column alone does")
+    void testSolveMatrix() throws SolvingException {
+        double[][] mat = {{4, -2, 1}, {-2, 4, -2}, {1, -2, 3}};
+        double[][] rhs = {{1, 0, 11}, {0, 1, -16}, {0, 0, 14}};
+        LUDecomposition lu = new LUDecomposition(mat);
+        double[][] x = lu.solve(rhs);
+        for (int c = 0; c < 3; c++) {
+            double[] column = lu.solve(new double[]{rhs[0][c], rhs[1][c], rhs[2][c]});
+            for (int i = 0; i < 3; i++) {
+                assertEquals(column[i], x[i][c]);
+            }
+        }
+        assertArrayEquals(new double[]{1, -2, 3}, lu.solve(new double[]{11, -16, 14}));
+    }
+
+    @Test
+    @DisplayName("Factoring a singular matrix should throw a SolvingException")
+    void testSingular() {
+        double[][] mat = {{1, 2, 3}, {2, 4, 6}, {0, 1, 1}};
+        assertThrows(SolvingException.class, () -> new LUDecomposition(mat));
+    }
+
+    @Test
+    @DisplayName("Factoring a matrix spanning several blocks should give solutions satisfying the "
+            + "system, equal to those found by elimination on the augmented matrix")
+    void testBlocked() throws SolvingException {
+        int dim = 150;
+        Random random = new Random(42);
+        double[][] mat = new double[dim][dim];
+        double[] vec = new double[dim];
+        for (int i = 0; i < dim; i++) {
+            vec[i] = random.nextGaussian();
+            for (int j = 0; j < dim; j++) {
+                mat[i][j] = random.nextGaussian();
+            }
+        }
+        double[] x = new LUDecomposition(mat).solve(vec);
+
+        // Unblocked elimination with SystemSolver's row operations
+        double[][] augment = SystemSolver.augment(mat, vec);
+        for (int j = 0; j < dim; j++) {
+            SystemSolver.swapRows(augment, j, SystemSolver.partialPivot(augment, j, j));
+            SystemSolver.scaleRow(augment, j, 1 / augment[j][j]);
+            SystemSolver.eliminateBelow(augment, j, j);
+        }
+        double[] expected = new double[dim];
+        for (int i = dim - 1; i >= 0; i--) {
+            double rowSum = augment[i][dim];
+            for (int k = dim - 1; k > i; k--) {
+                rowSum -= augment[i][k] * expected[k];
+            }
+            expected[i] = rowSum;
+        }
+        for (int i = 0; i < dim; i++) {
+            assertEquals(SystemSolver.round(expected[i], 14), x[i]);
+            double residual = -vec[i];
+            for (int j = 0; j < dim; j++) {
+                residual += mat[i][j] * x[j];
+            }
+            assertEquals(0, residual, 1e-9);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package solving;
+
+import expressions.exceptions.*;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeastSquaresTest {
+
+    @Test
+    @DisplayName("An inconsistent overdetermined system should have the least-squares solution "
+            + "and residual, and a consistent one its exact solution")
+    void testSmall() throws SolvingException {
+        double[][] mat = {{1, 0}, {0, 1}, {1, 1}};
+        LeastSquares problem = new LeastSquares(2);
+        problem.addRows(mat, new double[]{1, 1, 3});
+        assertEquals(3, problem.rowCount());
+        assertArrayEquals(new double[]{1.33333333333333, 1.33333333333333}, problem.solution());
+        assertEquals(1 / Math.sqrt(3), problem.residualNorm(), 1e-14);
+
+        assertArrayEquals(new double[]{2, -1},
+                SystemSolver.least_squares(mat, new double[]{2, -1, 1}));
+    }
+
+    @Test
+    @DisplayName("Adding rows in batches spanning several chunks should give the solution of the "
+            + "normal equations, with the residual norm of that solution")
+    void testBatches() throws SolvingException {
+        int rows = 2500;
+        int cols = 20;
+        Random random = new Random(11);
+        double[][] mat = new double[rows][cols];
+        double[] vec = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                mat[i][j] = random.nextGaussian();
+            }
+            vec[i] = random.nextGaussian();
+        }
+        LeastSquares problem = new LeastSquares(cols);
+        for (int start = 0; start < rows; start += 700) {
+            int end = Math.min(rows, start + 700);
+            problem.addRows(Arrays.copyOfRange(mat, start, end), Arrays.copyOfRange(vec, start, end));
+        }
+        double[] x = problem.solution();
+
+        // The normal equations A^T A x = A^T b
+        double[][] normal = new double[cols][cols];
+        double[] rhs = new double[cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                rhs[j] += mat[i][j] * vec[i];
+                for (int k = 0; k < cols; k++) {
+                    normal[j][k] += mat[i][j] * mat[i][k];
+                }
+            }
+        }
+        double[] expected = SystemSolver.linear_solve(normal, rhs);
+        for (int j = 0; j < cols; j++) {
+            assertEquals(expected[j], x[j], 1e-12);
+        }
+        double residual = 0;
+        for (int i = 0; i < rows; i++) {
+            double difference = vec[i];
+            for (int j = 0; j < cols; j++) {
+                difference -= mat[i][j] * x[j];
+            }
+            residual += difference * difference;
+        }
+        assertEquals(Math.sqrt(residual), problem.residualNorm(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("A matrix without full column rank should throw a SolvingException")
+    void testRankDeficient() {
+        double[][] mat = {{1, 2}, {2, 4}, {3, 6}};
+        assertThrows(SolvingException.class,
+                () -> SystemSolver.least_squares(mat, new double[]{1, 2, 3}));
+        assertThrows(SolvingException.class, () -> new LeastSquares(3).solution());
+    }
+}
@@ -0,0 +1,124 @@
+package solving;
+
+import expressions.exceptions.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MixedPrecisionLUTest {
+
+    @Test
+    @DisplayName("Refining a single-precision factorization of a well-conditioned matrix should "
+            + "give the solution of linear_solve, without falling back to double precision")
+    void testWellConditioned() throws SolvingException {
+        Random random = new Random(23);
+        for (int dim : new int[]{1, 5, 70, 200}) {
+            double[][] mat = new double[dim][dim];
+            double[] vec = new double[dim];
+            for (int i = 0; i < dim; i++) {
+                vec[i] = random.nextInt(21) - 10;
+                for (int j = 0; j < dim; j++) {
+                    mat[i][j] = random.nextGaussian();
+                }
+                mat[i][i] += dim;
+            }
+            double[] expected = SystemSolver.linear_solve(mat, vec);
+            MixedPrecisionLU lu = new MixedPrecisionLU(mat);
+            assertEquals(dim, lu.dimension());
+            MixedPrecisionLU.Result result = lu.solveWithDiagnostics(vec);
+            assertFalse(result.fellBackToDouble());
+            assertTrue(result.refinementSteps() <= 5);
+            double[] actual = result.solution();
+            assertArrayEquals(actual, lu.solve(vec));
+            for (int i = 0; i < dim; i++) {
+                assertEquals(expected[i], actual[i], 1e-13);
+            }
+            double[] mixed = SystemSolver.linear_solve_mixed(mat, vec);
+            assertArrayEquals(actual, mixed);
+        }
+    }
+
+    @Test
+    @DisplayName("When refinement stalls on an ill-conditioned matrix, or the matrix cannot be "
+            + "stored in single precision, the double-precision solution should be returned")
+    void testFallBack() throws SolvingException {
+        // The Hilbert matrix of dimension 10 has condition number about 1.6e13
+        double[][] hilbert = new double[10][10];
+        double[] vec = new double[10];
+        for (int i = 0; i < 10; i++) {
+            vec[i] = i + 1;
+            for (int j = 0; j < 10; j++) {
+                hilbert[i][j] = 1.0 / (i + j + 1);
+            }
+        }
+        MixedPrecisionLU.Result result = new MixedPrecisionLU(hilbert).solveWithDiagnostics(vec);
+        assertTrue(result.fellBackToDouble());
+        assertArrayEquals(new LUDecomposition(hilbert).solve(vec), result.solution());
+
+        double[][] huge = {{1e300, 2e300}, {3, 1}};
+        result = new MixedPrecisionLU(huge).solveWithDiagnostics(new double[]{3e300, 4});
+        assertTrue(result.fellBackToDouble());
+        assertEquals(0, result.refinementSteps());
+        assertArrayEquals(new double[]{1, 1}, result.solution());
+    }
+
+    @Test
+    @DisplayName("One instance solving from several threads at once, including ones that fall "
+            + "back to double precision, should give each thread its own solution and diagnostics")
+    void testConcurrentSolves() throws Exception {
+        double[][] hilbert = new double[10][10];
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 10; j++) {
+                hilbert[i][j] = 1.0 / (i + j + 1);
+            }
+        }
+        MixedPrecisionLU lu = new MixedPrecisionLU(hilbert);
+        LUDecomposition exact = new LUDecomposition(hilbert);
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            double[] vec = new double[10];
+            vec[t] = 1;
+            tasks.add(() -> {
+                for (int trial = 0; trial < 50; trial++) {
+                    MixedPrecisionLU.Result result = lu.solveWithDiagnostics(vec);
+                    if (!result.fellBackToDouble()
+                            || !Arrays.equals(exact.solve(vec), result.solution())) {
+                        return false;
+                    }
+                }
+                return true;
+            });
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            for (Future<Boolean> future : pool.invokeAll(tasks)) {
+                assertTrue(future.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Solving a singular system should throw a SolvingException")
+    void testSingular() {
+        double[][] mat1 = {{1, 2}, {2, 4}};
+        assertThrows(SolvingException.class,
+                () -> SystemSolver.linear_solve_mixed(mat1, new double[]{1, 2}));
+
+        // Singular in double precision, though rounding leaves a small pivot in single precision
+        double[][] mat2 = {{0.1, 0.2, 0.3}, {0.4, 0.5, 0.6}, {0.7, 0.8, 0.9}};
+        assertThrows(SolvingException.class,
+                () -> SystemSolver.linear_solve_mixed(mat2, new double[]{1, 2, 3}));
+    }
+}
@@ -0,0 +1,110 @@
+package solving;
+
+import expressions.exceptions.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapLUTest {
+
+    private static double[][] randomMatrix(Random random, int dim) {
+        double[][] toReturn = new double[dim][dim];
+        for (int i = 0; i < dim; i++) {
+            for (int j = 0; j < dim; j++) {
+                toReturn[i][j] = random.nextInt(21) - 10 + random.nextDouble();
+            }
+        }
+        return toReturn;
+    }
+
+    @Test
+    @DisplayName("An off-heap matrix should store its entries across chunks, and read and write "
+            + "partial rows")
+    void testMatrix() {
+        // Chunks of two rows of three entries
+        OffHeapMatrix mat = OffHeapMatrix.allocate(5, 3, 48);
+        assertEquals(5, mat.rows());
+        assertEquals(3, mat.cols());
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 3; j++) {
+                mat.set(i, j, 10 * i + j);
+            }
+        }
+        assertEquals(42, mat.get(4, 2));
+        assertEquals(21, mat.get(2, 1));
+
+        double[] row = new double[3];
+        mat.getRow(3, row);
+        assertArrayEquals(new double[]{30, 31, 32}, row);
+        mat.setRow(1, 1, new double[]{-1, -2, -3});
+        mat.getRow(1, row);
+        assertArrayEquals(new double[]{10, -2, -3}, row);
+
+        mat.swapRows(0, 4);
+        assertEquals(40, mat.get(0, 0));
+        assertEquals(2, mat.get(4, 2));
+    }
+
+    @Test
+    @DisplayName("A matrix mapped from a file should keep its entries in the file")
+    void testMap() throws IOException {
+        Path file = Files.createTempFile("offheap", ".bin");
+        try {
+            OffHeapMatrix mat = OffHeapMatrix.map(file, 4, 5, 80);
+            for (int i = 0; i < 4; i++) {
+                for (int j = 0; j < 5; j++) {
+                    mat.set(i, j, i - 2.5 * j);
+                }
+            }
+            mat.force();
+            assertEquals(4 * 5 * Double.BYTES, Files.size(file));
+
+            OffHeapMatrix reopened = OffHeapMatrix.map(file, 4, 5);
+            for (int i = 0; i < 4; i++) {
+                for (int j = 0; j < 5; j++) {
+                    assertEquals(i - 2.5 * j, reopened.get(i, j));
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("Factoring an off-heap matrix in place should give the solutions of "
+            + "LUDecomposition, however the rows are chunked")
+    void testMatchesLUDecomposition() throws SolvingException {
+        Random random = new Random(21);
+        for (int dim : new int[]{1, 2, 7, 40, 150, 330}) {
+            double[][] mat = randomMatrix(random, dim);
+            double[] vec = new double[dim];
+            for (int i = 0; i < dim; i++) {
+                vec[i] = random.nextInt(21) - 10;
+            }
+            double[] expected = new LUDecomposition(mat).solve(vec);
+            for (int chunkBytes : new int[]{1, 3 * dim * Double.BYTES, Integer.MAX_VALUE}) {
+                OffHeapMatrix offHeap = OffHeapMatrix.allocate(dim, dim, chunkBytes);
+                for (int i = 0; i < dim; i++) {
+                    offHeap.setRow(i, mat[i]);
+                }
+                OffHeapLU lu = new OffHeapLU(offHeap);
+                assertEquals(dim, lu.dimension());
+                assertArrayEquals(expected, lu.solve(vec));
+            }
+            assertArrayEquals(expected, SystemSolver.offheap_solve(OffHeapMatrix.of(mat), vec));
+        }
+    }
+
+    @Test
+    @DisplayName("Factoring a singular off-heap matrix should throw a SolvingException")
+    void testSingular() {
+        double[][] mat = {{1, 2, 3}, {2, 4, 6}, {0, 1, 1}};
+        assertThrows(SolvingException.class, () -> new OffHeapLU(OffHeapMatrix.of(mat)));
+    }
+}
@@ -0,0 +1,98 @@
+package solving;
+
+import expressions.exceptions.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutOfCoreLUTest {
+
+    @Test
+    @DisplayName("A tiled matrix should keep its entries in its file, in tiles")
+    void testTiledMatrix() throws IOException {
+        Path file = Files.createTempFile("tiled", ".bin");
+        try {
+            TiledMatrix mat = TiledMatrix.map(file, 5, 2);
+            assertEquals(5, mat.dimension());
+            assertEquals(2, mat.tileSize());
+            mat.setRow(1, new double[]{1, 2, 3, 4, 5});
+            mat.set(4, 4, 9);
+            assertEquals(3, mat.get(1, 2));
+            assertEquals(0, mat.get(2, 2));
+            mat.force();
+            // Three panels of five rows of two entries
+            assertEquals(3 * 5 * 2 * Double.BYTES, Files.size(file));
+
+            TiledMatrix reopened = TiledMatrix.map(file, 5, 2);
+            assertEquals(5, reopened.get(1, 4));
+            assertEquals(9, reopened.get(4, 4));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("Factoring a tiled matrix out of core should give the solutions of "
+            + "LUDecomposition, whatever the tile size and number of panels held in memory")
+    void testMatchesLUDecomposition() throws SolvingException, IOException {
+        Random random = new Random(22);
+        Path file = Files.createTempFile("tiled", ".bin");
+        try {
+            for (int dim : new int[]{1, 6, 45, 130}) {
+                double[][] mat = new double[dim][dim];
+                double[] vec = new double[dim];
+                for (int i = 0; i < dim; i++) {
+                    vec[i] = random.nextInt(21) - 10;
+                    for (int j = 0; j < dim; j++) {
+                        mat[i][j] = random.nextInt(21) - 10 + random.nextDouble();
+                    }
+                }
+                double[] expected = new LUDecomposition(mat).solve(vec);
+                for (int tileSize : new int[]{1, 4, 16, dim}) {
+                    // One panel in memory at a time, three, and all of them
+                    long panelBytes = (long) dim * tileSize * Double.BYTES;
+                    for (long memory : new long[]{0, 3 * panelBytes, Long.MAX_VALUE}) {
+                        Files.deleteIfExists(file);
+                        TiledMatrix tiled = TiledMatrix.map(file, dim, tileSize);
+                        for (int i = 0; i < dim; i++) {
+                            tiled.setRow(i, mat[i]);
+                        }
+                        OutOfCoreLU lu = new OutOfCoreLU(tiled, memory);
+                        assertEquals(dim, lu.dimension());
+                        assertArrayEquals(expected, lu.solve(vec));
+                    }
+                }
+                Files.deleteIfExists(file);
+                TiledMatrix tiled = TiledMatrix.map(file, dim);
+                for (int i = 0; i < dim; i++) {
+                    tiled.setRow(i, mat[i]);
+                }
+                assertArrayEquals(expected, SystemSolver.linear_solve(tiled, vec));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("Factoring a singular tiled matrix should throw a SolvingException")
+    void testSingular() throws IOException {
+        Path file = Files.createTempFile("tiled", ".bin");
+        try {
+            TiledMatrix mat = TiledMatrix.map(file, 4, 2);
+            mat.setRow(0, new double[]{1, 2, 3, 4});
+            mat.setRow(1, new double[]{0, 1, 1, 1});
+            mat.setRow(2, new double[]{1, 3, 4, 5});
+            mat.setRow(3, new double[]{2, 1, 0, 3});
+            assertThrows(SolvingException.class, () -> new OutOfCoreLU(mat));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
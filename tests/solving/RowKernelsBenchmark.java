@@ -0,0 +1,94 @@
+package solving;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Times the scalar row kernels against the vector kernels at each vector width, for rows of
+ * several lengths, and prints the time per entry and the speedup over the scalar kernels. Run
+ * with --add-modules jdk.incubator.vector after compiling the tests. The width of the vector
+ * kernels is fixed when they are loaded (see VectorRowKernels), so each width is measured in a
+ * separate JVM. Widths wider than the hardware supports still run, but far more slowly than the
+ * scalar kernels, since the JIT compiler cannot turn them into vector instructions.
+ */
+class RowKernelsBenchmark {
+
+    /**
+     * The approximate number of entries each measurement processes.
+     */
+    private static final int WORK = 1 << 24;
+
+    private static final int[] LENGTHS = {8, 64, 512, 4096};
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && args[0].equals("--measure")) {
+            measure();
+            return;
+        }
+        for (String bits : new String[]{"64", "128", "256", "512"}) {
+            List<String> command = new ArrayList<>();
+            command.add(ProcessHandle.current().info().command().orElse("java"));
+            command.add("--add-modules");
+            command.add("jdk.incubator.vector");
+            command.add("-Dsolving.vectorBits=" + bits);
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(RowKernelsBenchmark.class.getName());
+            command.add("--measure");
+            Process child = new ProcessBuilder(command).redirectErrorStream(true).start();
+            String output = new String(child.getInputStream().readAllBytes());
+            child.waitFor();
+            for (String line : output.split("\n")) {
+                if (!line.startsWith("WARNING")) {
+                    System.out.println(line);
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints the timings of the scalar kernels and of the vector kernels at the width this JVM
+     * was started with.
+     */
+    private static void measure() {
+        int bits = VectorRowKernels.SPECIES.vectorBitSize();
+        RowKernels scalar = new ScalarRowKernels();
+        RowKernels vector = new VectorRowKernels();
+        for (int length : LENGTHS) {
+            double scalarTime = time(scalar, length);
+            double vectorTime = time(vector, length);
+            System.out.printf("%3d-bit  length %5d  scalar %6.3f ns/entry  vector %6.3f "
+                    + "ns/entry  speedup %.2fx%n", bits, length, scalarTime, vectorTime,
+                    scalarTime / vectorTime);
+        }
+    }
+
+    /**
+     * Returns the best time per entry, in nanoseconds, of applying an axpy, a scale and a swap
+     * with `kernels` to rows of `length` entries.
+     */
+    private static double time(RowKernels kernels, int length) {
+        double[][] rows = new double[64][length];
+        for (int i = 0; i < rows.length; i++) {
+            for (int j = 0; j < length; j++) {
+                rows[i][j] = (i + 1) * 0.5 + j * 1e-3;
+            }
+        }
+        int passes = Math.max(1, WORK / (rows.length * length));
+        double best = Double.MAX_VALUE;
+        for (int trial = 0; trial < 5; trial++) {
+            long start = System.nanoTime();
+            for (int p = 0; p < passes; p++) {
+                for (int i = 1; i < rows.length; i++) {
+                    kernels.axpy(-1e-3, rows[i - 1], rows[i], 0);
+                    kernels.scale(rows[i], 0, 1.0000001);
+                    kernels.swap(rows[i], rows[i - 1], 0);
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            best = Math.min(best, (double) elapsed / ((long) passes * (rows.length - 1) * length));
+        }
+        return best;
+    }
+}
@@ -0,0 +1,46 @@
+package solving;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowKernelsTest {
+
+    @Test
+    @DisplayName("The vector kernels should give results identical to the scalar kernels, for "
+            + "every row length and starting column")
+    void testVectorMatchesScalar() {
+        Random random = new Random(21);
+        RowKernels scalar = new ScalarRowKernels();
+        RowKernels vector = new VectorRowKernels();
+        for (int length = 1; length <= 40; length++) {
+            for (int from = 0; from < length; from += 3) {
+                double[] a = new double[length];
+                double[] b = new double[length];
+                for (int j = 0; j < length; j++) {
+                    a[j] = random.nextGaussian();
+                    b[j] = random.nextGaussian();
+                }
+                double factor = random.nextGaussian();
+                double[] expectedA = a.clone();
+                double[] expectedB = b.clone();
+                double[] actualA = a.clone();
+                double[] actualB = b.clone();
+
+                scalar.axpy(factor, expectedA, expectedB, from);
+                vector.axpy(factor, actualA, actualB, from);
+                assertArrayEquals(expectedB, actualB);
+                scalar.scale(expectedA, from, factor);
+                vector.scale(actualA, from, factor);
+                assertArrayEquals(expectedA, actualA);
+                scalar.swap(expectedA, expectedB, from);
+                vector.swap(actualA, actualB, from);
+                assertArrayEquals(expectedA, actualA);
+                assertArrayEquals(expectedB, actualB);
+            }
+        }
+    }
+}
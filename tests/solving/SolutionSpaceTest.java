@@ -0,0 +1,67 @@
+package solving;
+
+import expressions.exceptions.*;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolutionSpaceTest {
+
+    @Test
+    @DisplayName("A system with a unique solution should have every variable as a pivot and that "
+            + "solution as its particular solution")
+    void testUnique() throws SolvingException {
+        double[][] mat = {{-5, 5, 10}, {3, -1, -2}, {3, -6, -6}, {6, -2, -4}};
+        double[] vec = {-10, -2, -24, -4};
+        SolutionSpace space = SystemSolver.solution_space(mat, vec);
+        assertTrue(space.isUnique());
+        assertEquals(3, space.rank());
+        assertEquals(3, space.variableCount());
+        assertArrayEquals(new int[]{0, 1, 2}, space.pivotColumns());
+        assertArrayEquals(new int[0], space.freeVariables());
+        assertArrayEquals(new double[]{-2, 10, -7}, space.particularSolution());
+        assertEquals(0, space.nullSpaceBasis().length);
+        assertEquals(List.of("x1 = -2.0", "x2 = 10.0", "x3 = -7.0"), space.equations());
+    }
+
+    @Test
+    @DisplayName("A system with infinitely many solutions should have a null space basis with one "
+            + "vector per free variable, and every combination should solve the system")
+    void testInfinite() throws SolvingException {
+        double[][] mat = {{1, 2, 1, -4, 1}, {1, 2, -1, 2, -1}, {2, 4, 1, -5, 1}, {1, 2, 3, -10, 2}};
+        double[] vec = {3, 1, 5, 7};
+        SolutionSpace space = SystemSolver.solution_space(mat, vec);
+        assertFalse(space.isUnique());
+        assertEquals(3, space.rank());
+        assertArrayEquals(new int[]{0, 2, 4}, space.pivotColumns());
+        assertArrayEquals(new int[]{1, 3}, space.freeVariables());
+        assertArrayEquals(new double[][]{{-2, 1, 0, 0, 0}, {1, 0, 3, 1, 0}},
+                space.nullSpaceBasis());
+        assertEquals(SystemSolver.linear_solve_general(mat, vec), space.equations());
+
+        double[][] points = {{0, 0}, {1, 0}, {0, 1}, {-2.5, 4}};
+        for (double[] freeValues : points) {
+            double[] x = space.solution(freeValues);
+            assertEquals(freeValues[0], x[1]);
+            assertEquals(freeValues[1], x[3]);
+            for (int i = 0; i < mat.length; i++) {
+                double sum = 0;
+                for (int j = 0; j < x.length; j++) {
+                    sum += mat[i][j] * x[j];
+                }
+                assertEquals(vec[i], sum, 1e-12);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("An inconsistent system should throw a SolvingException")
+    void testInconsistent() {
+        double[][] mat = {{1, 1}, {2, 2}};
+        assertThrows(SolvingException.class,
+                () -> SystemSolver.solution_space(mat, new double[]{1, 3}));
+    }
+}
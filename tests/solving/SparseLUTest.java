@@ -0,0 +1,112 @@
+package solving;
+
+import expressions.exceptions.*;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SparseLUTest {
+
+    @Test
+    @DisplayName("Sparse solutions should agree with linear_solve, including when a zero on the "
+            + "diagonal forces a row exchange")
+    void testSolve() throws SolvingException {
+        double[][] mat = {{0, 2, 0, 0, 1}, {3, 0, 0, 1, 0}, {0, 0, 4, 0, -1}, {1, 0, 0, 2, 0},
+                {0, 1, 0, 0, 3}};
+        double[] vec = {1, 2, 3, 4, 5};
+        double[] expected = SystemSolver.linear_solve(mat, vec);
+        double[] x = SystemSolver.sparse_solve(SparseMatrix.of(mat), vec);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(expected[i], x[i], 1e-12);
+        }
+
+        Random random = new Random(7);
+        int dim = 60;
+        double[][] randomMat = new double[dim][dim];
+        double[] randomVec = new double[dim];
+        for (int i = 0; i < dim; i++) {
+            randomVec[i] = random.nextGaussian();
+            randomMat[i][i] = 4 + random.nextDouble();
+            for (int k = 0; k < 3; k++) {
+                randomMat[i][random.nextInt(dim)] += random.nextGaussian();
+            }
+        }
+        expected = SystemSolver.linear_solve(randomMat, randomVec);
+        x = new SparseLU(SparseMatrix.of(randomMat)).solve(randomVec);
+        for (int i = 0; i < dim; i++) {
+            assertEquals(expected[i], x[i], 1e-10);
+        }
+    }
+
+    @Test
+    @DisplayName("A large two-dimensional Laplacian should be solved with a residual near zero "
+            + "and far fewer stored entries than a dense factorization")
+    void testLaplacian() throws SolvingException {
+        int side = 60;
+        int dim = side * side;
+        SparseMatrix.Builder builder = new SparseMatrix.Builder(dim, dim);
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                int v = r * side + c;
+                builder.add(v, v, 4);
+                if (r > 0) {
+                    builder.add(v, v - side, -1);
+                }
+                if (r < side - 1) {
+                    builder.add(v, v + side, -1);
+                }
+                if (c > 0) {
+                    builder.add(v, v - 1, -1);
+                }
+                if (c < side - 1) {
+                    builder.add(v, v + 1, -1);
+                }
+            }
+        }
+        SparseMatrix mat = builder.build();
+        double[] vec = new double[dim];
+        for (int i = 0; i < dim; i++) {
+            vec[i] = i % 7 - 3;
+        }
+        SparseLU lu = new SparseLU(mat);
+        assertEquals(dim, lu.dimension());
+        assertTrue(lu.nonZeros() < (long) dim * dim / 10);
+        double[] x = lu.solve(vec);
+        double[] product = mat.multiply(x);
+        for (int i = 0; i < dim; i++) {
+            assertEquals(vec[i], product[i], 1e-9);
+        }
+    }
+
+    @Test
+    @DisplayName("Refactoring a matrix with the same pattern should give the solutions of a fresh "
+            + "factorization, and a different pattern should be rejected")
+    void testRefactor() throws SolvingException {
+        double[][] first = {{4, 1, 0}, {1, 5, 2}, {0, 2, 6}};
+        double[][] second = {{-3, 2, 0}, {1, 1, 7}, {0, 4, 2}};
+        double[] vec = {1, -2, 3};
+        SparseLU.Analysis analysis = SparseLU.analyze(SparseMatrix.of(first));
+        assertEquals(3, analysis.dimension());
+        SparseLU lu = new SparseLU(analysis, SparseMatrix.of(first));
+        lu.refactor(SparseMatrix.of(second));
+        double[] expected = SystemSolver.linear_solve(second, vec);
+        double[] x = lu.solve(vec);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(expected[i], x[i], 1e-12);
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> lu.refactor(SparseMatrix.of(new double[][]{{1, 0, 1}, {1, 5, 2}, {0, 2, 6}})));
+    }
+
+    @Test
+    @DisplayName("Factoring a singular matrix should throw a SolvingException")
+    void testSingular() {
+        double[][] mat = {{1, 2, 0}, {2, 4, 0}, {0, 0, 1}};
+        assertThrows(SolvingException.class, () -> new SparseLU(SparseMatrix.of(mat)));
+        assertThrows(SolvingException.class,
+                () -> SystemSolver.sparse_solve(SparseMatrix.of(mat), new double[]{1, 2, 3}));
+    }
+}
@@ -0,0 +1,58 @@
+package solving;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SparseMatrixTest {
+
+    @Test
+    @DisplayName("A sparse matrix built from a dense array should store only its nonzero entries, "
+            + "and converting it back should give an equal array")
+    void testConversion() {
+        double[][] mat = {{0, 2, 0, 0}, {1, 0, 0, -3}, {0, 0, 0, 0}};
+        SparseMatrix sparse = SparseMatrix.of(mat);
+        assertEquals(3, sparse.rows());
+        assertEquals(4, sparse.cols());
+        assertEquals(3, sparse.nonZeros());
+        assertEquals(-3, sparse.get(1, 3));
+        assertEquals(0, sparse.get(2, 1));
+        assertEquals(0, sparse.get(0, 0));
+        assertArrayEquals(mat, sparse.toArray());
+    }
+
+    @Test
+    @DisplayName("A builder should accept entries in any order and sum entries added at the same "
+            + "position")
+    void testBuilder() {
+        SparseMatrix sparse = new SparseMatrix.Builder(3, 3)
+                .add(2, 0, 4)
+                .add(0, 2, 1)
+                .add(1, 1, 5)
+                .add(0, 0, -1)
+                .add(0, 2, 2.5)
+                .add(2, 0, 1)
+                .build();
+        assertEquals(4, sparse.nonZeros());
+        assertArrayEquals(new double[][]{{-1, 0, 3.5}, {0, 5, 0}, {5, 0, 0}}, sparse.toArray());
+        assertTrue(sparse.samePattern(SparseMatrix.of(new double[][]{{7, 0, 1}, {0, 2, 0},
+                {3, 0, 0}})));
+        assertFalse(sparse.samePattern(SparseMatrix.of(new double[][]{{7, 1, 0}, {0, 2, 0},
+                {3, 0, 0}})));
+    }
+
+    @Test
+    @DisplayName("Multiplying and transposing should match the dense operations")
+    void testOperations() {
+        double[][] mat = {{1, 0, 2}, {0, 0, -1}, {3, 4, 0}, {0, 5, 0}};
+        SparseMatrix sparse = SparseMatrix.of(mat);
+        assertArrayEquals(new double[]{7, -3, 11, 10}, sparse.multiply(new double[]{1, 2, 3}));
+        SparseMatrix transpose = sparse.transpose();
+        assertEquals(3, transpose.rows());
+        assertEquals(4, transpose.cols());
+        assertArrayEquals(new double[][]{{1, 0, 3, 0}, {0, 0, 4, 5}, {2, -1, 0, 0}},
+                transpose.toArray());
+        assertArrayEquals(mat, transpose.transpose().toArray());
+    }
+}
@@ -2,6 +2,7 @@ package solving;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Random;
 import expressions.exceptions.*;
 import expressions.*;
 
@@ -185,6 +186,33 @@ class SystemSolverTest {
         assertTrue(Arrays.deepEquals(result2, mat2));
     }
 
+    @Test
+    @DisplayName("Eliminating a pivot column in parallel should give exactly the same matrix as "
+            + "eliminating it serially, for small and large matrices")
+    void testEliminateParallel() {
+        double[][] mat1 = {{1, -2, -12, 12}, {1, 1, 1, 2}, {2, 3, 4, 3}};
+        double[][] result1 = {{0, -3, -13, 10}, {1, 1, 1, 2}, {0, 1, 2, -1}};
+        SystemSolver.eliminateParallel(mat1, 1, 0);
+        assertTrue(Arrays.deepEquals(result1, mat1));
+
+        Random random = new Random(11);
+        double[][] mat2 = new double[400][401];
+        for (double[] row : mat2) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] = random.nextGaussian();
+            }
+        }
+        double[][] mat3 = new double[400][];
+        for (int i = 0; i < 400; i++) {
+            mat3[i] = mat2[i].clone();
+        }
+        SystemSolver.scaleRow(mat2, 7, 1 / mat2[7][3]);
+        SystemSolver.scaleRow(mat3, 7, 1 / mat3[7][3]);
+        SystemSolver.eliminate(mat2, 7, 3);
+        SystemSolver.eliminateParallel(mat3, 7, 3);
+        assertTrue(Arrays.deepEquals(mat2, mat3));
+    }
+
     @Test
     @DisplayName("When a number is rounded to some number of decimal places, the correctly "
             + "rounded answer should be returned")
@@ -354,4 +382,203 @@ class SystemSolverTest {
         assertArrayEquals(result33, SystemSolver.nonlinear_solve(input3, vars3, start36));
     }
 
+    @Test
+    @DisplayName("When a nonlinear system is solved with forward-mode automatic differentiation "
+            + "for the Jacobian, the same roots are found as with symbolic differentiation")
+    void testNonLinearDual()
+            throws SolvingException, IncompleteExpressionException, UnreadableCharacterException {
+        Expression[] input1 = {InputParser.parse("x^2 + x - 6")};
+        String[] vars1 = {"x"};
+        assertArrayEquals(new double[]{2}, SystemSolver.nonlinear_solve(input1, vars1,
+                new double[]{2.7}, JacobianStrategy.DUAL));
+        assertArrayEquals(new double[]{-3}, SystemSolver.nonlinear_solve(input1, vars1,
+                new double[]{-5}, JacobianStrategy.DUAL));
+
+        Expression[] input2 = {InputParser.parse("(3x^2-3)/(1+y^2)-2xz+2z"),
+                InputParser.parse("2yz+((2y)(x^3-3x))/(1+y^2)^2"), InputParser.parse("(x-1)^2+y^2-9")};
+        String[] vars2 = {"x", "y", "z"};
+        assertArrayEquals(new double[]{-2, 0, -1.5}, SystemSolver.nonlinear_solve(input2, vars2,
+                new double[]{-1.7, 0.2, -1.4}, JacobianStrategy.DUAL));
+        assertArrayEquals(new double[]{4, 0, 7.5}, SystemSolver.nonlinear_solve(input2, vars2,
+                new double[]{4.2, 0.4, 7.3}, JacobianStrategy.DUAL));
+        assertArrayEquals(new double[]{1, 3, 0.02}, SystemSolver.nonlinear_solve(input2, vars2,
+                new double[]{0.8, 2.7, 0.02}, JacobianStrategy.DUAL));
+    }
+
+    @Test
+    @DisplayName("When a nonlinear system is solved with Broyden's method, the same roots are "
+            + "found as with Newton's method, and the starting point is not modified")
+    void testNonLinearBroyden()
+            throws SolvingException, IncompleteExpressionException, UnreadableCharacterException {
+        Expression[] input1 = {InputParser.parse("x^2 + x - 6")};
+        String[] vars1 = {"x"};
+        double[] start1 = {2.7};
+        assertArrayEquals(new double[]{2}, SystemSolver.nonlinear_solve_broyden(input1, vars1,
+                start1));
+        assertArrayEquals(new double[]{2.7}, start1);
+        assertArrayEquals(new double[]{-3}, SystemSolver.nonlinear_solve_broyden(input1, vars1,
+                new double[]{-5}, JacobianStrategy.DUAL));
+
+        Expression[] input2 = {InputParser.parse("(3x^2-3)/(1+y^2)-2xz+2z"),
+                InputParser.parse("2yz+((2y)(x^3-3x))/(1+y^2)^2"), InputParser.parse("(x-1)^2+y^2-9")};
+        String[] vars2 = {"x", "y", "z"};
+        double[][] starts = {{-1.7, 0.2, -1.4}, {4.2, 0.4, 7.3}, {0.8, 2.7, 0.02}};
+        double[][] roots = {{-2, 0, -1.5}, {4, 0, 7.5}, {1, 3, 0.02}};
+        for (int k = 0; k < starts.length; k++) {
+            for (JacobianStrategy strategy : JacobianStrategy.values()) {
+                double[] root = SystemSolver.nonlinear_solve_broyden(input2, vars2, starts[k],
+                        strategy);
+                for (int i = 0; i < 3; i++) {
+                    assertEquals(roots[k][i], root[i], 1e-13);
+                }
+            }
+        }
+
+        // A chain of 12 coupled quadratics a^2 + 4a - b - 4 = 0, b^2 + 4b - c - 4 = 0, ...,
+        // ending with l^2 + 4l - 5 = 0, whose root near the start has every variable equal to 1
+        int dim = 12;
+        Expression[] chain = new Expression[dim];
+        String[] chainVars = new String[dim];
+        double[] chainStart = new double[dim];
+        for (int i = 0; i < dim; i++) {
+            chainVars[i] = String.valueOf((char) ('a' + i));
+        }
+        for (int i = 0; i < dim; i++) {
+            String x = chainVars[i];
+            String tail = i + 1 < dim ? " - " + chainVars[i + 1] + " - 4" : " - 5";
+            chain[i] = InputParser.parse(x + "^2 + 4" + x + tail);
+            chainStart[i] = 1.3;
+        }
+        double[] newton = SystemSolver.nonlinear_solve(chain, chainVars, chainStart.clone());
+        double[] broyden = SystemSolver.nonlinear_solve_broyden(chain, chainVars, chainStart);
+        for (int i = 0; i < dim; i++) {
+            assertEquals(1, newton[i], 1e-13);
+            assertEquals(newton[i], broyden[i], 1e-13);
+        }
+
+        // Roots of larger magnitude, at which rounding error in the values alone exceeds 1e-15
+        Expression[] input3 = {InputParser.parse("x^2 - 200")};
+        assertArrayEquals(SystemSolver.nonlinear_solve(input3, vars1, new double[]{14}),
+                SystemSolver.nonlinear_solve_broyden(input3, vars1, new double[]{14}));
+        Expression[] input4 = {InputParser.parse("x^2 + y^2 - 700"), InputParser.parse("x - 2y")};
+        String[] vars4 = {"x", "y"};
+        double[] root4 = {SystemSolver.round(Math.sqrt(560), 14),
+                SystemSolver.round(Math.sqrt(140), 14)};
+        assertArrayEquals(root4,
+                SystemSolver.nonlinear_solve_broyden(input4, vars4, new double[]{20, 10}));
+        assertArrayEquals(root4, SystemSolver.nonlinear_solve_broyden(input4, vars4,
+                new double[]{25, 12}, JacobianStrategy.DUAL));
+
+        Expression[] noRoot = {InputParser.parse("x^2 + 1")};
+        assertThrows(SolvingException.class,
+                () -> SystemSolver.nonlinear_solve_broyden(noRoot, vars1, new double[]{0.5}));
+    }
+
+    @Test
+    @DisplayName("Solving into a workspace should give the solutions of LUDecomposition, rounded "
+            + "only when asked, and reuse the workspace for every matrix, small or large")
+    void testSolveInto() throws SolvingException {
+        Random random = new Random(20);
+        SolverWorkspace workspace = new SolverWorkspace(6);
+        assertEquals(6, workspace.dimension());
+        double[] out = new double[6];
+        double[] unrounded = new double[6];
+        for (int trial = 0; trial < 50; trial++) {
+            double[][] mat = new double[6][6];
+            double[] vec = new double[6];
+            for (int i = 0; i < 6; i++) {
+                vec[i] = random.nextGaussian();
+                for (int j = 0; j < 6; j++) {
+                    mat[i][j] = random.nextGaussian();
+                }
+            }
+            double[][] copy = new double[6][];
+            for (int i = 0; i < 6; i++) {
+                copy[i] = mat[i].clone();
+            }
+            double[] vecCopy = vec.clone();
+
+            SystemSolver.solveInto(workspace, mat, vec, out);
+            assertArrayEquals(new LUDecomposition(mat).solve(vec), out);
+            SystemSolver.solveInto(workspace, mat, vec, unrounded, false);
+            for (int i = 0; i < 6; i++) {
+                assertEquals(out[i], SystemSolver.round(unrounded[i], 14));
+            }
+            assertTrue(Arrays.deepEquals(copy, mat));
+            assertArrayEquals(vecCopy, vec);
+        }
+
+        // Large enough for the blocked factorization, with several panels
+        double[][] large = new double[200][200];
+        double[] largeVec = new double[200];
+        for (int i = 0; i < 200; i++) {
+            largeVec[i] = random.nextGaussian();
+            for (int j = 0; j < 200; j++) {
+                large[i][j] = random.nextGaussian();
+            }
+        }
+        double[] largeOut = new double[200];
+        SystemSolver.solveInto(new SolverWorkspace(200), large, largeVec, largeOut);
+        assertArrayEquals(new LUDecomposition(large).solve(largeVec), largeOut);
+
+        double[][] singular = {{1, 2}, {2, 4}};
+        assertThrows(SolvingException.class, () -> SystemSolver.solveInto(new SolverWorkspace(2),
+                singular, new double[]{1, 1}, new double[2]));
+    }
+
+    @Test
+    @DisplayName("Once the JIT compiler has warmed up, solving into a workspace should not "
+            + "allocate, including for systems large enough for the blocked factorization")
+    void testSolveIntoDoesNotAllocate() throws SolvingException {
+        double[][] mat = {{4, 1, 2}, {1, 5, 3}, {2, 0, 6}};
+        assertEquals(0, allocatedBySolveInto(mat, new double[]{1, 2, 3}, 20000, 1000));
+
+        Random random = new Random(20);
+        double[][] large = new double[200][200];
+        double[] largeVec = new double[200];
+        for (int i = 0; i < 200; i++) {
+            largeVec[i] = random.nextGaussian();
+            for (int j = 0; j < 200; j++) {
+                large[i][j] = random.nextGaussian();
+            }
+        }
+        assertEquals(0, allocatedBySolveInto(large, largeVec, 1000, 20));
+    }
+
+    /**
+     * Returns the number of bytes allocated by `calls` calls to solveInto with one workspace, to
+     * the nearest kilobyte below, after `warmup` calls to let the JIT compiler finish.
+     */
+    private static long allocatedBySolveInto(double[][] mat, double[] vec, int warmup, int calls)
+            throws SolvingException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory
+                        .getThreadMXBean();
+        double[] out = new double[vec.length];
+        SolverWorkspace workspace = new SolverWorkspace(vec.length);
+        for (int i = 0; i < warmup; i++) {
+            SystemSolver.solveInto(workspace, mat, vec, out);
+        }
+        long thread = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < calls; i++) {
+            SystemSolver.solveInto(workspace, mat, vec, out);
+        }
+        long after = threads.getThreadAllocatedBytes(thread);
+        // The second call to getThreadAllocatedBytes may itself allocate a little
+        return (after - before) / 1000;
+    }
+
+    @Test
+    @DisplayName("Rounding should give the same results as dividing by Math.pow(10, k)")
+    void testRoundMatchesPow() {
+        Random random = new Random(10);
+        for (int trial = 0; trial < 1000; trial++) {
+            double num = random.nextGaussian() * Math.pow(10, random.nextInt(8));
+            for (int k = 0; k <= 15; k++) {
+                double expected = Math.round(num * Math.pow(10, k)) / Math.pow(10, k);
+                assertEquals(expected, SystemSolver.round(num, k));
+            }
+        }
+    }
 }